@@ -0,0 +1,62 @@
+// Converts the offscreen RGBA frame into a planar I420 image in a single pass.
+//
+// The target is an RGBA8 texture of (width / 4) x (height * 3 / 2) texels, i.e. exactly the I420
+// byte layout when read back with glReadPixels: every texel packs four consecutive bytes. Rows
+// [0, height) hold the Y plane, followed by height / 4 rows of U and height / 4 rows of V (each
+// target row holds two chroma rows). The image is flipped vertically so the first row read back is
+// the top of the frame, matching the CPU conversion it replaces.
+//
+// Requires width % 8 == 0 and height % 4 == 0.
+
+precision highp float;
+
+uniform sampler2D u_Texture;
+uniform vec2 u_SourceSize;
+
+// BT.601 limited range, same integer coefficients as ArCoreHandler.toI420Buffer
+const vec3 Y_COEFFS = vec3(66.0, 129.0, 25.0) / 256.0;
+const vec3 U_COEFFS = vec3(-38.0, -74.0, 112.0) / 256.0;
+const vec3 V_COEFFS = vec3(112.0, -94.0, -18.0) / 256.0;
+
+float luma(float x, float row) {
+    vec2 uv = vec2((x + 0.5) / u_SourceSize.x, 1.0 - (row + 0.5) / u_SourceSize.y);
+    return dot(texture2D(u_Texture, uv).rgb, Y_COEFFS) + 16.0 / 255.0;
+}
+
+// Samples the corner shared by the 2x2 source block, so linear filtering averages it
+vec2 chroma(float cx, float crow) {
+    vec2 uv = vec2((2.0 * cx + 1.0) / u_SourceSize.x, 1.0 - (2.0 * crow + 1.0) / u_SourceSize.y);
+    vec3 rgb = texture2D(u_Texture, uv).rgb;
+    return vec2(dot(rgb, U_COEFFS), dot(rgb, V_COEFFS)) + 128.0 / 255.0;
+}
+
+void main() {
+    float x = floor(gl_FragCoord.x) * 4.0;
+    float row = floor(gl_FragCoord.y);
+
+    if (row < u_SourceSize.y) {
+        gl_FragColor = vec4(luma(x, row), luma(x + 1.0, row), luma(x + 2.0, row), luma(x + 3.0, row));
+        return;
+    }
+
+    float chromaWidth = u_SourceSize.x * 0.5;
+    float planeRows = u_SourceSize.y * 0.25;
+    float planeRow = row - u_SourceSize.y;
+    bool isV = planeRow >= planeRows;
+    if (isV) {
+        planeRow -= planeRows;
+    }
+
+    float crow = planeRow * 2.0;
+    float cx = x;
+    if (cx >= chromaWidth) {
+        crow += 1.0;
+        cx -= chromaWidth;
+    }
+
+    vec2 c0 = chroma(cx, crow);
+    vec2 c1 = chroma(cx + 1.0, crow);
+    vec2 c2 = chroma(cx + 2.0, crow);
+    vec2 c3 = chroma(cx + 3.0, crow);
+    gl_FragColor = isV ? vec4(c0.y, c1.y, c2.y, c3.y) : vec4(c0.x, c1.x, c2.x, c3.x);
+}
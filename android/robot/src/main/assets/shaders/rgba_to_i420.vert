@@ -0,0 +1,5 @@
+attribute vec4 a_Position;
+
+void main() {
+   gl_Position = a_Position;
+}
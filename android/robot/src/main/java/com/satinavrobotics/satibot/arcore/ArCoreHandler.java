@@ -1,10 +1,10 @@
 package com.satinavrobotics.satibot.arcore;
 
 import android.content.Context;
-import android.media.Image;
 import android.opengl.GLES30;
 import android.opengl.GLSurfaceView;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.SystemClock;
 import android.util.Size;
 
@@ -22,7 +22,6 @@ import com.google.ar.core.Session;
 import com.google.ar.core.TrackingFailureReason;
 import com.google.ar.core.TrackingState;
 import com.google.ar.core.exceptions.CameraNotAvailableException;
-import com.google.ar.core.exceptions.NotYetAvailableException;
 import com.google.ar.core.exceptions.SessionPausedException;
 import com.google.ar.core.exceptions.UnavailableApkTooOldException;
 import com.google.ar.core.exceptions.UnavailableArcoreNotInstalledException;
@@ -31,8 +30,11 @@ import com.google.ar.core.exceptions.UnavailableSdkTooOldException;
 import com.google.firebase.firestore.FirebaseFirestore;
 
 import com.satinavrobotics.satibot.env.SharedPreferencesManager;
+import com.satinavrobotics.satibot.env.StatusManager;
+import com.satinavrobotics.satibot.env.StatusSnapshot;
 import com.satinavrobotics.satibot.mapManagement.Map;
 import com.satinavrobotics.satibot.mapManagement.MapResolvingManager;
+import com.satinavrobotics.satibot.navigation.WaypointsManager;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -45,7 +47,6 @@ import com.satinavrobotics.satibot.arcore.rendering.LiveKitARCoreRenderer;
 import com.satinavrobotics.satibot.arcore.rendering.NullARCoreRenderer;
 import com.satinavrobotics.satibot.arcore.rendering.SimpleARCoreRenderer;
 
-import livekit.org.webrtc.JavaI420Buffer;
 import livekit.org.webrtc.VideoFrame;
 import timber.log.Timber;
 
@@ -53,6 +54,9 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -82,6 +86,18 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
     private final GLSurfaceView glSurfaceView;
     private float gpuTextureAspectRatio = 16.0f / 9.0f;
     private final Handler handlerMain;
+    private final FrameBufferPool framePool = FrameBufferPool.getInstance();
+    private final CameraImageCache cameraImageCache = CameraImageCache.getInstance();
+
+    // Worker for listener callbacks that carry frame data, keeping them off the main looper
+    private HandlerThread callbackThread;
+    private volatile Handler callbackHandler;
+    // Set while a rendered frame is queued on the worker; newer frames are dropped meanwhile
+    private final AtomicBoolean renderedFramePending = new AtomicBoolean();
+    private final AtomicLong droppedRenderedFrames = new AtomicLong();
+    private final Supplier<JSONObject> readbackDiagnostics = this::getReadbackStats;
+    // Last requested stream width, height and frame interval, reapplied when the renderer changes
+    private volatile int[] streamSettings;
     private ArCoreListener arCoreListener = null;
     private Pose currentPose;
 
@@ -159,6 +175,27 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
     public void setRenderer(ARCoreRenderer renderer) {
         this.renderer = renderer;
         this.renderingEnabled = !(renderer instanceof NullARCoreRenderer);
+        applyStreamSettings();
+    }
+
+    /**
+     * Set the size and rate of the streamed frames, e.g. from the adaptive stream controller.
+     * Only the readback for streaming is affected; listeners still get every camera frame.
+     *
+     * @param width Streamed frame width (multiple of 8)
+     * @param height Streamed frame height (multiple of 4)
+     * @param frameInterval Stream every frameInterval-th rendered frame
+     */
+    public void setStreamLevel(int width, int height, int frameInterval) {
+        streamSettings = new int[] {width, height, frameInterval};
+        applyStreamSettings();
+    }
+
+    private void applyStreamSettings() {
+        int[] settings = streamSettings;
+        if (settings != null && renderer != null) {
+            renderer.setStreamSettings(settings[0], settings[1], settings[2]);
+        }
     }
 
     /**
@@ -199,6 +236,7 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
                 this.renderer = new NullARCoreRenderer();
                 break;
         }
+        applyStreamSettings();
     }
 
 
@@ -234,6 +272,7 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
             UnavailableArcoreNotInstalledException, UnavailableApkTooOldException, CameraNotAvailableException {
         session = new Session(context);
         setConfig();
+        startCallbackThread();
 
         setCameraConfig();
         session.resume();
@@ -242,6 +281,7 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
 
         // Load and resolve map anchors
         loadSelectedMap();
+        StatusManager.getInstance().putDiagnostics("readback", readbackDiagnostics);
     }
 
     public void pause() {
@@ -261,6 +301,7 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
                     // First pause the session with enhanced error handling
                     pauseWithErrorHandling();
                     mapResolvingManager.clear();
+                    cameraImageCache.clear();
 
                     // Close the session with error handling
                     if (session != null) {
@@ -277,6 +318,7 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
                     Timber.e(e, "Exception during ARCore session cleanup");
                     session = null;
                 } finally {
+                    stopCallbackThread();
                     // Always call the completion callback if provided
                     if (onComplete != null) {
                         onComplete.run();
@@ -295,6 +337,7 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
      * Enhanced pause method with better error handling for camera operations
      */
     private void pauseWithErrorHandling() {
+        StatusManager.getInstance().removeDiagnostics("readback", readbackDiagnostics);
         if (session != null) {
             try {
                 // First pause the display rotation helper and GLSurfaceView
@@ -438,34 +481,25 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
         } else {
             currentPose = camera.getPose();
 
-            // Get image.
-            // TODO: If needed, we could possibly implement some performance optimization here:
-            // Do we really need to copy here? We could use several cycling textures instead of only
-            // 1 texture. This would allow to close the image faster.
-            Image image = null;
-            try {
-                image = frame.acquireCameraImage();
-            } catch (NotYetAvailableException e) {
-                Timber.d(e, "ARCore image not available.");
-            }
+            // Get image. The cache copies the planes once and closes the Image immediately;
+            // the depth generators reuse the same copy for this frame.
+            ImageFrame imageFrame = cameraImageCache.acquire(frame);
 
             // Send arcore data
-            if (image != null) {
-                // TODO: We could use another data structure here to avoid additional copying later.
-                // (Important: We need to be fast here such that `image` is closed as fast
-                // as possible. Hence, we currently use ByteBuffer.get() and .put() to copy in a fast way.
-                // Is there a faster way?)
+            if (imageFrame != null) {
                 // --- ARCore Navigation: Notify listener with pose, image, and intrinsics ---
-                ImageFrame imageFrame = new ImageFrame(image);
-                runOnMainThread(() -> {
-                            if (arCoreListener != null) {
-                                arCoreListener.onArCoreUpdate(
-                                        currentPose,
-                                        imageFrame,
-                                        new CameraIntrinsics(camera.getImageIntrinsics()),
-                                        timestamp);
+                // Read the intrinsics here, the camera must not be touched off the GL thread
+                CameraIntrinsics intrinsics = new CameraIntrinsics(camera.getImageIntrinsics());
+                Pose pose = currentPose;
+                runOnCallbackThread(() -> {
+                            try {
+                                if (arCoreListener != null) {
+                                    arCoreListener.onArCoreUpdate(pose, imageFrame, intrinsics, timestamp);
+                                }
+                            } finally {
+                                // Listeners that keep the frame past the callback retain() it
+                                imageFrame.release();
                             }});
-                image.close();
             }
          }
 
@@ -482,20 +516,44 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
             renderer.drawFrame(processedData);
 
             // Now read pixels if needed (after all rendering is done)
-            ByteBuffer rgbaBuffer = renderer.readPixels();
-            // If we got a buffer, convert and send it
-            if (rgbaBuffer != null) {
-                runOnMainThread(() -> {
-                    if (arCoreListener != null) {
-                        try {
-                            VideoFrame.I420Buffer i420Buffer = toI420Buffer(rgbaBuffer, renderer.getWidth(), renderer.getHeight());
-                            if (i420Buffer != null) {
-                                arCoreListener.onRenderedFrame(i420Buffer, timestamp);
-                            } else {
-                                Timber.w("Failed to convert RGBA buffer to I420 format");
-                            }
-                        } catch (Exception e) {
-                            Timber.e(e, "Error processing rendered frame");
+            ByteBuffer pixelBuffer = renderer.readPixels();
+            // If we got a buffer, wrap or convert it and send it
+            if (pixelBuffer != null) {
+                boolean isI420 = renderer.getPixelFormat() == ARCoreRenderer.PixelFormat.I420;
+                int width = renderer.getWidth();
+                int height = renderer.getHeight();
+                // Drop the frame if the previous one is still waiting to be converted
+                if (!renderedFramePending.compareAndSet(false, true)) {
+                    droppedRenderedFrames.incrementAndGet();
+                    framePool.releaseDirect(pixelBuffer);
+                    return;
+                }
+                runOnCallbackThread(() -> {
+                    renderedFramePending.set(false);
+                    if (arCoreListener == null) {
+                        framePool.releaseDirect(pixelBuffer);
+                        return;
+                    }
+                    VideoFrame.I420Buffer i420Buffer = null;
+                    try {
+                        if (isI420) {
+                            i420Buffer = framePool.wrapI420(pixelBuffer, width, height);
+                        } else {
+                            i420Buffer = toI420Buffer(pixelBuffer, width, height);
+                            framePool.releaseDirect(pixelBuffer);
+                        }
+                        if (i420Buffer != null) {
+                            arCoreListener.onRenderedFrame(i420Buffer, timestamp);
+                        } else {
+                            Timber.w("Failed to convert rendered frame to I420 format");
+                        }
+                    } catch (Exception e) {
+                        Timber.e(e, "Error processing rendered frame");
+                    } finally {
+                        // Drop our reference; the buffer returns to the pool once the
+                        // encoder releases any reference it retained
+                        if (i420Buffer != null) {
+                            i420Buffer.release();
                         }
                     }
                 });
@@ -506,7 +564,8 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
     /**
      * Converts the RGBA data in rgbaBuffer into an I420 buffer.
      *
-     * @return a VideoFrame.I420Buffer containing the converted data.
+     * @return a pooled VideoFrame.I420Buffer containing the converted data; the caller owns one
+     *         reference and must release() it.
      */
     public VideoFrame.I420Buffer toI420Buffer(ByteBuffer rgbaBuffer, int width, int height) {
         // Validate input parameters
@@ -527,8 +586,8 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
             return null;
         }
 
-        // Allocate an I420 buffer of the same dimensions.
-        VideoFrame.I420Buffer i420Buffer = JavaI420Buffer.allocate(width, height);
+        // Take a pooled I420 buffer of the same dimensions.
+        VideoFrame.I420Buffer i420Buffer = framePool.allocateI420(width, height);
 
         // --- Get plane buffers and strides ---
         ByteBuffer i420Y = i420Buffer.getDataY();
@@ -538,8 +597,8 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
         ByteBuffer i420V = i420Buffer.getDataV();
         int strideV = i420Buffer.getStrideV();
 
-        // Copy the RGBA data into a byte array.
-        byte[] rgbaData = new byte[width * height * 4];
+        // Copy the RGBA data into a pooled byte array.
+        byte[] rgbaData = framePool.acquireArray(requiredBytes);
 
         // Reset position to ensure we read from the beginning
         rgbaBuffer.position(0);
@@ -548,6 +607,8 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
             rgbaBuffer.get(rgbaData);
         } catch (Exception e) {
             Timber.e(e, "Error reading from RGBA buffer");
+            framePool.releaseArray(rgbaData);
+            i420Buffer.release();
             return null;
         }
 
@@ -616,6 +677,7 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
             }
         }
 
+        framePool.releaseArray(rgbaData);
         return i420Buffer;
     }
 
@@ -703,12 +765,62 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
     /**
      * Helper method to post a Runnable on the main thread.
      */
-    protected synchronized void runOnMainThread(final Runnable r) {
-      new Thread(() -> {
+    protected void runOnMainThread(final Runnable r) {
         if (handlerMain != null) {
-          handlerMain.post(r);
+            handlerMain.post(r);
+        }
+    }
+
+    /**
+     * Post a Runnable on the callback worker, or on the main thread if the worker is not running.
+     * Used for listener callbacks that carry frame data and may convert or copy it.
+     */
+    protected void runOnCallbackThread(final Runnable r) {
+        Handler handler = callbackHandler;
+        if (handler == null || !handler.post(r)) {
+            runOnMainThread(r);
+        }
+    }
+
+    private synchronized void startCallbackThread() {
+        if (callbackThread == null) {
+            callbackThread = new HandlerThread("ArCoreCallbacks");
+            callbackThread.start();
+            callbackHandler = new Handler(callbackThread.getLooper());
+        }
+    }
+
+    private synchronized void stopCallbackThread() {
+        if (callbackThread != null) {
+            callbackHandler = null;
+            // Let queued frames run so their pooled buffers are released
+            callbackThread.quitSafely();
+            callbackThread = null;
         }
-      }).start();
+    }
+
+    /**
+     * @return number of rendered frames dropped because the previous one was still being processed
+     */
+    public long getDroppedRenderedFrameCount() {
+        return droppedRenderedFrames.get();
+    }
+
+    /**
+     * @return readback counters of the current renderer and the dropped rendered frames, or null
+     *         if the renderer does not stream
+     */
+    public JSONObject getReadbackStats() {
+        if (!(renderer instanceof LiveKitARCoreRenderer liveKitRenderer)) {
+            return null;
+        }
+        JSONObject json = liveKitRenderer.getReadbackStats();
+        try {
+            json.put("droppedRenderedFrames", getDroppedRenderedFrameCount());
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return json;
     }
 
 
@@ -738,6 +850,8 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
                         currentMap = documentSnapshot.toObject(Map.class);
                         if (currentMap != null) {
                             currentMap.setId(documentSnapshot.getId());
+                            WaypointsManager.getInstance().setRoutePlanner(
+                                    currentMap.getId(), currentMap.createRoutePlanner());
                             if (session != null) {
                                 resolveAnchors();
                             }
@@ -951,42 +1065,22 @@ public class ArCoreHandler implements GLSurfaceView.Renderer {
     }
 
     /**
-     * Creates a JSON object with the local coordinate pose information
+     * Creates the status record for a pose in local coordinates
      *
-     * @param localPose The local pose to convert to JSON
-     * @return A JSON object containing the local pose data
+     * @param localPose The local pose to report
+     * @return The pose with the id of the current map, if any
      */
-    public JSONObject createLocalPoseJson(Pose localPose) {
-        JSONObject poseJson = new JSONObject();
+    public StatusSnapshot.LocalPose createLocalPoseStatus(Pose localPose) {
+        float[] translation = new float[3];
+        localPose.getTranslation(translation, 0);
 
-        try {
-            // Extract translation
-            float[] translation = new float[3];
-            localPose.getTranslation(translation, 0);
-
-            // Extract rotation as quaternion
-            float[] rotation = new float[4];
-            localPose.getRotationQuaternion(rotation, 0);
-
-            // Add to JSON
-            poseJson.put("x", translation[0]);
-            poseJson.put("y", translation[1]);
-            poseJson.put("z", translation[2]);
-            poseJson.put("qx", rotation[0]);
-            poseJson.put("qy", rotation[1]);
-            poseJson.put("qz", rotation[2]);
-            poseJson.put("qw", rotation[3]);
-
-            // Add map ID for reference
-            if (currentMap != null) {
-                poseJson.put("mapId", currentMap.getId());
-            }
-
-        } catch (JSONException e) {
-            Timber.e(e, "Error creating local pose JSON");
-        }
+        float[] rotation = new float[4];
+        localPose.getRotationQuaternion(rotation, 0);
 
-        return poseJson;
+        return new StatusSnapshot.LocalPose(
+                translation[0], translation[1], translation[2],
+                rotation[0], rotation[1], rotation[2], rotation[3],
+                currentMap != null ? currentMap.getId() : null);
     }
 }
 
@@ -7,12 +7,21 @@ import livekit.org.webrtc.VideoFrame;
 
 public interface ArCoreListener {
 
+  /**
+   * Called on ArCoreHandler's callback worker thread, not the main thread.
+   * Frame buffers are pooled and recycled once this returns; call frame.retain() to keep the
+   * frame beyond the callback and frame.release() when done with it.
+   */
   void onArCoreUpdate(
       Pose currenPose,
       ImageFrame frame,
       CameraIntrinsics cameraIntrinsics,
       long timestamp);
 
+  /**
+   * Called on ArCoreHandler's callback worker thread, not the main thread.
+   * The buffer is released after this returns; retain() it to hold on to it for longer.
+   */
   void onRenderedFrame(VideoFrame.I420Buffer frame, long timestamp);
 
   void onArCoreTrackingFailure(long timestamp, TrackingFailureReason trackingFailureReason);
@@ -0,0 +1,94 @@
+package com.satinavrobotics.satibot.arcore;
+
+import android.media.Image;
+
+import com.google.ar.core.Frame;
+import com.google.ar.core.exceptions.NotYetAvailableException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * Per-frame cache of the ARCore camera image.
+ *
+ * The first consumer of a frame acquires the camera image, copies its planes once into a pooled
+ * {@link ImageFrame} and closes the Image right away; every further consumer of the same frame
+ * (ArCoreHandler, the depth generators, the mapping code) gets the same ImageFrame with an extra
+ * reference. Frames are matched by Frame.getTimestamp().
+ *
+ * ArCoreHandler drives the cache on the GL thread and clears it when its session closes.
+ */
+public class CameraImageCache {
+    private static final CameraImageCache instance = new CameraImageCache();
+
+    private ImageFrame cachedFrame;
+    private long cachedTimestamp = Long.MIN_VALUE;
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    public static CameraImageCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the camera image of the given frame, acquiring it from ARCore only if no consumer has
+     * done so yet for this frame.
+     *
+     * @return an ImageFrame the caller owns one reference to and must release(), or null if the
+     *         camera image is not available yet
+     */
+    public synchronized ImageFrame acquire(Frame frame) {
+        long timestamp = frame.getTimestamp();
+        if (cachedFrame != null && cachedTimestamp == timestamp) {
+            hits.incrementAndGet();
+            cachedFrame.retain();
+            return cachedFrame;
+        }
+
+        ImageFrame imageFrame;
+        try (Image image = frame.acquireCameraImage()) {
+            imageFrame = new ImageFrame(image);
+        } catch (NotYetAvailableException e) {
+            Timber.d(e, "ARCore image not available.");
+            return null;
+        }
+        acquisitions.incrementAndGet();
+
+        if (cachedFrame != null) {
+            cachedFrame.release();
+        }
+        cachedFrame = imageFrame;
+        cachedTimestamp = timestamp;
+
+        // One reference stays with the cache, one goes to the caller
+        imageFrame.retain();
+        return imageFrame;
+    }
+
+    /**
+     * Drop the cached image, e.g. when the ARCore session is closed.
+     */
+    public synchronized void clear() {
+        if (cachedFrame != null) {
+            cachedFrame.release();
+            cachedFrame = null;
+        }
+        cachedTimestamp = Long.MIN_VALUE;
+    }
+
+    /**
+     * @return number of camera images acquired from ARCore
+     */
+    public long getAcquisitionCount() {
+        return acquisitions.get();
+    }
+
+    /**
+     * @return number of requests served from an image already acquired for the same frame
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+}
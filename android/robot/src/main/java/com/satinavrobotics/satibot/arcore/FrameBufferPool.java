@@ -0,0 +1,179 @@
+package com.satinavrobotics.satibot.arcore;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import livekit.org.webrtc.JavaI420Buffer;
+import livekit.org.webrtc.VideoFrame;
+
+/**
+ * Process-wide pool of the frame buffers used on the ARCore streaming path: direct ByteBuffers
+ * for renderer readbacks and I420 frames, and byte arrays for camera plane copies.
+ *
+ * Buffers are keyed by size in bytes, which for a given pixel format is fixed by the resolution,
+ * so a resolution change simply starts a new free list. I420 buffers handed out by
+ * {@link #wrapI420} and {@link #allocateI420} return their backing memory here when their
+ * VideoFrame.Buffer reference count drops to zero, i.e. after the last retain() holder (such as
+ * the LiveKit encoder) has called release().
+ */
+public class FrameBufferPool {
+    // Free buffers kept per size; anything beyond this is left to the garbage collector
+    private static final int MAX_FREE_PER_SIZE = 4;
+
+    private static final FrameBufferPool instance = new FrameBufferPool();
+
+    private final Map<Integer, Queue<ByteBuffer>> freeBuffers = new ConcurrentHashMap<>();
+    private final Map<Integer, Queue<byte[]>> freeArrays = new ConcurrentHashMap<>();
+
+    private final AtomicLong acquires = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    public static FrameBufferPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Take a direct buffer of exactly the given capacity, positioned at 0 with limit = capacity.
+     */
+    public ByteBuffer acquireDirect(int capacity) {
+        acquires.incrementAndGet();
+        outstanding.incrementAndGet();
+        ByteBuffer buffer = poll(freeBuffers, capacity);
+        if (buffer != null) {
+            hits.incrementAndGet();
+            buffer.clear();
+            return buffer;
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Return a buffer obtained from acquireDirect(). The caller must not touch it afterwards.
+     */
+    public void releaseDirect(ByteBuffer buffer) {
+        outstanding.decrementAndGet();
+        offer(freeBuffers, buffer.capacity(), buffer);
+    }
+
+    /**
+     * Take a byte array of exactly the given length. Its contents are undefined.
+     */
+    public byte[] acquireArray(int length) {
+        acquires.incrementAndGet();
+        outstanding.incrementAndGet();
+        byte[] array = poll(freeArrays, length);
+        if (array != null) {
+            hits.incrementAndGet();
+            return array;
+        }
+        return new byte[length];
+    }
+
+    /**
+     * Return an array obtained from acquireArray(). The caller must not touch it afterwards.
+     */
+    public void releaseArray(byte[] array) {
+        outstanding.decrementAndGet();
+        offer(freeArrays, array.length, array);
+    }
+
+    /**
+     * Allocate a pooled I420 buffer with tightly packed planes.
+     *
+     * @return a VideoFrame.I420Buffer with a reference count of 1
+     */
+    public VideoFrame.I420Buffer allocateI420(int width, int height) {
+        int chromaSize = ((width + 1) / 2) * ((height + 1) / 2);
+        return wrapI420(acquireDirect(width * height + 2 * chromaSize), width, height);
+    }
+
+    /**
+     * Wrap a pooled direct buffer holding Y, U and V planes back to back without padding. The
+     * buffer goes back to the pool once the returned I420 buffer is fully released.
+     *
+     * @return a VideoFrame.I420Buffer with a reference count of 1, or null if the buffer is too
+     *         small (in which case it has already been returned to the pool)
+     */
+    public VideoFrame.I420Buffer wrapI420(ByteBuffer pooled, int width, int height) {
+        int chromaWidth = (width + 1) / 2;
+        int ySize = width * height;
+        int chromaSize = chromaWidth * ((height + 1) / 2);
+        if (pooled.capacity() < ySize + 2 * chromaSize) {
+            releaseDirect(pooled);
+            return null;
+        }
+        return JavaI420Buffer.wrap(width, height,
+                slice(pooled, 0, ySize), width,
+                slice(pooled, ySize, chromaSize), chromaWidth,
+                slice(pooled, ySize + chromaSize, chromaSize), chromaWidth,
+                () -> releaseDirect(pooled));
+    }
+
+    /**
+     * Fraction of acquisitions served from the pool, 0 if nothing has been acquired yet.
+     */
+    public double getHitRate() {
+        long total = acquires.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    /**
+     * Buffers and arrays currently handed out and not yet released.
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public long getAcquireCount() {
+        return acquires.get();
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("acquires", acquires.get());
+            json.put("hitRate", Math.round(getHitRate() * 1000) / 1000.0);
+            json.put("outstanding", outstanding.get());
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return json;
+    }
+
+    /**
+     * Drop all free buffers, e.g. when streaming stops. Outstanding buffers are unaffected.
+     */
+    public void trim() {
+        freeBuffers.clear();
+        freeArrays.clear();
+    }
+
+    private static <T> T poll(Map<Integer, Queue<T>> free, int size) {
+        Queue<T> queue = free.get(size);
+        return queue != null ? queue.poll() : null;
+    }
+
+    private static <T> void offer(Map<Integer, Queue<T>> free, int size, T item) {
+        Queue<T> queue = free.computeIfAbsent(size, k -> new ConcurrentLinkedQueue<>());
+        // size() is O(n) on ConcurrentLinkedQueue but n is bounded by MAX_FREE_PER_SIZE
+        if (queue.size() < MAX_FREE_PER_SIZE) {
+            queue.offer(item);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice();
+    }
+}
@@ -3,20 +3,27 @@ package com.satinavrobotics.satibot.arcore;
 import android.graphics.ImageFormat;
 import android.media.Image;
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import livekit.org.webrtc.JavaI420Buffer;
 import livekit.org.webrtc.VideoFrame;
 
 /* fillBytes() taken From: https://github.com/wangjiangyong/tflite_android_facedemo/blob/master/app/src/main/java/org/tensorflow/demo/CameraActivity.java */
 
+/**
+ * Copy of a camera image's YUV planes. The plane arrays come from {@link FrameBufferPool} and are
+ * reference counted: the frame starts with one reference, retain() adds one and release() drops
+ * one, returning the arrays to the pool when the last reference is gone.
+ */
 public class ImageFrame {
 
-  private byte[][] yuvBytes = new byte[3][];
+  private final byte[][] yuvBytes = new byte[3][];
+  private final AtomicInteger refCount = new AtomicInteger(1);
   int width;
   int height;
   private int yRowStride;
   private int uvRowStride;
   private int uvPixelStride;
+  private long timestamp;
 
   public ImageFrame(final Image image) {
     assert (image.getFormat() == ImageFormat.YUV_420_888);
@@ -28,6 +35,7 @@ public class ImageFrame {
 
     width = image.getWidth();
     height = image.getHeight();
+    timestamp = image.getTimestamp();
 
     yRowStride = planes[0].getRowStride();
     uvRowStride = planes[1].getRowStride();
@@ -46,6 +54,19 @@ public class ImageFrame {
     return height;
   }
 
+  /** Camera image timestamp in nanoseconds, as reported by Image.getTimestamp() */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Read-only view of one plane (0 = Y, 1 = U, 2 = V) laid out like Image.Plane.getBuffer(), so
+   * code written against android.media.Image can read it with the same row and pixel strides.
+   */
+  public ByteBuffer getPlane(int index) {
+    return ByteBuffer.wrap(yuvBytes[index]).asReadOnlyBuffer();
+  }
+
   public int getYRowStride() {
     return yRowStride;
   }
@@ -58,13 +79,29 @@ public class ImageFrame {
     return uvPixelStride;
   }
 
+  public void retain() {
+    refCount.incrementAndGet();
+  }
+
+  public void release() {
+    if (refCount.decrementAndGet() == 0) {
+      FrameBufferPool pool = FrameBufferPool.getInstance();
+      for (int i = 0; i < yuvBytes.length; ++i) {
+        if (yuvBytes[i] != null) {
+          pool.releaseArray(yuvBytes[i]);
+          yuvBytes[i] = null;
+        }
+      }
+    }
+  }
+
   protected void fillBytes(final Image.Plane[] planes, final byte[][] yuvBytes) {
     // Because of the variable row stride it's not possible to know in
     // advance the actual necessary dimensions of the yuv planes.
     for (int i = 0; i < planes.length; ++i) {
       final ByteBuffer buffer = planes[i].getBuffer();
       if (yuvBytes[i] == null) {
-        yuvBytes[i] = new byte[buffer.capacity()];
+        yuvBytes[i] = FrameBufferPool.getInstance().acquireArray(buffer.capacity());
       }
       buffer.get(yuvBytes[i]);
     }
@@ -74,11 +111,12 @@ public class ImageFrame {
    * Converts the YUV_420_888 data in yuvBytes into an I420 buffer.
    * Note: This implementation does not perform any rotation.
    *
-   * @return a VideoFrame.I420Buffer containing the converted data.
+   * @return a pooled VideoFrame.I420Buffer containing the converted data; the caller owns one
+   *     reference and must release() it.
    */
   public VideoFrame.I420Buffer toI420Buffer() {
-    // Allocate an I420 buffer of the same dimensions.
-    JavaI420Buffer i420Buffer = JavaI420Buffer.allocate(width, height);
+    // Take a pooled I420 buffer of the same dimensions.
+    VideoFrame.I420Buffer i420Buffer = FrameBufferPool.getInstance().allocateI420(width, height);
 
     // --- Copy Y plane ---
     ByteBuffer i420Y = i420Buffer.getDataY();
@@ -14,6 +14,14 @@ import javax.microedition.khronos.opengles.GL10;
  * This interface defines methods for rendering AR content using ARCore.
  */
 public interface ARCoreRenderer {
+    /**
+     * Layout of the buffers returned by {@link #readPixels()}.
+     */
+    enum PixelFormat {
+        RGBA,   // width * height * 4 bytes, bottom row first
+        I420    // width * height * 3 / 2 bytes, Y then U then V planes, top row first
+    }
+
     /**
      * Called when the surface is created.
      * Initialize OpenGL resources here.
@@ -44,10 +52,33 @@ public interface ARCoreRenderer {
      * Read pixels from the current framebuffer.
      * This should be called after drawFrame if pixel data is needed.
      *
-     * @return A ByteBuffer containing the rendered frame data (RGBA) or null if direct rendering is used
+     * @return A ByteBuffer containing the rendered frame data in {@link #getPixelFormat()} or null
+     *         if direct rendering is used. Non-null buffers come from FrameBufferPool and are
+     *         owned by the caller.
      */
     ByteBuffer readPixels();
 
+    /**
+     * Get the layout of the buffers returned by readPixels().
+     *
+     * @return The pixel format, RGBA unless the renderer converts on the GPU
+     */
+    default PixelFormat getPixelFormat() {
+        return PixelFormat.RGBA;
+    }
+
+    /**
+     * Set the size of streamed frames and how often they are read back. May be called from any
+     * thread; renderers that stream apply it on the GL thread before the next frame. Renderers
+     * that don't stream ignore it.
+     *
+     * @param width Streamed frame width
+     * @param height Streamed frame height
+     * @param frameInterval Read back every frameInterval-th frame, 1 for every frame
+     */
+    default void setStreamSettings(int width, int height, int frameInterval) {
+    }
+
     /**
      * Get the texture ID used by the background renderer.
      *
@@ -0,0 +1,154 @@
+package com.satinavrobotics.satibot.arcore.rendering;
+
+import android.content.Context;
+import android.opengl.GLES30;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import timber.log.Timber;
+
+/**
+ * GPU pass that converts an RGBA texture into planar I420 with one draw call. The result is
+ * rendered into an offscreen target whose pixel layout is the I420 byte layout, so a glReadPixels
+ * of {@link #getOutputWidth()} x {@link #getOutputHeight()} RGBA texels yields a ready-to-wrap
+ * I420 frame of width * height * 3 / 2 bytes.
+ */
+public class I420ConversionPass {
+    private static final String TAG = I420ConversionPass.class.getSimpleName();
+
+    private static final String VERTEX_SHADER_NAME = "shaders/rgba_to_i420.vert";
+    private static final String FRAGMENT_SHADER_NAME = "shaders/rgba_to_i420.frag";
+
+    private static final float[] QUAD_COORDS = {
+            -1.0f, -1.0f, -1.0f, +1.0f, +1.0f, -1.0f, +1.0f, +1.0f,
+    };
+
+    private final int[] framebuffer = new int[1];
+    private final int[] texture = new int[1];
+    private FloatBuffer quadCoords;
+    private int program;
+    private int positionParam;
+    private int textureParam;
+    private int sourceSizeParam;
+    private int width, height;
+
+    /**
+     * Allocates the shader program and output target. Must be called on the GL thread.
+     *
+     * @param width  Source width, must be a multiple of 8
+     * @param height Source height, must be a multiple of 4
+     */
+    public void createOnGlThread(Context context, int width, int height) throws IOException {
+        if (width % 8 != 0 || height % 4 != 0) {
+            throw new IllegalArgumentException(
+                    "I420 conversion needs width % 8 == 0 and height % 4 == 0, got " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+
+        quadCoords = ByteBuffer.allocateDirect(QUAD_COORDS.length * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        quadCoords.put(QUAD_COORDS);
+        quadCoords.position(0);
+
+        int vertexShader =
+                ShaderUtil.loadGLShader(TAG, context, GLES30.GL_VERTEX_SHADER, VERTEX_SHADER_NAME);
+        int fragmentShader =
+                ShaderUtil.loadGLShader(TAG, context, GLES30.GL_FRAGMENT_SHADER, FRAGMENT_SHADER_NAME);
+        program = GLES30.glCreateProgram();
+        GLES30.glAttachShader(program, vertexShader);
+        GLES30.glAttachShader(program, fragmentShader);
+        GLES30.glLinkProgram(program);
+        // The program keeps the linked shaders, they are freed together with it
+        GLES30.glDeleteShader(vertexShader);
+        GLES30.glDeleteShader(fragmentShader);
+
+        int[] linked = new int[1];
+        GLES30.glGetProgramiv(program, GLES30.GL_LINK_STATUS, linked, 0);
+        if (linked[0] == 0) {
+            String log = GLES30.glGetProgramInfoLog(program);
+            cleanup();
+            throw new IllegalStateException("I420 conversion program linking failed: " + log);
+        }
+        ShaderUtil.checkGLError(TAG, "Program creation");
+
+        positionParam = GLES30.glGetAttribLocation(program, "a_Position");
+        textureParam = GLES30.glGetUniformLocation(program, "u_Texture");
+        sourceSizeParam = GLES30.glGetUniformLocation(program, "u_SourceSize");
+
+        // Output target: nearest filtering, every texel is four packed bytes
+        GLES30.glGenTextures(1, texture, 0);
+        GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, texture[0]);
+        GLES30.glTexImage2D(GLES30.GL_TEXTURE_2D, 0, GLES30.GL_RGBA8, getOutputWidth(), getOutputHeight(), 0,
+                GLES30.GL_RGBA, GLES30.GL_UNSIGNED_BYTE, null);
+        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_NEAREST);
+        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_NEAREST);
+
+        GLES30.glGenFramebuffers(1, framebuffer, 0);
+        GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES30.glFramebufferTexture2D(GLES30.GL_FRAMEBUFFER, GLES30.GL_COLOR_ATTACHMENT0,
+                GLES30.GL_TEXTURE_2D, texture[0], 0);
+        int status = GLES30.glCheckFramebufferStatus(GLES30.GL_FRAMEBUFFER);
+        GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, 0);
+        if (status != GLES30.GL_FRAMEBUFFER_COMPLETE) {
+            cleanup();
+            throw new IllegalStateException("I420 framebuffer not complete, status: " + status);
+        }
+        Timber.d("I420 conversion pass ready for %dx%d", width, height);
+    }
+
+    /**
+     * Converts the given RGBA texture. Leaves the output framebuffer bound for reading.
+     *
+     * @param sourceTexture GL_TEXTURE_2D of the configured size with linear filtering
+     */
+    public void draw(int sourceTexture) {
+        GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES30.glViewport(0, 0, getOutputWidth(), getOutputHeight());
+        GLES30.glDisable(GLES30.GL_BLEND);
+        GLES30.glDisable(GLES30.GL_DEPTH_TEST);
+
+        GLES30.glUseProgram(program);
+        GLES30.glActiveTexture(GLES30.GL_TEXTURE0);
+        GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, sourceTexture);
+        GLES30.glUniform1i(textureParam, 0);
+        GLES30.glUniform2f(sourceSizeParam, width, height);
+
+        GLES30.glVertexAttribPointer(positionParam, 2, GLES30.GL_FLOAT, false, 0, quadCoords);
+        GLES30.glEnableVertexAttribArray(positionParam);
+        GLES30.glDrawArrays(GLES30.GL_TRIANGLE_STRIP, 0, 4);
+        GLES30.glDisableVertexAttribArray(positionParam);
+    }
+
+    public int getOutputWidth() {
+        return width / 4;
+    }
+
+    public int getOutputHeight() {
+        return height * 3 / 2;
+    }
+
+    /** Size of the I420 frame in bytes */
+    public int getOutputSize() {
+        return width * height * 3 / 2;
+    }
+
+    public void cleanup() {
+        if (framebuffer[0] != 0) {
+            GLES30.glDeleteFramebuffers(1, framebuffer, 0);
+            framebuffer[0] = 0;
+        }
+        if (texture[0] != 0) {
+            GLES30.glDeleteTextures(1, texture, 0);
+            texture[0] = 0;
+        }
+        if (program != 0) {
+            GLES30.glDeleteProgram(program);
+            program = 0;
+        }
+    }
+}
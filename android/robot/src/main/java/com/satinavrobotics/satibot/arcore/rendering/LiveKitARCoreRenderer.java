@@ -9,6 +9,8 @@ import com.google.ar.core.TrackingState;
 import com.satinavrobotics.satibot.mapManagement.MapResolvingManager;
 import com.satinavrobotics.satibot.arcore.processor.ArCoreProcessor;
 
+import org.json.JSONObject;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.List;
@@ -35,16 +37,26 @@ public class LiveKitARCoreRenderer implements ARCoreRenderer {
     private final int[] offscreenTexture = new int[1];
     private int width, height;
 
-    // Pixel buffer objects for asynchronous pixel reading
-    private final int[] pboIds = new int[2];
-    private int currentPboIndex = 0;
+    // GPU RGBA to I420 conversion, null if unavailable (falls back to RGBA readback)
+    private I420ConversionPass i420Pass;
+
+    // Fenced pixel buffer objects for asynchronous pixel reading
+    private final PboReadbackRing readbackRing = new PboReadbackRing();
+
+    // Stream settings: requested from any thread, applied on the GL thread in drawFrame
+    private volatile int[] pendingStreamSize;
+    private volatile int frameInterval = 1;
+    private int frameCounter = 0;
+    private Context context;
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config, Context context) {
+        this.context = context;
         GLES30.glClearColor(0.1f, 0.1f, 0.1f, 1.0f);
 
-        setupOffscreenRendering(640, 480);
-        setupPBOs();
+        int[] size = pendingStreamSize;
+        pendingStreamSize = null;
+        setupStreamTargets(size != null ? size[0] : 640, size != null ? size[1] : 480);
 
         // Initialize ARCore background rendering
         try {
@@ -75,6 +87,8 @@ public class LiveKitARCoreRenderer implements ARCoreRenderer {
         Pose currentPose = frameData.getCurrentPose();
         List<MapResolvingManager.ResolvedAnchor> resolvedAnchors = frameData.getResolvedAnchors();
 
+        applyPendingStreamSize();
+
         // Bind to offscreen framebuffer
         GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, offscreenFramebuffer[0]);
         GLES30.glViewport(0, 0, width, height);
@@ -111,6 +125,13 @@ public class LiveKitARCoreRenderer implements ARCoreRenderer {
 
     @Override
     public ByteBuffer readPixels() {
+        // Skip the readback on frames that are not streamed
+        if (++frameCounter < frameInterval) {
+            GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, 0);
+            return null;
+        }
+        frameCounter = 0;
+
         // Read pixels using PBO
         ByteBuffer rgbaBuffer = readPixelsInternal();
 
@@ -120,6 +141,26 @@ public class LiveKitARCoreRenderer implements ARCoreRenderer {
         return rgbaBuffer;
     }
 
+    @Override
+    public void setStreamSettings(int width, int height, int frameInterval) {
+        this.frameInterval = Math.max(1, frameInterval);
+        if (width != this.width || height != this.height) {
+            pendingStreamSize = new int[] {width, height};
+        }
+    }
+
+    /**
+     * @return readback counters (frames, stalls, latency) of the PBO ring
+     */
+    public JSONObject getReadbackStats() {
+        return readbackRing.toJson();
+    }
+
+    @Override
+    public PixelFormat getPixelFormat() {
+        return i420Pass != null ? PixelFormat.I420 : PixelFormat.RGBA;
+    }
+
     @Override
     public int getBackgroundTextureId() {
         return backgroundRenderer.getTextureId();
@@ -127,12 +168,42 @@ public class LiveKitARCoreRenderer implements ARCoreRenderer {
 
     @Override
     public void cleanup() {
+        releaseStreamTargets();
+    }
+
+    // Create the offscreen target and conversion pass for the given stream size
+    private void setupStreamTargets(int width, int height) {
+        setupOffscreenRendering(width, height);
+        setupI420Conversion(context);
+    }
+
+    // Recreate the stream targets if a new size was requested; frames in flight are dropped
+    private void applyPendingStreamSize() {
+        int[] size = pendingStreamSize;
+        if (size == null || context == null) {
+            return;
+        }
+        pendingStreamSize = null;
+        if (size[0] == width && size[1] == height) {
+            return;
+        }
+        Timber.d("Resizing stream target %dx%d -> %dx%d", width, height, size[0], size[1]);
+        releaseStreamTargets();
+        setupStreamTargets(size[0], size[1]);
+    }
+
+    private void releaseStreamTargets() {
         // Delete framebuffer and texture
         GLES30.glDeleteFramebuffers(1, offscreenFramebuffer, 0);
         GLES30.glDeleteTextures(1, offscreenTexture, 0);
 
-        // Delete PBOs
-        GLES30.glDeleteBuffers(2, pboIds, 0);
+        // Delete PBOs and pending fences
+        readbackRing.cleanup();
+
+        if (i420Pass != null) {
+            i420Pass.cleanup();
+            i420Pass = null;
+        }
     }
 
     @Override
@@ -176,41 +247,26 @@ public class LiveKitARCoreRenderer implements ARCoreRenderer {
         GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, 0);
     }
 
-    // Initialize PBOs
-    private void setupPBOs() {
-        GLES30.glGenBuffers(2, pboIds, 0);
-        int bufferSize = width * height * 4; // RGBA
-        for (int i = 0; i < 2; i++) {
-            GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pboIds[i]);
-            GLES30.glBufferData(GLES30.GL_PIXEL_PACK_BUFFER, bufferSize, null, GLES30.GL_STREAM_READ);
+    // Initialize the GPU I420 conversion, keeping RGBA readback if it cannot be created
+    private void setupI420Conversion(Context context) {
+        I420ConversionPass pass = new I420ConversionPass();
+        try {
+            pass.createOnGlThread(context, width, height);
+            i420Pass = pass;
+        } catch (IOException | RuntimeException e) {
+            Timber.w(e, "GPU I420 conversion unavailable, streaming RGBA readback");
+            pass.cleanup();
+            i420Pass = null;
         }
-        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
     }
 
-    // Read pixels asynchronously
+    // Read pixels asynchronously, converting to I420 on the GPU first if possible
     private ByteBuffer readPixelsInternal() {
-        currentPboIndex = (currentPboIndex + 1) % 2;
-        int nextPboIndex = currentPboIndex;
-
-        // Read into the next PBO
-        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pboIds[nextPboIndex]);
-        GLES30.glReadPixels(0, 0, width, height, GLES30.GL_RGBA, GLES30.GL_UNSIGNED_BYTE, 0);
-
-        // Retrieve data from the current PBO
-        int dataPboIndex = (currentPboIndex + 1) % 2;
-        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pboIds[dataPboIndex]);
-        ByteBuffer pixelBuffer = (ByteBuffer) GLES30.glMapBufferRange(
-                GLES30.GL_PIXEL_PACK_BUFFER, 0, width * height * 4, GLES30.GL_MAP_READ_BIT);
-
-        ByteBuffer resultBuffer = null;
-        if (pixelBuffer != null) {
-            resultBuffer = ByteBuffer.allocateDirect(pixelBuffer.remaining());
-            resultBuffer.put(pixelBuffer);
-            resultBuffer.rewind();
-            GLES30.glUnmapBuffer(GLES30.GL_PIXEL_PACK_BUFFER);
+        if (i420Pass != null) {
+            // Leaves the conversion output bound as the read framebuffer
+            i420Pass.draw(offscreenTexture[0]);
+            return readbackRing.readback(i420Pass.getOutputWidth(), i420Pass.getOutputHeight());
         }
-
-        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
-        return resultBuffer;
+        return readbackRing.readback(width, height);
     }
 }
@@ -0,0 +1,215 @@
+package com.satinavrobotics.satibot.arcore.rendering;
+
+import android.opengl.GLES30;
+import android.os.SystemClock;
+
+import com.satinavrobotics.satibot.arcore.FrameBufferPool;
+import com.satinavrobotics.satibot.env.LatencyHistogram;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+
+import timber.log.Timber;
+
+/**
+ * Ring of pixel buffer objects for asynchronous glReadPixels.
+ *
+ * Each readback goes into the next free PBO followed by a fence. A PBO is only mapped once
+ * glClientWaitSync with a zero timeout reports its fence as signaled, so mapping never waits on
+ * the GPU. If every PBO is still in flight the new readback is dropped and counted as a stall
+ * instead of blocking the GL thread.
+ *
+ * All methods must be called on the GL thread.
+ */
+public class PboReadbackRing {
+    private static final String TAG = PboReadbackRing.class.getSimpleName();
+
+    public static final int DEFAULT_DEPTH = 3;
+
+    private final int depth;
+    private final int[] pboIds;
+    private final long[] fences;
+    private final long[] submitFrame;
+    private final long[] submitNanos;
+
+    private int bufferSize = 0;
+    private int readWidth = 0;
+    private int readHeight = 0;
+    private int writeIndex = 0;
+    private int readIndex = 0;
+    private int inFlight = 0;
+
+    // Metrics
+    private long submitted = 0;
+    private long completed = 0;
+    private long stalls = 0;
+    private long notReadyPolls = 0;
+    private long maxLatencyFrames = 0;
+    private long totalLatencyFrames = 0;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public PboReadbackRing() {
+        this(DEFAULT_DEPTH);
+    }
+
+    public PboReadbackRing(int depth) {
+        if (depth < 2) {
+            throw new IllegalArgumentException("PBO ring needs at least 2 buffers, got " + depth);
+        }
+        this.depth = depth;
+        this.pboIds = new int[depth];
+        this.fences = new long[depth];
+        this.submitFrame = new long[depth];
+        this.submitNanos = new long[depth];
+    }
+
+    /**
+     * Collect a finished readback, if any, then start reading the given rectangle of the currently
+     * bound read framebuffer as RGBA. Buffers are (re)allocated when the rectangle size changes,
+     * dropping readbacks still in flight.
+     *
+     * @return the oldest completed readback of width * height * 4 bytes from FrameBufferPool, owned
+     *         by the caller, or null if none has completed yet
+     */
+    public ByteBuffer readback(int width, int height) {
+        if (width != readWidth || height != readHeight || bufferSize == 0) {
+            cleanup();
+            allocate(width, height);
+        }
+        ByteBuffer result = poll();
+        submit(width, height);
+        return result;
+    }
+
+    private void allocate(int width, int height) {
+        readWidth = width;
+        readHeight = height;
+        bufferSize = width * height * 4;
+        GLES30.glGenBuffers(depth, pboIds, 0);
+        for (int i = 0; i < depth; i++) {
+            GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pboIds[i]);
+            GLES30.glBufferData(GLES30.GL_PIXEL_PACK_BUFFER, bufferSize, null, GLES30.GL_STREAM_READ);
+        }
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+    }
+
+    private void submit(int width, int height) {
+        if (inFlight == depth) {
+            stalls++;
+            return;
+        }
+        int slot = writeIndex;
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pboIds[slot]);
+        GLES30.glReadPixels(0, 0, width, height, GLES30.GL_RGBA, GLES30.GL_UNSIGNED_BYTE, 0);
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+        fences[slot] = GLES30.glFenceSync(GLES30.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        submitFrame[slot] = submitted++;
+        submitNanos[slot] = SystemClock.elapsedRealtimeNanos();
+        writeIndex = (writeIndex + 1) % depth;
+        inFlight++;
+    }
+
+    private ByteBuffer poll() {
+        if (inFlight == 0) {
+            return null;
+        }
+        int slot = readIndex;
+        int status = GLES30.glClientWaitSync(fences[slot], 0, 0);
+        if (status == GLES30.GL_TIMEOUT_EXPIRED) {
+            notReadyPolls++;
+            return null;
+        }
+        GLES30.glDeleteSync(fences[slot]);
+        fences[slot] = 0;
+        readIndex = (readIndex + 1) % depth;
+        inFlight--;
+        if (status == GLES30.GL_WAIT_FAILED) {
+            Timber.w("%s: fence wait failed, dropping readback", TAG);
+            return null;
+        }
+
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pboIds[slot]);
+        ByteBuffer mapped = (ByteBuffer) GLES30.glMapBufferRange(
+                GLES30.GL_PIXEL_PACK_BUFFER, 0, bufferSize, GLES30.GL_MAP_READ_BIT);
+        ByteBuffer result = null;
+        if (mapped != null) {
+            // Pooled; ArCoreHandler returns it once the frame has been converted or encoded
+            result = FrameBufferPool.getInstance().acquireDirect(bufferSize);
+            result.put(mapped);
+            result.rewind();
+            GLES30.glUnmapBuffer(GLES30.GL_PIXEL_PACK_BUFFER);
+
+            completed++;
+            long latencyFrames = submitted - submitFrame[slot];
+            totalLatencyFrames += latencyFrames;
+            maxLatencyFrames = Math.max(maxLatencyFrames, latencyFrames);
+            latency.record(SystemClock.elapsedRealtimeNanos() - submitNanos[slot]);
+        }
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+        return result;
+    }
+
+    /**
+     * Delete the buffers and any pending fences. The ring can be reused; the next readback
+     * reallocates.
+     */
+    public void cleanup() {
+        for (int i = 0; i < depth; i++) {
+            if (fences[i] != 0) {
+                GLES30.glDeleteSync(fences[i]);
+                fences[i] = 0;
+            }
+        }
+        if (bufferSize != 0) {
+            GLES30.glDeleteBuffers(depth, pboIds, 0);
+        }
+        bufferSize = 0;
+        readWidth = 0;
+        readHeight = 0;
+        writeIndex = 0;
+        readIndex = 0;
+        inFlight = 0;
+    }
+
+    public long getSubmittedCount() {
+        return submitted;
+    }
+
+    public long getCompletedCount() {
+        return completed;
+    }
+
+    /**
+     * @return readbacks dropped because every PBO was still in flight
+     */
+    public long getStallCount() {
+        return stalls;
+    }
+
+    /**
+     * @return polls that found the oldest readback not finished yet
+     */
+    public long getNotReadyCount() {
+        return notReadyPolls;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("depth", depth);
+            json.put("submitted", submitted);
+            json.put("completed", completed);
+            json.put("stalls", stalls);
+            json.put("notReady", notReadyPolls);
+            json.put("avgLatencyFrames", completed == 0 ? 0 : (double) totalLatencyFrames / completed);
+            json.put("maxLatencyFrames", maxLatencyFrames);
+            json.put("p50LatencyMs", latency.getPercentile(50) / 1e6);
+            json.put("p99LatencyMs", latency.getPercentile(99) / 1e6);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return json;
+    }
+}
@@ -9,6 +9,7 @@ import com.google.ar.core.TrackingState;
 import com.satinavrobotics.satibot.depth.depth_sources.DepthImageGenerator;
 import com.satinavrobotics.satibot.mapManagement.MapResolvingManager;
 import com.satinavrobotics.satibot.arcore.processor.ArCoreProcessor;
+import com.satinavrobotics.satibot.navigation.OccupancyGrid;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -69,6 +70,15 @@ public class DepthProcessor implements ArCoreProcessor {
     // Flag to enable/disable horizontal gradient processing
     private boolean horizontalGradientsEnabled = true;
 
+    // Occupancy grid fed with every processed depth frame, if set
+    private static final int OCCUPANCY_PIXEL_STRIDE = 2;
+    private volatile OccupancyGrid occupancyGrid;
+    private final float[] cameraToWorld = new float[16];
+    // Depth image intrinsics (fx, fy, cx, cy) for depthIntrinsicsWidth x depthIntrinsicsHeight
+    private final float[] depthIntrinsics = new float[4];
+    private int depthIntrinsicsWidth = 0;
+    private int depthIntrinsicsHeight = 0;
+
     /**
      * Creates a new PolarHistogramGenerator with default parameters from RobotParametersManager.
      */
@@ -797,10 +807,50 @@ public class DepthProcessor implements ArCoreProcessor {
         // Process depth data first
         boolean depthUpdated = update(frame);
 
+        OccupancyGrid grid = occupancyGrid;
+        if (depthUpdated && grid != null && camera.getTrackingState() == TrackingState.TRACKING) {
+            integrateOccupancy(grid, camera);
+        }
+
         // Create and return ProcessedFrameData
         return createProcessedFrameData(frame, camera, resolvedAnchors);
     }
 
+    /**
+     * Set the occupancy grid to update from each depth frame, or null to stop updating.
+     */
+    public void setOccupancyGrid(OccupancyGrid grid) {
+        this.occupancyGrid = grid;
+    }
+
+    /**
+     * Project the raw depth of the last frame into the occupancy grid from the camera pose.
+     */
+    private void integrateOccupancy(OccupancyGrid grid, Camera camera) {
+        if (lastDepthArray == null || depthWidth <= 0 || depthHeight <= 0) {
+            return;
+        }
+        if (depthIntrinsicsWidth != depthWidth || depthIntrinsicsHeight != depthHeight) {
+            // The depth image covers the CPU camera image at a lower resolution
+            com.google.ar.core.CameraIntrinsics intrinsics = camera.getImageIntrinsics();
+            int[] dimensions = intrinsics.getImageDimensions();
+            float[] focalLength = intrinsics.getFocalLength();
+            float[] principalPoint = intrinsics.getPrincipalPoint();
+            float scaleX = (float) depthWidth / dimensions[0];
+            float scaleY = (float) depthHeight / dimensions[1];
+            depthIntrinsics[0] = focalLength[0] * scaleX;
+            depthIntrinsics[1] = focalLength[1] * scaleY;
+            depthIntrinsics[2] = principalPoint[0] * scaleX;
+            depthIntrinsics[3] = principalPoint[1] * scaleY;
+            depthIntrinsicsWidth = depthWidth;
+            depthIntrinsicsHeight = depthHeight;
+        }
+        camera.getPose().toMatrix(cameraToWorld, 0);
+        grid.integrateDepth(lastDepthArray, depthWidth, depthHeight, OCCUPANCY_PIXEL_STRIDE,
+                depthIntrinsics[0], depthIntrinsics[1], depthIntrinsics[2], depthIntrinsics[3],
+                cameraToWorld);
+    }
+
     /**
      * Creates a ProcessedFrameData object from the current state.
      * This method can be called directly to avoid redundant processing.
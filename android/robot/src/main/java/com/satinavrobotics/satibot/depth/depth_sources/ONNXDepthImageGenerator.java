@@ -3,12 +3,11 @@ package com.satinavrobotics.satibot.depth.depth_sources;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Color;
-import android.graphics.ImageFormat;
 import android.graphics.Matrix;
-import android.media.Image;
 
 import com.google.ar.core.Frame;
-import com.google.ar.core.exceptions.NotYetAvailableException;
+import com.satinavrobotics.satibot.arcore.CameraImageCache;
+import com.satinavrobotics.satibot.arcore.ImageFrame;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -260,19 +259,21 @@ public class ONNXDepthImageGenerator implements DepthImageGenerator {
         try {
             long totalStartTime = System.currentTimeMillis();
 
-            // Get the camera image from ARCore
-            Image cameraImage;
-            try {
-                cameraImage = frame.acquireCameraImage();
-            } catch (NotYetAvailableException e) {
-                Timber.d("Camera image not yet available: %s", e.getMessage());
+            // Get the camera image, shared with the other consumers of this frame
+            ImageFrame cameraImage = CameraImageCache.getInstance().acquire(frame);
+            if (cameraImage == null) {
+                Timber.d("Camera image not yet available");
                 isProcessing.set(false);
                 return false;
             }
 
             // Convert camera image to bitmap with optimized method
-            Bitmap inputBitmap = convertYUVImageToBitmapFast(cameraImage);
-            cameraImage.close();
+            Bitmap inputBitmap;
+            try {
+                inputBitmap = convertYUVImageToBitmapFast(cameraImage);
+            } finally {
+                cameraImage.release();
+            }
 
             if (inputBitmap == null) {
                 Timber.e("Failed to convert camera image to bitmap");
@@ -565,12 +566,7 @@ public class ONNXDepthImageGenerator implements DepthImageGenerator {
      * Optimized YUV to RGB conversion that directly accesses image planes and avoids JPEG compression.
      * This is much faster than the previous implementation.
      */
-    private Bitmap convertYUVImageToBitmapFast(Image image) {
-        if (image.getFormat() != ImageFormat.YUV_420_888) {
-            Timber.e("Unsupported image format: %d", image.getFormat());
-            return null;
-        }
-
+    private Bitmap convertYUVImageToBitmapFast(ImageFrame image) {
         final int imageWidth = image.getWidth();
         final int imageHeight = image.getHeight();
 
@@ -584,15 +580,14 @@ public class ONNXDepthImageGenerator implements DepthImageGenerator {
         }
 
         // Get image planes
-        Image.Plane[] planes = image.getPlanes();
-        ByteBuffer yBuffer = planes[0].getBuffer();
-        ByteBuffer uBuffer = planes[1].getBuffer();
-        ByteBuffer vBuffer = planes[2].getBuffer();
+        ByteBuffer yBuffer = image.getPlane(0);
+        ByteBuffer uBuffer = image.getPlane(1);
+        ByteBuffer vBuffer = image.getPlane(2);
 
         // Get plane strides
-        int yRowStride = planes[0].getRowStride();
-        int uvRowStride = planes[1].getRowStride();
-        int uvPixelStride = planes[1].getPixelStride();
+        int yRowStride = image.getYRowStride();
+        int uvRowStride = image.getUvRowStride();
+        int uvPixelStride = image.getUvPixelStride();
 
         // Copy Y plane directly - this is the most efficient way
         int yPos = 0;
@@ -2,16 +2,15 @@ package com.satinavrobotics.satibot.depth.depth_sources;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.ImageFormat;
 import android.graphics.Rect;
 import android.graphics.YuvImage;
-import android.media.Image;
 
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tflite.gpu.support.TfLiteGpu;
 import com.google.ar.core.Frame;
-import com.google.ar.core.exceptions.NotYetAvailableException;
+import com.satinavrobotics.satibot.arcore.CameraImageCache;
+import com.satinavrobotics.satibot.arcore.ImageFrame;
 
 // Play Services TFLite imports
 import com.google.android.gms.tflite.java.TfLite;
@@ -432,13 +431,22 @@ public class TFLiteDepthImageGenerator implements DepthImageGenerator {
         try {
             isProcessing.set(true);
 
-            // Get the camera image from ARCore
-            Image cameraImage = frame.acquireCameraImage();
+            // Get the camera image, shared with the other consumers of this frame
+            ImageFrame cameraImage = CameraImageCache.getInstance().acquire(frame);
+            if (cameraImage == null) {
+                Timber.d("Camera image not yet available");
+                isProcessing.set(false);
+                return false;
+            }
 
             // Convert camera image to bitmap using fast method (like ONNX)
             Timber.d("Camera image size: %dx%d", cameraImage.getWidth(), cameraImage.getHeight());
-            Bitmap inputBitmap = convertYUVImageToBitmapFast(cameraImage);
-            cameraImage.close();
+            Bitmap inputBitmap;
+            try {
+                inputBitmap = convertYUVImageToBitmapFast(cameraImage);
+            } finally {
+                cameraImage.release();
+            }
 
             if (inputBitmap == null) {
                 Timber.e("Failed to convert camera image to bitmap");
@@ -527,10 +535,6 @@ public class TFLiteDepthImageGenerator implements DepthImageGenerator {
             isProcessing.set(false);
             return true;
 
-        } catch (NotYetAvailableException e) {
-            Timber.d("Camera image not yet available: %s", e.getMessage());
-            isProcessing.set(false);
-            return false;
         } catch (Exception e) {
             Timber.e(e, "Error updating depth image: %s", e.getMessage());
             isProcessing.set(false);
@@ -542,12 +546,7 @@ public class TFLiteDepthImageGenerator implements DepthImageGenerator {
      * Optimized YUV to RGB conversion that directly accesses image planes and avoids JPEG compression.
      * This is much faster than the previous implementation and matches the ONNX version.
      */
-    private Bitmap convertYUVImageToBitmapFast(Image image) {
-        if (image.getFormat() != ImageFormat.YUV_420_888) {
-            Timber.e("Unsupported image format: %d", image.getFormat());
-            return null;
-        }
-
+    private Bitmap convertYUVImageToBitmapFast(ImageFrame image) {
         final int imageWidth = image.getWidth();
         final int imageHeight = image.getHeight();
 
@@ -563,15 +562,14 @@ public class TFLiteDepthImageGenerator implements DepthImageGenerator {
         }
 
         // Get image planes
-        Image.Plane[] planes = image.getPlanes();
-        ByteBuffer yBuffer = planes[0].getBuffer();
-        ByteBuffer uBuffer = planes[1].getBuffer();
-        ByteBuffer vBuffer = planes[2].getBuffer();
+        ByteBuffer yBuffer = image.getPlane(0);
+        ByteBuffer uBuffer = image.getPlane(1);
+        ByteBuffer vBuffer = image.getPlane(2);
 
         // Get plane strides
-        int yRowStride = planes[0].getRowStride();
-        int uvRowStride = planes[1].getRowStride();
-        int uvPixelStride = planes[1].getPixelStride();
+        int yRowStride = image.getYRowStride();
+        int uvRowStride = image.getUvRowStride();
+        int uvPixelStride = image.getUvPixelStride();
 
         // Copy Y plane directly - this is the most efficient way
         int yPos = 0;
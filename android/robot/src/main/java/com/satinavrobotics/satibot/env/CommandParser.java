@@ -0,0 +1,363 @@
+package com.satinavrobotics.satibot.env;
+
+import com.satinavrobotics.satibot.utils.Constants;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Single-pass parser turning controller RPC payloads into {@link ControllerCommand}s without
+ * building a JSON tree. It only looks at the keys the robot acts on ("command", "driveCmd",
+ * "waypoints", "server") and skips everything else in place. Keys and known command names are
+ * matched against the payload without copying, so a drive command allocates only the parser and
+ * the resulting DriveCommand.
+ *
+ * <p>Not a validating JSON parser: it accepts well-formed JSON and throws IllegalArgumentException
+ * on anything it cannot follow.
+ */
+public final class CommandParser {
+
+  // Known command names, returned as the constant instead of a copy of the payload text
+  private static final String[] KNOWN_COMMANDS = {
+    Constants.CMD_DRIVE,
+    Constants.CMD_LOGS,
+    Constants.CMD_INDICATOR_LEFT,
+    Constants.CMD_INDICATOR_RIGHT,
+    Constants.CMD_INDICATOR_STOP,
+    Constants.CMD_NETWORK,
+    Constants.CMD_DRIVE_MODE,
+    Constants.CMD_CONNECTED,
+    Constants.CMD_DISCONNECTED,
+    Constants.CMD_SPEED_UP,
+    Constants.CMD_SPEED_DOWN,
+    Constants.CMD_WAYPOINTS,
+  };
+
+  private final String json;
+  private int pos;
+
+  private CommandParser(String json) {
+    this.json = json;
+  }
+
+  /**
+   * @return the command, or null if the payload is not a command (no "command", "driveCmd" or
+   *     "server" key)
+   */
+  public static ControllerCommand parse(String payload) {
+    return parse(payload, null);
+  }
+
+  /**
+   * @param defaultCommand command name to assume when the payload has no "command" key, e.g. for
+   *     RPC methods that carry a single kind of command
+   */
+  public static ControllerCommand parse(String payload, String defaultCommand) {
+    if (payload == null) {
+      return null;
+    }
+    return new CommandParser(payload).parseCommand(defaultCommand);
+  }
+
+  private ControllerCommand parseCommand(String defaultCommand) {
+    String name = null;
+    boolean hasDrive = false;
+    boolean hasServer = false;
+    float linear = Float.NaN;
+    float angular = Float.NaN;
+    int waypointsStart = -1;
+    int waypointsEnd = -1;
+
+    skipWhitespace();
+    expect('{');
+    skipWhitespace();
+    if (peek() == '}') {
+      pos++;
+    } else {
+      while (true) {
+        int keyStart = readKeyStart();
+        int keyEnd = pos - 1;
+        skipWhitespace();
+        expect(':');
+        skipWhitespace();
+
+        if (keyEquals(keyStart, keyEnd, "command") && peek() == '"') {
+          name = readCommandName();
+        } else if (keyEquals(keyStart, keyEnd, "driveCmd") && peek() == '{') {
+          hasDrive = true;
+          pos++;
+          skipWhitespace();
+          if (peek() == '}') {
+            pos++;
+          } else {
+            while (true) {
+              int driveKeyStart = readKeyStart();
+              int driveKeyEnd = pos - 1;
+              skipWhitespace();
+              expect(':');
+              skipWhitespace();
+              if (keyEquals(driveKeyStart, driveKeyEnd, "l")) {
+                linear = readNumber();
+              } else if (keyEquals(driveKeyStart, driveKeyEnd, "a")) {
+                angular = readNumber();
+              } else {
+                skipValue();
+              }
+              if (!nextMember()) {
+                break;
+              }
+            }
+          }
+        } else if (keyEquals(keyStart, keyEnd, "waypoints")) {
+          waypointsStart = pos;
+          skipValue();
+          waypointsEnd = pos;
+        } else {
+          hasServer |= keyEquals(keyStart, keyEnd, "server");
+          skipValue();
+        }
+        if (!nextMember()) {
+          break;
+        }
+      }
+    }
+
+    if (name == null) {
+      if (hasDrive) {
+        name = Constants.CMD_DRIVE;
+      } else if (hasServer) {
+        name = "";
+      } else if (defaultCommand != null) {
+        name = defaultCommand;
+      } else {
+        return null;
+      }
+    }
+
+    if (Constants.CMD_DRIVE.equals(name) && !Float.isNaN(linear) && !Float.isNaN(angular)) {
+      return new ControllerCommand.DriveCommand(linear, angular);
+    }
+    if (Constants.CMD_WAYPOINTS.equals(name) && waypointsStart >= 0) {
+      try {
+        return new ControllerCommand.WaypointCommand(
+            new JSONArray(json.substring(waypointsStart, waypointsEnd)));
+      } catch (JSONException e) {
+        throw new IllegalArgumentException("Invalid waypoints", e);
+      }
+    }
+    return new ControllerCommand.NamedCommand(name);
+  }
+
+  // Reads a quoted key and returns the index of its first character; pos ends after the quote
+  private int readKeyStart() {
+    skipWhitespace();
+    expect('"');
+    int start = pos;
+    skipStringBody();
+    return start;
+  }
+
+  // After a member: consumes ',' and returns true, or consumes '}' and returns false
+  private boolean nextMember() {
+    skipWhitespace();
+    char c = next();
+    if (c == ',') {
+      return true;
+    }
+    if (c != '}') {
+      throw error("Expected ',' or '}'");
+    }
+    return false;
+  }
+
+  private boolean keyEquals(int start, int end, String key) {
+    return end - start == key.length() && json.regionMatches(start, key, 0, key.length());
+  }
+
+  private String readCommandName() {
+    expect('"');
+    int start = pos;
+    skipStringBody();
+    int end = pos - 1;
+    int escape = json.indexOf('\\', start);
+    if (escape < 0 || escape >= end) {
+      for (String known : KNOWN_COMMANDS) {
+        if (keyEquals(start, end, known)) {
+          return known;
+        }
+      }
+      return json.substring(start, end);
+    }
+    return unescape(start, end);
+  }
+
+  // Numbers may be sent bare or as strings ("l": "0.5"); null and anything else give NaN
+  private float readNumber() {
+    boolean quoted = peek() == '"';
+    if (quoted) {
+      pos++;
+    }
+    if (json.startsWith("null", pos)) {
+      pos += 4;
+      return Float.NaN;
+    }
+
+    boolean negative = false;
+    char c = peek();
+    if (c == '-' || c == '+') {
+      negative = c == '-';
+      pos++;
+    }
+    double value = 0;
+    int digits = 0;
+    while (pos < json.length() && isDigit(json.charAt(pos))) {
+      value = value * 10 + (json.charAt(pos++) - '0');
+      digits++;
+    }
+    if (pos < json.length() && json.charAt(pos) == '.') {
+      pos++;
+      double scale = 0.1;
+      while (pos < json.length() && isDigit(json.charAt(pos))) {
+        value += (json.charAt(pos++) - '0') * scale;
+        scale *= 0.1;
+        digits++;
+      }
+    }
+    if (digits == 0) {
+      throw error("Expected a number");
+    }
+    if (pos < json.length() && (json.charAt(pos) == 'e' || json.charAt(pos) == 'E')) {
+      pos++;
+      boolean negativeExponent = false;
+      if (peek() == '-' || peek() == '+') {
+        negativeExponent = next() == '-';
+      }
+      int exponent = 0;
+      while (pos < json.length() && isDigit(json.charAt(pos))) {
+        exponent = exponent * 10 + (json.charAt(pos++) - '0');
+      }
+      value *= Math.pow(10, negativeExponent ? -exponent : exponent);
+    }
+
+    if (quoted) {
+      skipWhitespace();
+      expect('"');
+    }
+    return (float) (negative ? -value : value);
+  }
+
+  private void skipValue() {
+    char c = peek();
+    if (c == '"') {
+      pos++;
+      skipStringBody();
+    } else if (c == '{' || c == '[') {
+      int depth = 0;
+      do {
+        c = next();
+        if (c == '"') {
+          skipStringBody();
+        } else if (c == '{' || c == '[') {
+          depth++;
+        } else if (c == '}' || c == ']') {
+          depth--;
+        }
+      } while (depth > 0);
+    } else {
+      // Number, true, false or null
+      while (pos < json.length()) {
+        c = json.charAt(pos);
+        if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+          break;
+        }
+        pos++;
+      }
+    }
+  }
+
+  // Skips to just after the closing quote; pos must be after the opening quote
+  private void skipStringBody() {
+    while (true) {
+      char c = next();
+      if (c == '\\') {
+        next();
+      } else if (c == '"') {
+        return;
+      }
+    }
+  }
+
+  private String unescape(int start, int end) {
+    StringBuilder builder = new StringBuilder(end - start);
+    for (int i = start; i < end; i++) {
+      char c = json.charAt(i);
+      if (c != '\\') {
+        builder.append(c);
+        continue;
+      }
+      c = json.charAt(++i);
+      switch (c) {
+        case 'n':
+          builder.append('\n');
+          break;
+        case 't':
+          builder.append('\t');
+          break;
+        case 'r':
+          builder.append('\r');
+          break;
+        case 'b':
+          builder.append('\b');
+          break;
+        case 'f':
+          builder.append('\f');
+          break;
+        case 'u':
+          builder.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+          i += 4;
+          break;
+        default:
+          builder.append(c);
+          break;
+      }
+    }
+    return builder.toString();
+  }
+
+  private void skipWhitespace() {
+    while (pos < json.length() && isWhitespace(json.charAt(pos))) {
+      pos++;
+    }
+  }
+
+  private char peek() {
+    if (pos >= json.length()) {
+      throw error("Unexpected end of payload");
+    }
+    return json.charAt(pos);
+  }
+
+  private char next() {
+    char c = peek();
+    pos++;
+    return c;
+  }
+
+  private void expect(char expected) {
+    if (next() != expected) {
+      throw error("Expected '" + expected + "'");
+    }
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + " at " + pos + " in command payload");
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+}
@@ -0,0 +1,37 @@
+package com.satinavrobotics.satibot.env;
+
+import com.satinavrobotics.satibot.utils.Constants;
+
+import org.json.JSONArray;
+
+/**
+ * Commands sent by a controller, parsed once from the RPC payload by {@link CommandParser} and
+ * routed by type through {@link ControllerToBotEventBus}.
+ */
+public sealed interface ControllerCommand {
+
+  /** Command name as in Constants.CMD_*, e.g. for processControllerKeyData() */
+  String name();
+
+  /** Velocity command, {"driveCmd": {"l": linear, "a": angular}} */
+  record DriveCommand(float linear, float angular) implements ControllerCommand {
+    @Override
+    public String name() {
+      return Constants.CMD_DRIVE;
+    }
+  }
+
+  /** Waypoint list, {"command": "WAYPOINTS", "waypoints": [...]} */
+  record WaypointCommand(JSONArray waypoints) implements ControllerCommand {
+    @Override
+    public String name() {
+      return Constants.CMD_WAYPOINTS;
+    }
+  }
+
+  /**
+   * Any other command, identified by name only (indicators, CONNECTED, DISCONNECTED, ...). Server
+   * messages without a command have an empty name.
+   */
+  record NamedCommand(String name) implements ControllerCommand {}
+}
@@ -1,64 +1,131 @@
 package com.satinavrobotics.satibot.env;
 
-import io.reactivex.rxjava3.annotations.NonNull;
-import io.reactivex.rxjava3.disposables.Disposable;
-import io.reactivex.rxjava3.functions.Consumer;
-import io.reactivex.rxjava3.functions.Predicate;
-import io.reactivex.rxjava3.subjects.PublishSubject;
-import java.util.HashMap;
 import java.util.Map;
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import timber.log.Timber;
 
+/**
+ * Routes controller commands to subscribers by type. Payloads are parsed once by {@link
+ * CommandParser} and delivered synchronously on the emitting thread to the subscribers of the
+ * command's type and to those of {@link ControllerCommand} itself.
+ *
+ * <p>Subscriber lists are copy-on-write arrays: (un)subscribing is rare and synchronized, emitting
+ * only reads a volatile map entry and does not lock or allocate.
+ */
 public final class ControllerToBotEventBus {
 
-  private static final Map<String, Disposable> subscribers = new HashMap<>();
+  private static final class Subscription<T extends ControllerCommand> {
+    final String name;
+    final Class<T> type;
+    final Consumer<? super T> onCommand;
+    final Consumer<? super Throwable> onError;
 
-  private ControllerToBotEventBus() {}
+    Subscription(
+        String name,
+        Class<T> type,
+        Consumer<? super T> onCommand,
+        Consumer<? super Throwable> onError) {
+      this.name = name;
+      this.type = type;
+      this.onCommand = onCommand;
+      this.onError = onError;
+    }
+
+    void deliver(ControllerCommand command) {
+      try {
+        onCommand.accept(type.cast(command));
+      } catch (Throwable t) {
+        // Report and keep the subscription, one bad command must not silence the controller
+        onError.accept(t);
+      }
+    }
+  }
 
-  private static final PublishSubject<JSONObject> subject = PublishSubject.create();
+  private static final Subscription<?>[] NONE = new Subscription<?>[0];
 
+  private static final Map<Class<?>, Subscription<?>[]> subscribers = new ConcurrentHashMap<>();
+
+  private ControllerToBotEventBus() {}
+
+  /** Parse a controller payload and deliver it. Payloads that are not commands are dropped. */
   public static void emitEvent(String event) {
+    emitEvent(event, null);
+  }
+
+  /**
+   * @param defaultCommand command name to assume when the payload has no "command" key
+   */
+  public static void emitEvent(String event, String defaultCommand) {
+    ControllerCommand command;
     try {
-      emitEvent(new JSONObject(event));
-    } catch (JSONException e) {
-      e.printStackTrace();
+      command = CommandParser.parse(event, defaultCommand);
+    } catch (IllegalArgumentException e) {
+      Timber.w(e, "Invalid controller command: %s", event);
+      return;
     }
+    if (command == null) {
+      return;
+    }
+    LatencyTracer.mark(LatencyTracer.Hop.PARSED);
+    emit(command);
   }
 
-  private static void emitEvent(JSONObject event) {
-    subject.onNext(event);
+  public static void emit(ControllerCommand command) {
+    deliver(subscribers.get(command.getClass()), command);
+    deliver(subscribers.get(ControllerCommand.class), command);
   }
 
-  public static void subscribe(
-      String subscriberName,
-      @NonNull Consumer<? super JSONObject> onNext,
-      @NonNull Consumer<? super Throwable> onError) {
-    subscribe(
-        subscriberName,
-        onNext,
-        onError,
-        (jsonObject) -> true); // do not filter if no filter passed. Always return true.
+  private static void deliver(Subscription<?>[] targets, ControllerCommand command) {
+    if (targets == null) {
+      return;
+    }
+    for (Subscription<?> subscription : targets) {
+      subscription.deliver(command);
+    }
   }
 
-  public static void subscribe(
+  /**
+   * Receive commands of the given type; pass ControllerCommand.class to receive all of them. A
+   * subscriber may subscribe to several types under the same name; subscribing twice to the same
+   * type is ignored.
+   */
+  public static synchronized <T extends ControllerCommand> void subscribe(
       String subscriberName,
-      @NonNull Consumer<? super JSONObject> onNext,
-      @NonNull Consumer<? super Throwable> onError,
-      Predicate<? super JSONObject> filterPredicate) {
-    if (subscribers.containsKey(subscriberName)) {
-      // This name already subscribed, cannot subscribe multiple times;
-      return;
+      Class<T> type,
+      Consumer<? super T> onCommand,
+      Consumer<? super Throwable> onError) {
+    Subscription<?>[] current = subscribers.getOrDefault(type, NONE);
+    for (Subscription<?> subscription : current) {
+      if (subscription.name.equals(subscriberName)) {
+        // This name already subscribed to this type, cannot subscribe multiple times
+        return;
+      }
     }
-    @NonNull Disposable subscriber = subject.filter(filterPredicate).subscribe(onNext, onError);
-    subscribers.put(subscriberName, subscriber);
+    Subscription<?>[] updated = new Subscription<?>[current.length + 1];
+    System.arraycopy(current, 0, updated, 0, current.length);
+    updated[current.length] = new Subscription<>(subscriberName, type, onCommand, onError);
+    subscribers.put(type, updated);
   }
 
-  public static void unsubscribe(String name) {
-    Disposable subscriber = subscribers.get(name);
-    if (subscriber != null) {
-      subscriber.dispose();
-      subscribers.remove(name);
+  /** Remove every subscription made under this name */
+  public static synchronized void unsubscribe(String name) {
+    for (Map.Entry<Class<?>, Subscription<?>[]> entry : subscribers.entrySet()) {
+      Subscription<?>[] current = entry.getValue();
+      int kept = 0;
+      Subscription<?>[] updated = new Subscription<?>[current.length];
+      for (Subscription<?> subscription : current) {
+        if (!subscription.name.equals(name)) {
+          updated[kept++] = subscription;
+        }
+      }
+      if (kept == 0) {
+        subscribers.remove(entry.getKey());
+      } else if (kept < current.length) {
+        Subscription<?>[] trimmed = new Subscription<?>[kept];
+        System.arraycopy(updated, 0, trimmed, 0, kept);
+        subscribers.put(entry.getKey(), trimmed);
+      }
     }
   }
 }
@@ -29,6 +29,8 @@ import android.media.Image;
 import android.os.Build;
 import android.view.Surface;
 
+import com.satinavrobotics.satibot.arcore.ImageFrame;
+
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -272,6 +274,17 @@ public class ImageUtils {
     }
   }
 
+  /**
+   * Converts a cached camera image copy to a Bitmap, like imageToBitmap() for YUV_420_888
+   */
+  public static Bitmap imageToBitmap(ImageFrame frame) {
+    if (frame == null) {
+      return null;
+    }
+    return yuvPlanesToBitmap(
+        frame.getPlane(0), frame.getPlane(1), frame.getPlane(2), frame.getWidth(), frame.getHeight());
+  }
+
   /**
    * Converts a YUV_420_888 image to a bitmap
    */
@@ -280,15 +293,18 @@ public class ImageUtils {
       throw new IllegalArgumentException("Invalid image format");
     }
 
-    int width = image.getWidth();
-    int height = image.getHeight();
-
     // Get the YUV planes
     Image.Plane[] planes = image.getPlanes();
-    ByteBuffer yBuffer = planes[0].getBuffer();
-    ByteBuffer uBuffer = planes[1].getBuffer();
-    ByteBuffer vBuffer = planes[2].getBuffer();
+    return yuvPlanesToBitmap(
+        planes[0].getBuffer(),
+        planes[1].getBuffer(),
+        planes[2].getBuffer(),
+        image.getWidth(),
+        image.getHeight());
+  }
 
+  private static Bitmap yuvPlanesToBitmap(
+      ByteBuffer yBuffer, ByteBuffer uBuffer, ByteBuffer vBuffer, int width, int height) {
     int ySize = yBuffer.remaining();
     int uSize = uBuffer.remaining();
     int vSize = vBuffer.remaining();
@@ -0,0 +1,82 @@
+package com.satinavrobotics.satibot.env;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size log-linear latency histogram in the spirit of HdrHistogram: values below 32 ns are
+ * exact, larger values fall into 16 linear sub-buckets per power of two (about 3% relative
+ * error). Recording is lock-free and allocation-free.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+  private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + 63 * HALF_SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    if (nanos < 0) nanos = 0;
+    counts.incrementAndGet(indexOf(nanos));
+    totalCount.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+    maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  private static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) return (int) value;
+    int msb = 63 - Long.numberOfLeadingZeros(value);
+    int shift = msb - (SUB_BUCKET_BITS - 1);
+    int subBucket = (int) (value >>> shift); // in [HALF_SUB_BUCKET_COUNT, SUB_BUCKET_COUNT)
+    return SUB_BUCKET_COUNT
+        + (shift - 1) * HALF_SUB_BUCKET_COUNT
+        + subBucket
+        - HALF_SUB_BUCKET_COUNT;
+  }
+
+  /** Midpoint of the value range covered by a bucket */
+  private static long valueAt(int index) {
+    if (index < SUB_BUCKET_COUNT) return index;
+    int offset = index - SUB_BUCKET_COUNT;
+    int shift = offset / HALF_SUB_BUCKET_COUNT + 1;
+    long subBucket = offset % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+    return (subBucket << shift) + ((1L << shift) >> 1);
+  }
+
+  /** Value at the given percentile (0-100) in nanoseconds, or 0 if nothing was recorded */
+  public long getPercentile(double percentile) {
+    long total = totalCount.get();
+    if (total == 0) return 0;
+    long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      cumulative += counts.get(i);
+      if (cumulative >= target) return Math.min(valueAt(i), maxNanos.get());
+    }
+    return maxNanos.get();
+  }
+
+  public long getCount() {
+    return totalCount.get();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  public double getMeanNanos() {
+    long total = totalCount.get();
+    return total == 0 ? 0 : (double) totalNanos.get() / total;
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) counts.set(i, 0);
+    totalCount.set(0);
+    totalNanos.set(0);
+    maxNanos.set(0);
+  }
+}
@@ -0,0 +1,147 @@
+package com.satinavrobotics.satibot.env;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Traces controller commands from the LiveKit RPC handler to the write on the vehicle link. The
+ * whole path runs synchronously on the RPC thread, so the trace is kept in a thread-local: {@link
+ * #begin()} stamps the command, each hop calls {@link #mark(Hop)} with the time since the previous
+ * stamp going into that hop's histogram, and {@link #end()} records the end-to-end latency.
+ * Marks on threads without an active trace are ignored.
+ *
+ * <p>Results are reported in the "latency" field of {@link StatusManager#getStatusJson()} and can be
+ * written to a file with {@link #dump(File)}.
+ */
+public final class LatencyTracer {
+
+  /** Hops of a drive command, in the order they are reached */
+  public enum Hop {
+    PARSED("parse"), // payload string turned into a ControllerCommand by CommandParser
+    DISPATCHED("dispatch"), // event delivered to the subscriber
+    CONTROL_SET("control"), // Vehicle received the new control values
+    FORMATTED("format"), // serial command string built
+    WRITTEN("write"); // handed to the vehicle transport
+
+    private final String label;
+
+    Hop(String label) {
+      this.label = label;
+    }
+  }
+
+  private static final class Trace {
+    boolean active;
+    long startNanos;
+    long lastNanos;
+    boolean written;
+  }
+
+  private static final Hop[] HOPS = Hop.values();
+  private static final LatencyHistogram[] hopHistograms = new LatencyHistogram[HOPS.length];
+  private static final LatencyHistogram endToEnd = new LatencyHistogram();
+  private static final ThreadLocal<Trace> currentTrace = ThreadLocal.withInitial(Trace::new);
+  private static volatile boolean enabled = true;
+
+  static {
+    for (int i = 0; i < HOPS.length; i++) hopHistograms[i] = new LatencyHistogram();
+  }
+
+  private LatencyTracer() {}
+
+  public static void setEnabled(boolean enable) {
+    enabled = enable;
+  }
+
+  /** Start tracing a command received on the current thread */
+  public static void begin() {
+    if (!enabled) return;
+    Trace trace = currentTrace.get();
+    trace.active = true;
+    trace.written = false;
+    trace.startNanos = System.nanoTime();
+    trace.lastNanos = trace.startNanos;
+  }
+
+  public static void mark(Hop hop) {
+    if (!enabled) return;
+    Trace trace = currentTrace.get();
+    if (!trace.active) return;
+    long now = System.nanoTime();
+    hopHistograms[hop.ordinal()].record(now - trace.lastNanos);
+    trace.lastNanos = now;
+    if (hop == Hop.WRITTEN) trace.written = true;
+  }
+
+  /** Finish the trace; the end-to-end latency counts only commands that reached the link */
+  public static void end() {
+    if (!enabled) return;
+    Trace trace = currentTrace.get();
+    if (!trace.active) return;
+    trace.active = false;
+    if (trace.written) endToEnd.record(trace.lastNanos - trace.startNanos);
+  }
+
+  public static boolean hasData() {
+    return endToEnd.getCount() > 0 || hopHistograms[0].getCount() > 0;
+  }
+
+  public static void reset() {
+    for (LatencyHistogram histogram : hopHistograms) histogram.reset();
+    endToEnd.reset();
+  }
+
+  /** Per-hop and end-to-end count, p50, p90, p99 and max in microseconds */
+  public static JSONObject toJson() {
+    JSONObject json = new JSONObject();
+    try {
+      for (Hop hop : HOPS) json.put(hop.label, toJson(hopHistograms[hop.ordinal()]));
+      json.put("total", toJson(endToEnd));
+    } catch (JSONException e) {
+      e.printStackTrace();
+    }
+    return json;
+  }
+
+  private static JSONObject toJson(LatencyHistogram histogram) throws JSONException {
+    return new JSONObject()
+        .put("count", histogram.getCount())
+        .put("p50", micros(histogram.getPercentile(50)))
+        .put("p90", micros(histogram.getPercentile(90)))
+        .put("p99", micros(histogram.getPercentile(99)))
+        .put("max", micros(histogram.getMaxNanos()));
+  }
+
+  private static double micros(long nanos) {
+    return Math.round(nanos / 100.0) / 10.0;
+  }
+
+  /** Write all histograms as a CSV table */
+  public static void dump(File file) throws IOException {
+    try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+      writer.println("hop,count,mean_us,p50_us,p90_us,p99_us,p999_us,max_us");
+      for (Hop hop : HOPS) dumpRow(writer, hop.label, hopHistograms[hop.ordinal()]);
+      dumpRow(writer, "total", endToEnd);
+    }
+  }
+
+  private static void dumpRow(PrintWriter writer, String label, LatencyHistogram histogram) {
+    writer.println(
+        String.format(
+            Locale.US,
+            "%s,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f",
+            label,
+            histogram.getCount(),
+            histogram.getMeanNanos() / 1000.0,
+            micros(histogram.getPercentile(50)),
+            micros(histogram.getPercentile(90)),
+            micros(histogram.getPercentile(99)),
+            micros(histogram.getPercentile(99.9)),
+            micros(histogram.getMaxNanos())));
+  }
+}
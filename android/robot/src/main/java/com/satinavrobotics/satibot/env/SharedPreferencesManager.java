@@ -5,6 +5,7 @@ import android.content.SharedPreferences;
 
 
 
+import com.satinavrobotics.satibot.navigation.ControlLoop;
 import com.satinavrobotics.satibot.utils.Enums;
 
 public class SharedPreferencesManager {
@@ -76,6 +77,10 @@ public class SharedPreferencesManager {
   private static final String TOO_CLOSE_THRESHOLD = "TOO_CLOSE_THRESHOLD";
   private static final float DEFAULT_TOO_CLOSE_THRESHOLD = 1000.0f; // 100cm in millimeters
 
+  // Navigation preferences
+  private static final String CONTROL_RATE_HZ = "CONTROL_RATE_HZ";
+  private static final int DEFAULT_CONTROL_RATE_HZ = ControlLoop.DEFAULT_RATE_HZ;
+
   // Logger fragment preferences
   private static final String LOGGER_RESOLUTION = "LOGGER_RESOLUTION";
   private static final int DEFAULT_LOGGER_RESOLUTION = 0; // First item in resolution_values array
@@ -465,6 +470,24 @@ public class SharedPreferencesManager {
     preferences.edit().putFloat(TOO_CLOSE_THRESHOLD, thresholdMm).apply();
   }
 
+  /**
+   * Get the rate of the navigation control loop
+   *
+   * @return The control rate in Hz
+   */
+  public int getControlRateHz() {
+    return preferences.getInt(CONTROL_RATE_HZ, DEFAULT_CONTROL_RATE_HZ);
+  }
+
+  /**
+   * Set the rate of the navigation control loop
+   *
+   * @param hz The control rate in Hz, clamped by the control loop
+   */
+  public void setControlRateHz(int hz) {
+    preferences.edit().putInt(CONTROL_RATE_HZ, hz).apply();
+  }
+
   /**
    * Get the selected resolution index for the logger
    *
@@ -1,22 +1,37 @@
 package com.satinavrobotics.satibot.env;
 
+import com.satinavrobotics.satibot.arcore.FrameBufferPool;
 import com.satinavrobotics.satibot.utils.ConnectionUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import timber.log.Timber;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * Holds the robot status as an immutable {@link StatusSnapshot} behind a volatile reference.
+ * Updates copy the current snapshot with one part replaced; readers such as the navigation loop
+ * take the snapshot without locking and never wait for a writer.
+ *
+ * JSON is only produced for remote clients (the "status" RPC) and is cached per snapshot version.
+ * Diagnostics that change on their own (latency, frame pool and the sources registered with
+ * {@link #putDiagnostics}) are added at request time.
+ */
 public class StatusManager {
     private static StatusManager instance;
-    private JSONObject status;
-    private JSONObject lastLocation;
-    private JSONObject lastARPose;
-    private JSONObject nextGoalInfo;
+
+    // Serializes writers so concurrent updates don't lose each other; readers don't take it
+    private final Object writeLock = new Object();
+    private volatile StatusSnapshot snapshot = new StatusSnapshot(0, new JSONObject(), null, null, null);
+    private volatile RenderedStatus rendered;
+    private final Map<String, Supplier<JSONObject>> diagnostics = new ConcurrentHashMap<>();
+
+    private record RenderedStatus(long version, JSONObject json, String text) {
+    }
 
     private StatusManager() {
-        status = new JSONObject();
-        lastLocation = new JSONObject();
     }
 
     public static synchronized StatusManager getInstance() {
@@ -27,37 +42,91 @@ public class StatusManager {
         return instance;
     }
 
-    public synchronized void updateStatus(JSONObject newStatus) {
-        this.status = newStatus;
+    public void updateStatus(JSONObject newStatus) {
+        synchronized (writeLock) {
+            snapshot = snapshot.withStatus(newStatus != null ? newStatus : new JSONObject());
+        }
+    }
+
+    public void updateLocation(StatusSnapshot.GeoLocation location) {
+        synchronized (writeLock) {
+            snapshot = snapshot.withLocation(location);
+        }
+    }
+
+    public void updateARCorePose(StatusSnapshot.LocalPose arCorePose) {
+        synchronized (writeLock) {
+            snapshot = snapshot.withPose(arCorePose);
+        }
     }
 
-    public synchronized void updateLocation(JSONObject location) {
-        this.lastLocation = location;
+    public void updateNextGoalInfo(JSONObject goalInfo) {
+        synchronized (writeLock) {
+            snapshot = snapshot.withNextGoal(goalInfo);
+        }
     }
 
-    public synchronized void updateARCorePose(JSONObject arCorePose) {this.lastARPose = arCorePose;}
+    /**
+     * Add a diagnostics source rendered under the given key on every status request, replacing
+     * the source registered under that key, if any. The source may return null to be left out.
+     */
+    public void putDiagnostics(String key, Supplier<JSONObject> source) {
+        diagnostics.put(key, source);
+    }
+
+    /**
+     * Remove a diagnostics source, unless another one has replaced it under the key since.
+     */
+    public void removeDiagnostics(String key, Supplier<JSONObject> source) {
+        diagnostics.remove(key, source);
+    }
 
-    public synchronized void updateNextGoalInfo(JSONObject goalInfo) {
-        this.nextGoalInfo = goalInfo;
+    /**
+     * @return the current status; never null and never modified afterwards
+     */
+    public StatusSnapshot getSnapshot() {
+        return snapshot;
     }
 
-    public synchronized JSONObject getStatus() {
+    /**
+     * Render the current status for remote clients.
+     *
+     * @return the status as a JSON string
+     */
+    public String getStatusJson() {
+        StatusSnapshot current = snapshot;
+        RenderedStatus cached = rendered;
         try {
-            JSONObject combinedStatus = new JSONObject(status.toString());
-            if (lastLocation != null) {
-                combinedStatus.put("location", lastLocation);
+            if (cached == null || cached.version() != current.version()) {
+                JSONObject json = current.toJson();
+                cached = new RenderedStatus(current.version(), json, json.toString());
+                rendered = cached;
+            }
+
+            FrameBufferPool framePool = FrameBufferPool.getInstance();
+            boolean hasLatency = LatencyTracer.hasData();
+            boolean hasFramePool = framePool.getAcquireCount() > 0;
+            if (!hasLatency && !hasFramePool && diagnostics.isEmpty()) {
+                return cached.text();
+            }
+
+            JSONObject json = StatusSnapshot.shallowCopy(cached.json());
+            if (hasLatency) {
+                json.put("latency", LatencyTracer.toJson());
             }
-            if (lastARPose != null) {
-                combinedStatus.put("pose", lastARPose);
+            if (hasFramePool) {
+                json.put("framePool", framePool.toJson());
             }
-            if (nextGoalInfo != null) {
-                combinedStatus.put("nextGoal", nextGoalInfo);
+            for (Map.Entry<String, Supplier<JSONObject>> entry : diagnostics.entrySet()) {
+                JSONObject value = entry.getValue().get();
+                if (value != null) {
+                    json.put(entry.getKey(), value);
+                }
             }
-            Timber.d(combinedStatus.toString());
-            return combinedStatus;
+            return json.toString();
         } catch (JSONException e) {
             e.printStackTrace();
-            return new JSONObject();
+            return "{}";
         }
     }
 }
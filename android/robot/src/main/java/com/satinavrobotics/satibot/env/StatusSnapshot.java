@@ -0,0 +1,112 @@
+package com.satinavrobotics.satibot.env;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * Immutable robot status published by {@link StatusManager}. Every update produces a new snapshot
+ * with a higher version; readers hold on to a snapshot without locking.
+ *
+ * The JSON objects held here (status flags, next goal) are owned by the snapshot and must not be
+ * modified after they have been handed to StatusManager.
+ *
+ * @param version Incremented on every update
+ * @param status Status flags from ConnectionUtils.createStatus(), never null
+ * @param location Last GPS fix, or null if none
+ * @param pose Last ARCore pose in the local map frame, or null if none
+ * @param nextGoal Next navigation goal, or null if not navigating
+ */
+public record StatusSnapshot(
+        long version,
+        JSONObject status,
+        GeoLocation location,
+        LocalPose pose,
+        JSONObject nextGoal) {
+
+    /**
+     * GPS fix as reported by LocationService.
+     *
+     * @param bearing Heading in degrees
+     * @param speed Ground speed in m/s
+     */
+    public record GeoLocation(double latitude, double longitude, double altitude, float bearing, float speed) {
+        JSONObject toJson() throws JSONException {
+            return new JSONObject()
+                    .put("latitude", latitude)
+                    .put("longitude", longitude)
+                    .put("altitude", altitude)
+                    .put("bearing", bearing)
+                    .put("speed", speed);
+        }
+    }
+
+    /**
+     * ARCore pose relative to the origin of the resolved map.
+     *
+     * @param mapId Id of the map the pose refers to, or null if unknown
+     */
+    public record LocalPose(float x, float y, float z, float qx, float qy, float qz, float qw, String mapId) {
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject()
+                    .put("x", x)
+                    .put("y", y)
+                    .put("z", z)
+                    .put("qx", qx)
+                    .put("qy", qy)
+                    .put("qz", qz)
+                    .put("qw", qw);
+            if (mapId != null) {
+                json.put("mapId", mapId);
+            }
+            return json;
+        }
+    }
+
+    StatusSnapshot withStatus(JSONObject status) {
+        return new StatusSnapshot(version + 1, status, location, pose, nextGoal);
+    }
+
+    StatusSnapshot withLocation(GeoLocation location) {
+        return new StatusSnapshot(version + 1, status, location, pose, nextGoal);
+    }
+
+    StatusSnapshot withPose(LocalPose pose) {
+        return new StatusSnapshot(version + 1, status, location, pose, nextGoal);
+    }
+
+    StatusSnapshot withNextGoal(JSONObject nextGoal) {
+        return new StatusSnapshot(version + 1, status, location, pose, nextGoal);
+    }
+
+    /**
+     * Render the snapshot in the layout of the "status" RPC: the status flags with "location",
+     * "pose" and "nextGoal" merged in when present.
+     */
+    JSONObject toJson() throws JSONException {
+        JSONObject json = shallowCopy(status);
+        if (location != null) {
+            json.put("location", location.toJson());
+        }
+        if (pose != null) {
+            json.put("pose", pose.toJson());
+        }
+        if (nextGoal != null) {
+            json.put("nextGoal", nextGoal);
+        }
+        return json;
+    }
+
+    /**
+     * Copy the top-level mappings of a JSON object; nested values are shared.
+     */
+    static JSONObject shallowCopy(JSONObject json) throws JSONException {
+        String[] names = new String[json.length()];
+        int i = 0;
+        for (Iterator<String> it = json.keys(); it.hasNext(); ) {
+            names[i++] = it.next();
+        }
+        return new JSONObject(json, names);
+    }
+}
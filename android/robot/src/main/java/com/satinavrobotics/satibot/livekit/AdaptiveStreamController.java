@@ -0,0 +1,240 @@
+package com.satinavrobotics.satibot.livekit;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import io.livekit.android.room.participant.ConnectionQuality;
+import livekit.org.webrtc.RTCStats;
+import livekit.org.webrtc.RTCStatsReport;
+import timber.log.Timber;
+
+/**
+ * Picks the resolution and frame rate of the AR video stream from LiveKit's connection quality
+ * and the publisher's outbound WebRTC stats, so that teleop latency stays bounded on weak links.
+ *
+ * The controller only decides; listeners apply a level by resizing the offscreen render target
+ * and skipping readbacks (see ArCoreHandler.setStreamLevel). Perception runs on every camera frame
+ * regardless of the level. Encoder bitrate follows the smaller, sparser frames through WebRTC's
+ * own congestion control; the per-level target bitrate is what the controller compares the
+ * available outgoing bitrate against.
+ *
+ * Degrading is immediate (at most one level per MIN_CHANGE_INTERVAL_MS), recovering needs
+ * UPGRADE_STREAK consecutive good evaluations so the stream does not oscillate on a marginal link.
+ * WebRTC reports a "bandwidth" quality limitation whenever its estimate briefly lags the encoder,
+ * so the reason alone only degrades once it persists for BANDWIDTH_LIMITED_STREAK evaluations,
+ * or together with an RTT above the upgrade threshold. It does not hold back upgrades, which
+ * already require the available bitrate to cover the better level.
+ */
+public class AdaptiveStreamController {
+
+    /**
+     * One stream configuration. Width must be a multiple of 8 and height a multiple of 4 for the
+     * GPU I420 conversion; frameInterval n streams every n-th rendered frame.
+     */
+    public record StreamLevel(int width, int height, int frameInterval, int targetBitrateKbps) {
+        @Override
+        public String toString() {
+            return width + "x" + height + "@1/" + frameInterval;
+        }
+    }
+
+    public interface Listener {
+        void onStreamLevelChanged(StreamLevel level);
+    }
+
+    // Best first; ARCore renders at 30 fps
+    public static final StreamLevel[] LEVELS = {
+            new StreamLevel(640, 480, 1, 1500),
+            new StreamLevel(640, 480, 2, 900),
+            new StreamLevel(480, 360, 2, 550),
+            new StreamLevel(320, 240, 3, 250),
+    };
+
+    private static final double RTT_DEGRADE_MS = 300;
+    private static final double RTT_UPGRADE_MS = 150;
+    // Available bitrate must cover the level's target by these factors
+    private static final double BITRATE_DEGRADE_FACTOR = 0.8;
+    private static final double BITRATE_UPGRADE_FACTOR = 1.2;
+    private static final int UPGRADE_STREAK = 5;
+    private static final int BANDWIDTH_LIMITED_STREAK = 3;
+    private static final long MIN_CHANGE_INTERVAL_MS = 2000;
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Latest inputs, written from LiveKit callbacks
+    private volatile ConnectionQuality quality = ConnectionQuality.UNKNOWN;
+    private volatile double rttMs = -1;
+    private volatile double availableBitrateKbps = -1;
+    private volatile String limitationReason = "none";
+
+    private int levelIndex = 0;
+    private int goodStreak = 0;
+    private int bandwidthLimitedStreak = 0;
+    private long lastChangeMs = Long.MIN_VALUE / 2;
+    private int levelChanges = 0;
+
+    public void addListener(Listener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void onConnectionQuality(ConnectionQuality quality) {
+        this.quality = quality != null ? quality : ConnectionQuality.UNKNOWN;
+    }
+
+    /**
+     * Feed outbound stats directly.
+     *
+     * @param rttMs round-trip time in milliseconds, negative if unknown
+     * @param availableBitrateKbps estimated available outgoing bitrate, negative if unknown
+     * @param limitationReason WebRTC qualityLimitationReason ("none", "bandwidth", "cpu", ...)
+     */
+    public void onOutboundStats(double rttMs, double availableBitrateKbps, String limitationReason) {
+        this.rttMs = rttMs;
+        this.availableBitrateKbps = availableBitrateKbps;
+        this.limitationReason = limitationReason != null ? limitationReason : "none";
+    }
+
+    /**
+     * Extract the inputs from a publisher peer connection stats report.
+     */
+    public void onStatsReport(RTCStatsReport report) {
+        if (report == null) {
+            return;
+        }
+        double rtt = -1;
+        double available = -1;
+        String reason = null;
+        for (RTCStats stats : report.getStatsMap().values()) {
+            Map<String, Object> members = stats.getMembers();
+            if ("candidate-pair".equals(stats.getType())
+                    && Boolean.TRUE.equals(members.get("nominated"))
+                    && "succeeded".equals(String.valueOf(members.get("state")))) {
+                if (members.get("currentRoundTripTime") instanceof Number) {
+                    rtt = ((Number) members.get("currentRoundTripTime")).doubleValue() * 1000;
+                }
+                if (members.get("availableOutgoingBitrate") instanceof Number) {
+                    available = ((Number) members.get("availableOutgoingBitrate")).doubleValue() / 1000;
+                }
+            } else if ("outbound-rtp".equals(stats.getType())
+                    && "video".equals(String.valueOf(members.get("kind")))
+                    && members.get("qualityLimitationReason") != null) {
+                // Simulcast layers each report a reason; any limited layer counts
+                String layerReason = String.valueOf(members.get("qualityLimitationReason"));
+                if (reason == null || "none".equals(reason)) {
+                    reason = layerReason;
+                }
+            }
+        }
+        onOutboundStats(rtt, available, reason);
+    }
+
+    /**
+     * Decide whether to change level based on the latest inputs. Call periodically, e.g. once a
+     * second while connected.
+     */
+    public void evaluate(long nowMs) {
+        StreamLevel changed = null;
+        synchronized (this) {
+            StreamLevel level = LEVELS[levelIndex];
+            bandwidthLimitedStreak = "bandwidth".equals(limitationReason)
+                    ? bandwidthLimitedStreak + 1 : 0;
+            boolean bandwidthLimited = bandwidthLimitedStreak >= BANDWIDTH_LIMITED_STREAK
+                    || (bandwidthLimitedStreak > 0 && rttMs > RTT_UPGRADE_MS);
+            boolean degrade = quality == ConnectionQuality.POOR
+                    || quality == ConnectionQuality.LOST
+                    || rttMs > RTT_DEGRADE_MS
+                    || bandwidthLimited
+                    || (availableBitrateKbps >= 0
+                        && availableBitrateKbps < level.targetBitrateKbps() * BITRATE_DEGRADE_FACTOR);
+
+            if (degrade) {
+                goodStreak = 0;
+                if (levelIndex < LEVELS.length - 1 && nowMs - lastChangeMs >= MIN_CHANGE_INTERVAL_MS) {
+                    changed = setLevel(levelIndex + 1, nowMs);
+                }
+            } else if (levelIndex > 0) {
+                StreamLevel better = LEVELS[levelIndex - 1];
+                boolean good = (quality == ConnectionQuality.EXCELLENT || quality == ConnectionQuality.GOOD)
+                        && rttMs >= 0 && rttMs < RTT_UPGRADE_MS
+                        && (availableBitrateKbps < 0
+                            || availableBitrateKbps >= better.targetBitrateKbps() * BITRATE_UPGRADE_FACTOR);
+                goodStreak = good ? goodStreak + 1 : 0;
+                if (goodStreak >= UPGRADE_STREAK && nowMs - lastChangeMs >= MIN_CHANGE_INTERVAL_MS) {
+                    goodStreak = 0;
+                    changed = setLevel(levelIndex - 1, nowMs);
+                }
+            }
+        }
+        if (changed != null) {
+            notifyListeners(changed);
+        }
+    }
+
+    private StreamLevel setLevel(int index, long nowMs) {
+        Timber.i("Stream level %s -> %s (quality=%s, rtt=%.0fms, available=%.0fkbps, limitation=%s)",
+                LEVELS[levelIndex], LEVELS[index], quality, rttMs, availableBitrateKbps, limitationReason);
+        levelIndex = index;
+        lastChangeMs = nowMs;
+        levelChanges++;
+        return LEVELS[index];
+    }
+
+    private void notifyListeners(StreamLevel level) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onStreamLevelChanged(level);
+            } catch (Exception e) {
+                Timber.w(e, "Error notifying stream level listener");
+            }
+        }
+    }
+
+    /**
+     * Return to the best level, e.g. after a disconnect, and tell listeners if that is a change.
+     */
+    public void reset() {
+        boolean changed;
+        synchronized (this) {
+            changed = levelIndex != 0;
+            levelIndex = 0;
+            goodStreak = 0;
+            bandwidthLimitedStreak = 0;
+            lastChangeMs = Long.MIN_VALUE / 2;
+        }
+        quality = ConnectionQuality.UNKNOWN;
+        rttMs = -1;
+        availableBitrateKbps = -1;
+        limitationReason = "none";
+        if (changed) {
+            notifyListeners(LEVELS[0]);
+        }
+    }
+
+    public synchronized StreamLevel getCurrentLevel() {
+        return LEVELS[levelIndex];
+    }
+
+    public synchronized JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("level", LEVELS[levelIndex].toString());
+            json.put("changes", levelChanges);
+            json.put("quality", quality.toString());
+            json.put("rttMs", Math.round(rttMs));
+            json.put("availableKbps", Math.round(availableBitrateKbps));
+            json.put("limitation", limitationReason);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return json;
+    }
+}
@@ -121,6 +121,11 @@ public class LiveKitInfoFragment extends Fragment implements LiveKitServer.Conne
 
             // Update room state
             String roomState = liveKitServer.getRoomState();
+            ReconnectMetrics reconnects = liveKitServer.getReconnectMetrics();
+            if (reconnects.getReconnectCount() > 0) {
+                roomState += " (" + reconnects.getReconnectCount() + " reconnects, last "
+                        + reconnects.getLastReconnectMs() + " ms)";
+            }
             binding.roomStateText.setText("Room State: " + roomState);
 
             // Update server URL
@@ -133,7 +138,8 @@ public class LiveKitInfoFragment extends Fragment implements LiveKitServer.Conne
 
             // Update connection quality
             String connectionQuality = liveKitServer.getConnectionQuality();
-            binding.connectionQualityText.setText("Connection Quality: " + connectionQuality);
+            binding.connectionQualityText.setText("Connection Quality: " + connectionQuality
+                    + " (stream " + liveKitServer.getStreamController().getCurrentLevel() + ")");
 
             // Update token TTL
             long ttlSeconds = liveKitServer.getTokenTTLSeconds();
@@ -7,6 +7,7 @@ import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraManager;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
@@ -17,17 +18,25 @@ import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
 import com.google.firebase.auth.FirebaseAuth;
+import com.satinavrobotics.satibot.env.ControllerCommand;
 import com.satinavrobotics.satibot.env.ControllerToBotEventBus;
+import com.satinavrobotics.satibot.env.LatencyTracer;
 import com.satinavrobotics.satibot.env.StatusManager;
+import com.satinavrobotics.satibot.navigation.WaypointsManager;
 import com.satinavrobotics.satibot.utils.ConnectionUtils;
 import com.satinavrobotics.satibot.utils.Constants;
 import com.satinavrobotics.satibot.utils.PermissionUtils;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import io.livekit.android.ConnectOptions;
 import io.livekit.android.LiveKit;
@@ -51,7 +60,9 @@ import kotlin.Unit;
 import kotlin.coroutines.Continuation;
 import kotlin.coroutines.CoroutineContext;
 
+import kotlinx.coroutines.CompletableJob;
 import kotlinx.coroutines.Dispatchers;
+import kotlinx.coroutines.JobKt;
 import okhttp3.Credentials;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -70,6 +81,8 @@ public class LiveKitServer  {
 
     private final ConnectOptions connectOptions = new ConnectOptions();
 
+    private static final long STATS_POLL_INTERVAL_MS = 1000;
+
     private final String SERVER_URL = "https://controller.satinavrobotics.com/api/createToken";
 
     private boolean connected;
@@ -86,9 +99,24 @@ public class LiveKitServer  {
     private boolean isAppInBackground = false;
     private boolean wasConnectedBeforeBackground = false;
 
-    // Room state monitoring
-    private volatile boolean isMonitoring = false;
-    private Thread stateMonitorThread;
+    // Room event collection; cancelling the job stops the collector
+    private CompletableJob roomEventJob;
+
+    // Shared by connection state listener dispatch and stream stats polling
+    private final ScheduledExecutorService eventExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "LiveKit-Events");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> statsPolling;
+    private volatile boolean disconnectRequested = false;
+
+    // Adapts the AR stream to the link, fed by stats polling while connected
+    private final AdaptiveStreamController streamController = new AdaptiveStreamController();
+    private final ReconnectMetrics reconnectMetrics = new ReconnectMetrics();
+
+    // Pushes binary telemetry to all controllers while connected
+    private final TelemetryPublisher telemetryPublisher = new TelemetryPublisher(eventExecutor);
 
     /**
      * Interface for listening to connection state changes
@@ -133,112 +161,150 @@ public class LiveKitServer  {
     }
 
     /**
-     * Sets up room state monitoring to detect connection state changes
+     * Subscribes to room events to track connection state changes as they happen
      */
     private void setupRoomListener() {
-        // Stop any existing monitoring
-        stopStateMonitoring();
+        stopRoomEvents();
 
-        // Start monitoring room state changes
-        startStateMonitoring();
+        CompletableJob job = JobKt.Job(null);
+        roomEventJob = job;
+        try {
+            // Returns once the collector suspends; events are delivered on Dispatchers.Default
+            room.getEvents().getEvents().collect(
+                    (event, continuation) -> {
+                        handleRoomEvent(event);
+                        return Unit.INSTANCE;
+                    },
+                    new RoomEventContinuation(job));
+            Timber.d("Started room event collection");
+        } catch (Exception e) {
+            Timber.e(e, "Failed to collect room events");
+        }
     }
 
     /**
-     * Starts monitoring room state changes in a background thread
+     * Stops room event collection
      */
-    private void startStateMonitoring() {
-        isMonitoring = true;
-        stateMonitorThread = new Thread(() -> {
-            Room.State lastKnownState = null;
-            boolean isFirstCheck = true;
-
-            while (isMonitoring && !Thread.currentThread().isInterrupted()) {
-                try {
-                    if (room != null) {
-                        Room.State currentState = room.getState();
-
-                        // Check if state has changed OR if this is the first check
-                        if (lastKnownState != currentState || isFirstCheck) {
-                            isFirstCheck = false;
-
-                            // Update connection state based on room state
-                            switch (currentState) {
-                                case CONNECTED:
-                                    updateConnectionState(true);
-                                    break;
-                                case DISCONNECTED:
-                                    updateConnectionState(false);
-                                    break;
-                                case RECONNECTING:
-                                    // Don't change connected state during reconnection
-                                    break;
-                                default:
-                                    // Handle other states if needed
-                                    break;
-                            }
-
-                            lastKnownState = currentState;
-                        }
-                    }
+    private void stopRoomEvents() {
+        if (roomEventJob != null) {
+            roomEventJob.cancel((CancellationException) null);
+            roomEventJob = null;
+            Timber.d("Stopped room event collection");
+        }
+    }
 
-                    // Sleep for a short interval before checking again
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    Timber.d("State monitoring thread interrupted");
-                    break;
-                } catch (Exception e) {
-                    Timber.w(e, "Error in state monitoring thread");
-                    // Continue monitoring despite errors
-                }
+    private void handleRoomEvent(RoomEvent event) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        if (event instanceof RoomEvent.Reconnecting) {
+            Timber.d("Room reconnecting");
+            reconnectMetrics.onOutageStarted(now);
+            // Keep the connected flag while LiveKit tries to resume, but let listeners show it
+            updateConnectionState(connected, Room.State.RECONNECTING);
+        } else if (event instanceof RoomEvent.Reconnected) {
+            reconnectMetrics.onReconnected(now);
+            Timber.d("Room reconnected after %d ms", reconnectMetrics.getLastReconnectMs());
+            updateConnectionState(true, Room.State.CONNECTED);
+        } else if (event instanceof RoomEvent.Disconnected) {
+            if (disconnectRequested) {
+                reconnectMetrics.cancelOutage();
+            } else {
+                Timber.w(((RoomEvent.Disconnected) event).getError(), "Room disconnected unexpectedly");
+                reconnectMetrics.onOutageStarted(now);
+                reconnectMetrics.onSessionLost();
+            }
+            streamController.reset();
+            updateConnectionState(false, Room.State.DISCONNECTED);
+        } else if (event instanceof RoomEvent.LocalTrackPublished) {
+            TrackPublication publication = ((RoomEvent.LocalTrackPublished) event).getPublication();
+            if (publication.getSource() == Track.Source.CAMERA) {
+                reconnectMetrics.onCameraPublished(now);
+            }
+        } else if (event instanceof RoomEvent.LocalTrackUnpublished) {
+            TrackPublication publication = ((RoomEvent.LocalTrackUnpublished) event).getPublication();
+            if (publication.getSource() == Track.Source.CAMERA) {
+                reconnectMetrics.onSessionLost();
             }
+        }
+    }
 
-            Timber.d("State monitoring thread stopped");
-        });
+    private synchronized void startStatsPolling() {
+        if (statsPolling == null) {
+            statsPolling = eventExecutor.scheduleWithFixedDelay(
+                    this::pollStreamStats, STATS_POLL_INTERVAL_MS, STATS_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
 
-        stateMonitorThread.setName("LiveKit-StateMonitor");
-        stateMonitorThread.setDaemon(true);
-        stateMonitorThread.start();
-        Timber.d("Started room state monitoring");
+    private synchronized void stopStatsPolling() {
+        if (statsPolling != null) {
+            statsPolling.cancel(false);
+            statsPolling = null;
+        }
     }
 
     /**
-     * Stops room state monitoring
+     * Feeds connection quality and publisher stats to the stream controller and lets it
+     * re-evaluate. The stats arrive asynchronously and are used on the next evaluation.
      */
-    private void stopStateMonitoring() {
-        isMonitoring = false;
-        if (stateMonitorThread != null) {
-            stateMonitorThread.interrupt();
-            try {
-                stateMonitorThread.join(2000); // Wait up to 2 seconds for thread to stop
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    private void pollStreamStats() {
+        try {
+            LocalParticipant localParticipant = room.getLocalParticipant();
+            if (localParticipant != null) {
+                streamController.onConnectionQuality(localParticipant.getConnectionQuality());
             }
-            stateMonitorThread = null;
-            Timber.d("Stopped room state monitoring");
+            room.getPublisherRTCStats(streamController::onStatsReport);
+        } catch (Exception e) {
+            Timber.w(e, "Error polling stream stats");
         }
+        streamController.evaluate(SystemClock.elapsedRealtime());
+    }
+
+    public AdaptiveStreamController getStreamController() {
+        return streamController;
+    }
+
+    public ReconnectMetrics getReconnectMetrics() {
+        return reconnectMetrics;
+    }
+
+    public TelemetryPublisher getTelemetryPublisher() {
+        return telemetryPublisher;
     }
 
     /**
      * Updates the internal connection state and notifies listeners
      */
     private void updateConnectionState(boolean newConnected) {
-        boolean stateChanged = this.connected != newConnected;
+        updateConnectionState(newConnected, room != null ? room.getState() : Room.State.DISCONNECTED);
+    }
+
+    /**
+     * Updates the internal connection state and notifies listeners on the event executor.
+     * Listeners that touch views must switch to the main thread themselves.
+     */
+    private void updateConnectionState(boolean newConnected, Room.State roomState) {
         this.connected = newConnected;
 
-        Room.State roomState = room != null ? room.getState() : Room.State.DISCONNECTED;
+        if (roomState == Room.State.CONNECTED) {
+            // Covers connects the app initiated after the session was lost
+            reconnectMetrics.onReconnected(SystemClock.elapsedRealtimeNanos());
+            startStatsPolling();
+            telemetryPublisher.start(room.getLocalParticipant());
+        } else if (!newConnected) {
+            stopStatsPolling();
+            telemetryPublisher.stop();
+        }
 
-        if (stateChanged || connectionStateListeners.size() > 0) {
-            // Notify all listeners on the main thread (even if state didn't change, for force updates)
-            new Handler(Looper.getMainLooper()).post(() -> {
-                for (ConnectionStateListener listener : connectionStateListeners) {
-                    try {
-                        listener.onConnectionStateChanged(newConnected, roomState);
-                    } catch (Exception e) {
-                        Timber.w(e, "Error notifying connection state listener");
-                    }
+        // Notify even if the state didn't change, for force updates
+        eventExecutor.execute(() -> {
+            for (ConnectionStateListener listener : connectionStateListeners) {
+                try {
+                    listener.onConnectionStateChanged(newConnected, roomState);
+                } catch (Exception e) {
+                    Timber.w(e, "Error notifying connection state listener");
                 }
-            });
-        }
+            }
+            reconnectMetrics.onListenersNotified(SystemClock.elapsedRealtimeNanos());
+        });
     }
 
     /**
@@ -531,6 +597,7 @@ public class LiveKitServer  {
             Timber.w("No internet connection available, cannot connect to LiveKit");
             return;
         }
+        disconnectRequested = false;
 
         // Run the connection on a separate thread to avoid blocking the main thread.
         new Thread(new Runnable() {
@@ -739,7 +806,7 @@ public class LiveKitServer  {
 
     /**
      * Registers RPC methods for manual control operations.
-     * Manual control methods: switch-camera, client-connected, drive-cmd, cmd, status
+     * Manual control methods: switch-camera, client-connected, drive-cmd, cmd, status, telemetry-rate
      * Handles duplicate registrations gracefully.
      *
      * @param localParticipant the local participant to register methods on.
@@ -771,7 +838,9 @@ public class LiveKitServer  {
 
             localParticipant.registerRpcMethod(
                     "drive-cmd",  (data, error) -> {
+                        LatencyTracer.begin();
                         ControllerToBotEventBus.emitEvent(data.getPayload());
+                        LatencyTracer.end();
                         return "0";
                     },
                     new BaseContinuation()
@@ -786,7 +855,18 @@ public class LiveKitServer  {
             );
 
             localParticipant.registerRpcMethod(
-                    "status", (data, error) -> statusManager.getStatus().toString(),
+                    "status", (data, error) -> statusManager.getStatusJson(),
+                    new BaseContinuation());
+
+            localParticipant.registerRpcMethod(
+                    "telemetry-rate", (data, error) -> {
+                        try {
+                            telemetryPublisher.setRateHz(Integer.parseInt(data.getPayload().trim()));
+                        } catch (NumberFormatException e) {
+                            Timber.w("Invalid telemetry rate: %s", data.getPayload());
+                        }
+                        return String.valueOf(telemetryPublisher.getRateHz());
+                    },
                     new BaseContinuation());
 
             Timber.d("Successfully registered manual control RPC methods");
@@ -797,7 +877,7 @@ public class LiveKitServer  {
 
     /**
      * Registers RPC methods for autonomous control operations.
-     * Autonomous control methods: waypoint-cmd
+     * Autonomous control methods: waypoint-cmd, navigate-to
      * Note: status method is already registered by manual control methods
      * Handles duplicate registrations gracefully.
      *
@@ -807,15 +887,29 @@ public class LiveKitServer  {
         try {
             localParticipant.registerRpcMethod(
                     "waypoint-cmd",  (data, error) -> {
-                        JSONObject event;
+                        ControllerToBotEventBus.emitEvent(data.getPayload(), Constants.CMD_WAYPOINTS);
+                        return "0";
+                    },
+                    new BaseContinuation()
+            );
+
+            // {"waypointId": "..."}: route along the map's waypoint graph and follow it
+            localParticipant.registerRpcMethod(
+                    "navigate-to",  (data, error) -> {
+                        String goalId;
                         try {
-                            event = new JSONObject(data.getPayload());
-                            event.put("command", "WAYPOINTS");
-                            ControllerToBotEventBus.emitEvent(event.toString());
+                            goalId = new JSONObject(data.getPayload()).getString("waypointId");
                         } catch (JSONException e) {
                             e.printStackTrace();
+                            return "-1";
                         }
-                        return "0";
+                        JSONArray route = WaypointsManager.getInstance().planRouteTo(goalId);
+                        if (route == null) {
+                            Timber.w("No route to waypoint %s", goalId);
+                            return "-1";
+                        }
+                        ControllerToBotEventBus.emit(new ControllerCommand.WaypointCommand(route));
+                        return String.valueOf(route.length());
                     },
                     new BaseContinuation()
             );
@@ -830,7 +924,7 @@ public class LiveKitServer  {
 
     /**
      * Unregisters manual control RPC methods.
-     * Manual control methods: switch-camera, client-connected, drive-cmd, cmd, status
+     * Manual control methods: switch-camera, client-connected, drive-cmd, cmd, status, telemetry-rate
      *
      * @param localParticipant the local participant to unregister methods from.
      */
@@ -841,6 +935,7 @@ public class LiveKitServer  {
             localParticipant.unregisterRpcMethod("drive-cmd");
             localParticipant.unregisterRpcMethod("cmd");
             localParticipant.unregisterRpcMethod("status");
+            localParticipant.unregisterRpcMethod("telemetry-rate");
         } catch (Exception e) {
             Timber.e(e, "Failed to unregister manual control RPC methods");
         }
@@ -848,7 +943,7 @@ public class LiveKitServer  {
 
     /**
      * Unregisters autonomous control RPC methods.
-     * Autonomous control methods: waypoint-cmd
+     * Autonomous control methods: waypoint-cmd, navigate-to
      * Note: status method is managed by manual control methods
      *
      * @param localParticipant the local participant to unregister methods from.
@@ -856,6 +951,7 @@ public class LiveKitServer  {
     private void unregisterAutonomousControlRpcMethods(LocalParticipant localParticipant) {
         try {
             localParticipant.unregisterRpcMethod("waypoint-cmd");
+            localParticipant.unregisterRpcMethod("navigate-to");
             Timber.d("Successfully unregistered autonomous control RPC methods");
         } catch (Exception e) {
             Timber.e(e, "Failed to unregister autonomous control RPC methods: %s", e.getMessage());
@@ -895,19 +991,10 @@ public class LiveKitServer  {
      * This emits a client-connected event to trigger control initialization.
      */
     private void initializeManualControls() {
-        try {
-            Timber.d("Initializing manual controls...");
-            // Create a client-connected event to initialize controls
-            JSONObject clientConnectedEvent = new JSONObject();
-            clientConnectedEvent.put("command", "CLIENT_CONNECTED");
-            clientConnectedEvent.put("timestamp", System.currentTimeMillis());
-
-            // Emit the event to initialize controls
-            ControllerToBotEventBus.emitEvent(clientConnectedEvent.toString());
-            Timber.d("Manual controls initialized");
-        } catch (JSONException e) {
-            Timber.e(e, "Failed to initialize manual controls");
-        }
+        Timber.d("Initializing manual controls...");
+        // Emit a client-connected event to initialize controls
+        ControllerToBotEventBus.emit(new ControllerCommand.NamedCommand("CLIENT_CONNECTED"));
+        Timber.d("Manual controls initialized");
     }
 
     /**
@@ -1005,6 +1092,7 @@ public class LiveKitServer  {
         new Thread(() -> {
             try {
                 Timber.d("Starting disconnect process...");
+                disconnectRequested = true;
 
                 // First stop streaming and clean up properly
                 if (room != null && room.getState() == Room.State.CONNECTED) {
@@ -1056,9 +1144,6 @@ public class LiveKitServer  {
                 // Reset internal state
                 setConnected(false);
 
-                // Clean up state monitoring
-                stopStateMonitoring();
-
                 // Reset all camera-related singletons to prevent multiple camera sources
                 resetCameraSingletons();
 
@@ -1067,7 +1152,6 @@ public class LiveKitServer  {
             } catch (Exception e) {
                 Timber.e(e, "Error during disconnect process");
                 setConnected(false);
-                stopStateMonitoring();
                 resetCameraSingletons();
             }
         }).start();
@@ -1249,8 +1333,9 @@ public class LiveKitServer  {
         if (instance != null) {
             try {
                 instance.disconnect();
-                instance.stopStateMonitoring();
+                instance.stopRoomEvents();
                 Thread.sleep(3000); // Wait longer for complete cleanup
+                instance.eventExecutor.shutdown();
             } catch (Exception ignored) {}
             instance = null;
         }
@@ -1278,6 +1363,28 @@ public class LiveKitServer  {
         }
     }
 
+    private static class RoomEventContinuation extends BaseContinuation {
+        private final CoroutineContext context;
+
+        RoomEventContinuation(CompletableJob job) {
+            context = Dispatchers.getDefault().plus(job);
+        }
+
+        @Override
+        public CoroutineContext getContext() {
+            return context;
+        }
+
+        @Override
+        public void resumeWith(@NonNull Object result) {
+            // The event flow never completes; collection only ends by cancellation or failure
+            if (result instanceof Result.Failure
+                    && !(((Result.Failure) result).exception instanceof CancellationException)) {
+                Timber.e(((Result.Failure) result).exception, "Room event collection failed");
+            }
+        }
+    }
+
     public class OnRoomConnected extends BaseBooleanContinuation {
         @Override
         public void resumeWith(@NonNull Object result) {
@@ -0,0 +1,135 @@
+package com.satinavrobotics.satibot.livekit;
+
+import com.satinavrobotics.satibot.env.LatencyHistogram;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Timing of LiveKit connection outages, fed from room events.
+ *
+ * An outage starts with a Reconnecting event or an unrequested Disconnected event and ends when
+ * the room is connected again. For each outage three durations are recorded:
+ * - detect: from the event reporting the outage until connection state listeners were notified
+ * - reconnect: from the start of the outage until the room was connected again
+ * - republish: from reconnecting until the camera track was published again; only measured when
+ *   the session was lost, since a resumed connection keeps its tracks
+ *
+ * All times are SystemClock.elapsedRealtimeNanos() values.
+ */
+public class ReconnectMetrics {
+
+    private final LatencyHistogram detect = new LatencyHistogram();
+    private final LatencyHistogram reconnect = new LatencyHistogram();
+    private final LatencyHistogram republish = new LatencyHistogram();
+
+    private long outageStartNanos = -1;
+    private long detectStartNanos = -1;
+    private long reconnectedNanos = -1;
+    private boolean sessionLost = false;
+
+    private int outages = 0;
+    private int reconnects = 0;
+    private long lastReconnectNanos = -1;
+
+    /**
+     * The room reported that the connection is lost. A Disconnected event following Reconnecting
+     * belongs to the same outage.
+     */
+    public synchronized void onOutageStarted(long nowNanos) {
+        if (outageStartNanos >= 0) {
+            return;
+        }
+        outageStartNanos = nowNanos;
+        detectStartNanos = nowNanos;
+        reconnectedNanos = -1;
+        sessionLost = false;
+        outages++;
+    }
+
+    /**
+     * The session was torn down during the outage, so tracks have to be published again.
+     */
+    public synchronized void onSessionLost() {
+        if (outageStartNanos >= 0) {
+            sessionLost = true;
+        }
+    }
+
+    public synchronized void onListenersNotified(long nowNanos) {
+        if (detectStartNanos >= 0) {
+            detect.record(nowNanos - detectStartNanos);
+            detectStartNanos = -1;
+        }
+    }
+
+    public synchronized void onReconnected(long nowNanos) {
+        if (outageStartNanos < 0) {
+            return;
+        }
+        lastReconnectNanos = nowNanos - outageStartNanos;
+        reconnect.record(lastReconnectNanos);
+        reconnects++;
+        outageStartNanos = -1;
+        if (sessionLost) {
+            reconnectedNanos = nowNanos;
+        }
+    }
+
+    public synchronized void onCameraPublished(long nowNanos) {
+        if (reconnectedNanos >= 0) {
+            republish.record(nowNanos - reconnectedNanos);
+            reconnectedNanos = -1;
+        }
+    }
+
+    /**
+     * Forget the current outage, e.g. when the disconnect was requested by the app.
+     */
+    public synchronized void cancelOutage() {
+        outageStartNanos = -1;
+        detectStartNanos = -1;
+        reconnectedNanos = -1;
+        sessionLost = false;
+    }
+
+    public synchronized boolean isInOutage() {
+        return outageStartNanos >= 0;
+    }
+
+    public synchronized int getReconnectCount() {
+        return reconnects;
+    }
+
+    /**
+     * @return duration of the last completed outage in milliseconds, or -1 if there was none
+     */
+    public synchronized long getLastReconnectMs() {
+        return lastReconnectNanos < 0 ? -1 : lastReconnectNanos / 1_000_000;
+    }
+
+    public synchronized JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("outages", outages);
+            json.put("reconnects", reconnects);
+            json.put("inOutage", outageStartNanos >= 0);
+            json.put("lastReconnectMs", getLastReconnectMs());
+            putHistogram(json, "detect", detect);
+            putHistogram(json, "reconnect", reconnect);
+            putHistogram(json, "republish", republish);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return json;
+    }
+
+    private static void putHistogram(JSONObject json, String name, LatencyHistogram histogram)
+            throws JSONException {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        json.put(name + "P50Ms", histogram.getPercentile(50) / 1e6);
+        json.put(name + "MaxMs", histogram.getMaxNanos() / 1e6);
+    }
+}
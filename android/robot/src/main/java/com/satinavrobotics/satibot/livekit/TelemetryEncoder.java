@@ -0,0 +1,184 @@
+package com.satinavrobotics.satibot.livekit;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodes robot telemetry into compact binary packets for LiveKit data channels.
+ *
+ * Packet layout (big-endian):
+ * <pre>
+ *   u8  version (VERSION)
+ *   u8  flags (FLAG_KEYFRAME)
+ *   u16 sequence number
+ *   u32 timestamp in milliseconds (SystemClock.elapsedRealtime, truncated)
+ *   u8  field mask (FIELD_*), followed by the present fields in bit order:
+ *
+ *   POSE        i32 x mm, i32 z mm, i16 yaw 1e-4 rad, u8 flags (bit 0: visually tracked)
+ *   VELOCITY    i16 commanded linear 1e-3, i16 commanded angular 1e-3,
+ *               i16 left wheel rpm 1e-1, i16 right wheel rpm 1e-1, i16 fused angular velocity mrad/s
+ *   BATTERY     u8 percent
+ *   NAVIGATION  u8 NavigationState ordinal, u16 current waypoint index, u16 waypoint count
+ *   NAVIGABILITY u8 row count n, ceil(n / 8) bytes of row bits (LSB first, 1 = navigable)
+ * </pre>
+ *
+ * Delta frames only carry the fields whose quantized value changed since it was last sent.
+ * Keyframes carry every field the robot currently has, so a controller joining late is in sync
+ * after the next keyframe and a field missing from a keyframe is unavailable. Since each field is
+ * sent whole, a lost packet only delays an update and never corrupts later ones.
+ *
+ * Not thread-safe; encode one packet at a time between begin() and finish().
+ */
+public class TelemetryEncoder {
+    public static final int VERSION = 1;
+    public static final int FLAG_KEYFRAME = 1;
+
+    public static final int FIELD_POSE = 1;
+    public static final int FIELD_VELOCITY = 1 << 1;
+    public static final int FIELD_BATTERY = 1 << 2;
+    public static final int FIELD_NAVIGATION = 1 << 3;
+    public static final int FIELD_NAVIGABILITY = 1 << 4;
+
+    private static final int FIELD_COUNT = 5;
+    private static final int HEADER_SIZE = 9;
+    private static final int MAX_NAVIGABILITY_ROWS = 255;
+    private static final int MAX_FIELD_SIZE = 1 + (MAX_NAVIGABILITY_ROWS + 7) / 8;
+
+    private final ByteBuffer[] fields = new ByteBuffer[FIELD_COUNT];
+    private final byte[][] lastSent = new byte[FIELD_COUNT][];
+    private final ByteBuffer packet = ByteBuffer.allocate(HEADER_SIZE + FIELD_COUNT * MAX_FIELD_SIZE);
+
+    private int sequence = 0;
+    private int present = 0;
+    private boolean keyframe = false;
+    private long timestampMs = 0;
+
+    public TelemetryEncoder() {
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            fields[i] = ByteBuffer.allocate(MAX_FIELD_SIZE);
+        }
+    }
+
+    /**
+     * Start a packet. Fields that are not put before finish() are left out.
+     */
+    public void begin(long timestampMs, boolean keyframe) {
+        this.timestampMs = timestampMs;
+        this.keyframe = keyframe;
+        present = 0;
+    }
+
+    public void putPose(float x, float z, float yaw, boolean visuallyTracked) {
+        ByteBuffer field = startField(FIELD_POSE);
+        field.putInt(Math.round(x * 1000));
+        field.putInt(Math.round(z * 1000));
+        field.putShort(clampShort(yaw * 10000));
+        field.put((byte) (visuallyTracked ? 1 : 0));
+    }
+
+    public void putVelocity(float linear, float angular, float leftRpm, float rightRpm,
+                            float fusedAngularVelocity) {
+        ByteBuffer field = startField(FIELD_VELOCITY);
+        field.putShort(clampShort(linear * 1000));
+        field.putShort(clampShort(angular * 1000));
+        field.putShort(clampShort(leftRpm * 10));
+        field.putShort(clampShort(rightRpm * 10));
+        field.putShort(clampShort(fusedAngularVelocity * 1000));
+    }
+
+    public void putBattery(int percent) {
+        startField(FIELD_BATTERY).put((byte) Math.max(0, Math.min(100, percent)));
+    }
+
+    public void putNavigation(int stateOrdinal, int waypointIndex, int waypointCount) {
+        ByteBuffer field = startField(FIELD_NAVIGATION);
+        field.put((byte) stateOrdinal);
+        field.putShort((short) Math.max(0, Math.min(0xFFFF, waypointIndex)));
+        field.putShort((short) Math.max(0, Math.min(0xFFFF, waypointCount)));
+    }
+
+    /**
+     * @param rows navigability per row; rows beyond MAX_NAVIGABILITY_ROWS are dropped
+     */
+    public void putNavigability(boolean[] rows) {
+        ByteBuffer field = startField(FIELD_NAVIGABILITY);
+        int count = Math.min(rows.length, MAX_NAVIGABILITY_ROWS);
+        field.put((byte) count);
+        for (int offset = 0; offset < count; offset += 8) {
+            int bits = 0;
+            for (int bit = 0; bit < 8 && offset + bit < count; bit++) {
+                if (rows[offset + bit]) {
+                    bits |= 1 << bit;
+                }
+            }
+            field.put((byte) bits);
+        }
+    }
+
+    /**
+     * Assemble the packet from the fields put since begin().
+     *
+     * @return the packet, or null for a delta frame without changes
+     */
+    public byte[] finish() {
+        int mask = 0;
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if ((present & (1 << i)) != 0 && (keyframe || changed(i))) {
+                mask |= 1 << i;
+            }
+        }
+        if (mask == 0 && !keyframe) {
+            return null;
+        }
+
+        packet.clear();
+        packet.put((byte) VERSION);
+        packet.put((byte) (keyframe ? FLAG_KEYFRAME : 0));
+        packet.putShort((short) sequence);
+        packet.putInt((int) timestampMs);
+        packet.put((byte) mask);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                ByteBuffer field = fields[i];
+                packet.put(field.array(), 0, field.position());
+                lastSent[i] = Arrays.copyOf(field.array(), field.position());
+            }
+        }
+        sequence = (sequence + 1) & 0xFFFF;
+        return Arrays.copyOf(packet.array(), packet.position());
+    }
+
+    /**
+     * Forget what was sent, e.g. after reconnecting, so the next packet repeats every field.
+     */
+    public void reset() {
+        Arrays.fill(lastSent, null);
+    }
+
+    private ByteBuffer startField(int field) {
+        int index = Integer.numberOfTrailingZeros(field);
+        present |= field;
+        ByteBuffer buffer = fields[index];
+        buffer.clear();
+        return buffer;
+    }
+
+    private boolean changed(int index) {
+        byte[] last = lastSent[index];
+        ByteBuffer field = fields[index];
+        if (last == null || last.length != field.position()) {
+            return true;
+        }
+        byte[] current = field.array();
+        for (int i = 0; i < last.length; i++) {
+            if (last[i] != current[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static short clampShort(float value) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+    }
+}
@@ -0,0 +1,212 @@
+package com.satinavrobotics.satibot.livekit;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.satinavrobotics.satibot.SatiBotApplication;
+import com.satinavrobotics.satibot.navigation.NavigationContext;
+import com.satinavrobotics.satibot.navigation.estimation.PoseEstimate;
+import com.satinavrobotics.satibot.vehicle.Vehicle;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.livekit.android.room.participant.LocalParticipant;
+import io.livekit.android.room.track.DataPublishReliability;
+import kotlin.Result;
+import kotlin.coroutines.Continuation;
+import kotlin.coroutines.CoroutineContext;
+import kotlinx.coroutines.Dispatchers;
+import timber.log.Timber;
+
+/**
+ * Pushes robot telemetry to every participant of the room as lossy data packets on the
+ * "telemetry" topic, encoded by {@link TelemetryEncoder}. Controllers subscribe to the topic
+ * instead of polling the "status" RPC.
+ *
+ * Pose, velocity and battery come from SatiBotApplication.vehicle; navigation state and
+ * navigability rows from the NavigationContext of the active navigation, if any.
+ */
+public class TelemetryPublisher {
+    public static final String TOPIC = "telemetry";
+    public static final int DEFAULT_RATE_HZ = 10;
+    public static final int MAX_RATE_HZ = 30;
+
+    // Keyframes bound how long a controller that joined late or lost a packet stays stale
+    static final long KEYFRAME_INTERVAL_MS = 1000;
+    // ARCore corrections older than this are reported as not visually tracked
+    private static final long VISUAL_TRACKING_MAX_AGE_NANOS = 300_000_000L;
+
+    private final ScheduledExecutorService executor;
+    private final TelemetryEncoder encoder = new TelemetryEncoder();
+    private final PublishContinuation publishContinuation = new PublishContinuation();
+    private final Consumer<TelemetryEncoder> fieldWriter = this::putFields;
+
+    private ScheduledFuture<?> task;
+    private volatile LocalParticipant participant;
+    private volatile NavigationContext navigationContext;
+    private int rateHz = DEFAULT_RATE_HZ;
+
+    // Only touched on the executor
+    private long lastKeyframeMs = Long.MIN_VALUE / 2;
+    private volatile boolean forceKeyframe = true;
+
+    // Metrics
+    private volatile long packetsSent = 0;
+    private volatile long keyframesSent = 0;
+    private volatile long bytesSent = 0;
+
+    TelemetryPublisher(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Start publishing on behalf of the given participant. The first packet is a keyframe.
+     */
+    public synchronized void start(LocalParticipant participant) {
+        if (participant == null) {
+            return;
+        }
+        this.participant = participant;
+        forceKeyframe = true;
+        if (task == null) {
+            schedule();
+            Timber.d("Telemetry publishing started at %d Hz", rateHz);
+        }
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            Timber.d("Telemetry publishing stopped");
+        }
+        participant = null;
+    }
+
+    /**
+     * Set the publishing rate, clamped to 1..MAX_RATE_HZ. Takes effect immediately when running.
+     */
+    public synchronized void setRateHz(int hz) {
+        rateHz = Math.max(1, Math.min(MAX_RATE_HZ, hz));
+        if (task != null) {
+            task.cancel(false);
+            schedule();
+        }
+    }
+
+    public synchronized int getRateHz() {
+        return rateHz;
+    }
+
+    /**
+     * Set the navigation whose state and navigability rows are published, or null when no
+     * navigation is active.
+     */
+    public void setNavigationContext(NavigationContext context) {
+        this.navigationContext = context;
+        forceKeyframe = true;
+    }
+
+    private void schedule() {
+        long periodMs = 1000 / rateHz;
+        task = executor.scheduleWithFixedDelay(this::publish, 0, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void publish() {
+        LocalParticipant target = participant;
+        if (target == null) {
+            return;
+        }
+        try {
+            byte[] packet = encodeFrame(SystemClock.elapsedRealtime(), fieldWriter);
+            if (packet == null) {
+                return;
+            }
+            target.publishData(packet, DataPublishReliability.LOSSY, TOPIC, null, publishContinuation);
+            packetsSent++;
+            bytesSent += packet.length;
+        } catch (Exception e) {
+            Timber.w(e, "Error publishing telemetry");
+        }
+    }
+
+    /**
+     * Encode the next packet, a keyframe if one was forced or the last one is
+     * KEYFRAME_INTERVAL_MS old. Only called on the executor, and by tests.
+     *
+     * @param fields puts the current fields into the encoder
+     * @return the packet, or null for a delta frame without changes
+     */
+    byte[] encodeFrame(long nowMs, Consumer<TelemetryEncoder> fields) {
+        boolean keyframe = forceKeyframe || nowMs - lastKeyframeMs >= KEYFRAME_INTERVAL_MS;
+        encoder.begin(nowMs, keyframe);
+        fields.accept(encoder);
+        byte[] packet = encoder.finish();
+        if (packet != null && keyframe) {
+            lastKeyframeMs = nowMs;
+            forceKeyframe = false;
+            keyframesSent++;
+        }
+        return packet;
+    }
+
+    private void putFields(TelemetryEncoder encoder) {
+        Vehicle vehicle = SatiBotApplication.vehicle;
+        if (vehicle != null) {
+            PoseEstimate pose = vehicle.getPoseEstimator().getEstimate();
+            if (pose != null) {
+                encoder.putPose(pose.x(), pose.z(), pose.yaw(), pose.isVisuallyTracked(
+                        System.nanoTime(), VISUAL_TRACKING_MAX_AGE_NANOS));
+            }
+            encoder.putVelocity(vehicle.getLinearVelocity(), vehicle.getAngularVelocity(),
+                    vehicle.getLeftWheelRpm(), vehicle.getRightWheelRpm(),
+                    vehicle.getFusedAngularVelocity());
+            encoder.putBattery(vehicle.getBatteryPercentage());
+        }
+
+        NavigationContext context = navigationContext;
+        if (context != null) {
+            encoder.putNavigation(context.getCurrentState().ordinal(),
+                    context.getCurrentWaypointIndex(), context.getTotalWaypointCount());
+            boolean[] navigability = context.getNavigabilityData();
+            if (navigability != null) {
+                encoder.putNavigability(navigability);
+            }
+        }
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("rateHz", getRateHz());
+            json.put("packets", packetsSent);
+            json.put("keyframes", keyframesSent);
+            json.put("avgBytes", packetsSent == 0 ? 0 : bytesSent / packetsSent);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return json;
+    }
+
+    private static class PublishContinuation implements Continuation<Object> {
+        @NonNull
+        @Override
+        public CoroutineContext getContext() {
+            return Dispatchers.getDefault();
+        }
+
+        @Override
+        public void resumeWith(@NonNull Object result) {
+            if (result instanceof Result.Failure) {
+                Timber.w(((Result.Failure) result).exception, "Failed to publish telemetry");
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.json.JSONObject;
 
 import com.satinavrobotics.satibot.env.SharedPreferencesManager;
 import com.satinavrobotics.satibot.env.StatusManager;
+import com.satinavrobotics.satibot.env.StatusSnapshot;
 import com.satinavrobotics.satibot.utils.Enums;
 
 import timber.log.Timber;
@@ -102,19 +103,12 @@ public class LocationService extends Service implements SensorEventListener {
                     public void onLocationResult(LocationResult locationResult) {
                         Location location = locationResult.getLastLocation();
                         if (location != null) {
-                            // Note: added this line, might make processing slower
-                            JSONObject loc;
-                            try {
-                                loc = new JSONObject();
-                                loc.put("latitude", location.getLatitude());
-                                loc.put("longitude", location.getLongitude());
-                                loc.put("altitude", location.getAltitude());
-                                loc.put("bearing", location.getBearing());
-                                loc.put("speed", location.getSpeed());
-                            } catch (JSONException e) {
-                                throw new RuntimeException(e);
-                            }
-                            statusManager.updateLocation(loc);
+                            statusManager.updateLocation(new StatusSnapshot.GeoLocation(
+                                    location.getLatitude(),
+                                    location.getLongitude(),
+                                    location.getAltitude(),
+                                    location.getBearing(),
+                                    location.getSpeed()));
                         }
                     }
 
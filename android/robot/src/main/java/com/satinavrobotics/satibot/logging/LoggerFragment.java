@@ -33,6 +33,7 @@ import com.google.firebase.auth.FirebaseUser;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -48,6 +49,7 @@ import com.satinavrobotics.satibot.R;
 import com.satinavrobotics.satibot.robot.ControlsFragment;
 import com.satinavrobotics.satibot.databinding.FragmentLoggerBinding;
 import com.satinavrobotics.satibot.env.ImageUtils;
+import com.satinavrobotics.satibot.env.LatencyTracer;
 import com.satinavrobotics.satibot.googleServices.GoogleServices;
 import com.satinavrobotics.satibot.logging.render.BitmapRenderer;
 import com.satinavrobotics.satibot.logging.sources.ArCoreImageSourceHandler;
@@ -705,6 +707,9 @@ public class LoggerFragment extends ControlsFragment implements ImageSourceHandl
     // Save metadata
     saveMetadata();
 
+    // Record the raw vehicle link so the run can be replayed without the robot
+    vehicle.startLinkRecording(new File(logFolder, "vehicle_link.bin"));
+
     Timber.d("Started logging to folder: %s", logFolder);
   }
 
@@ -716,6 +721,13 @@ public class LoggerFragment extends ControlsFragment implements ImageSourceHandl
       return;
     }
 
+    vehicle.stopLinkRecording();
+    try {
+      LatencyTracer.dump(new File(logFolder, "latency.csv"));
+    } catch (IOException e) {
+      Timber.e(e, "Could not write latency dump");
+    }
+
     // Pack and upload the collected data
     runInBackground(() -> {
       try {
@@ -2,7 +2,6 @@ package com.satinavrobotics.satibot.mapManagement;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.media.Image;
 import android.opengl.Matrix;
 import android.os.Environment;
 import android.os.Handler;
@@ -12,6 +11,8 @@ import com.google.ar.core.Frame;
 import com.google.ar.core.PointCloud;
 import com.google.ar.core.Pose;
 
+import com.satinavrobotics.satibot.arcore.CameraImageCache;
+import com.satinavrobotics.satibot.arcore.ImageFrame;
 import com.satinavrobotics.satibot.env.ImageUtils;
 import com.satinavrobotics.satibot.googleServices.GoogleServices;
 
@@ -279,13 +280,14 @@ public class DenseMappingManager {
         }
 
         // Acquire images immediately while we have the latest frame
-        Image cameraImage = null;
+        ImageFrame cameraImage = null;
         PointCloud pointCloud = null;
 
         try {
             // Try to acquire camera image from the frame
             try {
-                cameraImage = frame.acquireCameraImage();
+                // Shared copy of this frame's camera image; the Image itself is already closed
+                cameraImage = CameraImageCache.getInstance().acquire(frame);
             } catch (Exception e) {
                 Timber.w("Failed to acquire camera image: %s", e.getMessage());
             }
@@ -311,15 +313,12 @@ public class DenseMappingManager {
             Bitmap bitmap = null;
             try {
                 bitmap = ImageUtils.imageToBitmap(cameraImage);
-                // Close camera image as soon as we've converted it
-                cameraImage.close();
-                cameraImage = null;
             } catch (Exception e) {
                 Timber.w("Failed to convert image to bitmap: %s", e.getMessage());
-                if (cameraImage != null) {
-                    cameraImage.close();
-                    cameraImage = null;
-                }
+            } finally {
+                // Release the shared camera image as soon as we've converted it
+                cameraImage.release();
+                cameraImage = null;
             }
 
             // Store final references to be used in the executor
@@ -375,7 +374,7 @@ public class DenseMappingManager {
             });
         } catch (Exception e) {
             // Clean up resources if an exception occurs
-            if (cameraImage != null) cameraImage.close();
+            if (cameraImage != null) cameraImage.release();
             if (pointCloud != null) pointCloud.release();
 
             Timber.e(e, "Error acquiring images from frame");
@@ -1,6 +1,7 @@
 package com.satinavrobotics.satibot.mapManagement;
 
 import com.google.firebase.firestore.DocumentId;
+import com.satinavrobotics.satibot.navigation.RoutePlanner;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -289,6 +290,34 @@ public class Map {
         // Ignore the input value as the count is derived from the list size
     }
 
+    /**
+     * Builds a route planner over the waypoints in local coordinates (relative to the first
+     * anchor), the frame navigation works in. Waypoints saved without local coordinates are left out.
+     *
+     * @return A new route planner, empty if the map has no waypoints
+     */
+    public RoutePlanner createRoutePlanner() {
+        RoutePlanner planner = new RoutePlanner();
+        if (waypoints == null) {
+            return planner;
+        }
+        for (WaypointData waypoint : waypoints) {
+            List<Float> local = waypoint.getLocalTranslation();
+            if (waypoint.getId() != null && local != null && local.size() >= 3) {
+                planner.putNode(waypoint.getId(), local.get(0), local.get(1), local.get(2));
+            }
+        }
+        for (WaypointData waypoint : waypoints) {
+            if (waypoint.getConnectedWaypointIds() == null) {
+                continue;
+            }
+            for (String connectedId : waypoint.getConnectedWaypointIds()) {
+                planner.connect(waypoint.getId(), connectedId);
+            }
+        }
+        return planner;
+    }
+
     public long getCreatedAt() {
         return createdAt;
     }
@@ -1618,15 +1618,15 @@ public class MapResolvingFragment extends Fragment implements GLSurfaceView.Rend
                 // Store the waypoint in our map for the second pass
                 createdWaypoints.put(waypointData.getId(), waypoint);
 
-                // Add the waypoint to the graph
-                waypointGraph.addWaypoint(waypoint);
-
                 Timber.d("Loaded waypoint %s at pose %s", waypointData.getId(), worldPose.toString());
             } else {
                 Timber.w("Could not create waypoint %s - no valid pose available", waypointData.getId());
             }
         }
 
+        // Add the waypoints to the graph in one go
+        waypointGraph.addWaypoints(createdWaypoints.values());
+
         // Second pass: Create connections between waypoints
         for (WaypointData waypointData : currentMap.getWaypoints()) {
             Waypoint waypoint = createdWaypoints.get(waypointData.getId());
@@ -1634,7 +1634,7 @@ public class MapResolvingFragment extends Fragment implements GLSurfaceView.Rend
                 for (String connectedId : waypointData.getConnectedWaypointIds()) {
                     Waypoint connectedWaypoint = createdWaypoints.get(connectedId);
                     if (connectedWaypoint != null) {
-                        waypoint.addConnection(connectedId);
+                        waypointGraph.connectWaypoints(waypointData.getId(), connectedId);
                         Timber.d("Created connection between waypoints %s and %s",
                                 waypointData.getId(), connectedId);
                     }
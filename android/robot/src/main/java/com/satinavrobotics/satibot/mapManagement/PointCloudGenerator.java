@@ -7,6 +7,8 @@ import com.google.ar.core.CameraIntrinsics;
 import com.google.ar.core.Frame;
 import com.google.ar.core.Pose;
 import com.google.ar.core.exceptions.NotYetAvailableException;
+import com.satinavrobotics.satibot.arcore.CameraImageCache;
+import com.satinavrobotics.satibot.arcore.ImageFrame;
 import com.satinavrobotics.satibot.mapManagement.pcd_processing.AsyncOutlierDetector;
 import com.satinavrobotics.satibot.mapManagement.pcd_processing.MedianDepthImageFilter;
 
@@ -124,7 +126,7 @@ public class PointCloudGenerator {
         boolean hasConfidence = (confidenceImage != null && confidenceArray != null);
 
         // --- Acquire the camera image for color information ---
-        Image cameraImage = null;
+        ImageFrame cameraImage = null;
         byte[] yuvY = null;
         byte[] yuvU = null;
         byte[] yuvV = null;
@@ -136,7 +138,8 @@ public class PointCloudGenerator {
 
         if (includeColor) {
             try {
-                cameraImage = frame.acquireCameraImage();
+                // Shared with the other consumers of this frame, planes already copied
+                cameraImage = CameraImageCache.getInstance().acquire(frame);
                 if (cameraImage != null) {
                     // Check if timestamps match (if required)
                     long cameraTimestamp = cameraImage.getTimestamp();
@@ -159,18 +162,14 @@ public class PointCloudGenerator {
 
                     colorWidth = cameraImage.getWidth();
                     colorHeight = cameraImage.getHeight();
-                    Image.Plane yPlane = cameraImage.getPlanes()[0];
-                    Image.Plane uPlane = cameraImage.getPlanes()[1];
-                    Image.Plane vPlane = cameraImage.getPlanes()[2];
-                    yuvY = new byte[yPlane.getBuffer().remaining()];
-                    yuvU = new byte[uPlane.getBuffer().remaining()];
-                    yuvV = new byte[vPlane.getBuffer().remaining()];
-                    yPlane.getBuffer().get(yuvY);
-                    uPlane.getBuffer().get(yuvU);
-                    vPlane.getBuffer().get(yuvV);
-                    yRowStride = yPlane.getRowStride();
-                    uvRowStride = uPlane.getRowStride();
-                    uvPixelStride = uPlane.getPixelStride();
+                    // Read directly from the shared copy; it is only read, never written
+                    byte[][] planes = cameraImage.getYuvBytes();
+                    yuvY = planes[0];
+                    yuvU = planes[1];
+                    yuvV = planes[2];
+                    yRowStride = cameraImage.getYRowStride();
+                    uvRowStride = cameraImage.getUvRowStride();
+                    uvPixelStride = cameraImage.getUvPixelStride();
                 }
             } catch (Exception e) {
                 Log.w(TAG, "Camera image not available: " + e.getMessage());
@@ -313,7 +312,7 @@ public class PointCloudGenerator {
             confidenceImage.close();
         }
         if (cameraImage != null) {
-            cameraImage.close();
+            cameraImage.release();
         }
 
         Log.d(TAG, "Generated point cloud with " + pointCloud.size() + " points (subsample=" +
@@ -0,0 +1,496 @@
+package com.satinavrobotics.satibot.mapManagement;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Uniform grid hash over 3D points for nearest, k-nearest and within-radius queries. Distances
+ * are compared squared, and a query only visits the cells that can hold a closer point.
+ *
+ * Reads never lock: every edit publishes a new immutable snapshot, which queries read through a
+ * volatile field. A snapshot is a packed base grid plus the entries inserted and the ids removed
+ * since the base was built. Once those exceed about sqrt(n) the base is rebuilt in O(n), so an
+ * edit costs amortized O(sqrt(n)), and a query scans at most that many recent entries besides
+ * its cells. Edits are synchronized.
+ *
+ * @param <T> value stored with each point
+ */
+public class SpatialHashIndex<T> {
+    private static final int MIN_PENDING = 16;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int CELL_BITS = 21;
+    private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+
+    private static final class Entry<T> {
+        final String id;
+        final float x;
+        final float y;
+        final float z;
+        final T value;
+
+        Entry(String id, float x, float y, float z, T value) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Immutable view of the index. Base entries are grouped by cell, the open-addressing table
+     * maps a cell key to its range.
+     */
+    private static final class Snapshot<T> {
+        final long[] cellKeys;
+        final int[] cellStart;
+        final int[] cellEnd;
+        final float[] xs;
+        final float[] ys;
+        final float[] zs;
+        final Entry<T>[] base;
+        final int minX, minY, minZ, maxX, maxY, maxZ;
+        final Entry<T>[] added;
+        final Set<String> removed;
+        final int size;
+
+        Snapshot(long[] cellKeys, int[] cellStart, int[] cellEnd, Entry<T>[] base,
+                 int[] bounds, Entry<T>[] added, Set<String> removed, int size) {
+            this.cellKeys = cellKeys;
+            this.cellStart = cellStart;
+            this.cellEnd = cellEnd;
+            this.base = base;
+            this.xs = new float[base.length];
+            this.ys = new float[base.length];
+            this.zs = new float[base.length];
+            for (int i = 0; i < base.length; i++) {
+                xs[i] = base[i].x;
+                ys[i] = base[i].y;
+                zs[i] = base[i].z;
+            }
+            this.minX = bounds[0];
+            this.minY = bounds[1];
+            this.minZ = bounds[2];
+            this.maxX = bounds[3];
+            this.maxY = bounds[4];
+            this.maxZ = bounds[5];
+            this.added = added;
+            this.removed = removed;
+            this.size = size;
+        }
+
+        /**
+         * Same base with other recent edits, sharing the packed arrays.
+         */
+        Snapshot(Snapshot<T> baseSnapshot, Entry<T>[] added, Set<String> removed, int size) {
+            this.cellKeys = baseSnapshot.cellKeys;
+            this.cellStart = baseSnapshot.cellStart;
+            this.cellEnd = baseSnapshot.cellEnd;
+            this.base = baseSnapshot.base;
+            this.xs = baseSnapshot.xs;
+            this.ys = baseSnapshot.ys;
+            this.zs = baseSnapshot.zs;
+            this.minX = baseSnapshot.minX;
+            this.minY = baseSnapshot.minY;
+            this.minZ = baseSnapshot.minZ;
+            this.maxX = baseSnapshot.maxX;
+            this.maxY = baseSnapshot.maxY;
+            this.maxZ = baseSnapshot.maxZ;
+            this.added = added;
+            this.removed = removed;
+            this.size = size;
+        }
+
+        int findCell(long key) {
+            int mask = cellKeys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                long slotKey = cellKeys[slot];
+                if (slotKey == key) {
+                    return slot;
+                }
+                if (slotKey == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Best matches of a query, ordered by squared distance.
+     */
+    private static final class Nearest {
+        final float[] distances;
+        final Object[] values;
+        int count = 0;
+
+        Nearest(int k) {
+            distances = new float[k];
+            values = new Object[k];
+        }
+
+        /**
+         * @return squared distance a candidate must beat, the limit until k are found
+         */
+        float bound(float limit) {
+            return count < distances.length ? limit : distances[count - 1];
+        }
+
+        void offer(float distance, Object value) {
+            int i = count < distances.length ? count++ : count - 1;
+            while (i > 0 && distances[i - 1] > distance) {
+                distances[i] = distances[i - 1];
+                values[i] = values[i - 1];
+                i--;
+            }
+            distances[i] = distance;
+            values[i] = value;
+        }
+    }
+
+    private final float cellSize;
+    private final float inverseCellSize;
+
+    // Writer state, guarded by this
+    private final Map<String, Entry<T>> entries = new HashMap<>();
+
+    private volatile Snapshot<T> snapshot;
+
+    /**
+     * @param cellSize edge of a grid cell in metres, about the typical query radius or point spacing
+     */
+    public SpatialHashIndex(float cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1f / cellSize;
+        this.snapshot = build(Collections.<Entry<T>>emptyList());
+    }
+
+    /**
+     * Insert a point, or move it if the id is already indexed.
+     */
+    public synchronized void put(String id, float x, float y, float z, T value) {
+        Entry<T> entry = new Entry<>(id, x, y, z, value);
+        Entry<T> previous = entries.put(id, entry);
+        Snapshot<T> current = snapshot;
+        Set<String> removed = current.removed;
+        Entry<T>[] added = current.added;
+        if (previous != null) {
+            // An entry is either a recent insert or in the base
+            Entry<T>[] withoutPrevious = without(added, previous);
+            if (withoutPrevious == added) {
+                removed = withId(removed, id);
+            }
+            added = withoutPrevious;
+        }
+        added = Arrays.copyOf(added, added.length + 1);
+        added[added.length - 1] = entry;
+        publish(current, added, removed);
+    }
+
+    /**
+     * Insert or move many points with a single rebuild, e.g. when loading a map.
+     *
+     * @param positions x, y, z of each point in turn
+     */
+    public synchronized void putAll(List<String> ids, float[] positions, List<? extends T> values) {
+        if (positions.length != ids.size() * 3 || values.size() != ids.size()) {
+            throw new IllegalArgumentException("Expected " + ids.size() + " positions and values");
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            entries.put(id, new Entry<>(id, positions[3 * i], positions[3 * i + 1], positions[3 * i + 2],
+                    values.get(i)));
+        }
+        snapshot = build(entries.values());
+    }
+
+    /**
+     * @return true if the id was indexed
+     */
+    public synchronized boolean remove(String id) {
+        Entry<T> previous = entries.remove(id);
+        if (previous == null) {
+            return false;
+        }
+        Snapshot<T> current = snapshot;
+        Entry<T>[] added = without(current.added, previous);
+        publish(current, added, added == current.added ? withId(current.removed, id) : current.removed);
+        return true;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        snapshot = build(Collections.<Entry<T>>emptyList());
+    }
+
+    public int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * @return the value closest to the position, strictly within maxDistance, or null
+     */
+    @SuppressWarnings("unchecked")
+    public T findNearest(float x, float y, float z, float maxDistance) {
+        Nearest nearest = new Nearest(1);
+        search(snapshot, x, y, z, maxDistance * maxDistance, nearest);
+        return nearest.count > 0 ? (T) nearest.values[0] : null;
+    }
+
+    /**
+     * Append up to k values strictly within maxDistance of the position to out, closest first.
+     *
+     * @return number of values appended
+     */
+    @SuppressWarnings("unchecked")
+    public int findNearest(float x, float y, float z, int k, float maxDistance, List<? super T> out) {
+        if (k <= 0) {
+            return 0;
+        }
+        Nearest nearest = new Nearest(k);
+        search(snapshot, x, y, z, maxDistance * maxDistance, nearest);
+        for (int i = 0; i < nearest.count; i++) {
+            out.add((T) nearest.values[i]);
+        }
+        return nearest.count;
+    }
+
+    /**
+     * Append every value within radius of the position to out, in no particular order.
+     *
+     * @return number of values appended
+     */
+    public int findWithinRadius(float x, float y, float z, float radius, List<? super T> out) {
+        Snapshot<T> s = snapshot;
+        float limit = radius * radius;
+        int found = 0;
+        for (Entry<T> entry : s.added) {
+            if (distanceSquared(entry.x, entry.y, entry.z, x, y, z) <= limit) {
+                out.add(entry.value);
+                found++;
+            }
+        }
+        if (s.base.length == 0) {
+            return found;
+        }
+
+        int x0 = Math.max(s.minX, cell(x - radius));
+        int x1 = Math.min(s.maxX, cell(x + radius));
+        int y0 = Math.max(s.minY, cell(y - radius));
+        int y1 = Math.min(s.maxY, cell(y + radius));
+        int z0 = Math.max(s.minZ, cell(z - radius));
+        int z1 = Math.min(s.maxZ, cell(z + radius));
+        boolean checkRemoved = !s.removed.isEmpty();
+        for (int ix = x0; ix <= x1; ix++) {
+            for (int iy = y0; iy <= y1; iy++) {
+                for (int iz = z0; iz <= z1; iz++) {
+                    int slot = s.findCell(key(ix, iy, iz));
+                    if (slot < 0) {
+                        continue;
+                    }
+                    for (int i = s.cellStart[slot]; i < s.cellEnd[slot]; i++) {
+                        if (distanceSquared(s.xs[i], s.ys[i], s.zs[i], x, y, z) <= limit
+                                && !(checkRemoved && s.removed.contains(s.base[i].id))) {
+                            out.add(s.base[i].value);
+                            found++;
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Visit cells in cubic shells of growing Chebyshev radius around the query cell, until no
+     * unvisited cell can hold a point closer than the current k-th best.
+     */
+    private void search(Snapshot<T> s, float x, float y, float z, float limit, Nearest nearest) {
+        for (Entry<T> entry : s.added) {
+            float distance = distanceSquared(entry.x, entry.y, entry.z, x, y, z);
+            if (distance < nearest.bound(limit)) {
+                nearest.offer(distance, entry.value);
+            }
+        }
+        if (s.base.length == 0) {
+            return;
+        }
+
+        int cx = cell(x);
+        int cy = cell(y);
+        int cz = cell(z);
+        // Shells closer than the bounds of the base are empty
+        int first = Math.max(0, Math.max(Math.max(s.minX - cx, cx - s.maxX),
+                Math.max(Math.max(s.minY - cy, cy - s.maxY), Math.max(s.minZ - cz, cz - s.maxZ))));
+        int last = Math.max(Math.max(Math.max(cx - s.minX, s.maxX - cx), Math.max(cy - s.minY, s.maxY - cy)),
+                Math.max(cz - s.minZ, s.maxZ - cz));
+        boolean checkRemoved = !s.removed.isEmpty();
+
+        for (int r = first; r <= last; r++) {
+            // A point in shell r is at least (r - 1) cells away from any point in the query cell
+            float gap = Math.max(0, r - 1) * cellSize;
+            if (gap * gap >= nearest.bound(limit)) {
+                break;
+            }
+            int x0 = Math.max(s.minX, cx - r);
+            int x1 = Math.min(s.maxX, cx + r);
+            int y0 = Math.max(s.minY, cy - r);
+            int y1 = Math.min(s.maxY, cy + r);
+            int z0 = Math.max(s.minZ, cz - r);
+            int z1 = Math.min(s.maxZ, cz + r);
+            boolean yFaces = cy - r >= s.minY || cy + r <= s.maxY;
+            for (int ix = x0; ix <= x1; ix++) {
+                boolean xFace = ix == cx - r || ix == cx + r;
+                for (int iz = z0; iz <= z1; iz++) {
+                    if (xFace || iz == cz - r || iz == cz + r) {
+                        for (int iy = y0; iy <= y1; iy++) {
+                            scanCell(s, ix, iy, iz, x, y, z, limit, nearest, checkRemoved);
+                        }
+                    } else if (yFaces) {
+                        // Inside the x/z ring only the top and bottom faces are on the shell
+                        if (cy - r >= s.minY) {
+                            scanCell(s, ix, cy - r, iz, x, y, z, limit, nearest, checkRemoved);
+                        }
+                        if (r > 0 && cy + r <= s.maxY) {
+                            scanCell(s, ix, cy + r, iz, x, y, z, limit, nearest, checkRemoved);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void scanCell(Snapshot<T> s, int ix, int iy, int iz, float x, float y, float z,
+                          float limit, Nearest nearest, boolean checkRemoved) {
+        int slot = s.findCell(key(ix, iy, iz));
+        if (slot < 0) {
+            return;
+        }
+        for (int i = s.cellStart[slot]; i < s.cellEnd[slot]; i++) {
+            float distance = distanceSquared(s.xs[i], s.ys[i], s.zs[i], x, y, z);
+            if (distance < nearest.bound(limit)
+                    && !(checkRemoved && s.removed.contains(s.base[i].id))) {
+                nearest.offer(distance, s.base[i].value);
+            }
+        }
+    }
+
+    private void publish(Snapshot<T> current, Entry<T>[] added, Set<String> removed) {
+        int pending = added.length + removed.size();
+        if (pending > Math.max(MIN_PENDING, (int) Math.sqrt(entries.size()))) {
+            snapshot = build(entries.values());
+        } else {
+            snapshot = new Snapshot<>(current, added, removed, entries.size());
+        }
+    }
+
+    /**
+     * Pack the entries by cell: count per cell, then place each entry in its cell's range.
+     */
+    private Snapshot<T> build(Collection<Entry<T>> source) {
+        int count = source.size();
+        int capacity = Integer.highestOneBit(Math.max(8, count) * 2 - 1) << 1;
+        long[] cellKeys = new long[capacity];
+        Arrays.fill(cellKeys, EMPTY);
+        int[] cellStart = new int[capacity];
+        int[] cellEnd = new int[capacity];
+        Entry<T>[] ordered = newEntries(count);
+        Entry<T>[] input = source.toArray(newEntries(count));
+        int[] slots = new int[count];
+        int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+
+        int mask = capacity - 1;
+        for (int i = 0; i < count; i++) {
+            Entry<T> entry = input[i];
+            int ix = cell(entry.x);
+            int iy = cell(entry.y);
+            int iz = cell(entry.z);
+            bounds[0] = Math.min(bounds[0], ix);
+            bounds[1] = Math.min(bounds[1], iy);
+            bounds[2] = Math.min(bounds[2], iz);
+            bounds[3] = Math.max(bounds[3], ix);
+            bounds[4] = Math.max(bounds[4], iy);
+            bounds[5] = Math.max(bounds[5], iz);
+            long key = key(ix, iy, iz);
+            int slot = hash(key) & mask;
+            while (cellKeys[slot] != EMPTY && cellKeys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            cellKeys[slot] = key;
+            cellEnd[slot]++; // Count for now
+            slots[i] = slot;
+        }
+        int offset = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int cellCount = cellEnd[slot];
+            cellStart[slot] = offset;
+            cellEnd[slot] = offset;
+            offset += cellCount;
+        }
+        for (int i = 0; i < count; i++) {
+            ordered[cellEnd[slots[i]]++] = input[i];
+        }
+
+        return new Snapshot<>(cellKeys, cellStart, cellEnd, ordered, bounds,
+                newEntries(0), Collections.<String>emptySet(), count);
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    private static long key(int ix, int iy, int iz) {
+        return ((long) (ix & CELL_MASK) << (2 * CELL_BITS))
+                | ((long) (iy & CELL_MASK) << CELL_BITS)
+                | (iz & CELL_MASK);
+    }
+
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] newEntries(int length) {
+        return (Entry<T>[]) new Entry<?>[length];
+    }
+
+    private static Set<String> withId(Set<String> ids, String id) {
+        if (ids.contains(id)) {
+            return ids;
+        }
+        Set<String> copy = new HashSet<>(ids);
+        copy.add(id);
+        return Collections.unmodifiableSet(copy);
+    }
+
+    /**
+     * @return added without the entry, or added itself if it does not hold it
+     */
+    private static <T> Entry<T>[] without(Entry<T>[] added, Entry<T> entry) {
+        for (int i = 0; i < added.length; i++) {
+            if (added[i] == entry) {
+                Entry<T>[] copy = Arrays.copyOf(added, added.length - 1);
+                System.arraycopy(added, i + 1, copy, i, added.length - 1 - i);
+                return copy;
+            }
+        }
+        return added;
+    }
+
+    private static float distanceSquared(float x1, float y1, float z1, float x2, float y2, float z2) {
+        float dx = x1 - x2;
+        float dy = y1 - y2;
+        float dz = z1 - z2;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
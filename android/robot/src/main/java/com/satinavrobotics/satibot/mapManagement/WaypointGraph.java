@@ -3,8 +3,10 @@ package com.satinavrobotics.satibot.mapManagement;
 import com.google.ar.core.Anchor;
 import com.google.ar.core.Pose;
 import com.google.ar.core.Session;
+import com.satinavrobotics.satibot.navigation.RoutePlanner;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,11 +16,18 @@ import timber.log.Timber;
 /**
  * Manages a collection of waypoints and their connections.
  * This class handles the creation, connection, and retrieval of waypoints.
+ * Edits are mirrored into a {@link RoutePlanner} on the world poses, which answers route queries,
+ * and into a {@link SpatialHashIndex}, which answers proximity queries without taking the lock.
  */
 public class WaypointGraph {
+    // About the waypoint spacing, so a nearest query visits a few cells
+    private static final float INDEX_CELL_SIZE = 1.0f;
+
     private final Map<String, Waypoint> waypoints = new HashMap<>();
     private String selectedWaypointId = null;
     private final Object waypointLock = new Object();
+    private final RoutePlanner routePlanner = new RoutePlanner();
+    private final SpatialHashIndex<Waypoint> spatialIndex = new SpatialHashIndex<>(INDEX_CELL_SIZE);
 
     /**
      * Creates a new waypoint at the specified pose.
@@ -32,6 +41,8 @@ public class WaypointGraph {
         synchronized (waypointLock) {
             Waypoint waypoint = new Waypoint(pose, referenceAnchor, referenceAnchorId);
             waypoints.put(waypoint.getId(), waypoint);
+            routePlanner.putNode(waypoint.getId(), pose.tx(), pose.ty(), pose.tz());
+            spatialIndex.put(waypoint.getId(), pose.tx(), pose.ty(), pose.tz(), waypoint);
             Timber.d("Created waypoint %s at pose %s", waypoint.getId(), pose.toString());
             return waypoint;
         }
@@ -57,6 +68,7 @@ public class WaypointGraph {
             // Add bidirectional connection
             boolean added1 = waypoint1.addConnection(waypointId2);
             boolean added2 = waypoint2.addConnection(waypointId1);
+            routePlanner.connect(waypointId1, waypointId2);
 
             Timber.d("Connected waypoints %s and %s", waypointId1, waypointId2);
             return added1 || added2;
@@ -64,13 +76,76 @@ public class WaypointGraph {
     }
 
     /**
-     * Adds a waypoint to the graph.
+     * Adds a waypoint to the graph, with its connections to waypoints already in the graph.
      *
      * @param waypoint The waypoint to add
      */
     public void addWaypoint(Waypoint waypoint) {
         synchronized (waypointLock) {
             waypoints.put(waypoint.getId(), waypoint);
+            Pose pose = waypoint.getPose();
+            routePlanner.putNode(waypoint.getId(), pose.tx(), pose.ty(), pose.tz());
+            for (String connectedId : waypoint.getConnectedWaypointIds()) {
+                routePlanner.connect(waypoint.getId(), connectedId);
+            }
+            spatialIndex.put(waypoint.getId(), pose.tx(), pose.ty(), pose.tz(), waypoint);
+        }
+    }
+
+    /**
+     * Adds many waypoints at once, e.g. when loading a map, indexing them in a single pass.
+     *
+     * @param newWaypoints The waypoints to add
+     */
+    public void addWaypoints(Collection<Waypoint> newWaypoints) {
+        synchronized (waypointLock) {
+            List<String> ids = new ArrayList<>(newWaypoints.size());
+            List<Waypoint> values = new ArrayList<>(newWaypoints.size());
+            float[] positions = new float[newWaypoints.size() * 3];
+            for (Waypoint waypoint : newWaypoints) {
+                Pose pose = waypoint.getPose();
+                waypoints.put(waypoint.getId(), waypoint);
+                routePlanner.putNode(waypoint.getId(), pose.tx(), pose.ty(), pose.tz());
+                positions[3 * ids.size()] = pose.tx();
+                positions[3 * ids.size() + 1] = pose.ty();
+                positions[3 * ids.size() + 2] = pose.tz();
+                ids.add(waypoint.getId());
+                values.add(waypoint);
+            }
+            for (Waypoint waypoint : newWaypoints) {
+                for (String connectedId : waypoint.getConnectedWaypointIds()) {
+                    routePlanner.connect(waypoint.getId(), connectedId);
+                }
+            }
+            spatialIndex.putAll(ids, positions, values);
+        }
+    }
+
+    /**
+     * Removes a waypoint and its connections from the graph.
+     *
+     * @param waypointId The ID of the waypoint to remove
+     * @return The removed waypoint, or null if not found
+     */
+    public Waypoint removeWaypoint(String waypointId) {
+        synchronized (waypointLock) {
+            Waypoint waypoint = waypoints.remove(waypointId);
+            if (waypoint == null) {
+                return null;
+            }
+            for (String connectedId : waypoint.getConnectedWaypointIds()) {
+                Waypoint connected = waypoints.get(connectedId);
+                if (connected != null) {
+                    connected.removeConnection(waypointId);
+                }
+            }
+            routePlanner.removeNode(waypointId);
+            spatialIndex.remove(waypointId);
+            if (waypointId.equals(selectedWaypointId)) {
+                selectedWaypointId = null;
+            }
+            Timber.d("Removed waypoint %s", waypointId);
+            return waypoint;
         }
     }
 
@@ -116,22 +191,66 @@ public class WaypointGraph {
      * @return The closest waypoint, or null if none are within the specified distance
      */
     public Waypoint findClosestWaypoint(Pose pose, float maxDistance) {
-        synchronized (waypointLock) {
-            Waypoint closest = null;
-            float minDistance = maxDistance;
+        return spatialIndex.findNearest(pose.tx(), pose.ty(), pose.tz(), maxDistance);
+    }
 
-            for (Waypoint waypoint : waypoints.values()) {
-                float distance = calculateDistance(pose, waypoint.getPose());
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    closest = waypoint;
-                }
-            }
+    /**
+     * Finds the waypoints closest to the given pose within the specified distance.
+     *
+     * @param pose The pose to search around
+     * @param count The maximum number of waypoints to return
+     * @param maxDistance The maximum distance to consider
+     * @return Up to count waypoints, closest first
+     */
+    public List<Waypoint> findClosestWaypoints(Pose pose, int count, float maxDistance) {
+        List<Waypoint> result = new ArrayList<>(Math.max(0, count));
+        spatialIndex.findNearest(pose.tx(), pose.ty(), pose.tz(), count, maxDistance, result);
+        return result;
+    }
+
+    /**
+     * Finds all waypoints within the specified distance of the given pose.
+     *
+     * @param pose The pose to search around
+     * @param radius The search radius
+     * @return The waypoints within the radius, in no particular order
+     */
+    public List<Waypoint> findWaypointsWithinRadius(Pose pose, float radius) {
+        List<Waypoint> result = new ArrayList<>();
+        spatialIndex.findWithinRadius(pose.tx(), pose.ty(), pose.tz(), radius, result);
+        return result;
+    }
 
-            return closest;
+    /**
+     * Finds the shortest route between two waypoints along their connections.
+     *
+     * @param startId The ID of the waypoint to start from
+     * @param goalId The ID of the waypoint to reach
+     * @return The waypoints from start to goal, or null if the goal cannot be reached
+     */
+    public List<Waypoint> findRoute(String startId, String goalId) {
+        synchronized (waypointLock) {
+            List<String> route = routePlanner.findRoute(startId, goalId);
+            if (route == null) {
+                return null;
+            }
+            List<Waypoint> result = new ArrayList<>(route.size());
+            for (String id : route) {
+                result.add(waypoints.get(id));
+            }
+            return result;
         }
     }
 
+    /**
+     * Gets the route planner mirroring this graph, in world coordinates.
+     *
+     * @return The route planner
+     */
+    public RoutePlanner getRoutePlanner() {
+        return routePlanner;
+    }
+
     /**
      * Sets the currently selected waypoint.
      *
@@ -171,6 +290,8 @@ public class WaypointGraph {
     public void clear() {
         synchronized (waypointLock) {
             waypoints.clear();
+            routePlanner.clear();
+            spatialIndex.clear();
             selectedWaypointId = null;
         }
     }
@@ -190,18 +311,4 @@ public class WaypointGraph {
             }
         }
     }
-
-    /**
-     * Calculates the distance between two poses.
-     *
-     * @param pose1 The first pose
-     * @param pose2 The second pose
-     * @return The distance between the poses
-     */
-    private float calculateDistance(Pose pose1, Pose pose2) {
-        float dx = pose1.tx() - pose2.tx();
-        float dy = pose1.ty() - pose2.ty();
-        float dz = pose1.tz() - pose2.tz();
-        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
-    }
 }
@@ -0,0 +1,176 @@
+package com.satinavrobotics.satibot.navigation;
+
+import com.satinavrobotics.satibot.env.LatencyHistogram;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.locks.LockSupport;
+
+import timber.log.Timber;
+
+/**
+ * Runs a tick at a fixed rate on a dedicated thread, timed with the monotonic System.nanoTime().
+ * Ticks are scheduled against absolute deadlines, so a late tick does not shift the ones after
+ * it. A tick that runs past the next deadline is an overrun: the missed deadlines are skipped
+ * rather than run back to back.
+ *
+ * Jitter (start of a tick minus its deadline) and tick duration are kept in histograms and
+ * reported by {@link #toJson()}.
+ */
+public class ControlLoop {
+    public static final int DEFAULT_RATE_HZ = 50;
+    public static final int MAX_RATE_HZ = 200;
+
+    /**
+     * Called once per tick on the loop thread.
+     */
+    public interface Tick {
+        /**
+         * @param nowNanos System.nanoTime() at the start of the tick
+         * @param periodNanos Nominal tick period
+         */
+        void onTick(long nowNanos, long periodNanos);
+    }
+
+    private final String name;
+    private final Tick tick;
+    private volatile long periodNanos = 1_000_000_000L / DEFAULT_RATE_HZ;
+
+    // The loop thread runs while it is the current one, so a restart never overlaps an old loop
+    private volatile Thread thread;
+
+    // Metrics
+    private final LatencyHistogram jitter = new LatencyHistogram();
+    private final LatencyHistogram duration = new LatencyHistogram();
+    private volatile long ticks = 0;
+    private volatile long overruns = 0;
+    private volatile long skippedTicks = 0;
+
+    public ControlLoop(String name, Tick tick) {
+        this.name = name;
+        this.tick = tick;
+    }
+
+    /**
+     * Set the tick rate, clamped to 1..MAX_RATE_HZ. Takes effect from the next tick.
+     */
+    public void setRateHz(int hz) {
+        periodNanos = 1_000_000_000L / Math.max(1, Math.min(MAX_RATE_HZ, hz));
+    }
+
+    public int getRateHz() {
+        return (int) (1_000_000_000L / periodNanos);
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        Thread loopThread = new Thread(this::run, name);
+        loopThread.setPriority(Thread.MAX_PRIORITY);
+        loopThread.setDaemon(true);
+        thread = loopThread;
+        loopThread.start();
+        Timber.d("%s started at %d Hz", name, getRateHz());
+    }
+
+    /**
+     * Stop the loop. May be called from within a tick, the tick in progress then completes.
+     */
+    public synchronized void stop() {
+        Thread loopThread = thread;
+        if (loopThread == null) {
+            return;
+        }
+        thread = null;
+        LockSupport.unpark(loopThread);
+        Timber.i("%s stopped: %s", name, toJson());
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    private void run() {
+        Thread self = Thread.currentThread();
+        long deadline = System.nanoTime();
+        while (thread == self) {
+            long now = System.nanoTime();
+            if (now < deadline) {
+                LockSupport.parkNanos(deadline - now);
+                continue; // Re-check: parking may return early
+            }
+
+            jitter.record(now - deadline);
+            long period = periodNanos;
+            try {
+                tick.onTick(now, period);
+            } catch (Exception e) {
+                Timber.e(e, "Error in %s tick", name);
+            }
+            long end = System.nanoTime();
+            duration.record(end - now);
+            ticks++;
+
+            deadline += period;
+            if (end >= deadline) {
+                long missed = (end - deadline) / period + 1;
+                overruns++;
+                skippedTicks += missed;
+                deadline += missed * period;
+            }
+        }
+    }
+
+    public long getTickCount() {
+        return ticks;
+    }
+
+    /**
+     * Ticks that ran past the next deadline
+     */
+    public long getOverrunCount() {
+        return overruns;
+    }
+
+    /**
+     * Deadlines skipped after overruns
+     */
+    public long getSkippedTickCount() {
+        return skippedTicks;
+    }
+
+    /**
+     * Longest tick so far, in nanoseconds
+     */
+    public long getMaxTickNanos() {
+        return duration.getMaxNanos();
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("rateHz", getRateHz());
+            json.put("ticks", ticks);
+            json.put("overruns", overruns);
+            json.put("skipped", skippedTicks);
+            json.put("jitterP50Us", jitter.getPercentile(50) / 1000);
+            json.put("jitterP99Us", jitter.getPercentile(99) / 1000);
+            json.put("jitterMaxUs", jitter.getMaxNanos() / 1000);
+            json.put("tickP99Us", duration.getPercentile(99) / 1000);
+            json.put("tickMaxUs", duration.getMaxNanos() / 1000);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return json;
+    }
+
+    public void resetStats() {
+        jitter.reset();
+        duration.reset();
+        ticks = 0;
+        overruns = 0;
+        skippedTicks = 0;
+    }
+}
@@ -1,10 +1,7 @@
 package com.satinavrobotics.satibot.navigation;
 
-import com.google.ar.core.Pose;
 import com.satinavrobotics.satibot.vehicle.pd.ControllerParameters;
 
-import org.json.JSONObject;
-
 /**
  * Centralized context object containing all data needed for navigation decisions.
  * This eliminates the need for multiple data passing mechanisms between navigation classes.
@@ -24,10 +21,21 @@ public class NavigationContext {
     private boolean[] navigabilityData;
     private boolean[] leftNavigabilityMap;
     private boolean[] rightNavigabilityMap;
+    private OccupancyGrid occupancyGrid;
     
     // Position and orientation data
-    private Pose currentPose;
-    private JSONObject targetWaypoint;
+    private NavigationPose currentPose;
+    private Waypoint targetWaypoint;
+    private Waypoint previousWaypoint; // Last waypoint reached, null before the first
+    // Local positions of the target, previous and following waypoints, NaN where unknown. The
+    // controller refreshes them on every tick, so GPS waypoints follow the latest fix.
+    private float targetX = Float.NaN;
+    private float targetZ = Float.NaN;
+    private float previousX = Float.NaN;
+    private float previousZ = Float.NaN;
+    private float[] followingX = new float[0];
+    private float[] followingZ = new float[0];
+    private int followingCount = 0; // Queued after the target
     private float targetHeading; // Target heading in radians
     
     // Navigation parameters
@@ -35,9 +43,9 @@ public class NavigationContext {
     private float maxAngularSpeed = 0.75f;
     private ControllerParameters parameters;
     
-    // Timing data
-    private long deltaTime; // Time since last update in milliseconds
-    private long lastUpdateTime;
+    // Timing data, on the monotonic System.nanoTime() clock
+    private long deltaTimeNanos; // Time since last update
+    private long lastUpdateNanos;
     
     // State information
     private NavigationState currentState = NavigationState.IDLE;
@@ -49,24 +57,25 @@ public class NavigationContext {
     private float positionThresholdMeters = 0.2f;
     
     public NavigationContext() {
-        this.lastUpdateTime = System.currentTimeMillis();
+        this.lastUpdateNanos = System.nanoTime();
         this.parameters = ControllerParameters.createDefaultRuleBased();
     }
     
     /**
      * Update timing information
+     *
+     * @param nowNanos Current System.nanoTime()
      */
-    public void updateTiming() {
-        long currentTime = System.currentTimeMillis();
-        this.deltaTime = currentTime - lastUpdateTime;
-        this.lastUpdateTime = currentTime;
+    public void updateTiming(long nowNanos) {
+        this.deltaTimeNanos = nowNanos - lastUpdateNanos;
+        this.lastUpdateNanos = nowNanos;
     }
     
     /**
      * Get delta time in seconds for controller calculations
      */
     public float getDeltaTimeSeconds() {
-        return deltaTime / 1000.0f;
+        return deltaTimeNanos / 1e9f;
     }
     
     // Getters and setters
@@ -94,20 +103,146 @@ public class NavigationContext {
         this.rightNavigabilityMap = rightNavigabilityMap;
     }
     
-    public Pose getCurrentPose() {
+    /**
+     * Occupancy grid built from depth frames, or null if none is maintained
+     */
+    public OccupancyGrid getOccupancyGrid() {
+        return occupancyGrid;
+    }
+    
+    public void setOccupancyGrid(OccupancyGrid occupancyGrid) {
+        this.occupancyGrid = occupancyGrid;
+    }
+    
+    public NavigationPose getCurrentPose() {
         return currentPose;
     }
     
-    public void setCurrentPose(Pose currentPose) {
+    public void setCurrentPose(NavigationPose currentPose) {
         this.currentPose = currentPose;
     }
     
-    public JSONObject getTargetWaypoint() {
+    public Waypoint getTargetWaypoint() {
         return targetWaypoint;
     }
     
-    public void setTargetWaypoint(JSONObject targetWaypoint) {
+    /**
+     * Set the target and take its local position as the target position
+     */
+    public void setTargetWaypoint(Waypoint targetWaypoint) {
         this.targetWaypoint = targetWaypoint;
+        setTargetPosition(targetWaypoint != null ? targetWaypoint.x() : Float.NaN,
+                targetWaypoint != null ? targetWaypoint.z() : Float.NaN);
+    }
+    
+    public boolean hasTargetPosition() {
+        return !Float.isNaN(targetX) && !Float.isNaN(targetZ);
+    }
+    
+    public float getTargetX() {
+        return targetX;
+    }
+    
+    public float getTargetZ() {
+        return targetZ;
+    }
+    
+    /**
+     * @param x Local x of the target, NaN if it has no usable position
+     */
+    public void setTargetPosition(float x, float z) {
+        this.targetX = x;
+        this.targetZ = z;
+    }
+    
+    /**
+     * @return horizontal distance from the current pose to the target position in meters
+     */
+    public float getDistanceToTarget() {
+        return currentPose.distanceTo(targetX, targetZ);
+    }
+    
+    /**
+     * @return angle to turn from the current pose to face the target position in radians, in
+     *         [-PI, PI], positive to the right
+     */
+    public float getHeadingToTarget() {
+        return currentPose.headingTo(targetX, targetZ);
+    }
+    
+    public Waypoint getPreviousWaypoint() {
+        return previousWaypoint;
+    }
+    
+    /**
+     * Set the previous waypoint and take its local position as the previous position
+     */
+    public void setPreviousWaypoint(Waypoint previousWaypoint) {
+        this.previousWaypoint = previousWaypoint;
+        setPreviousPosition(previousWaypoint != null ? previousWaypoint.x() : Float.NaN,
+                previousWaypoint != null ? previousWaypoint.z() : Float.NaN);
+    }
+    
+    public boolean hasPreviousPosition() {
+        return !Float.isNaN(previousX) && !Float.isNaN(previousZ);
+    }
+    
+    public float getPreviousX() {
+        return previousX;
+    }
+    
+    public float getPreviousZ() {
+        return previousZ;
+    }
+    
+    public void setPreviousPosition(float x, float z) {
+        this.previousX = x;
+        this.previousZ = z;
+    }
+    
+    /**
+     * Set the waypoints after the target, taking their local positions
+     */
+    public void setFollowingWaypoints(Waypoint[] followingWaypoints) {
+        setFollowingCount(followingWaypoints.length);
+        for (int i = 0; i < followingWaypoints.length; i++) {
+            Waypoint waypoint = followingWaypoints[i];
+            setFollowingPosition(i, waypoint != null ? waypoint.x() : Float.NaN,
+                    waypoint != null ? waypoint.z() : Float.NaN);
+        }
+    }
+    
+    /**
+     * How many of the next waypoints after the target are known, so that path tracking can pass
+     * through the target without stopping; 0 if the target is the last
+     */
+    public int getFollowingCount() {
+        return followingCount;
+    }
+    
+    public void setFollowingCount(int count) {
+        if (followingX.length < count) {
+            followingX = new float[count];
+            followingZ = new float[count];
+        }
+        followingCount = count;
+    }
+    
+    /**
+     * @param index 0 for the waypoint right after the target
+     * @return its local x, NaN if it has no usable position
+     */
+    public float getFollowingX(int index) {
+        return followingX[index];
+    }
+    
+    public float getFollowingZ(int index) {
+        return followingZ[index];
+    }
+    
+    public void setFollowingPosition(int index, float x, float z) {
+        followingX[index] = x;
+        followingZ[index] = z;
     }
     
     public float getTargetHeading() {
@@ -142,8 +277,11 @@ public class NavigationContext {
         this.parameters = parameters;
     }
     
+    /**
+     * Get delta time in milliseconds
+     */
     public long getDeltaTime() {
-        return deltaTime;
+        return deltaTimeNanos / 1_000_000L;
     }
     
     public NavigationState getCurrentState() {
@@ -0,0 +1,54 @@
+package com.satinavrobotics.satibot.navigation;
+
+/**
+ * Immutable robot pose snapshot for navigation, taken once when a pose arrives so that
+ * strategies do not read ARCore poses or quaternions on every control tick.
+ * Uses the ARCore local frame: +X right, -Z forward, yaw around +Y in radians
+ * (same convention as NavigationUtils.getYawFromQuaternion).
+ *
+ * @param x X position in meters
+ * @param y Height in meters
+ * @param z Z position in meters
+ * @param yaw Yaw angle in radians, normalized to [-PI, PI]
+ */
+public record NavigationPose(float x, float y, float z, float yaw) {
+
+    /**
+     * @param quaternion Rotation as [x, y, z, w]
+     */
+    public static NavigationPose fromQuaternion(float x, float y, float z, float[] quaternion) {
+        return new NavigationPose(x, y, z, NavigationUtils.getYawFromQuaternion(quaternion));
+    }
+
+    /**
+     * @return horizontal distance to the waypoint's local position in meters
+     */
+    public float distanceTo(Waypoint waypoint) {
+        return distanceTo(waypoint.x(), waypoint.z());
+    }
+
+    /**
+     * @return horizontal distance to the local position in meters
+     */
+    public float distanceTo(float targetX, float targetZ) {
+        float deltaX = targetX - x;
+        float deltaZ = targetZ - z;
+        return (float) Math.sqrt(deltaX * deltaX + deltaZ * deltaZ);
+    }
+
+    /**
+     * @return angle to turn to face the waypoint in radians, in [-PI, PI], positive to the right
+     */
+    public float headingTo(Waypoint waypoint) {
+        return headingTo(waypoint.x(), waypoint.z());
+    }
+
+    /**
+     * @return angle to turn to face the local position in radians, in [-PI, PI], positive to the
+     *         right
+     */
+    public float headingTo(float targetX, float targetZ) {
+        float targetAngle = (float) Math.atan2(targetX - x, targetZ - z);
+        return NavigationUtils.normalizeAngle(targetAngle - yaw);
+    }
+}
@@ -0,0 +1,426 @@
+package com.satinavrobotics.satibot.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Rolling 2D occupancy grid on the ground plane (x, z) of the ARCore world frame, centred on the
+ * robot. Cells hold log-odds of being occupied and are updated from depth frames: the cells a
+ * depth ray passes through become more likely free, the cell where it hits something above the
+ * floor more likely occupied. Obstacles therefore stay on the map after they leave the camera's
+ * field of view.
+ *
+ * The cells live in a ring-indexed array: a world cell (i, j) is stored at (i mod size, j mod size).
+ * Recentering on the robot only moves the window origin and clears the strips of cells that
+ * scrolled in, nothing is copied. Updates and queries do not allocate.
+ *
+ * All methods are synchronized; depth frames are integrated on the rendering thread while
+ * strategies query from the navigation control loop.
+ *
+ * Has no Android dependencies.
+ */
+public class OccupancyGrid {
+    // Log-odds increments per observation and clamping bounds
+    private static final float LOG_ODDS_HIT = 0.85f;
+    private static final float LOG_ODDS_MISS = -0.4f;
+    private static final float LOG_ODDS_MIN = -2.0f;
+    private static final float LOG_ODDS_MAX = 3.5f;
+    // Probability about 0.7 and 0.3
+    private static final float OCCUPIED_THRESHOLD = 0.85f;
+    private static final float FREE_THRESHOLD = -0.85f;
+
+    private final float resolution;
+    private final int size;
+    private final float[] logOdds;
+    // Frame in which a cell was last updated, so each frame changes a cell at most once
+    private final int[] updateFrame;
+
+    // World cell index of the window's lowest corner
+    private int originI;
+    private int originJ;
+    private boolean centered = false;
+
+    // Sensor configuration
+    private float cameraHeight = 0.3f;
+    private float minObstacleHeight = 0.08f;
+    private float maxObstacleHeight = 1.0f;
+    private float maxRange = 4.0f;
+
+    // Last sensor pose
+    private float sensorX;
+    private float sensorZ;
+    private float forwardX = 0;
+    private float forwardZ = -1;
+
+    // Ray endpoints of the frame being integrated, grown when the frame size changes
+    private int frame = 0;
+    private int[] endI = new int[0];
+    private int[] endJ = new int[0];
+    private boolean[] endFree = new boolean[0];
+
+    /**
+     * @param resolution Cell edge length in meters
+     * @param size Number of cells along each axis, the window spans size * resolution meters
+     */
+    public OccupancyGrid(float resolution, int size) {
+        if (resolution <= 0 || size <= 0) {
+            throw new IllegalArgumentException("Invalid grid " + size + " x " + resolution + " m");
+        }
+        this.resolution = resolution;
+        this.size = size;
+        this.logOdds = new float[size * size];
+        this.updateFrame = new int[size * size];
+    }
+
+    /**
+     * @param cameraHeight Height of the camera above the floor in meters
+     * @param minObstacleHeight Points higher above the floor than this are obstacles
+     * @param maxObstacleHeight Points higher than this pass over the robot and are ignored
+     * @param maxRange Depth beyond this is not trusted; rays are cut off here
+     */
+    public synchronized void setSensorParameters(float cameraHeight, float minObstacleHeight,
+                                                 float maxObstacleHeight, float maxRange) {
+        this.cameraHeight = cameraHeight;
+        this.minObstacleHeight = minObstacleHeight;
+        this.maxObstacleHeight = maxObstacleHeight;
+        this.maxRange = maxRange;
+    }
+
+    /**
+     * Integrate a depth frame.
+     *
+     * @param depthMm Depth image rows in millimeters, 0 for no depth
+     * @param width Image width
+     * @param height Image height
+     * @param stride Use every stride-th pixel in both directions
+     * @param fx Focal length x of the depth image in pixels
+     * @param fy Focal length y of the depth image in pixels
+     * @param cx Principal point x of the depth image in pixels
+     * @param cy Principal point y of the depth image in pixels
+     * @param cameraToWorld Column-major camera pose as from ARCore Pose.toMatrix(), camera looking
+     *     along -z with +y up in image space
+     */
+    public synchronized void integrateDepth(short[][] depthMm, int width, int height, int stride,
+                                            float fx, float fy, float cx, float cy,
+                                            float[] cameraToWorld) {
+        float camX = cameraToWorld[12];
+        float camY = cameraToWorld[13];
+        float camZ = cameraToWorld[14];
+        updateSensorPose(camX, camZ, -cameraToWorld[8], -cameraToWorld[10]);
+
+        int capacity = ((width + stride - 1) / stride) * ((height + stride - 1) / stride);
+        if (endI.length < capacity) {
+            endI = new int[capacity];
+            endJ = new int[capacity];
+            endFree = new boolean[capacity];
+        }
+        frame++;
+
+        float floorY = camY - cameraHeight;
+        float maxRangeSquared = maxRange * maxRange;
+        int rays = 0;
+        int sensorI = cellIndex(camX);
+        int sensorJ = cellIndex(camZ);
+
+        // Obstacle hits first, so the free-space pass below cannot clear a cell seen occupied
+        for (int v = 0; v < height; v += stride) {
+            short[] row = depthMm[v];
+            float rayY = -(v - cy) / fy;
+            for (int u = 0; u < width; u += stride) {
+                int depth = row[u] & 0xFFFF;
+                if (depth == 0) {
+                    continue;
+                }
+                float d = depth * 0.001f;
+                float px = (u - cx) / fx * d;
+                float py = rayY * d;
+                float pz = -d;
+                float wx = cameraToWorld[0] * px + cameraToWorld[4] * py + cameraToWorld[8] * pz + camX;
+                float wy = cameraToWorld[1] * px + cameraToWorld[5] * py + cameraToWorld[9] * pz + camY;
+                float wz = cameraToWorld[2] * px + cameraToWorld[6] * py + cameraToWorld[10] * pz + camZ;
+
+                float h = wy - floorY;
+                if (h > maxObstacleHeight) {
+                    continue;
+                }
+                float dx = wx - camX;
+                float dz = wz - camZ;
+                float rangeSquared = dx * dx + dz * dz;
+                boolean hit = h > minObstacleHeight;
+                boolean clipped = rangeSquared > maxRangeSquared;
+                if (clipped) {
+                    float scale = maxRange / (float) Math.sqrt(rangeSquared);
+                    wx = camX + dx * scale;
+                    wz = camZ + dz * scale;
+                    hit = false;
+                }
+
+                int i = cellIndex(wx);
+                int j = cellIndex(wz);
+                if (hit && contains(i, j)) {
+                    int index = ringIndex(i, j);
+                    if (updateFrame[index] != frame) {
+                        updateFrame[index] = frame;
+                        logOdds[index] = Math.min(LOG_ODDS_MAX, logOdds[index] + LOG_ODDS_HIT);
+                    }
+                }
+                // Free space up to the obstacle or range limit, or up to and including the floor point
+                endI[rays] = i;
+                endJ[rays] = j;
+                endFree[rays] = !hit && !clipped;
+                rays++;
+            }
+        }
+
+        for (int r = 0; r < rays; r++) {
+            traceFree(sensorI, sensorJ, endI[r], endJ[r], endFree[r]);
+        }
+    }
+
+    /**
+     * Move the window so that the given position is at its centre and record the robot pose used
+     * by the robot-relative queries.
+     *
+     * @param forwardX World x component of the robot's heading
+     * @param forwardZ World z component of the robot's heading
+     */
+    public synchronized void updateSensorPose(float x, float z, float forwardX, float forwardZ) {
+        float length = (float) Math.sqrt(forwardX * forwardX + forwardZ * forwardZ);
+        if (length > 1e-6f) {
+            this.forwardX = forwardX / length;
+            this.forwardZ = forwardZ / length;
+        }
+        sensorX = x;
+        sensorZ = z;
+        recenter(cellIndex(x) - size / 2, cellIndex(z) - size / 2);
+    }
+
+    private void recenter(int newOriginI, int newOriginJ) {
+        if (!centered) {
+            originI = newOriginI;
+            originJ = newOriginJ;
+            centered = true;
+            return;
+        }
+        int shiftI = newOriginI - originI;
+        int shiftJ = newOriginJ - originJ;
+        if (Math.abs(shiftI) >= size || Math.abs(shiftJ) >= size) {
+            Arrays.fill(logOdds, 0);
+            originI = newOriginI;
+            originJ = newOriginJ;
+            return;
+        }
+
+        // The columns that scroll out are the ring slots of the columns scrolling in
+        for (int k = 0; k < Math.abs(shiftI); k++) {
+            int i = shiftI > 0 ? originI + size + k : newOriginI + k;
+            int slot = Math.floorMod(i, size) * size;
+            Arrays.fill(logOdds, slot, slot + size, 0);
+        }
+        originI = newOriginI;
+        for (int k = 0; k < Math.abs(shiftJ); k++) {
+            int j = shiftJ > 0 ? originJ + size + k : newOriginJ + k;
+            int slot = Math.floorMod(j, size);
+            for (int index = slot; index < logOdds.length; index += size) {
+                logOdds[index] = 0;
+            }
+        }
+        originJ = newOriginJ;
+    }
+
+    /**
+     * Lower the occupancy of the cells from the sensor to the endpoint, once per frame each.
+     */
+    private void traceFree(int i0, int j0, int i1, int j1, boolean includeEnd) {
+        int di = Math.abs(i1 - i0);
+        int dj = Math.abs(j1 - j0);
+        int si = i0 < i1 ? 1 : -1;
+        int sj = j0 < j1 ? 1 : -1;
+        int error = di - dj;
+        int i = i0;
+        int j = j0;
+        while (i != i1 || j != j1) {
+            markFree(i, j);
+            int e2 = 2 * error;
+            if (e2 > -dj) {
+                error -= dj;
+                i += si;
+            }
+            if (e2 < di) {
+                error += di;
+                j += sj;
+            }
+        }
+        if (includeEnd) {
+            markFree(i1, j1);
+        }
+    }
+
+    private void markFree(int i, int j) {
+        if (!contains(i, j)) {
+            return;
+        }
+        int index = ringIndex(i, j);
+        if (updateFrame[index] != frame) {
+            updateFrame[index] = frame;
+            logOdds[index] = Math.max(LOG_ODDS_MIN, logOdds[index] + LOG_ODDS_MISS);
+        }
+    }
+
+    /**
+     * @return log-odds of the cell at the position being occupied, 0 (unknown) outside the window
+     */
+    public synchronized float getLogOdds(float x, float z) {
+        int i = cellIndex(x);
+        int j = cellIndex(z);
+        return contains(i, j) ? logOdds[ringIndex(i, j)] : 0;
+    }
+
+    public synchronized boolean isOccupied(float x, float z) {
+        return getLogOdds(x, z) > OCCUPIED_THRESHOLD;
+    }
+
+    public synchronized boolean isFree(float x, float z) {
+        return getLogOdds(x, z) < FREE_THRESHOLD;
+    }
+
+    /**
+     * Distance from a position along a direction to the first occupied cell.
+     *
+     * @param dirX World x component of the direction
+     * @param dirZ World z component of the direction
+     * @return the distance in meters, or maxDistance if nothing is occupied up to there
+     */
+    public synchronized float getClearance(float x, float z, float dirX, float dirZ,
+                                           float maxDistance) {
+        float length = (float) Math.sqrt(dirX * dirX + dirZ * dirZ);
+        if (length < 1e-6f) {
+            return maxDistance;
+        }
+        float step = resolution * 0.5f;
+        float stepX = dirX / length * step;
+        float stepZ = dirZ / length * step;
+        float px = x;
+        float pz = z;
+        for (float distance = 0; distance < maxDistance; distance += step) {
+            int i = cellIndex(px);
+            int j = cellIndex(pz);
+            if (contains(i, j) && logOdds[ringIndex(i, j)] > OCCUPIED_THRESHOLD) {
+                return distance;
+            }
+            px += stepX;
+            pz += stepZ;
+        }
+        return maxDistance;
+    }
+
+    /**
+     * Clearance from the robot along a bearing relative to its heading.
+     *
+     * @param relativeBearing Radians from the heading, positive to the right as in
+     *     NavigationPose.headingTo()
+     */
+    public synchronized float getClearanceAhead(float relativeBearing, float maxDistance) {
+        float cos = (float) Math.cos(relativeBearing);
+        float sin = (float) Math.sin(relativeBearing);
+        return getClearance(sensorX, sensorZ,
+                cos * forwardX + sin * rightX(), cos * forwardZ + sin * rightZ(), maxDistance);
+    }
+
+    /**
+     * Distance from a position to the closest occupied cell centre.
+     *
+     * @return the distance in meters, or maxRadius if none is within it
+     */
+    public synchronized float getObstacleDistance(float x, float z, float maxRadius) {
+        int ci = cellIndex(x);
+        int cj = cellIndex(z);
+        int radius = (int) Math.ceil(maxRadius / resolution);
+        float best = maxRadius * maxRadius;
+        for (int i = Math.max(ci - radius, originI); i <= Math.min(ci + radius, originI + size - 1); i++) {
+            float dx = (i + 0.5f) * resolution - x;
+            for (int j = Math.max(cj - radius, originJ); j <= Math.min(cj + radius, originJ + size - 1); j++) {
+                if (logOdds[ringIndex(i, j)] > OCCUPIED_THRESHOLD) {
+                    float dz = (j + 0.5f) * resolution - z;
+                    best = Math.min(best, dx * dx + dz * dz);
+                }
+            }
+        }
+        return (float) Math.sqrt(best);
+    }
+
+    /**
+     * Mark the cell at the position as occupied with full confidence, e.g. for obstacles known from
+     * a map or placed in a simulation. Positions outside the window are ignored.
+     */
+    public synchronized void markOccupied(float x, float z) {
+        int i = cellIndex(x);
+        int j = cellIndex(z);
+        if (contains(i, j)) {
+            logOdds[ringIndex(i, j)] = LOG_ODDS_MAX;
+        }
+    }
+
+    /**
+     * Copy which cells are occupied in a square window centred on the sensor, together with the
+     * sensor pose, in one consistent read.
+     *
+     * @param cells Window edge in cells
+     * @param occupied Out: cells * cells flags, a * cells + b for the cell a cells along x and
+     *                 b cells along z from the window's lowest corner
+     * @param frame Out: {x0, z0, sensorX, sensorZ, forwardX, forwardZ, rightX, rightZ}, (x0, z0)
+     *              the world position of the window's lowest corner
+     */
+    public synchronized void copyWindow(int cells, boolean[] occupied, float[] frame) {
+        int i0 = cellIndex(sensorX) - cells / 2;
+        int j0 = cellIndex(sensorZ) - cells / 2;
+        for (int a = 0; a < cells; a++) {
+            int i = i0 + a;
+            for (int b = 0; b < cells; b++) {
+                int j = j0 + b;
+                occupied[a * cells + b] = contains(i, j) && logOdds[ringIndex(i, j)] > OCCUPIED_THRESHOLD;
+            }
+        }
+        frame[0] = i0 * resolution;
+        frame[1] = j0 * resolution;
+        frame[2] = sensorX;
+        frame[3] = sensorZ;
+        frame[4] = forwardX;
+        frame[5] = forwardZ;
+        frame[6] = rightX();
+        frame[7] = rightZ();
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(logOdds, 0);
+    }
+
+    public float getResolution() {
+        return resolution;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Right of the heading: the side positive angular commands turn towards, and that
+    // NavigationPose headings count positive. Robot-relative queries all take it from here.
+    private float rightX() {
+        return forwardZ;
+    }
+
+    private float rightZ() {
+        return -forwardX;
+    }
+
+    private int cellIndex(float coordinate) {
+        return (int) Math.floor(coordinate / resolution);
+    }
+
+    private boolean contains(int i, int j) {
+        return i >= originI && i < originI + size && j >= originJ && j < originJ + size;
+    }
+
+    private int ringIndex(int i, int j) {
+        return Math.floorMod(i, size) * size + Math.floorMod(j, size);
+    }
+}
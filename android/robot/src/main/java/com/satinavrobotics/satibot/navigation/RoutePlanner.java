@@ -0,0 +1,490 @@
+package com.satinavrobotics.satibot.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shortest routes over an undirected waypoint graph. Nodes are waypoint ids with a position in one
+ * metric frame (the map's anchor-local frame for navigation), edges are weighted by Euclidean
+ * length.
+ *
+ * Queries run A* with the straight-line distance to the goal as heuristic, which never
+ * overestimates on Euclidean edge weights, so routes are optimal. Answers are cached: the last
+ * routes per (start, goal) pair, and shortest-path trees built by {@link #precomputeRoutesTo}
+ * that answer a goal from every start, and, since edges are undirected, every goal from that
+ * start. Any edit to the graph drops the caches.
+ *
+ * The graph is compiled into flat adjacency arrays on the first query after an edit, so a search
+ * only reads arrays and reuses its scratch buffers. All methods are synchronized.
+ */
+public class RoutePlanner {
+    private static final int MAX_CACHED_ROUTES = 64;
+    private static final int MAX_CACHED_TREES = 8;
+
+    private static final class Node {
+        final float x;
+        final float y;
+        final float z;
+        final Set<String> neighbours = new LinkedHashSet<>();
+
+        Node(float x, float y, float z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    // Editable graph
+    private final Map<String, Node> nodes = new HashMap<>();
+    private long version = 0;
+
+    // Compiled graph, valid while compiledVersion == version
+    private long compiledVersion = -1;
+    private String[] ids = new String[0];
+    private final Map<String, Integer> indexOf = new HashMap<>();
+    private float[] xs = new float[0];
+    private float[] ys = new float[0];
+    private float[] zs = new float[0];
+    private int[] edgeStart = new int[1];
+    private int[] edgeTarget = new int[0];
+    private float[] edgeLength = new float[0];
+
+    // Caches, access ordered so the least recently used entry is evicted
+    private final Map<String, List<String>> routeCache =
+            new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                    return size() > MAX_CACHED_ROUTES;
+                }
+            };
+    private final Map<Integer, int[]> treeCache =
+            new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                    return size() > MAX_CACHED_TREES;
+                }
+            };
+
+    // Search scratch, indexed by node. A node's entries are valid while its stamp is current.
+    private float[] cost = new float[0];
+    private int[] parent = new int[0];
+    private int[] seenStamp = new int[0];
+    private int[] closedStamp = new int[0];
+    private int stamp = 0;
+    private int[] heapNode = new int[16];
+    private float[] heapKey = new float[16];
+    private int heapSize = 0;
+
+    // Metrics
+    private long searches = 0;
+    private long cacheHits = 0;
+    private long expandedNodes = 0;
+
+    /**
+     * Add a node, or move an existing one keeping its connections.
+     */
+    public synchronized void putNode(String id, float x, float y, float z) {
+        Node previous = nodes.get(id);
+        Node node = new Node(x, y, z);
+        if (previous != null) {
+            node.neighbours.addAll(previous.neighbours);
+        }
+        nodes.put(id, node);
+        invalidate();
+    }
+
+    /**
+     * Remove a node and its connections.
+     *
+     * @return true if the node existed
+     */
+    public synchronized boolean removeNode(String id) {
+        Node node = nodes.remove(id);
+        if (node == null) {
+            return false;
+        }
+        for (String neighbour : node.neighbours) {
+            Node other = nodes.get(neighbour);
+            if (other != null) {
+                other.neighbours.remove(id);
+            }
+        }
+        invalidate();
+        return true;
+    }
+
+    /**
+     * Connect two nodes in both directions.
+     *
+     * @return true if the connection is new, false if it existed or a node is unknown
+     */
+    public synchronized boolean connect(String id1, String id2) {
+        Node node1 = nodes.get(id1);
+        Node node2 = nodes.get(id2);
+        if (node1 == null || node2 == null || id1.equals(id2)) {
+            return false;
+        }
+        boolean added = node1.neighbours.add(id2) | node2.neighbours.add(id1);
+        if (added) {
+            invalidate();
+        }
+        return added;
+    }
+
+    /**
+     * @return true if the nodes were connected
+     */
+    public synchronized boolean disconnect(String id1, String id2) {
+        Node node1 = nodes.get(id1);
+        Node node2 = nodes.get(id2);
+        boolean removed = (node1 != null && node1.neighbours.remove(id2))
+                | (node2 != null && node2.neighbours.remove(id1));
+        if (removed) {
+            invalidate();
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        nodes.clear();
+        invalidate();
+    }
+
+    public synchronized int getNodeCount() {
+        return nodes.size();
+    }
+
+    public synchronized boolean containsNode(String id) {
+        return nodes.containsKey(id);
+    }
+
+    /**
+     * @return {x, y, z} of the node, or null if unknown
+     */
+    public synchronized float[] getPosition(String id) {
+        Node node = nodes.get(id);
+        return node != null ? new float[] {node.x, node.y, node.z} : null;
+    }
+
+    /**
+     * Incremented by every edit, so callers can tell whether a route they hold is still current.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return id of the node closest to the position, or null if the graph is empty
+     */
+    public synchronized String findNearestNode(float x, float y, float z) {
+        compile();
+        int nearest = -1;
+        float best = Float.MAX_VALUE;
+        for (int i = 0; i < ids.length; i++) {
+            float dx = xs[i] - x;
+            float dy = ys[i] - y;
+            float dz = zs[i] - z;
+            float distanceSquared = dx * dx + dy * dy + dz * dz;
+            if (distanceSquared < best) {
+                best = distanceSquared;
+                nearest = i;
+            }
+        }
+        return nearest >= 0 ? ids[nearest] : null;
+    }
+
+    /**
+     * Shortest route between two nodes.
+     *
+     * @return node ids from start to goal, both included, or null if either node is unknown or
+     *         the goal cannot be reached. The list is unmodifiable.
+     */
+    public synchronized List<String> findRoute(String startId, String goalId) {
+        compile();
+        Integer start = indexOf.get(startId);
+        Integer goal = indexOf.get(goalId);
+        if (start == null || goal == null) {
+            return null;
+        }
+        if (start.equals(goal)) {
+            return Collections.singletonList(startId);
+        }
+
+        String key = startId + '\n' + goalId;
+        if (routeCache.containsKey(key)) {
+            cacheHits++;
+            return routeCache.get(key);
+        }
+
+        List<String> route;
+        int[] tree = treeCache.get(goal);
+        if (tree != null) {
+            route = walkTree(tree, start, false);
+            cacheHits++;
+        } else if ((tree = treeCache.get(start)) != null) {
+            route = walkTree(tree, goal, true);
+            cacheHits++;
+        } else {
+            route = search(start, goal);
+        }
+        routeCache.put(key, route);
+        return route;
+    }
+
+    /**
+     * Shortest route from the node nearest to a position.
+     */
+    public synchronized List<String> findRouteFrom(float x, float y, float z, String goalId) {
+        String startId = findNearestNode(x, y, z);
+        return startId != null ? findRoute(startId, goalId) : null;
+    }
+
+    /**
+     * Build the shortest-path tree rooted at a node, after which every route to or from it is a
+     * walk up the tree. Use for goals requested often, e.g. a charging dock.
+     *
+     * @return false if the node is unknown
+     */
+    public synchronized boolean precomputeRoutesTo(String rootId) {
+        compile();
+        Integer root = indexOf.get(rootId);
+        if (root == null) {
+            return false;
+        }
+        if (!treeCache.containsKey(root)) {
+            runSearch(root, -1);
+            treeCache.put(root, snapshotTree());
+        }
+        return true;
+    }
+
+    /**
+     * @return length in metres of a route returned by this planner, or NaN if a node is unknown
+     */
+    public synchronized float getRouteLength(List<String> route) {
+        float length = 0;
+        Node previous = null;
+        for (String id : route) {
+            Node node = nodes.get(id);
+            if (node == null) {
+                return Float.NaN;
+            }
+            if (previous != null) {
+                length += distance(previous.x, previous.y, previous.z, node.x, node.y, node.z);
+            }
+            previous = node;
+        }
+        return length;
+    }
+
+    /**
+     * @return searches run, queries answered from the caches and nodes expanded by searches
+     */
+    public synchronized long[] getStats() {
+        return new long[] {searches, cacheHits, expandedNodes};
+    }
+
+    private void invalidate() {
+        version++;
+        routeCache.clear();
+        treeCache.clear();
+    }
+
+    private void compile() {
+        if (compiledVersion == version) {
+            return;
+        }
+        int count = nodes.size();
+        ids = nodes.keySet().toArray(new String[0]);
+        Arrays.sort(ids); // Deterministic indices, and so tie-breaking, for the same graph
+        indexOf.clear();
+        for (int i = 0; i < count; i++) {
+            indexOf.put(ids[i], i);
+        }
+
+        xs = new float[count];
+        ys = new float[count];
+        zs = new float[count];
+        edgeStart = new int[count + 1];
+        int edgeCount = 0;
+        for (int i = 0; i < count; i++) {
+            Node node = nodes.get(ids[i]);
+            xs[i] = node.x;
+            ys[i] = node.y;
+            zs[i] = node.z;
+            edgeCount += node.neighbours.size();
+        }
+        edgeTarget = new int[edgeCount];
+        edgeLength = new float[edgeCount];
+        int edge = 0;
+        for (int i = 0; i < count; i++) {
+            edgeStart[i] = edge;
+            for (String neighbour : nodes.get(ids[i]).neighbours) {
+                int j = indexOf.get(neighbour);
+                edgeTarget[edge] = j;
+                edgeLength[edge] = distance(xs[i], ys[i], zs[i], xs[j], ys[j], zs[j]);
+                edge++;
+            }
+        }
+        edgeStart[count] = edge;
+
+        if (cost.length < count) {
+            cost = new float[count];
+            parent = new int[count];
+            seenStamp = new int[count];
+            closedStamp = new int[count];
+            stamp = 0;
+        }
+        compiledVersion = version;
+    }
+
+    private List<String> search(int start, int goal) {
+        if (!runSearch(start, goal)) {
+            return null;
+        }
+        List<String> route = new ArrayList<>();
+        for (int node = goal; node != -1; node = parent[node]) {
+            route.add(ids[node]);
+        }
+        Collections.reverse(route);
+        return Collections.unmodifiableList(route);
+    }
+
+    /**
+     * A* from start to goal, or Dijkstra over the whole graph when goal is -1. Leaves cost and
+     * parent valid for nodes stamped in this run.
+     *
+     * @return true if the goal was reached
+     */
+    private boolean runSearch(int start, int goal) {
+        searches++;
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(seenStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            stamp = 1;
+        }
+        heapSize = 0;
+        cost[start] = 0;
+        parent[start] = -1;
+        seenStamp[start] = stamp;
+        push(start, heuristic(start, goal));
+
+        while (heapSize > 0) {
+            int node = pop();
+            if (closedStamp[node] == stamp) {
+                continue; // Stale entry, the node was reached more cheaply
+            }
+            closedStamp[node] = stamp;
+            expandedNodes++;
+            if (node == goal) {
+                return true;
+            }
+            for (int edge = edgeStart[node]; edge < edgeStart[node + 1]; edge++) {
+                int next = edgeTarget[edge];
+                if (closedStamp[next] == stamp) {
+                    continue;
+                }
+                float nextCost = cost[node] + edgeLength[edge];
+                if (seenStamp[next] != stamp || nextCost < cost[next]) {
+                    seenStamp[next] = stamp;
+                    cost[next] = nextCost;
+                    parent[next] = node;
+                    push(next, nextCost + heuristic(next, goal));
+                }
+            }
+        }
+        return goal == -1;
+    }
+
+    private float heuristic(int node, int goal) {
+        return goal < 0 ? 0 : distance(xs[node], ys[node], zs[node], xs[goal], ys[goal], zs[goal]);
+    }
+
+    /**
+     * Parents of the last full search, -2 for nodes it did not reach.
+     */
+    private int[] snapshotTree() {
+        int[] tree = new int[ids.length];
+        for (int i = 0; i < tree.length; i++) {
+            tree[i] = seenStamp[i] == stamp ? parent[i] : -2;
+        }
+        return tree;
+    }
+
+    /**
+     * Walk from a node up to the root of a shortest-path tree.
+     *
+     * @param reverse true to return the route from the root instead
+     */
+    private List<String> walkTree(int[] tree, int from, boolean reverse) {
+        if (tree[from] == -2) {
+            return null;
+        }
+        List<String> route = new ArrayList<>();
+        for (int node = from; node != -1; node = tree[node]) {
+            route.add(ids[node]);
+        }
+        if (reverse) {
+            Collections.reverse(route);
+        }
+        return Collections.unmodifiableList(route);
+    }
+
+    private void push(int node, float key) {
+        if (heapSize == heapNode.length) {
+            heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+            heapKey = Arrays.copyOf(heapKey, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (heapKey[up] <= key) {
+                break;
+            }
+            heapNode[i] = heapNode[up];
+            heapKey[i] = heapKey[up];
+            i = up;
+        }
+        heapNode[i] = node;
+        heapKey[i] = key;
+    }
+
+    private int pop() {
+        int top = heapNode[0];
+        int lastNode = heapNode[--heapSize];
+        float lastKey = heapKey[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) {
+                child++;
+            }
+            if (heapKey[child] >= lastKey) {
+                break;
+            }
+            heapNode[i] = heapNode[child];
+            heapKey[i] = heapKey[child];
+            i = child;
+        }
+        heapNode[i] = lastNode;
+        heapKey[i] = lastKey;
+        return top;
+    }
+
+    private static float distance(float x1, float y1, float z1, float x2, float y2, float z2) {
+        float dx = x1 - x2;
+        float dy = y1 - y2;
+        float dz = z1 - z2;
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
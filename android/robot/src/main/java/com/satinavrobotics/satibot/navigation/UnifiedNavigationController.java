@@ -1,16 +1,16 @@
 package com.satinavrobotics.satibot.navigation;
 
-import android.os.Handler;
-import android.os.Looper;
-
 import com.google.ar.core.Pose;
+import com.satinavrobotics.satibot.env.StatusManager;
+import com.satinavrobotics.satibot.navigation.estimation.PoseEstimate;
+import com.satinavrobotics.satibot.navigation.estimation.PoseEstimator;
 import com.satinavrobotics.satibot.navigation.strategy.NavigationStrategy;
+import com.satinavrobotics.satibot.navigation.strategy.StrategyArbiter;
 import com.satinavrobotics.satibot.vehicle.Vehicle;
 
 import org.json.JSONObject;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.function.Supplier;
 
 import timber.log.Timber;
 
@@ -18,29 +18,77 @@ import timber.log.Timber;
  * Unified navigation controller that manages all navigation behaviors through pluggable strategies.
  * This replaces the previous NavigationController and WaypointNavigationController with a single,
  * transparent control system.
+ *
+ * Pose and navigability updates only store the latest snapshot. Navigation runs on a
+ * {@link ControlLoop} at a fixed rate (50 Hz by default), which reads the snapshots and
+ * sends one command to the vehicle per tick. A {@link StrategyArbiter} decides which strategy
+ * drives on each tick. While the pose is stale or dead reckoning is halted, a stop is sent once
+ * and nothing more until navigation resumes. Commands and strategy changes are logged, not ticks.
+ * The control loop and arbitration statistics are published in the status JSON while the loop
+ * runs.
+ *
+ * For simulation, the controller can also be built on a {@link CommandSink} instead of a vehicle,
+ * started without the control loop and ticked with {@link #step(long)} on a simulated clock.
  */
 public class UnifiedNavigationController {
     private static final String TAG = UnifiedNavigationController.class.getSimpleName();
+
+    // ARCore poses older than this are considered lost and navigation runs on odometry alone
+    private static final long VISUAL_POSE_TIMEOUT_NANOS = 300_000_000L;
+    // Stop dead-reckoning once the position uncertainty exceeds this (m^2)
+    private static final float MAX_DEAD_RECKONING_VARIANCE = 0.25f;
+    // Stop when neither ARCore nor odometry has updated the pose for this long
+    private static final long STALE_POSE_TIMEOUT_NANOS = 500_000_000L;
+    // Waypoints after the target made available to strategies that track the path through them
+    private static final int FOLLOWING_WAYPOINTS = 2;
     
     // Core components
-    private final Vehicle vehicle;
+    private final CommandSink commandSink;
     private final WaypointsManager waypointsManager;
-    private final Handler mainHandler;
+    private final ControlLoop controlLoop = new ControlLoop("NavigationControlLoop", this::onTick);
+    private final Supplier<JSONObject> controlLoopDiagnostics = controlLoop::toJson;
+    private final Supplier<JSONObject> arbitrationDiagnostics = this::getArbitrationStats;
+    private final PoseEstimator poseEstimator;
+    private final PoseEstimator.Listener poseEstimateListener = this::onPoseEstimate;
     
     // Navigation context and strategies
     private final NavigationContext context;
-    private final List<NavigationStrategy> strategies;
-    private NavigationStrategy activeStrategy;
+    private final StrategyArbiter arbiter = new StrategyArbiter();
+    
+    // Latest inputs, written by the sensor callbacks and read once per tick
+    private volatile PoseSample latestPose;
+    private volatile NavigabilitySample latestNavigability;
     
     // State tracking
-    private boolean isNavigating = false;
+    private volatile boolean isNavigating = false;
     private NavigationListener navigationListener;
+    private float lastVisualPoseY = 0.0f;
+    private volatile boolean deadReckoningHalted = false;
+    // Last command sent and strategy logged, guarded by this
+    private ControlCommand lastCommand;
+    private NavigationStrategy loggedStrategy;
+    // Receives waypoint positions from the waypoints manager, guarded by this
+    private final float[] waypointPosition = new float[2];
+    
+    /**
+     * @param receivedNanos When the pose was received, on the clock the control ticks run on
+     */
+    private record PoseSample(NavigationPose pose, long receivedNanos) {}
+    
+    private record NavigabilitySample(boolean[] rows, boolean[] left, boolean[] right) {}
+    
+    /**
+     * Receives the control commands, normalized as for {@link Vehicle#setControlVelocity}
+     */
+    public interface CommandSink {
+        void setControlVelocity(float linear, float angular);
+    }
     
     /**
      * Interface for receiving navigation updates
      */
     public interface NavigationListener {
-        void onNavigationStateChanged(NavigationContext.NavigationState state, JSONObject currentWaypoint);
+        void onNavigationStateChanged(NavigationContext.NavigationState state, Waypoint currentWaypoint);
         void onNavigationCompleted();
         void onNavigationError(String error);
     }
@@ -52,11 +100,23 @@ public class UnifiedNavigationController {
      * @param waypointsManager Manager for waypoint queue
      */
     public UnifiedNavigationController(Vehicle vehicle, WaypointsManager waypointsManager) {
-        this.vehicle = vehicle;
+        this(vehicle != null ? vehicle::setControlVelocity : (linear, angular) -> {},
+                vehicle != null ? vehicle.getPoseEstimator() : null, waypointsManager);
+    }
+    
+    /**
+     * Constructor for UnifiedNavigationController without a vehicle, e.g. in a simulation
+     * 
+     * @param commandSink Receives the control commands
+     * @param poseEstimator Wheel odometry estimator to navigate on between poses, or null
+     * @param waypointsManager Manager for waypoint queue
+     */
+    public UnifiedNavigationController(CommandSink commandSink, PoseEstimator poseEstimator,
+                                       WaypointsManager waypointsManager) {
+        this.commandSink = commandSink;
         this.waypointsManager = waypointsManager;
-        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.poseEstimator = poseEstimator;
         this.context = new NavigationContext();
-        this.strategies = new ArrayList<>();
         
         Timber.d("UnifiedNavigationController initialized");
     }
@@ -66,8 +126,8 @@ public class UnifiedNavigationController {
      * 
      * @param strategy The strategy to add
      */
-    public void addStrategy(NavigationStrategy strategy) {
-        strategies.add(strategy);
+    public synchronized void addStrategy(NavigationStrategy strategy) {
+        arbiter.add(strategy);
         Timber.d("Added navigation strategy: %s", strategy.getStrategyName());
     }
     
@@ -76,47 +136,136 @@ public class UnifiedNavigationController {
      * 
      * @param strategy The strategy to remove
      */
-    public void removeStrategy(NavigationStrategy strategy) {
-        strategies.remove(strategy);
-        if (activeStrategy == strategy) {
-            activeStrategy = null;
-        }
+    public synchronized void removeStrategy(NavigationStrategy strategy) {
+        arbiter.remove(strategy);
         Timber.d("Removed navigation strategy: %s", strategy.getStrategyName());
     }
     
+    /**
+     * Set the rate of the navigation control loop, clamped to 1..ControlLoop.MAX_RATE_HZ
+     */
+    public void setControlRateHz(int hz) {
+        controlLoop.setRateHz(hz);
+    }
+    
+    public int getControlRateHz() {
+        return controlLoop.getRateHz();
+    }
+    
+    /**
+     * Tick count, jitter and overrun statistics of the control loop
+     */
+    public JSONObject getControlLoopStats() {
+        return controlLoop.toJson();
+    }
+    
+    /**
+     * Strategy switch counters and a trace of which strategy won on the last ticks, and why
+     */
+    public synchronized JSONObject getArbitrationStats() {
+        return arbiter.toJson();
+    }
+    
+    /**
+     * Set how long a higher priority strategy has to be preferred before it takes over from the
+     * active one
+     * 
+     * @param ticks Consecutive ticks the strategy has to be preferred
+     * @param minDwellNanos Time the active strategy stays active at least
+     */
+    public synchronized void setStrategyHysteresis(int ticks, long minDwellNanos) {
+        arbiter.setHysteresis(ticks, minDwellNanos);
+    }
+    
+    /**
+     * Blend an added strategy's command with the active strategy's while both can handle the
+     * context; it only takes effect while the active strategy has a blend weight too
+     * 
+     * @param weight Weight of the strategy's command, 0 to never blend it
+     */
+    public synchronized void setStrategyBlendWeight(NavigationStrategy strategy, float weight) {
+        arbiter.setBlendWeight(strategy, weight);
+    }
+    
     /**
      * Start navigation with the current waypoints
      */
-    public void startNavigation() {
+    public synchronized void startNavigation() {
+        if (start(System.nanoTime())) {
+            controlLoop.resetStats();
+            controlLoop.start();
+            StatusManager.getInstance().putDiagnostics("controlLoop", controlLoopDiagnostics);
+            StatusManager.getInstance().putDiagnostics("arbitration", arbitrationDiagnostics);
+        }
+    }
+    
+    /**
+     * Start navigation with the current waypoints without the control loop. Navigation then only
+     * advances when {@link #step(long)} is called.
+     * 
+     * @param nowNanos Current time on the clock step() will be called with
+     */
+    public synchronized void startNavigation(long nowNanos) {
+        start(nowNanos);
+    }
+    
+    /**
+     * Run one control tick at the given time, for navigation started with
+     * {@link #startNavigation(long)}. Commands are sent on the calling thread.
+     * 
+     * @param nowNanos Time of the tick; pose timestamps must be on the same clock
+     */
+    public void step(long nowNanos) {
+        onTick(nowNanos, 1_000_000_000L / controlLoop.getRateHz());
+    }
+    
+    /**
+     * @return false if there is nothing to navigate to
+     */
+    private boolean start(long nowNanos) {
         if (!waypointsManager.hasNextWaypoint()) {
             Timber.w("No waypoints available for navigation");
             notifyNavigationError("No waypoints available");
-            return;
+            return false;
         }
         
         isNavigating = true;
+        deadReckoningHalted = false;
+        lastCommand = null;
+        loggedStrategy = null;
+        if (poseEstimator != null) {
+            poseEstimator.addListener(poseEstimateListener);
+        }
         context.setCurrentState(NavigationContext.NavigationState.IDLE);
         context.setTotalWaypointCount(waypointsManager.getWaypointCount());
         context.setCurrentWaypointIndex(0);
+        context.setTargetWaypoint(null);
+        context.updateTiming(nowNanos);
         
         // Load the first waypoint
         loadNextWaypoint();
         
         Timber.i("Navigation started with %d waypoints", context.getTotalWaypointCount());
+        return true;
     }
     
     /**
      * Stop navigation and halt the vehicle
      */
-    public void stopNavigation() {
+    public synchronized void stopNavigation() {
         isNavigating = false;
+        if (controlLoop.isRunning()) {
+            controlLoop.stop();
+            StatusManager.getInstance().removeDiagnostics("controlLoop", controlLoopDiagnostics);
+            StatusManager.getInstance().removeDiagnostics("arbitration", arbitrationDiagnostics);
+        }
+        if (poseEstimator != null) {
+            poseEstimator.removeListener(poseEstimateListener);
+        }
         context.setCurrentState(NavigationContext.NavigationState.IDLE);
         
         // Reset active strategy
-        if (activeStrategy != null) {
-            activeStrategy.reset();
-            activeStrategy = null;
-        }
+        arbiter.stop();
         
         // Stop the vehicle
         sendControlCommand(ControlCommand.stop());
@@ -125,21 +274,70 @@ public class UnifiedNavigationController {
     }
     
     /**
-     * Update the current pose from ARCore
+     * Update the current pose from ARCore. Navigation picks it up on the next control tick.
      * 
      * @param pose The current robot pose
      */
     public void updateCurrentPose(Pose pose) {
-        context.setCurrentPose(pose);
-        
-        // Process navigation if we're actively navigating
-        if (isNavigating) {
-            processNavigation();
+        if (pose == null) {
+            return;
+        }
+        float[] rotation = new float[4];
+        pose.getRotationQuaternion(rotation, 0);
+        NavigationPose navigationPose = NavigationPose.fromQuaternion(pose.tx(), pose.ty(), pose.tz(), rotation);
+        long nowNanos = System.nanoTime();
+        if (poseEstimator != null) {
+            lastVisualPoseY = pose.ty();
+            poseEstimator.onVisualPose(nowNanos, pose.tx(), pose.tz(), navigationPose.yaw());
         }
+        latestPose = new PoseSample(navigationPose, nowNanos);
     }
     
     /**
-     * Update navigability data from depth processing
+     * Update the current pose from a source other than ARCore, e.g. a simulation. The pose is not
+     * fed to the wheel odometry estimator.
+     * 
+     * @param pose The current robot pose
+     * @param receivedNanos When the pose was received, on the clock the control ticks run on
+     */
+    public void updateCurrentPose(NavigationPose pose, long receivedNanos) {
+        if (pose != null) {
+            latestPose = new PoseSample(pose, receivedNanos);
+        }
+    }
+    
+    /**
+     * Handle a pose estimate from the wheel odometry estimator. Between ARCore frames the fused
+     * estimate refreshes the pose; when ARCore tracking is lost navigation continues on it until
+     * the accumulated uncertainty becomes too large.
+     *
+     * @param estimate The latest pose estimate
+     */
+    private void onPoseEstimate(PoseEstimate estimate) {
+        if (!isNavigating || estimate.visualTimestampNanos() == 0) {
+            return; // No ARCore reference frame yet
+        }
+
+        NavigationPose estimatedPose = new NavigationPose(
+                estimate.x(), lastVisualPoseY, estimate.z(), estimate.yaw());
+
+        if (estimate.isVisuallyTracked(System.nanoTime(), VISUAL_POSE_TIMEOUT_NANOS)) {
+            deadReckoningHalted = false;
+        } else if (estimate.positionVariance() > MAX_DEAD_RECKONING_VARIANCE) {
+            if (!deadReckoningHalted) {
+                deadReckoningHalted = true;
+                Timber.w("ARCore tracking lost and odometry uncertainty too high, stopping");
+            }
+            return;
+        }
+
+        // The estimate is stamped on the control loop's clock by the telemetry it was predicted from
+        latestPose = new PoseSample(estimatedPose, estimate.timestampNanos());
+    }
+    
+    /**
+     * Update navigability data from depth processing. Navigation picks it up on the next control
+     * tick; the arrays must not be modified afterwards.
      * 
      * @param navigabilityData Array of boolean values indicating if each row is navigable
      * @param leftNavigabilityMap Left window navigability map
@@ -148,88 +346,98 @@ public class UnifiedNavigationController {
     public void updateNavigabilityData(boolean[] navigabilityData, 
                                      boolean[] leftNavigabilityMap, 
                                      boolean[] rightNavigabilityMap) {
-        context.setNavigabilityData(navigabilityData);
-        context.setLeftNavigabilityMap(leftNavigabilityMap);
-        context.setRightNavigabilityMap(rightNavigabilityMap);
+        latestNavigability = new NavigabilitySample(
+                navigabilityData, leftNavigabilityMap, rightNavigabilityMap);
+    }
+    
+    /**
+     * Control loop tick: bring the context up to date with the latest snapshots and navigate
+     */
+    private void onTick(long nowNanos, long periodNanos) {
+        if (!isNavigating) {
+            return;
+        }
+        if (deadReckoningHalted) {
+            sendStopOnce();
+            return;
+        }
+        PoseSample pose = latestPose;
+        if (pose == null) {
+            return; // No pose yet, nothing to navigate on
+        }
+        long poseAgeNanos = nowNanos - pose.receivedNanos();
+        if (poseAgeNanos > STALE_POSE_TIMEOUT_NANOS) {
+            if (sendStopOnce()) {
+                Timber.w("No pose for %d ms, stopping", poseAgeNanos / 1_000_000);
+            }
+            return;
+        }
         
-        // Process navigation if we're actively navigating
-        if (isNavigating && (context.getCurrentState() == NavigationContext.NavigationState.MOVING ||
-                           context.getCurrentState() == NavigationContext.NavigationState.AVOIDING)) {
-            processNavigation();
+        NavigabilitySample navigability = latestNavigability;
+        synchronized (this) {
+            context.setCurrentPose(pose.pose());
+            refreshWaypointPositions();
+            if (navigability != null) {
+                context.setNavigabilityData(navigability.rows());
+                context.setLeftNavigabilityMap(navigability.left());
+                context.setRightNavigabilityMap(navigability.right());
+            }
+            processNavigation(nowNanos);
         }
     }
     
     /**
      * Main navigation processing method
      */
-    private void processNavigation() {
+    private synchronized void processNavigation(long nowNanos) {
         if (!isNavigating || context.getCurrentPose() == null) {
             return;
         }
         
         // Update timing
-        context.updateTiming();
+        context.updateTiming(nowNanos);
         
         // Select the appropriate strategy
-        selectActiveStrategy();
+        NavigationStrategy activeStrategy = arbiter.select(context, nowNanos);
         
         if (activeStrategy == null) {
-            Timber.w("No suitable navigation strategy found");
-            sendControlCommand(ControlCommand.stop());
+            if (sendStopOnce()) {
+                Timber.w("No suitable navigation strategy found");
+            }
             return;
         }
+        if (activeStrategy != loggedStrategy) {
+            loggedStrategy = activeStrategy;
+            Timber.d("Navigating with %s", activeStrategy.getStrategyName());
+        }
         
         // Check if current strategy is complete
         if (activeStrategy.isComplete(context)) {
-            handleStrategyCompletion();
+            handleStrategyCompletion(activeStrategy);
             return;
         }
         
         // Calculate and send control command
-        ControlCommand command = activeStrategy.calculateControl(context);
+        ControlCommand command = arbiter.command(context);
         sendControlCommand(command);
-        
-        Timber.d("Navigation: %s -> %s", activeStrategy.getStrategyName(), command);
-    }
-    
-    /**
-     * Select the most appropriate strategy for the current context
-     */
-    private void selectActiveStrategy() {
-        NavigationStrategy bestStrategy = null;
-        int highestPriority = -1;
-        
-        for (NavigationStrategy strategy : strategies) {
-            if (strategy.canHandle(context) && strategy.getPriority() > highestPriority) {
-                bestStrategy = strategy;
-                highestPriority = strategy.getPriority();
-            }
-        }
-        
-        // Switch strategy if needed
-        if (bestStrategy != activeStrategy) {
-            if (activeStrategy != null) {
-                Timber.d("Switching from %s to %s", activeStrategy.getStrategyName(), 
-                        bestStrategy != null ? bestStrategy.getStrategyName() : "none");
-            }
-            
-            activeStrategy = bestStrategy;
-            if (activeStrategy != null) {
-                activeStrategy.reset();
-            }
-        }
     }
     
     /**
      * Handle completion of the current strategy
      */
-    private void handleStrategyCompletion() {
-        if (activeStrategy.getStrategyName().contains("Waypoint")) {
-            // Waypoint reached, load next one
-            loadNextWaypoint();
-        } else {
-            // Other strategy completed, continue with current waypoint
-            Timber.d("Strategy %s completed", activeStrategy.getStrategyName());
+    private void handleStrategyCompletion(NavigationStrategy strategy) {
+        NavigationStrategy.Completion completion = strategy.getCompletion();
+        arbiter.recordCompletion(completion);
+        switch (completion) {
+            case WAYPOINT_REACHED:
+                // Waypoint reached, drop it from the queue and load the next one
+                waypointsManager.getNextWaypoint();
+                loadNextWaypoint();
+                break;
+            case FINISHED:
+                // Other strategy completed, continue with current waypoint
+                Timber.d("Strategy %s completed", strategy.getStrategyName());
+                break;
         }
     }
     
@@ -238,18 +446,26 @@ public class UnifiedNavigationController {
      */
     private void loadNextWaypoint() {
         if (waypointsManager.hasNextWaypoint()) {
-            JSONObject nextWaypoint = waypointsManager.peekNextWaypointInLocalCoordinates();
+            Waypoint nextWaypoint = waypointsManager.peekNextWaypoint();
+            // The previous waypoint is where the target was last seen
+            float reachedX = context.getTargetX();
+            float reachedZ = context.getTargetZ();
+            context.setPreviousWaypoint(context.getTargetWaypoint());
+            context.setPreviousPosition(reachedX, reachedZ);
             context.setTargetWaypoint(nextWaypoint);
+            context.setFollowingCount(Math.max(0,
+                    Math.min(FOLLOWING_WAYPOINTS, waypointsManager.getWaypointCount() - 1)));
+            refreshWaypointPositions();
             context.setCurrentWaypointIndex(context.getCurrentWaypointIndex() + 1);
             context.setCurrentState(NavigationContext.NavigationState.TURNING);
             
             // Reset all strategies for new waypoint
-            for (NavigationStrategy strategy : strategies) {
-                strategy.reset();
-            }
+            arbiter.resetAll();
             
             Timber.i("Loaded waypoint %d of %d", context.getCurrentWaypointIndex(), context.getTotalWaypointCount());
-            notifyNavigationStateChanged(context.getCurrentState(), nextWaypoint);
+            notifyNavigationStateChanged(context.getCurrentState(), context.hasTargetPosition()
+                    ? nextWaypoint.withLocalPosition(context.getTargetX(), context.getTargetZ())
+                    : nextWaypoint);
         } else {
             // All waypoints completed
             context.setCurrentState(NavigationContext.NavigationState.COMPLETED);
@@ -260,20 +476,55 @@ public class UnifiedNavigationController {
     }
     
     /**
-     * Send control command to vehicle
+     * Look up the local positions of the target and the following waypoints, which move with the
+     * GPS fix for GPS waypoints, without allocating
+     */
+    private synchronized void refreshWaypointPositions() {
+        if (waypointsManager.peekNextLocalPosition(waypointPosition)) {
+            context.setTargetPosition(waypointPosition[0], waypointPosition[1]);
+        } else {
+            context.setTargetPosition(Float.NaN, Float.NaN);
+        }
+        for (int i = 0; i < context.getFollowingCount(); i++) {
+            if (waypointsManager.peekLocalPosition(i + 1, waypointPosition)) {
+                context.setFollowingPosition(i, waypointPosition[0], waypointPosition[1]);
+            } else {
+                context.setFollowingPosition(i, Float.NaN, Float.NaN);
+            }
+        }
+    }
+    
+    /**
+     * Send control command to the vehicle on the calling thread. Only commands that differ from
+     * the previous one are logged.
      * 
      * @param command The control command to send
      */
-    private void sendControlCommand(ControlCommand command) {
-        mainHandler.post(() -> {
-            try {
-                vehicle.setControlVelocity(command.getLinearVelocity(), command.getAngularVelocity());
-                vehicle.sendControl();
+    private synchronized void sendControlCommand(ControlCommand command) {
+        try {
+            // setControlVelocity() also sends the control
+            commandSink.setControlVelocity(command.getLinearVelocity(), command.getAngularVelocity());
+            if (!command.equals(lastCommand)) {
                 Timber.d("Control command sent: %s", command);
-            } catch (Exception e) {
-                Timber.e(e, "Error sending control command");
             }
-        });
+            lastCommand = command;
+        } catch (Exception e) {
+            Timber.e(e, "Error sending control command");
+        }
+    }
+    
+    /**
+     * Stop the vehicle unless the last command already stopped it, so a tick that has nothing to
+     * navigate on sends the stop on the transition only
+     * 
+     * @return true if the stop was sent
+     */
+    private synchronized boolean sendStopOnce() {
+        if (lastCommand != null && lastCommand.isStop()) {
+            return false;
+        }
+        sendControlCommand(ControlCommand.stop());
+        return true;
     }
     
     // Getters and setters
@@ -285,8 +536,8 @@ public class UnifiedNavigationController {
         return isNavigating;
     }
     
-    public NavigationStrategy getActiveStrategy() {
-        return activeStrategy;
+    public synchronized NavigationStrategy getActiveStrategy() {
+        return arbiter.getActive();
     }
     
     public void setNavigationListener(NavigationListener listener) {
@@ -294,7 +545,7 @@ public class UnifiedNavigationController {
     }
     
     // Notification methods
-    private void notifyNavigationStateChanged(NavigationContext.NavigationState state, JSONObject waypoint) {
+    private void notifyNavigationStateChanged(NavigationContext.NavigationState state, Waypoint waypoint) {
         if (navigationListener != null) {
             navigationListener.onNavigationStateChanged(state, waypoint);
         }
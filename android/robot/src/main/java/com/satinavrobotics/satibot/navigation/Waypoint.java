@@ -0,0 +1,58 @@
+package com.satinavrobotics.satibot.navigation;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Immutable navigation waypoint. Parsed once from the JSON received over RPC, so strategies read
+ * plain fields on every control tick.
+ *
+ * A waypoint has a position in the local map frame, a GPS position, or both; missing
+ * coordinates are NaN. WaypointsManager projects GPS-only waypoints into the local frame before
+ * they are navigated to.
+ *
+ * @param id Waypoint id on the map, or null
+ * @param x X position in the local frame in meters
+ * @param z Z position in the local frame in meters
+ * @param latitude Latitude in degrees
+ * @param longitude Longitude in degrees
+ */
+public record Waypoint(String id, float x, float z, double latitude, double longitude) {
+
+    public static Waypoint local(String id, float x, float z) {
+        return new Waypoint(id, x, z, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Parse {"id", "x", "z"} and/or {"lat", "lng"}, any other keys are ignored.
+     *
+     * @throws JSONException if the object has neither a local nor a GPS position
+     */
+    public static Waypoint fromJson(JSONObject json) throws JSONException {
+        String id = json.has("id") ? json.getString("id") : null;
+        float x = json.has("x") ? (float) json.getDouble("x") : Float.NaN;
+        float z = json.has("z") ? (float) json.getDouble("z") : Float.NaN;
+        double latitude = json.has("lat") ? json.getDouble("lat") : Double.NaN;
+        double longitude = json.has("lng") ? json.getDouble("lng") : Double.NaN;
+        Waypoint waypoint = new Waypoint(id, x, z, latitude, longitude);
+        if (!waypoint.hasLocalPosition() && !waypoint.hasGeoPosition()) {
+            throw new JSONException("Waypoint without position: " + json);
+        }
+        return waypoint;
+    }
+
+    public boolean hasLocalPosition() {
+        return !Float.isNaN(x) && !Float.isNaN(z);
+    }
+
+    public boolean hasGeoPosition() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    /**
+     * @return this waypoint at the given local position, keeping id and GPS position
+     */
+    public Waypoint withLocalPosition(float x, float z) {
+        return new Waypoint(id, x, z, latitude, longitude);
+    }
+}
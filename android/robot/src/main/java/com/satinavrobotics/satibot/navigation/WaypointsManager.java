@@ -1,19 +1,51 @@
 package com.satinavrobotics.satibot.navigation;
 
 import com.satinavrobotics.satibot.env.StatusManager;
+import com.satinavrobotics.satibot.env.StatusSnapshot;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Queue of navigation waypoints and the waypoint graph of the loaded map.
+ *
+ * GPS waypoints are projected once, when they are set, into a local east/north frame in meters
+ * anchored at the location where the mission started (or at the first GPS waypoint if there was
+ * no fix yet). A new GPS fix only moves the robot within that frame, so looking up the next
+ * waypoint relative to the robot is O(1) and does not allocate.
+ */
 public class WaypointsManager {
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+
     private static WaypointsManager instance;
-    private Queue<JSONObject> waypointQueue;
+    private Waypoint[] waypoints = new Waypoint[0];
+    private int nextIndex = 0;
+
+    // East/north of each waypoint in the mission frame, NaN for waypoints without GPS position
+    private double[] waypointEast = new double[0];
+    private double[] waypointNorth = new double[0];
+    private double anchorLatitude;
+    private double anchorLongitude;
+    private double metersPerDegreeLongitude;
+
+    // Robot in the mission frame at the last GPS fix, recomputed when the fix changes
+    private StatusSnapshot.GeoLocation projectedLocation;
+    private double robotEast;
+    private double robotNorth;
+    private double bearingSin;
+    private double bearingCos;
 
-    private WaypointsManager() {
-        waypointQueue = new LinkedList<>();
+    // Waypoint graph of the loaded map, in local coordinates
+    private RoutePlanner routePlanner;
+    private String routeMapId;
+
+    /**
+     * A queue independent of the app's, e.g. for a simulation. The app uses {@link #getInstance()}.
+     */
+    public WaypointsManager() {
     }
 
     public static synchronized WaypointsManager getInstance() {
@@ -23,99 +55,238 @@ public class WaypointsManager {
         return instance;
     }
 
+    /**
+     * Replace the queue with waypoints received as JSON, see {@link Waypoint#fromJson}. Waypoints
+     * without a position are skipped.
+     */
     public synchronized void setWaypoints(JSONArray waypoints) {
-        waypointQueue.clear();
+        List<Waypoint> parsed = new ArrayList<>(waypoints.length());
         for (int i = 0; i < waypoints.length(); i++) {
             try {
-                waypointQueue.add(waypoints.getJSONObject(i));
+                parsed.add(Waypoint.fromJson(waypoints.getJSONObject(i)));
             } catch (JSONException e) {
                 e.printStackTrace();
             }
         }
+        setWaypoints(parsed);
     }
 
-    public synchronized JSONObject getNextWaypoint() {
-        return waypointQueue.poll();
+    /**
+     * Replace the queue. The location status is only read if a waypoint has a GPS position.
+     */
+    public synchronized void setWaypoints(List<Waypoint> waypoints) {
+        this.waypoints = waypoints.toArray(new Waypoint[0]);
+        nextIndex = 0;
+        boolean geo = false;
+        for (Waypoint waypoint : this.waypoints) {
+            geo |= waypoint.hasGeoPosition();
+        }
+        projectWaypoints(geo ? StatusManager.getInstance().getSnapshot().location() : null);
     }
 
-    public synchronized JSONObject peekNextWaypoint() {
-        return waypointQueue.peek();
+    /**
+     * Anchor the mission frame and project the GPS waypoints into it.
+     */
+    private void projectWaypoints(StatusSnapshot.GeoLocation startLocation) {
+        waypointEast = new double[waypoints.length];
+        waypointNorth = new double[waypoints.length];
+        projectedLocation = null;
+
+        boolean anchored = false;
+        if (startLocation != null) {
+            anchor(startLocation.latitude(), startLocation.longitude());
+            anchored = true;
+        }
+        for (int i = 0; i < waypoints.length; i++) {
+            Waypoint waypoint = waypoints[i];
+            if (!waypoint.hasGeoPosition()) {
+                waypointEast[i] = Double.NaN;
+                waypointNorth[i] = Double.NaN;
+                continue;
+            }
+            if (!anchored) {
+                anchor(waypoint.latitude(), waypoint.longitude());
+                anchored = true;
+            }
+            waypointEast[i] = east(waypoint.longitude());
+            waypointNorth[i] = north(waypoint.latitude());
+        }
+    }
+
+    private void anchor(double latitude, double longitude) {
+        anchorLatitude = latitude;
+        anchorLongitude = longitude;
+        metersPerDegreeLongitude = Math.toRadians(1) * Math.cos(Math.toRadians(latitude)) * EARTH_RADIUS_METERS;
+    }
+
+    private double east(double longitude) {
+        return (longitude - anchorLongitude) * metersPerDegreeLongitude;
+    }
+
+    private double north(double latitude) {
+        return Math.toRadians(latitude - anchorLatitude) * EARTH_RADIUS_METERS;
+    }
+
+    public synchronized Waypoint getNextWaypoint() {
+        return nextIndex < waypoints.length ? waypoints[nextIndex++] : null;
+    }
+
+    public synchronized Waypoint peekNextWaypoint() {
+        return nextIndex < waypoints.length ? waypoints[nextIndex] : null;
     }
 
     public synchronized boolean hasNextWaypoint() {
-        return !waypointQueue.isEmpty();
+        return nextIndex < waypoints.length;
     }
 
     public synchronized int getWaypointCount() {
-        return waypointQueue.size();
+        return waypoints.length - nextIndex;
     }
 
-    public synchronized JSONObject getNextWaypointInLocalCoordinates() {
-        JSONObject globalWaypoint = getNextWaypoint();
-        if (globalWaypoint == null) return null;
+    /**
+     * Set the waypoint graph of the loaded map, or null when no map is loaded.
+     *
+     * @param mapId id of the map, checked against the map of the current pose
+     */
+    public synchronized void setRoutePlanner(String mapId, RoutePlanner planner) {
+        routeMapId = mapId;
+        routePlanner = planner;
+    }
 
-        JSONObject currentLocation = StatusManager.getInstance().getStatus().optJSONObject("location");
-        if (currentLocation == null) return globalWaypoint;
+    public synchronized RoutePlanner getRoutePlanner() {
+        return routePlanner;
+    }
 
-        try {
-            double lat1 = currentLocation.getDouble("latitude");
-            double lon1 = currentLocation.getDouble("longitude");
-            double lat2 = globalWaypoint.getDouble("lat");
-            double lon2 = globalWaypoint.getDouble("lng");
-            double bearing = currentLocation.getDouble("bearing"); // Current heading in degrees
+    /**
+     * Plan the shortest route along the map's waypoint connections from the waypoint nearest to
+     * the current pose to a goal waypoint. The queue is not changed.
+     *
+     * @return {"id", "x", "z"} waypoints in local coordinates from start to goal, or null if no map
+     *         is loaded, the pose is unknown or on another map, or the goal cannot be reached
+     */
+    public JSONArray planRouteTo(String goalId) {
+        RoutePlanner planner;
+        String mapId;
+        synchronized (this) {
+            planner = routePlanner;
+            mapId = routeMapId;
+        }
+        StatusSnapshot.LocalPose pose = StatusManager.getInstance().getSnapshot().pose();
+        if (planner == null || pose == null
+                || (mapId != null && pose.mapId() != null && !mapId.equals(pose.mapId()))) {
+            return null;
+        }
 
-            JSONObject localCoords = convertToLocalCoordinates(lat1, lon1, lat2, lon2, bearing);
-            return localCoords;
-        } catch (JSONException e) {
-            e.printStackTrace();
-            return globalWaypoint;
+        List<String> route = planner.findRouteFrom(pose.x(), pose.y(), pose.z(), goalId);
+        if (route == null) {
+            return null;
         }
+        JSONArray waypoints = new JSONArray();
+        for (String id : route) {
+            float[] position = planner.getPosition(id);
+            if (position == null) {
+                return null; // Graph edited since the route was planned
+            }
+            try {
+                waypoints.put(new JSONObject()
+                        .put("id", id)
+                        .put("x", position[0])
+                        .put("z", position[2]));
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+        }
+        return waypoints;
     }
 
-    public synchronized JSONObject peekNextWaypointInLocalCoordinates() {
-        JSONObject globalWaypoint = peekNextWaypoint();
-        if (globalWaypoint == null) return null;
+    public synchronized Waypoint getNextWaypointInLocalCoordinates() {
+        Waypoint waypoint = toLocalCoordinates(nextIndex);
+        if (waypoint != null) {
+            nextIndex++;
+        }
+        return waypoint;
+    }
 
-        JSONObject currentLocation = StatusManager.getInstance().getStatus().optJSONObject("location");
-        if (currentLocation == null) return globalWaypoint;
+    public synchronized Waypoint peekNextWaypointInLocalCoordinates() {
+        return toLocalCoordinates(nextIndex);
+    }
 
-        try {
-            double lat1 = currentLocation.getDouble("latitude");
-            double lon1 = currentLocation.getDouble("longitude");
-            double lat2 = globalWaypoint.getDouble("lat");
-            double lon2 = globalWaypoint.getDouble("lng");
-            double bearing = currentLocation.getDouble("bearing"); // Current heading in degrees
+    /**
+     * Position of the next waypoint in the local frame, without allocating: relative to the robot
+     * for GPS waypoints while there is a fix (+z ahead of it, +x to its right, as in the
+     * navigation frame), otherwise its local position.
+     *
+     * @param out Receives {x, z}
+     * @return false if there is no next waypoint or it has no usable position
+     */
+    public boolean peekNextLocalPosition(float[] out) {
+        return peekLocalPosition(0, out);
+    }
 
-            JSONObject localCoords = convertToLocalCoordinates(lat1, lon1, lat2, lon2, bearing);
-            return localCoords;
-        } catch (JSONException e) {
-            e.printStackTrace();
-            return globalWaypoint;
+    /**
+     * Position of a queued waypoint in the local frame, as in {@link #peekNextLocalPosition}.
+     *
+     * @param offset 0 for the next waypoint, 1 for the one after it, ...
+     * @param out Receives {x, z}
+     * @return false past the end of the queue or if the waypoint has no usable position
+     */
+    public synchronized boolean peekLocalPosition(int offset, float[] out) {
+        int index = nextIndex + offset;
+        if (index >= waypoints.length) {
+            return false;
+        }
+        Waypoint waypoint = waypoints[index];
+        if (waypoint.hasGeoPosition() && updateRobotTransform()) {
+            projectRelative(index, out);
+            return true;
         }
+        if (!waypoint.hasLocalPosition()) {
+            return false;
+        }
+        out[0] = waypoint.x();
+        out[1] = waypoint.z();
+        return true;
     }
 
-    private JSONObject convertToLocalCoordinates(double lat1, double lon1, double lat2, double lon2, double bearing) {
-        final double EARTH_RADIUS_METERS = 6371000.0;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-
-        // Compute the displacement in local East-North coordinates
-        double east = dLon * Math.cos(Math.toRadians((lat1 + lat2) / 2)) * EARTH_RADIUS_METERS;
-        double north = dLat * EARTH_RADIUS_METERS;
+    /**
+     * @return the waypoint at the index projected from its GPS position relative to the current
+     *         location, or unchanged if it has no GPS position or there is no location fix
+     */
+    private Waypoint toLocalCoordinates(int index) {
+        if (index >= waypoints.length) return null;
+        Waypoint globalWaypoint = waypoints[index];
+        if (!globalWaypoint.hasGeoPosition() || !updateRobotTransform()) return globalWaypoint;
 
-        // Convert from East-North to Left-Forward using bearing
-        double theta = Math.toRadians(bearing);
-        double x = -east * Math.sin(theta) + north * Math.cos(theta); // Left direction
-        double z = east * Math.cos(theta) + north * Math.sin(theta);  // Forward direction
+        float[] local = new float[2];
+        projectRelative(index, local);
+        return globalWaypoint.withLocalPosition(local[0], local[1]);
+    }
 
-        JSONObject localCoords = new JSONObject();
-        try {
-            localCoords.put("x", x); // Left
-            localCoords.put("z", z); // Forward
-        } catch (JSONException e) {
-            e.printStackTrace();
+    /**
+     * Move the robot within the mission frame if there is a new GPS fix.
+     *
+     * @return false if there is no fix
+     */
+    private boolean updateRobotTransform() {
+        StatusSnapshot.GeoLocation currentLocation = StatusManager.getInstance().getSnapshot().location();
+        if (currentLocation == null) return false;
+        if (currentLocation != projectedLocation) {
+            robotEast = east(currentLocation.longitude());
+            robotNorth = north(currentLocation.latitude());
+            double theta = Math.toRadians(currentLocation.bearing()); // Current heading in degrees
+            bearingSin = Math.sin(theta);
+            bearingCos = Math.cos(theta);
+            projectedLocation = currentLocation;
         }
-        return localCoords;
+        return true;
     }
-}
 
+    private void projectRelative(int index, float[] out) {
+        double east = waypointEast[index] - robotEast;
+        double north = waypointNorth[index] - robotNorth;
+
+        // Rotate East-North by the bearing, clockwise from north, into Right-Forward
+        out[0] = (float) (east * bearingCos - north * bearingSin); // Right, +x
+        out[1] = (float) (east * bearingSin + north * bearingCos); // Forward, +z
+    }
+}
@@ -0,0 +1,384 @@
+package com.satinavrobotics.satibot.navigation.controller;
+
+import com.satinavrobotics.satibot.navigation.NavigationPose;
+import com.satinavrobotics.satibot.navigation.NavigationUtils;
+
+import java.util.Locale;
+
+/**
+ * Pure pursuit path tracker. Follows the polyline through a sequence of waypoints by steering on
+ * the arc to a carrot point a lookahead distance further along the path, so corners are rounded
+ * and the robot passes through intermediate waypoints without stopping.
+ *
+ * The lookahead grows with speed. Speed is limited by the curvature of the arc (lateral
+ * acceleration), by braking distance to the coming corners, whose speed depends on how sharp
+ * they are, and by braking distance to the end of the path if the robot has to stop there. The
+ * robot only turns in place when the carrot point is behind it, e.g. at the start or at a
+ * hairpin.
+ *
+ * Progress along the path only moves forward, and never jumps further ahead than the maximum
+ * lookahead, so a path that doubles back is not cut short. Positions are in the local frame and
+ * bearings are positive to the right, as in {@link NavigationPose}. Commands are in the vehicle's normalized units, as in ControlCommand;
+ * setVehicleScale() maps them to m/s and rad/s.
+ *
+ * Does not allocate once the path buffers are large enough. Not thread-safe. Has no Android
+ * dependencies.
+ */
+public class PurePursuitController {
+    // Control period bounds, for the first tick and for stalls
+    private static final float MIN_PERIOD_SECONDS = 0.02f;
+    private static final float MAX_PERIOD_SECONDS = 0.2f;
+    // Carrot bearing beyond which the robot turns in place instead of driving an arc
+    private static final float TURN_IN_PLACE_BEARING = (float) (Math.PI / 2);
+    // Segments searched ahead of the current one when updating progress
+    private static final int PROGRESS_SEARCH_SEGMENTS = 2;
+
+    // Vehicle model
+    private float metersPerSecondPerUnit = 1.0f;
+    private float radiansPerSecondPerUnit = 2.0f;
+    private float maxLinear = 0.25f;
+    private float maxAngular = 0.75f;
+    private float linearAcceleration = 0.5f; // Units per second
+    private float angularAcceleration = 3.0f; // Units per second
+
+    // Tracking
+    private float minLookahead = 0.4f; // m
+    private float maxLookahead = 1.5f; // m
+    private float lookaheadSeconds = 1.0f; // Lookahead added per m/s of speed
+    private float maxLateralAcceleration = 0.5f; // m/s^2
+    private float deceleration = 0.5f; // m/s^2, for corners and the end of the path
+    private float turnGain = 1.5f; // Units per radian of carrot bearing, turning in place
+
+    // Path, with the length of each segment and the speed at each vertex
+    private float[] pathX = new float[0];
+    private float[] pathZ = new float[0];
+    private float[] segmentLength = new float[0];
+    private float[] vertexSpeed = new float[0];
+    private int pointCount = 0;
+    private boolean stopAtEnd = true;
+
+    // Progress: projection of the robot on segment [segment, segment + 1]
+    private int segment = 0;
+    private float segmentOffset = 0;
+    private float crossTrackError = 0;
+
+    // Previous command
+    private float linear = 0;
+    private float angular = 0;
+
+    // Diagnostics of the last update
+    private float lookaheadX = Float.NaN;
+    private float lookaheadZ = Float.NaN;
+    private float curvature = 0;
+    private boolean turningInPlace = false;
+
+    /**
+     * Replace the path, keeping the previous command so that moving on to the next part of a
+     * path does not restart from standstill. Call {@link #reset()} first to start from rest.
+     *
+     * @param x X of each point in meters, the first point is where the path starts
+     * @param z Z of each point in meters
+     * @param count Number of points, at least 1
+     * @param stopAtEnd Whether the robot has to stop at the last point, or the path goes on
+     */
+    public void setPath(float[] x, float[] z, int count, boolean stopAtEnd) {
+        if (pathX.length < count) {
+            pathX = new float[count];
+            pathZ = new float[count];
+            segmentLength = new float[count];
+            vertexSpeed = new float[count];
+        }
+        System.arraycopy(x, 0, pathX, 0, count);
+        System.arraycopy(z, 0, pathZ, 0, count);
+        pointCount = count;
+        this.stopAtEnd = stopAtEnd;
+        segment = 0;
+        segmentOffset = 0;
+        crossTrackError = 0;
+
+        for (int i = 0; i + 1 < count; i++) {
+            segmentLength[i] = (float) Math.hypot(pathX[i + 1] - pathX[i], pathZ[i + 1] - pathZ[i]);
+        }
+        updateVertexSpeeds();
+    }
+
+    /**
+     * Compute the next command for the pose.
+     *
+     * @param periodSeconds Time since the previous command
+     * @return false if there is no path, the command is then a stop
+     */
+    public boolean update(NavigationPose pose, float periodSeconds) {
+        if (pointCount == 0) {
+            linear = 0;
+            angular = 0;
+            return false;
+        }
+        float dt = Math.max(MIN_PERIOD_SECONDS, Math.min(MAX_PERIOD_SECONDS, periodSeconds));
+        updateProgress(pose.x(), pose.z());
+
+        float speed = linear * metersPerSecondPerUnit;
+        float lookahead = Math.max(minLookahead, Math.min(maxLookahead, minLookahead + lookaheadSeconds * speed));
+        findLookaheadPoint(lookahead);
+
+        float deltaX = lookaheadX - pose.x();
+        float deltaZ = lookaheadZ - pose.z();
+        float distanceSquared = deltaX * deltaX + deltaZ * deltaZ;
+        float bearing = NavigationUtils.normalizeAngle((float) Math.atan2(deltaX, deltaZ) - pose.yaw());
+
+        float targetLinear;
+        float targetAngular;
+        turningInPlace = Math.abs(bearing) > TURN_IN_PLACE_BEARING;
+        if (turningInPlace) {
+            curvature = 0;
+            targetLinear = 0;
+            targetAngular = Math.copySign(Math.min(maxAngular, turnGain * Math.abs(bearing)), bearing);
+        } else {
+            // Arc through the robot and the carrot point, tangent to the heading
+            float distance = (float) Math.sqrt(distanceSquared);
+            curvature = distance > 1e-3f ? 2 * (float) Math.sin(bearing) / distance : 0;
+            float speedLimit = Math.min(maxLinear * metersPerSecondPerUnit, speedLimitAhead());
+            if (Math.abs(curvature) > 1e-6f) {
+                speedLimit = Math.min(speedLimit, (float) Math.sqrt(maxLateralAcceleration / Math.abs(curvature)));
+            }
+            // Brake at once, accelerate gradually
+            targetLinear = Math.min(speedLimit / metersPerSecondPerUnit, linear + linearAcceleration * dt);
+            targetAngular = targetLinear * metersPerSecondPerUnit * curvature / radiansPerSecondPerUnit;
+            if (Math.abs(targetAngular) > maxAngular) {
+                // Keep the arc, slow down to turn it within the angular limit
+                targetLinear *= maxAngular / Math.abs(targetAngular);
+                targetAngular = Math.copySign(maxAngular, targetAngular);
+            }
+        }
+
+        linear = targetLinear;
+        angular = Math.max(angular - angularAcceleration * dt,
+                Math.min(angular + angularAcceleration * dt, targetAngular));
+        return true;
+    }
+
+    /**
+     * Forget the path and the previous command.
+     */
+    public void reset() {
+        pointCount = 0;
+        segment = 0;
+        segmentOffset = 0;
+        crossTrackError = 0;
+        linear = 0;
+        angular = 0;
+        lookaheadX = Float.NaN;
+        lookaheadZ = Float.NaN;
+        curvature = 0;
+        turningInPlace = false;
+    }
+
+    /**
+     * Move the projection of the robot forward along the path, to the closest point on the
+     * current or one of the next few segments.
+     */
+    private void updateProgress(float x, float z) {
+        if (pointCount == 1) {
+            crossTrackError = (float) Math.hypot(pathX[0] - x, pathZ[0] - z);
+            return;
+        }
+        float bestDistance = Float.MAX_VALUE;
+        int lastSegment = Math.min(segment + PROGRESS_SEARCH_SEGMENTS, pointCount - 2);
+        float skipped = -segmentOffset;
+        for (int i = segment; i <= lastSegment; i++) {
+            if (i > segment) {
+                skipped += segmentLength[i - 1];
+                if (skipped > maxLookahead) {
+                    break;
+                }
+            }
+            float length = segmentLength[i];
+            float directionX = length > 0 ? (pathX[i + 1] - pathX[i]) / length : 0;
+            float directionZ = length > 0 ? (pathZ[i + 1] - pathZ[i]) / length : 0;
+            float offsetX = x - pathX[i];
+            float offsetZ = z - pathZ[i];
+            float along = offsetX * directionX + offsetZ * directionZ;
+            if (i == segment) {
+                along = Math.max(along, segmentOffset);
+            }
+            along = Math.max(0, Math.min(length, along));
+            float closestX = pathX[i] + directionX * along;
+            float closestZ = pathZ[i] + directionZ * along;
+            float distance = (float) Math.hypot(x - closestX, z - closestZ);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                segment = i;
+                segmentOffset = along;
+                // Positive when the robot is to the right of the path
+                crossTrackError = Math.copySign(distance, offsetX * directionZ - offsetZ * directionX);
+            }
+        }
+        // Past the end of a segment the robot is on the next one
+        while (segment < pointCount - 2 && segmentOffset >= segmentLength[segment]) {
+            segment++;
+            segmentOffset = 0;
+        }
+    }
+
+    /**
+     * Walk the lookahead distance along the path from the projection of the robot.
+     */
+    private void findLookaheadPoint(float lookahead) {
+        float remaining = lookahead;
+        float offset = segmentOffset;
+        for (int i = segment; i + 1 < pointCount; i++) {
+            float length = segmentLength[i];
+            if (offset + remaining <= length) {
+                float t = length > 0 ? (offset + remaining) / length : 1;
+                lookaheadX = pathX[i] + (pathX[i + 1] - pathX[i]) * t;
+                lookaheadZ = pathZ[i] + (pathZ[i + 1] - pathZ[i]) * t;
+                return;
+            }
+            remaining -= length - offset;
+            offset = 0;
+        }
+        lookaheadX = pathX[pointCount - 1];
+        lookaheadZ = pathZ[pointCount - 1];
+    }
+
+    /**
+     * @return the highest speed in m/s from which the robot can still slow down for the coming
+     *         corners and, if it stops there, the end of the path
+     */
+    private float speedLimitAhead() {
+        float limit = Float.MAX_VALUE;
+        float distance = -segmentOffset;
+        for (int i = segment; i + 1 < pointCount; i++) {
+            distance += segmentLength[i];
+            float vertex = vertexSpeed[i + 1];
+            if (vertex < Float.MAX_VALUE) {
+                limit = Math.min(limit, (float) Math.sqrt(vertex * vertex + 2 * deceleration * Math.max(0, distance)));
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Speed through each vertex on the arc that rounds it at the minimum lookahead, zero at the
+     * end of the path if the robot stops there.
+     */
+    private void updateVertexSpeeds() {
+        for (int i = 0; i < pointCount; i++) {
+            vertexSpeed[i] = Float.MAX_VALUE;
+        }
+        for (int i = 1; i + 1 < pointCount; i++) {
+            if (segmentLength[i - 1] <= 0 || segmentLength[i] <= 0) {
+                continue;
+            }
+            float turn = Math.abs(NavigationUtils.normalizeAngle(
+                    (float) Math.atan2(pathX[i + 1] - pathX[i], pathZ[i + 1] - pathZ[i])
+                    - (float) Math.atan2(pathX[i] - pathX[i - 1], pathZ[i] - pathZ[i - 1])));
+            if (turn > 1e-3f) {
+                float radius = minLookahead / (2 * (float) Math.tan(Math.min(turn, Math.PI - 1e-3f) / 2));
+                vertexSpeed[i] = (float) Math.sqrt(maxLateralAcceleration * radius);
+            }
+        }
+        if (stopAtEnd && pointCount > 0) {
+            vertexSpeed[pointCount - 1] = 0;
+        }
+    }
+
+    /**
+     * @param metersPerSecond Speed of the vehicle at a linear command of 1
+     * @param radiansPerSecond Turn rate of the vehicle at an angular command of 1
+     */
+    public void setVehicleScale(float metersPerSecond, float radiansPerSecond) {
+        this.metersPerSecondPerUnit = metersPerSecond;
+        this.radiansPerSecondPerUnit = radiansPerSecond;
+    }
+
+    /**
+     * @param maxLinear Maximum linear command (0.0 to 1.0)
+     * @param maxAngular Maximum angular command (0.0 to 1.0)
+     */
+    public void setLimits(float maxLinear, float maxAngular) {
+        this.maxLinear = maxLinear;
+        this.maxAngular = maxAngular;
+    }
+
+    /**
+     * @param linear Linear command change per second when speeding up
+     * @param angular Angular command change per second
+     */
+    public void setAccelerationLimits(float linear, float angular) {
+        this.linearAcceleration = linear;
+        this.angularAcceleration = angular;
+    }
+
+    /**
+     * @param min Lookahead at standstill in meters, also the radius corners are planned with
+     * @param max Maximum lookahead in meters
+     * @param seconds Lookahead added per m/s of speed
+     */
+    public void setLookahead(float min, float max, float seconds) {
+        this.minLookahead = min;
+        this.maxLookahead = Math.max(min, max);
+        this.lookaheadSeconds = seconds;
+        updateVertexSpeeds();
+    }
+
+    /**
+     * @param lateral Maximum lateral acceleration on arcs in m/s^2
+     * @param deceleration Deceleration for corners and the end of the path in m/s^2
+     */
+    public void setAccelerations(float lateral, float deceleration) {
+        this.maxLateralAcceleration = lateral;
+        this.deceleration = deceleration;
+        updateVertexSpeeds();
+    }
+
+    public float getLinear() {
+        return linear;
+    }
+
+    public float getAngular() {
+        return angular;
+    }
+
+    /**
+     * @return index of the segment the robot is on; once it is on segment i it has passed
+     *         point i
+     */
+    public int getSegmentIndex() {
+        return segment;
+    }
+
+    /**
+     * @return distance from the path in meters, positive to the right of it
+     */
+    public float getCrossTrackError() {
+        return crossTrackError;
+    }
+
+    /**
+     * @return curvature of the last arc in 1/m, positive to the right
+     */
+    public float getCurvature() {
+        return curvature;
+    }
+
+    public boolean isTurningInPlace() {
+        return turningInPlace;
+    }
+
+    public float getLookaheadX() {
+        return lookaheadX;
+    }
+
+    public float getLookaheadZ() {
+        return lookaheadZ;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "PurePursuit(segment=%d/%d, crossTrack=%.2f m, curvature=%.2f, linear=%.2f, angular=%.2f%s)",
+                segment, Math.max(0, pointCount - 1), crossTrackError, curvature, linear, angular,
+                turningInPlace ? ", turning in place" : "");
+    }
+}
@@ -0,0 +1,43 @@
+package com.satinavrobotics.satibot.navigation.estimation;
+
+/**
+ * Immutable planar pose snapshot produced by {@link PoseEstimator}.
+ * Uses the ARCore local frame: +X right, -Z forward, yaw around +Y in radians
+ * (same convention as NavigationUtils.getYawFromQuaternion).
+ *
+ * @param x X position in meters
+ * @param z Z position in meters
+ * @param yaw Yaw angle in radians, normalized to [-PI, PI]
+ * @param positionVariance Sum of the x/z variances of the estimate in m^2
+ * @param timestampNanos Monotonic timestamp of the estimate in nanoseconds
+ * @param visualTimestampNanos Timestamp of the last applied ARCore correction, 0 if none
+ */
+public record PoseEstimate(
+        float x,
+        float z,
+        float yaw,
+        float positionVariance,
+        long timestampNanos,
+        long visualTimestampNanos) {
+
+    /**
+     * Check whether the estimate has been corrected by ARCore recently
+     *
+     * @param nowNanos Current monotonic time in nanoseconds
+     * @param maxAgeNanos Maximum allowed age of the last ARCore correction
+     * @return true if an ARCore correction was applied within maxAgeNanos
+     */
+    public boolean isVisuallyTracked(long nowNanos, long maxAgeNanos) {
+        return visualTimestampNanos > 0 && nowNanos - visualTimestampNanos <= maxAgeNanos;
+    }
+
+    /**
+     * Get the rotation of this estimate as a pure yaw quaternion
+     *
+     * @return Quaternion array [x, y, z, w]
+     */
+    public float[] getRotationQuaternion() {
+        float halfYaw = yaw * 0.5f;
+        return new float[]{0.0f, (float) Math.sin(halfYaw), 0.0f, (float) Math.cos(halfYaw)};
+    }
+}
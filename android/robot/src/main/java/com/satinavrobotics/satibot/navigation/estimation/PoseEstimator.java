@@ -0,0 +1,413 @@
+package com.satinavrobotics.satibot.navigation.estimation;
+
+import com.satinavrobotics.satibot.navigation.NavigationUtils;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Planar extended Kalman filter that predicts the robot pose from wheel encoder counts ('c') and
+ * fused angular velocity ('k') at telemetry rate, and corrects it with ARCore poses whenever
+ * tracking is available. This gives navigation a pose between camera frames and keeps it moving
+ * (with growing uncertainty) while ARCore tracking is lost.
+ *
+ * State is [x, z, yaw] in the ARCore local frame (+X right, -Z forward). All timestamps are
+ * System.nanoTime() values, the clock the navigation control loop runs on. The class has no Android
+ * or ARCore dependencies, so logged telemetry can be replayed through it on a plain JVM.
+ */
+public class PoseEstimator {
+
+    /**
+     * Interface for receiving pose estimates after every prediction or correction step
+     */
+    public interface Listener {
+        void onPoseEstimate(PoseEstimate estimate);
+    }
+
+    // Wheel geometry, matches firmware/satibot/src/Sensors.cpp
+    public static final float DEFAULT_WHEEL_DIAMETER_METERS = 0.16f;
+    public static final int DEFAULT_PULSES_PER_REVOLUTION = 30;
+
+    // Prediction steps longer than this are treated as a telemetry gap
+    private static final long MAX_PREDICTION_STEP_NANOS = 500_000_000L;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    // Odometry configuration
+    private float metersPerPulse;
+    private float angularVelocitySign = 1.0f;
+
+    // Noise parameters (standard deviations)
+    private float distanceNoiseRatio = 0.1f;  // Fraction of travelled distance
+    private float yawRateNoise = 0.05f;       // rad/s
+    private float visualPositionNoise = 0.05f; // m
+    private float visualYawNoise = 0.035f;    // rad (~2 degrees)
+    private float initialPositionNoise = 1.0f; // m, used before the first ARCore correction
+
+    // Filter state
+    private double x;
+    private double z;
+    private double yaw;
+    private final double[] covariance = new double[9];
+    private boolean propagating = false;
+    private long lastPredictionNanos;
+    private long lastVisualNanos;
+
+    // Telemetry bookkeeping
+    private float angularVelocity;
+    private int lastLeftCount = -1;
+    private int lastRightCount = -1;
+    private float lastLeftDirection = 1.0f;
+    private float lastRightDirection = 1.0f;
+
+    // Scratch matrices to keep the filter allocation-free
+    private final double[] jacobian = new double[9];
+    private final double[] scratch = new double[9];
+    private final double[] gain = new double[9];
+
+    private volatile PoseEstimate latestEstimate;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public PoseEstimator() {
+        setWheelGeometry(DEFAULT_WHEEL_DIAMETER_METERS, DEFAULT_PULSES_PER_REVOLUTION);
+        reset();
+    }
+
+    /**
+     * Reset the filter to the origin with a large position uncertainty
+     */
+    public synchronized void reset() {
+        x = 0.0;
+        z = 0.0;
+        yaw = 0.0;
+        setDiagonal(covariance, initialPositionNoise * initialPositionNoise,
+                initialPositionNoise * initialPositionNoise, Math.PI * Math.PI);
+        propagating = false;
+        lastPredictionNanos = 0;
+        lastVisualNanos = 0;
+        angularVelocity = 0.0f;
+        lastLeftCount = -1;
+        lastRightCount = -1;
+        lastLeftDirection = 1.0f;
+        lastRightDirection = 1.0f;
+        latestEstimate = null;
+    }
+
+    /**
+     * Update the angular velocity used for yaw prediction
+     *
+     * @param timestampNanos Monotonic receive time in nanoseconds
+     * @param angularVelocity Angular velocity in rad/s as reported by the firmware
+     */
+    public void onAngularVelocity(long timestampNanos, float angularVelocity) {
+        PoseEstimate estimate;
+        synchronized (this) {
+            propagate(timestampNanos, 0.0);
+            this.angularVelocity = angularVelocity * angularVelocitySign;
+            estimate = publish(timestampNanos);
+        }
+        notifyListeners(estimate);
+    }
+
+    /**
+     * Update the filter with wheel encoder counts. The firmware reports unsigned pulse counts that
+     * accumulate within a window and reset to zero, so the travelled distance is the increase since
+     * the previous message (or the new count after a reset). The counts carry no direction, so
+     * each wheel's pulses are signed with the direction it was commanded to turn; when the robot
+     * turns in place the wheels turn in opposite directions and their distances cancel out.
+     *
+     * @param timestampNanos Monotonic receive time in nanoseconds
+     * @param leftCount Left wheel pulse count
+     * @param rightCount Right wheel pulse count
+     * @param leftDirection Commanded direction of the left wheel (positive = forward, 0 = unknown)
+     * @param rightDirection Commanded direction of the right wheel (positive = forward, 0 = unknown)
+     */
+    public void onWheelCounts(long timestampNanos, int leftCount, int rightCount,
+                              float leftDirection, float rightDirection) {
+        PoseEstimate estimate;
+        synchronized (this) {
+            int leftDelta = countDelta(leftCount, lastLeftCount);
+            int rightDelta = countDelta(rightCount, lastRightCount);
+            lastLeftCount = leftCount;
+            lastRightCount = rightCount;
+
+            // An unknown direction keeps the last one, the wheels may still be coasting
+            if (leftDirection != 0.0f) {
+                lastLeftDirection = Math.signum(leftDirection);
+            }
+            if (rightDirection != 0.0f) {
+                lastRightDirection = Math.signum(rightDirection);
+            }
+            double distance = (leftDelta * lastLeftDirection + rightDelta * lastRightDirection)
+                    * 0.5 * metersPerPulse;
+
+            propagate(timestampNanos, distance);
+            estimate = publish(timestampNanos);
+        }
+        notifyListeners(estimate);
+    }
+
+    /**
+     * Direction the firmware turns the left wheel for a control command. It drives both wheels in
+     * the direction of the linear velocity, or turns in place with the wheels in opposite
+     * directions when there is none; positive angular turns the right wheel forward.
+     *
+     * @return 1 forward, -1 backward, 0 when the wheel is not driven
+     */
+    public static float leftWheelDirection(float linear, float angular) {
+        return linear != 0.0f ? Math.signum(linear) : -Math.signum(angular);
+    }
+
+    /**
+     * @see #leftWheelDirection(float, float)
+     */
+    public static float rightWheelDirection(float linear, float angular) {
+        return linear != 0.0f ? Math.signum(linear) : Math.signum(angular);
+    }
+
+    /**
+     * Correct the filter with an ARCore pose in the local frame
+     *
+     * @param timestampNanos Monotonic time of the pose in nanoseconds
+     * @param poseX Measured X position in meters
+     * @param poseZ Measured Z position in meters
+     * @param poseYaw Measured yaw in radians
+     */
+    public void onVisualPose(long timestampNanos, float poseX, float poseZ, float poseYaw) {
+        PoseEstimate estimate;
+        synchronized (this) {
+            double positionVariance = visualPositionNoise * visualPositionNoise;
+            double yawVariance = visualYawNoise * visualYawNoise;
+
+            if (lastVisualNanos == 0) {
+                // First correction defines the frame, adopt the measurement directly
+                x = poseX;
+                z = poseZ;
+                yaw = NavigationUtils.normalizeAngle(poseYaw);
+                setDiagonal(covariance, positionVariance, positionVariance, yawVariance);
+            } else {
+                applyCorrection(poseX, poseZ, poseYaw, positionVariance, yawVariance);
+            }
+
+            lastVisualNanos = timestampNanos;
+            if (timestampNanos > lastPredictionNanos) {
+                lastPredictionNanos = timestampNanos;
+                propagating = true;
+            }
+            estimate = publish(Math.max(timestampNanos, lastPredictionNanos));
+        }
+        notifyListeners(estimate);
+    }
+
+    /**
+     * Get the most recent pose estimate
+     *
+     * @return Latest estimate, or null if no data has been processed since the last reset
+     */
+    public PoseEstimate getEstimate() {
+        return latestEstimate;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Configuration methods
+    public synchronized void setWheelGeometry(float wheelDiameterMeters, int pulsesPerRevolution) {
+        this.metersPerPulse = (float) (Math.PI * wheelDiameterMeters / pulsesPerRevolution);
+    }
+
+    public synchronized void setAngularVelocitySign(float sign) {
+        this.angularVelocitySign = sign < 0 ? -1.0f : 1.0f;
+    }
+
+    public synchronized void setDistanceNoiseRatio(float ratio) {
+        this.distanceNoiseRatio = ratio;
+    }
+
+    public synchronized void setYawRateNoise(float noise) {
+        this.yawRateNoise = noise;
+    }
+
+    public synchronized void setVisualPositionNoise(float noise) {
+        this.visualPositionNoise = noise;
+    }
+
+    public synchronized void setVisualYawNoise(float noise) {
+        this.visualYawNoise = noise;
+    }
+
+    /**
+     * Propagate the state by the travelled distance and the current angular velocity
+     */
+    private void propagate(long timestampNanos, double distance) {
+        if (!propagating) {
+            propagating = true;
+            lastPredictionNanos = timestampNanos;
+            return;
+        }
+
+        long stepNanos = timestampNanos - lastPredictionNanos;
+        if (stepNanos < 0) {
+            return; // Out-of-order sample, already covered by a newer prediction
+        }
+        stepNanos = Math.min(stepNanos, MAX_PREDICTION_STEP_NANOS);
+        double dt = stepNanos / NANOS_PER_SECOND;
+        lastPredictionNanos = timestampNanos;
+
+        double deltaYaw = angularVelocity * dt;
+        double midYaw = yaw + deltaYaw * 0.5;
+        double sin = Math.sin(midYaw);
+        double cos = Math.cos(midYaw);
+
+        // Forward is -Z, so a positive distance moves along (-sin, -cos)
+        x -= distance * sin;
+        z -= distance * cos;
+        yaw = NavigationUtils.normalizeAngle((float) (yaw + deltaYaw));
+
+        // P = F P F^T + Q
+        setDiagonal(jacobian, 1.0, 1.0, 1.0);
+        jacobian[2] = -distance * cos;
+        jacobian[5] = distance * sin;
+        multiply(jacobian, covariance, scratch);
+        multiplyTransposed(scratch, jacobian, covariance);
+
+        double distanceSigma = distanceNoiseRatio * Math.abs(distance);
+        double distanceVariance = distanceSigma * distanceSigma;
+        double yawSigma = yawRateNoise * dt;
+        covariance[0] += distanceVariance * sin * sin;
+        covariance[1] += distanceVariance * sin * cos;
+        covariance[3] += distanceVariance * sin * cos;
+        covariance[4] += distanceVariance * cos * cos;
+        covariance[8] += yawSigma * yawSigma;
+    }
+
+    /**
+     * Standard Kalman update with H = I
+     */
+    private void applyCorrection(float poseX, float poseZ, float poseYaw,
+                                 double positionVariance, double yawVariance) {
+        // S = P + R, stored in scratch, then inverted in place
+        System.arraycopy(covariance, 0, scratch, 0, 9);
+        scratch[0] += positionVariance;
+        scratch[4] += positionVariance;
+        scratch[8] += yawVariance;
+        if (!invert(scratch)) {
+            return;
+        }
+
+        // K = P S^-1
+        multiply(covariance, scratch, gain);
+
+        double innovationX = poseX - x;
+        double innovationZ = poseZ - z;
+        double innovationYaw = NavigationUtils.normalizeAngle((float) (poseYaw - yaw));
+
+        x += gain[0] * innovationX + gain[1] * innovationZ + gain[2] * innovationYaw;
+        z += gain[3] * innovationX + gain[4] * innovationZ + gain[5] * innovationYaw;
+        yaw = NavigationUtils.normalizeAngle(
+                (float) (yaw + gain[6] * innovationX + gain[7] * innovationZ + gain[8] * innovationYaw));
+
+        // P = (I - K) P
+        for (int i = 0; i < 9; i++) {
+            gain[i] = -gain[i];
+        }
+        gain[0] += 1.0;
+        gain[4] += 1.0;
+        gain[8] += 1.0;
+        multiply(gain, covariance, scratch);
+
+        // Keep the covariance symmetric against rounding drift
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                covariance[row * 3 + col] = 0.5 * (scratch[row * 3 + col] + scratch[col * 3 + row]);
+            }
+        }
+    }
+
+    private PoseEstimate publish(long timestampNanos) {
+        PoseEstimate estimate = new PoseEstimate((float) x, (float) z, (float) yaw,
+                (float) (covariance[0] + covariance[4]), timestampNanos, lastVisualNanos);
+        latestEstimate = estimate;
+        return estimate;
+    }
+
+    private void notifyListeners(PoseEstimate estimate) {
+        for (Listener listener : listeners) {
+            listener.onPoseEstimate(estimate);
+        }
+    }
+
+    private static int countDelta(int count, int lastCount) {
+        if (lastCount < 0) {
+            return 0;
+        }
+        return count >= lastCount ? count - lastCount : count;
+    }
+
+    private static void setDiagonal(double[] matrix, double a, double b, double c) {
+        for (int i = 0; i < 9; i++) {
+            matrix[i] = 0.0;
+        }
+        matrix[0] = a;
+        matrix[4] = b;
+        matrix[8] = c;
+    }
+
+    /**
+     * out = a * b for row-major 3x3 matrices
+     */
+    private static void multiply(double[] a, double[] b, double[] out) {
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                out[row * 3 + col] = a[row * 3] * b[col]
+                        + a[row * 3 + 1] * b[3 + col]
+                        + a[row * 3 + 2] * b[6 + col];
+            }
+        }
+    }
+
+    /**
+     * out = a * b^T for row-major 3x3 matrices
+     */
+    private static void multiplyTransposed(double[] a, double[] b, double[] out) {
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                out[row * 3 + col] = a[row * 3] * b[col * 3]
+                        + a[row * 3 + 1] * b[col * 3 + 1]
+                        + a[row * 3 + 2] * b[col * 3 + 2];
+            }
+        }
+    }
+
+    /**
+     * Invert a 3x3 matrix in place using the adjugate
+     *
+     * @return false if the matrix is singular
+     */
+    private boolean invert(double[] m) {
+        double c00 = m[4] * m[8] - m[5] * m[7];
+        double c01 = m[5] * m[6] - m[3] * m[8];
+        double c02 = m[3] * m[7] - m[4] * m[6];
+        double determinant = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (Math.abs(determinant) < 1e-12) {
+            return false;
+        }
+        double inv = 1.0 / determinant;
+        double r0 = c00 * inv;
+        double r1 = (m[2] * m[7] - m[1] * m[8]) * inv;
+        double r2 = (m[1] * m[5] - m[2] * m[4]) * inv;
+        double r3 = c01 * inv;
+        double r4 = (m[0] * m[8] - m[2] * m[6]) * inv;
+        double r5 = (m[2] * m[3] - m[0] * m[5]) * inv;
+        double r6 = c02 * inv;
+        double r7 = (m[1] * m[6] - m[0] * m[7]) * inv;
+        double r8 = (m[0] * m[4] - m[1] * m[3]) * inv;
+        m[0] = r0; m[1] = r1; m[2] = r2;
+        m[3] = r3; m[4] = r4; m[5] = r5;
+        m[6] = r6; m[7] = r7; m[8] = r8;
+        return true;
+    }
+}
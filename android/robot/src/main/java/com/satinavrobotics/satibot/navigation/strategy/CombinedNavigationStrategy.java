@@ -1,31 +1,33 @@
 package com.satinavrobotics.satibot.navigation.strategy;
 
-import com.google.ar.core.Pose;
 import com.satinavrobotics.satibot.navigation.ControlCommand;
 import com.satinavrobotics.satibot.navigation.NavigationContext;
-import com.satinavrobotics.satibot.navigation.NavigationUtils;
-
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.satinavrobotics.satibot.navigation.NavigationPose;
 
 import timber.log.Timber;
 
 /**
  * Combined navigation strategy that integrates waypoint following with obstacle avoidance.
- * This strategy provides the highest priority and most sophisticated navigation behavior.
+ * While the path is clear it tracks the path through the waypoints with a
+ * {@link PathTrackingStrategy}, so the robot drives through intermediate waypoints; when the
+ * path is blocked it steers around the obstacle with an {@link ObstacleAvoidanceStrategy} and
+ * tracks the path again from rest afterwards.
  */
 public class CombinedNavigationStrategy implements NavigationStrategy {
     private static final String TAG = CombinedNavigationStrategy.class.getSimpleName();
     
     // Delegate strategies
-    private final WaypointFollowingStrategy waypointStrategy;
+    private final PathTrackingStrategy pathStrategy;
     private final ObstacleAvoidanceStrategy obstacleStrategy;
+
+    // Whether the last command came from obstacle avoidance
+    private boolean avoiding = false;
     
     // Navigation parameters
     private static final float OBSTACLE_DETECTION_THRESHOLD = 0.3f; // Threshold for switching to obstacle avoidance
     
     public CombinedNavigationStrategy() {
-        this.waypointStrategy = new WaypointFollowingStrategy();
+        this.pathStrategy = new PathTrackingStrategy();
         this.obstacleStrategy = new ObstacleAvoidanceStrategy();
         
         // Configure obstacle avoidance for integration with waypoint following
@@ -40,29 +42,41 @@ public class CombinedNavigationStrategy implements NavigationStrategy {
         if (needsObstacleAvoidance(context)) {
             // Update target heading for obstacle avoidance based on waypoint direction
             updateTargetHeadingFromWaypoint(context);
+            if (!avoiding) {
+                // The detour leaves the path, start tracking it again from rest afterwards
+                pathStrategy.reset();
+                avoiding = true;
+            }
             
             // Use obstacle avoidance with waypoint-informed heading
             ControlCommand obstacleCommand = obstacleStrategy.calculateControl(context);
             Timber.d("CombinedStrategy: Using obstacle avoidance - %s", obstacleCommand);
             return obstacleCommand;
         } else {
-            // Use waypoint following when path is clear
-            ControlCommand waypointCommand = waypointStrategy.calculateControl(context);
-            Timber.d("CombinedStrategy: Using waypoint following - %s", waypointCommand);
-            return waypointCommand;
+            // Track the path through the waypoints when it is clear
+            avoiding = false;
+            ControlCommand pathCommand = pathStrategy.calculateControl(context);
+            Timber.d("CombinedStrategy: Using path tracking - %s", pathCommand);
+            return pathCommand;
         }
     }
     
     @Override
     public boolean isComplete(NavigationContext context) {
-        // Complete when waypoint following is complete
-        return waypointStrategy.isComplete(context);
+        // Complete when path tracking is complete, i.e. the robot reached or passed the waypoint
+        return pathStrategy.isComplete(context);
+    }
+    
+    @Override
+    public Completion getCompletion() {
+        return Completion.WAYPOINT_REACHED;
     }
     
     @Override
     public void reset() {
-        waypointStrategy.reset();
+        pathStrategy.reset();
         obstacleStrategy.reset();
+        avoiding = false;
         Timber.d("CombinedNavigationStrategy reset");
     }
     
@@ -73,8 +87,8 @@ public class CombinedNavigationStrategy implements NavigationStrategy {
     
     @Override
     public boolean canHandle(NavigationContext context) {
-        // Can handle when waypoint following can handle (has waypoint and appropriate state)
-        return waypointStrategy.canHandle(context);
+        // Can handle when path tracking can handle (has waypoint and appropriate state)
+        return pathStrategy.canHandle(context);
     }
     
     @Override
@@ -118,56 +132,28 @@ public class CombinedNavigationStrategy implements NavigationStrategy {
      * Update the target heading in the context based on the current waypoint direction
      */
     private void updateTargetHeadingFromWaypoint(NavigationContext context) {
-        JSONObject waypoint = context.getTargetWaypoint();
-        Pose currentPose = context.getCurrentPose();
+        NavigationPose currentPose = context.getCurrentPose();
         
-        if (waypoint == null || currentPose == null) {
+        if (!context.hasTargetPosition() || currentPose == null) {
             context.setTargetHeading(0.0f); // Default to forward
             return;
         }
         
-        try {
-            // Calculate direction to waypoint
-            float waypointX = (float) waypoint.getDouble("x");
-            float waypointZ = (float) waypoint.getDouble("z");
-            
-            float[] translation = new float[3];
-            currentPose.getTranslation(translation, 0);
-            float currentX = translation[0];
-            float currentZ = translation[2];
-            
-            float deltaX = waypointX - currentX;
-            float deltaZ = waypointZ - currentZ;
-            
-            // Calculate angle to waypoint
-            float targetAngle = (float) Math.atan2(deltaX, deltaZ);
-            
-            // Get current yaw
-            float[] quaternion = new float[4];
-            currentPose.getRotationQuaternion(quaternion, 0);
-            float currentYaw = (float) Math.atan2(2.0f * (quaternion[3] * quaternion[1] + quaternion[0] * quaternion[2]),
-                                                 1.0f - 2.0f * (quaternion[1] * quaternion[1] + quaternion[2] * quaternion[2]));
-            
-            // Calculate relative heading (normalized to [-PI, PI])
-            float relativeHeading = NavigationUtils.normalizeAngle(targetAngle - currentYaw);
-            
-            // Set target heading for obstacle avoidance
-            context.setTargetHeading(relativeHeading);
-            
-            Timber.d("Updated target heading for obstacle avoidance: %.1f degrees", 
-                    Math.toDegrees(relativeHeading));
-            
-        } catch (JSONException e) {
-            Timber.e(e, "Error calculating target heading from waypoint");
-            context.setTargetHeading(0.0f); // Default to forward
-        }
+        // Relative heading to the waypoint, normalized to [-PI, PI]
+        float relativeHeading = context.getHeadingToTarget();
+        
+        // Set target heading for obstacle avoidance
+        context.setTargetHeading(relativeHeading);
+        
+        Timber.d("Updated target heading for obstacle avoidance: %.1f degrees", 
+                Math.toDegrees(relativeHeading));
     }
     
     /**
-     * Get the waypoint following strategy for configuration
+     * Get the path tracking strategy for configuration
      */
-    public WaypointFollowingStrategy getWaypointStrategy() {
-        return waypointStrategy;
+    public PathTrackingStrategy getPathStrategy() {
+        return pathStrategy;
     }
     
     /**
@@ -0,0 +1,517 @@
+package com.satinavrobotics.satibot.navigation.strategy;
+
+import com.satinavrobotics.satibot.navigation.OccupancyGrid;
+
+/**
+ * Dynamic window approach local planner. Each call samples (linear, angular) command pairs
+ * reachable from the previous command within the acceleration limits, simulates each as an arc
+ * over a short horizon against a distance field of the occupancy grid, and picks the admissible
+ * pair with the best weighted score of progress to the goal, heading, clearance and speed.
+ *
+ * A pair is admissible if no point of its arc comes closer to an obstacle than the robot radius,
+ * or than the robot already is, so a robot that got too close can still turn or back off.
+ * Progress is measured on a navigation function, the obstacle-aware distance to the goal over
+ * the window around the robot, so the robot goes around walls instead of stalling in front of
+ * them, and heading is scored against the direction in which that distance falls fastest. If the
+ * goal cannot be reached within the window the robot stops.
+ *
+ * Commands are in the vehicle's normalized units, as in ControlCommand; setVehicleScale() maps
+ * them to m/s and rad/s for the simulation. The goal is given in the robot frame, and angular
+ * velocity and bearings are positive to the right, taken from the occupancy grid's window as in
+ * OccupancyGrid.getClearanceAhead() and NavigationPose.headingTo().
+ *
+ * Buffers are sized for the grid resolution on first use, after which planning does not allocate.
+ * Not thread-safe. Has no Android dependencies.
+ */
+public class DynamicWindowPlanner {
+    private static final int LINEAR_SAMPLES = 9;
+    private static final int ANGULAR_SAMPLES = 41;
+    private static final float SIM_STEP_SECONDS = 0.1f;
+    // Edge of the window centred on the robot, must cover the horizon
+    private static final float WINDOW_METERS = 4.0f;
+    // Clearance beyond this is not told apart
+    private static final float CLEARANCE_CAP_METERS = 1.0f;
+    // Control period bounds, for the first tick and for stalls
+    private static final float MIN_PERIOD_SECONDS = 0.02f;
+    private static final float MAX_PERIOD_SECONDS = 0.2f;
+    private static final float SQRT2 = (float) Math.sqrt(2);
+    private static final float UNREACHABLE = Float.POSITIVE_INFINITY;
+    // Cost per meter on the navigation function right at the robot radius, on top of 1, falling
+    // linearly to 0 at the safety margin beyond it
+    private static final float INFLATION_COST = 3.0f;
+
+    // Vehicle model
+    private float metersPerSecondPerUnit = 1.0f;
+    private float radiansPerSecondPerUnit = 2.0f;
+    private float maxLinear = 0.25f;
+    private float maxAngular = 0.75f;
+    private float linearAcceleration = 0.5f; // Units per second
+    private float angularAcceleration = 3.0f; // Units per second
+    private float goalDeceleration = 0.5f; // m/s^2, caps the speed approaching the goal
+    private float robotRadius = 0.25f;
+    // Clearance beyond the robot radius from which arcs are no longer penalized
+    private float safetyMargin = 0.15f;
+    private float horizonSeconds = 1.5f;
+
+    // Score weights
+    private float progressWeight = 1.0f;
+    private float headingWeight = 0.3f;
+    private float clearanceWeight = 0.3f;
+    private float velocityWeight = 0.1f;
+
+    // Previous command, the centre of the dynamic window
+    private float linear = 0;
+    private float angular = 0;
+
+    // Distance and navigation fields over the window around the robot, sized on first use
+    private float resolution = 0;
+    private int cells = 0;
+    private boolean[] occupied = new boolean[0];
+    private float[] distance = new float[0];
+    private float[] navigation = new float[0];
+    private float[] stepCost = new float[0];
+    private final float[] frame = new float[8];
+    private final float[] gradient = new float[2];
+
+    // Statistics of the last plan
+    private int evaluated = 0;
+    private int admissible = 0;
+    private float bestScore = Float.NaN;
+
+    /**
+     * Choose the next command.
+     *
+     * @param goalForward Goal distance ahead of the robot in meters
+     * @param goalRight Goal distance to the right of the robot in meters
+     * @param periodSeconds Time since the previous command
+     * @return true if an admissible command was found, otherwise the command is a stop
+     */
+    public boolean plan(float goalForward, float goalRight, OccupancyGrid grid, float periodSeconds) {
+        buildDistanceField(grid);
+        float sensorX = frame[2];
+        float sensorZ = frame[3];
+        float startClearance = clearanceAt(sensorX, sensorZ);
+        float collisionDistance = Math.min(robotRadius, startClearance);
+        buildNavigationField(sensorX + goalForward * frame[4] + goalRight * frame[6],
+                sensorZ + goalForward * frame[5] + goalRight * frame[7], collisionDistance);
+        float startNavigation = navigationAt(sensorX, sensorZ);
+
+        evaluated = 0;
+        admissible = 0;
+        if (startNavigation == UNREACHABLE) {
+            return stop();
+        }
+
+        float dt = Math.max(MIN_PERIOD_SECONDS, Math.min(MAX_PERIOD_SECONDS, periodSeconds));
+        float goalDistance = (float) Math.sqrt(goalForward * goalForward + goalRight * goalRight);
+        float approachLimit = (float) Math.sqrt(2 * goalDeceleration * goalDistance) / metersPerSecondPerUnit;
+        float minLinear = Math.max(0, linear - linearAcceleration * dt);
+        float maxLinearNow = Math.max(minLinear,
+                Math.min(Math.min(maxLinear, approachLimit), linear + linearAcceleration * dt));
+        float minAngular = Math.max(-maxAngular, angular - angularAcceleration * dt);
+        float maxAngularNow = Math.min(maxAngular, angular + angularAcceleration * dt);
+
+        int steps = Math.max(1, Math.round(horizonSeconds / SIM_STEP_SECONDS));
+        float bestLinear = 0;
+        float bestAngular = 0;
+        bestScore = Float.NEGATIVE_INFINITY;
+
+        int linearSamples = maxLinearNow - minLinear > 1e-6f ? LINEAR_SAMPLES : 1;
+        int angularSamples = maxAngularNow - minAngular > 1e-6f ? ANGULAR_SAMPLES : 1;
+        for (int li = 0; li < linearSamples; li++) {
+            float v = linearSamples == 1 ? minLinear
+                    : minLinear + (maxLinearNow - minLinear) * li / (linearSamples - 1);
+            for (int ai = 0; ai < angularSamples; ai++) {
+                float w = angularSamples == 1 ? minAngular
+                        : minAngular + (maxAngularNow - minAngular) * ai / (angularSamples - 1);
+                evaluated++;
+                float score = scoreArc(v, w, steps, goalForward, goalRight, collisionDistance,
+                        startNavigation);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestLinear = v;
+                    bestAngular = w;
+                }
+            }
+        }
+
+        if (admissible == 0) {
+            return stop();
+        }
+        linear = bestLinear;
+        angular = bestAngular;
+        return true;
+    }
+
+    private boolean stop() {
+        linear = 0;
+        angular = 0;
+        bestScore = Float.NaN;
+        return false;
+    }
+
+    /**
+     * @return the weighted score of the arc, or negative infinity if it is not admissible
+     */
+    private float scoreArc(float v, float w, int steps, float goalForward, float goalRight,
+                           float collisionDistance, float startNavigation) {
+        float speed = v * metersPerSecondPerUnit;
+        float turnRate = w * radiansPerSecondPerUnit;
+        float sensorX = frame[2];
+        float sensorZ = frame[3];
+        float forwardX = frame[4];
+        float forwardZ = frame[5];
+        float rightX = frame[6];
+        float rightZ = frame[7];
+
+        // Robot frame: x forward, y right, heading positive to the right. The heading's cosine and
+        // sine are rotated by a fixed step rather than recomputed.
+        float stepCos = (float) Math.cos(turnRate * SIM_STEP_SECONDS);
+        float stepSin = (float) Math.sin(turnRate * SIM_STEP_SECONDS);
+        float cos = 1;
+        float sin = 0;
+        float x = 0;
+        float y = 0;
+        float minClearance = CLEARANCE_CAP_METERS;
+        for (int step = 0; step < steps; step++) {
+            x += speed * cos * SIM_STEP_SECONDS;
+            y += speed * sin * SIM_STEP_SECONDS;
+            float rotatedCos = cos * stepCos - sin * stepSin;
+            sin = sin * stepCos + cos * stepSin;
+            cos = rotatedCos;
+            if (speed == 0 && step > 0) {
+                continue; // Turning in place stays where the first step was checked
+            }
+            float clearance = clearanceAt(sensorX + x * forwardX + y * rightX,
+                    sensorZ + x * forwardZ + y * rightZ);
+            if (clearance < collisionDistance) {
+                return Float.NEGATIVE_INFINITY;
+            }
+            minClearance = Math.min(minClearance, clearance);
+        }
+        admissible++;
+
+        float endX = sensorX + x * forwardX + y * rightX;
+        float endZ = sensorZ + x * forwardZ + y * rightZ;
+        float endNavigation = navigationAt(endX, endZ);
+        float maxTravel = maxLinear * metersPerSecondPerUnit * horizonSeconds;
+        float progressScore = endNavigation == UNREACHABLE || maxTravel <= 0 ? -1
+                : Math.max(-1, Math.min(1, (startNavigation - endNavigation) / maxTravel));
+
+        // Descent direction of the navigation function in the robot frame, the goal's direction
+        // where it is flat
+        float bearing;
+        if (navigationGradient(endX, endZ)) {
+            bearing = (float) Math.atan2(-gradient[0] * rightX - gradient[1] * rightZ,
+                    -gradient[0] * forwardX - gradient[1] * forwardZ);
+        } else {
+            bearing = (float) Math.atan2(goalRight - y, goalForward - x);
+        }
+        float heading = turnRate * SIM_STEP_SECONDS * steps;
+        float headingError = bearing - heading;
+        headingError = (float) Math.abs(Math.IEEEremainder(headingError, 2 * Math.PI));
+        float headingScore = 1 - headingError / (float) Math.PI;
+        float clearanceScore = safetyMargin > 0
+                ? Math.max(0, Math.min(1, (minClearance - collisionDistance) / safetyMargin)) : 1;
+        float velocityScore = maxLinear > 0 ? v / maxLinear : 0;
+        return progressWeight * progressScore + headingWeight * headingScore
+                + clearanceWeight * clearanceScore + velocityWeight * velocityScore;
+    }
+
+    /**
+     * Copy the window around the robot from the grid and compute the distance from each cell to
+     * the closest occupied one with a two-pass chamfer transform, weights 1 and sqrt(2).
+     */
+    private void buildDistanceField(OccupancyGrid grid) {
+        if (grid.getResolution() != resolution) {
+            resolution = grid.getResolution();
+            cells = Math.max(3, (int) Math.ceil(WINDOW_METERS / resolution));
+            occupied = new boolean[cells * cells];
+            distance = new float[cells * cells];
+            navigation = new float[cells * cells];
+            stepCost = new float[cells * cells];
+        }
+        grid.copyWindow(cells, occupied, frame);
+
+        float far = CLEARANCE_CAP_METERS / resolution + 1;
+        for (int i = 0; i < distance.length; i++) {
+            distance[i] = occupied[i] ? 0 : far;
+        }
+        for (int a = 0; a < cells; a++) {
+            for (int b = 0; b < cells; b++) {
+                int i = a * cells + b;
+                float d = distance[i];
+                if (a > 0) {
+                    d = Math.min(d, distance[i - cells] + 1);
+                    if (b > 0) d = Math.min(d, distance[i - cells - 1] + SQRT2);
+                    if (b < cells - 1) d = Math.min(d, distance[i - cells + 1] + SQRT2);
+                }
+                if (b > 0) d = Math.min(d, distance[i - 1] + 1);
+                distance[i] = d;
+            }
+        }
+        for (int a = cells - 1; a >= 0; a--) {
+            for (int b = cells - 1; b >= 0; b--) {
+                int i = a * cells + b;
+                float d = distance[i];
+                if (a < cells - 1) {
+                    d = Math.min(d, distance[i + cells] + 1);
+                    if (b > 0) d = Math.min(d, distance[i + cells - 1] + SQRT2);
+                    if (b < cells - 1) d = Math.min(d, distance[i + cells + 1] + SQRT2);
+                }
+                if (b < cells - 1) d = Math.min(d, distance[i + 1] + 1);
+                distance[i] = d;
+            }
+        }
+    }
+
+    /**
+     * Compute the navigation function, the cost of the shortest 8-connected path from each cell to
+     * the goal through cells with at least the given clearance. A step costs its length, more
+     * close to obstacles so paths keep the safety margin. A goal outside the window is reached
+     * through the window's border, each border cell starting with its straight distance to the
+     * goal. Repeats chamfer sweeps until nothing changes, once or twice in the open and a few times
+     * around obstacles.
+     */
+    private void buildNavigationField(float goalX, float goalZ, float passableClearance) {
+        float passable = passableClearance / resolution;
+        float band = safetyMargin;
+        for (int i = 0; i < navigation.length; i++) {
+            navigation[i] = UNREACHABLE;
+            float clearance = distance[i] * resolution;
+            float inflation = band > 0 ? Math.max(0, (robotRadius + band - clearance) / band) : 0;
+            stepCost[i] = resolution * (1 + INFLATION_COST * inflation);
+        }
+        int goalA = (int) Math.floor((goalX - frame[0]) / resolution);
+        int goalB = (int) Math.floor((goalZ - frame[1]) / resolution);
+        if (goalA >= 0 && goalB >= 0 && goalA < cells && goalB < cells) {
+            // Seeded even when blocked, so a goal next to a wall can still be approached
+            navigation[goalA * cells + goalB] = 0;
+        } else {
+            for (int a = 0; a < cells; a++) {
+                for (int b = 0; b < cells; b++) {
+                    if (a > 0 && a < cells - 1 && b > 0 && b < cells - 1) {
+                        b = cells - 2; // Skip the interior
+                        continue;
+                    }
+                    int i = a * cells + b;
+                    if (distance[i] >= passable) {
+                        float dx = goalX - (frame[0] + (a + 0.5f) * resolution);
+                        float dz = goalZ - (frame[1] + (b + 0.5f) * resolution);
+                        navigation[i] = (float) Math.sqrt(dx * dx + dz * dz);
+                    }
+                }
+            }
+        }
+
+        for (int sweep = 0; sweep < cells; sweep++) {
+            boolean changed = false;
+            for (int a = 0; a < cells; a++) {
+                for (int b = 0; b < cells; b++) {
+                    int i = a * cells + b;
+                    if (distance[i] < passable) {
+                        continue;
+                    }
+                    float straight = stepCost[i];
+                    float diagonal = SQRT2 * straight;
+                    float d = navigation[i];
+                    if (a > 0) {
+                        d = Math.min(d, navigation[i - cells] + straight);
+                        if (b > 0) d = Math.min(d, navigation[i - cells - 1] + diagonal);
+                        if (b < cells - 1) d = Math.min(d, navigation[i - cells + 1] + diagonal);
+                    }
+                    if (b > 0) d = Math.min(d, navigation[i - 1] + straight);
+                    if (d < navigation[i]) {
+                        navigation[i] = d;
+                        changed = true;
+                    }
+                }
+            }
+            for (int a = cells - 1; a >= 0; a--) {
+                for (int b = cells - 1; b >= 0; b--) {
+                    int i = a * cells + b;
+                    if (distance[i] < passable) {
+                        continue;
+                    }
+                    float straight = stepCost[i];
+                    float diagonal = SQRT2 * straight;
+                    float d = navigation[i];
+                    if (a < cells - 1) {
+                        d = Math.min(d, navigation[i + cells] + straight);
+                        if (b > 0) d = Math.min(d, navigation[i + cells - 1] + diagonal);
+                        if (b < cells - 1) d = Math.min(d, navigation[i + cells + 1] + diagonal);
+                    }
+                    if (b < cells - 1) d = Math.min(d, navigation[i + 1] + straight);
+                    if (d < navigation[i]) {
+                        navigation[i] = d;
+                        changed = true;
+                    }
+                }
+            }
+            if (!changed) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Central difference of the navigation function around the cell of the world position, one
+     * sided next to unreachable cells, into {@link #gradient}.
+     *
+     * @return false if the function is flat or unreachable there
+     */
+    private boolean navigationGradient(float x, float z) {
+        int a = (int) Math.floor((x - frame[0]) / resolution);
+        int b = (int) Math.floor((z - frame[1]) / resolution);
+        if (a < 1 || b < 1 || a >= cells - 1 || b >= cells - 1) {
+            return false;
+        }
+        int i = a * cells + b;
+        float centre = navigation[i];
+        if (centre == UNREACHABLE) {
+            return false;
+        }
+        gradient[0] = difference(navigation[i - cells], centre, navigation[i + cells]);
+        gradient[1] = difference(navigation[i - 1], centre, navigation[i + 1]);
+        return gradient[0] != 0 || gradient[1] != 0;
+    }
+
+    private static float difference(float before, float centre, float after) {
+        if (before == UNREACHABLE) {
+            return after == UNREACHABLE ? 0 : after - centre;
+        }
+        if (after == UNREACHABLE) {
+            return centre - before;
+        }
+        return (after - before) / 2;
+    }
+
+    /**
+     * @return the navigation function at the world position, interpolated between cell centres
+     *         where all four neighbours are reachable
+     */
+    private float navigationAt(float x, float z) {
+        float u = (x - frame[0]) / resolution - 0.5f;
+        float v = (z - frame[1]) / resolution - 0.5f;
+        int a = (int) Math.floor(u);
+        int b = (int) Math.floor(v);
+        if (a >= 0 && b >= 0 && a < cells - 1 && b < cells - 1) {
+            int i = a * cells + b;
+            float n00 = navigation[i];
+            float n01 = navigation[i + 1];
+            float n10 = navigation[i + cells];
+            float n11 = navigation[i + cells + 1];
+            if (n00 != UNREACHABLE && n01 != UNREACHABLE && n10 != UNREACHABLE && n11 != UNREACHABLE) {
+                float fu = u - a;
+                float fv = v - b;
+                return (n00 * (1 - fv) + n01 * fv) * (1 - fu) + (n10 * (1 - fv) + n11 * fv) * fu;
+            }
+        }
+        a = (int) Math.floor((x - frame[0]) / resolution);
+        b = (int) Math.floor((z - frame[1]) / resolution);
+        if (a < 0 || b < 0 || a >= cells || b >= cells) {
+            return UNREACHABLE;
+        }
+        return navigation[a * cells + b];
+    }
+
+    /**
+     * @return meters from the world position to the closest occupied cell, capped, and the cap
+     *         outside the window
+     */
+    private float clearanceAt(float x, float z) {
+        int a = (int) Math.floor((x - frame[0]) / resolution);
+        int b = (int) Math.floor((z - frame[1]) / resolution);
+        if (a < 0 || b < 0 || a >= cells || b >= cells) {
+            return CLEARANCE_CAP_METERS;
+        }
+        return Math.min(CLEARANCE_CAP_METERS, distance[a * cells + b] * resolution);
+    }
+
+    /**
+     * Forget the previous command, e.g. after the vehicle was stopped by something else.
+     */
+    public void reset() {
+        linear = 0;
+        angular = 0;
+    }
+
+    /**
+     * @return linear command chosen by the last plan
+     */
+    public float getLinear() {
+        return linear;
+    }
+
+    /**
+     * @return angular command chosen by the last plan, positive to the right
+     */
+    public float getAngular() {
+        return angular;
+    }
+
+    public int getEvaluatedCount() {
+        return evaluated;
+    }
+
+    public int getAdmissibleCount() {
+        return admissible;
+    }
+
+    public float getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * @param metersPerSecond Speed of a linear command of 1
+     * @param radiansPerSecond Turn rate of an angular command of 1
+     */
+    public void setVehicleScale(float metersPerSecond, float radiansPerSecond) {
+        this.metersPerSecondPerUnit = metersPerSecond;
+        this.radiansPerSecondPerUnit = radiansPerSecond;
+    }
+
+    /**
+     * @param maxLinear Largest linear command, the planner does not reverse
+     * @param maxAngular Largest angular command magnitude
+     */
+    public void setLimits(float maxLinear, float maxAngular) {
+        this.maxLinear = maxLinear;
+        this.maxAngular = maxAngular;
+    }
+
+    /**
+     * @param linear Linear command change per second
+     * @param angular Angular command change per second
+     */
+    public void setAccelerationLimits(float linear, float angular) {
+        this.linearAcceleration = linear;
+        this.angularAcceleration = angular;
+    }
+
+    /**
+     * @param robotRadius Closest an arc may come to an obstacle
+     * @param safetyMargin Clearance beyond the radius from which arcs are no longer penalized
+     */
+    public void setRobotRadius(float robotRadius, float safetyMargin) {
+        this.robotRadius = robotRadius;
+        this.safetyMargin = safetyMargin;
+    }
+
+    public void setHorizonSeconds(float horizonSeconds) {
+        this.horizonSeconds = horizonSeconds;
+    }
+
+    public void setWeights(float progress, float heading, float clearance, float velocity) {
+        this.progressWeight = progress;
+        this.headingWeight = heading;
+        this.clearanceWeight = clearance;
+        this.velocityWeight = velocity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DynamicWindowPlanner{linear=%.3f, angular=%.3f, admissible=%d/%d, score=%.3f}",
+                linear, angular, admissible, evaluated, bestScore);
+    }
+}
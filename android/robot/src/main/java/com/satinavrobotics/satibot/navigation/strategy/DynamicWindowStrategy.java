@@ -0,0 +1,99 @@
+package com.satinavrobotics.satibot.navigation.strategy;
+
+import com.satinavrobotics.satibot.navigation.ControlCommand;
+import com.satinavrobotics.satibot.navigation.NavigationContext;
+import com.satinavrobotics.satibot.navigation.NavigationPose;
+import com.satinavrobotics.satibot.navigation.OccupancyGrid;
+
+import timber.log.Timber;
+
+/**
+ * Navigation strategy that drives to the target waypoint with a {@link DynamicWindowPlanner}
+ * over the occupancy grid, turning and avoiding obstacles in one smooth motion instead of
+ * switching between turning, moving and avoiding.
+ *
+ * Only handles navigation while an occupancy grid is available; with a higher priority than
+ * CombinedNavigationStrategy it takes over whenever it can, and the latter remains the fallback.
+ */
+public class DynamicWindowStrategy implements NavigationStrategy {
+    private static final String TAG = DynamicWindowStrategy.class.getSimpleName();
+
+    private final DynamicWindowPlanner planner = new DynamicWindowPlanner();
+
+    @Override
+    public ControlCommand calculateControl(NavigationContext context) {
+        NavigationPose currentPose = context.getCurrentPose();
+        OccupancyGrid grid = context.getOccupancyGrid();
+
+        if (!context.hasTargetPosition() || currentPose == null || grid == null) {
+            Timber.w("Missing waypoint, pose or occupancy grid");
+            return ControlCommand.stop();
+        }
+
+        float distanceToWaypoint = context.getDistanceToTarget();
+        if (distanceToWaypoint < context.getPositionThresholdMeters()) {
+            Timber.d("Waypoint reached (distance: %.2f m)", distanceToWaypoint);
+            planner.reset();
+            return ControlCommand.stop();
+        }
+
+        float angleDifference = context.getHeadingToTarget();
+        planner.setLimits(context.getMaxLinearSpeed(), context.getMaxAngularSpeed());
+        boolean found = planner.plan(distanceToWaypoint * (float) Math.cos(angleDifference),
+                distanceToWaypoint * (float) Math.sin(angleDifference), grid,
+                context.getDeltaTimeSeconds());
+        if (!found) {
+            Timber.w("No admissible motion, stopping (%s)", planner);
+            return ControlCommand.stop();
+        }
+
+        context.setCurrentState(NavigationContext.NavigationState.MOVING);
+        Timber.d("DWA: distance = %.2f m, heading error = %.1f degrees, %s",
+                distanceToWaypoint, Math.toDegrees(angleDifference), planner);
+        return new ControlCommand(planner.getLinear(), planner.getAngular());
+    }
+
+    @Override
+    public boolean isComplete(NavigationContext context) {
+        NavigationPose currentPose = context.getCurrentPose();
+
+        if (!context.hasTargetPosition() || currentPose == null) {
+            return false;
+        }
+
+        return context.getDistanceToTarget() < context.getPositionThresholdMeters();
+    }
+
+    @Override
+    public Completion getCompletion() {
+        return Completion.WAYPOINT_REACHED;
+    }
+
+    @Override
+    public void reset() {
+        planner.reset();
+        Timber.d("DynamicWindowStrategy reset");
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "DWA Waypoint Following";
+    }
+
+    @Override
+    public boolean canHandle(NavigationContext context) {
+        return context.getTargetWaypoint() != null && context.getOccupancyGrid() != null &&
+               (context.getCurrentState() == NavigationContext.NavigationState.TURNING ||
+                context.getCurrentState() == NavigationContext.NavigationState.MOVING);
+    }
+
+    @Override
+    public int getPriority() {
+        // Above CombinedNavigationStrategy, which takes over without an occupancy grid
+        return 110;
+    }
+
+    public DynamicWindowPlanner getPlanner() {
+        return planner;
+    }
+}
@@ -9,6 +9,14 @@ import com.satinavrobotics.satibot.navigation.NavigationContext;
  */
 public interface NavigationStrategy {
     
+    /**
+     * What it means for navigation when a strategy completes
+     */
+    enum Completion {
+        WAYPOINT_REACHED,   // The target waypoint was reached, navigation moves on to the next one
+        FINISHED            // The strategy's own objective was met, the target waypoint stays
+    }
+    
     /**
      * Calculate the control command based on the current navigation context
      * 
@@ -25,6 +33,15 @@ public interface NavigationStrategy {
      */
     boolean isComplete(NavigationContext context);
     
+    /**
+     * Get what completing means for this strategy, see {@link #isComplete}
+     * 
+     * @return Completion type, FINISHED unless overridden
+     */
+    default Completion getCompletion() {
+        return Completion.FINISHED;
+    }
+    
     /**
      * Reset the strategy state (e.g., clear derivative terms, reset internal state)
      * Should be called when starting a new navigation task or switching strategies
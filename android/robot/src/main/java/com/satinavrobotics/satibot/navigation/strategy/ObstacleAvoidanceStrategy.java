@@ -2,6 +2,7 @@ package com.satinavrobotics.satibot.navigation.strategy;
 
 import com.satinavrobotics.satibot.navigation.ControlCommand;
 import com.satinavrobotics.satibot.navigation.NavigationContext;
+import com.satinavrobotics.satibot.navigation.OccupancyGrid;
 
 import timber.log.Timber;
 
@@ -16,6 +17,12 @@ public class ObstacleAvoidanceStrategy implements NavigationStrategy {
     private static final float MAX_LINEAR_SPEED = 0.25f;
     private static final float MAX_ANGULAR_SPEED = 0.75f;
     
+    // Occupancy grid lookahead: clearance is measured up to this distance, straight ahead and
+    // SIDE_BEARING to either side, and the robot stops when less than STOP_CLEARANCE is left
+    private static final float GRID_LOOKAHEAD_METERS = 1.5f;
+    private static final float SIDE_BEARING_RADIANS = 0.5f;
+    private static final float STOP_CLEARANCE_METERS = 0.3f;
+    
     // Cost-based navigation parameters
     private float traversabilityCostWeight = 3.0f;
     private float headingDeviationCostWeight = 1.0f;
@@ -47,6 +54,18 @@ public class ObstacleAvoidanceStrategy implements NavigationStrategy {
         // Calculate linear speed based on navigability
         float linearSpeed = calculateLinearSpeed(navigableRowsCount, navigabilityData.length);
         
+        // Slow down for obstacles remembered on the grid, including those out of view
+        OccupancyGrid grid = context.getOccupancyGrid();
+        if (grid != null) {
+            float clearance = grid.getClearanceAhead(0.0f, GRID_LOOKAHEAD_METERS);
+            if (clearance < STOP_CLEARANCE_METERS) {
+                Timber.d("Occupancy grid clearance %.2f m, stopping", clearance);
+                linearSpeed = 0.0f;
+            } else {
+                linearSpeed *= clearance / GRID_LOOKAHEAD_METERS;
+            }
+        }
+        
         // Calculate angular speed based on cost-based navigation or simple logic
         float angularSpeed = calculateAngularSpeed(context);
         
@@ -122,9 +141,10 @@ public class ObstacleAvoidanceStrategy implements NavigationStrategy {
         }
         
         // Calculate costs for each direction
-        float leftCost = calculateDirectionCost(leftMap, -1.0f, context.getTargetHeading());
-        float centerCost = calculateDirectionCost(centerMap, 0.0f, context.getTargetHeading());
-        float rightCost = calculateDirectionCost(rightMap, 1.0f, context.getTargetHeading());
+        OccupancyGrid grid = context.getOccupancyGrid();
+        float leftCost = calculateDirectionCost(leftMap, -1.0f, context.getTargetHeading(), grid);
+        float centerCost = calculateDirectionCost(centerMap, 0.0f, context.getTargetHeading(), grid);
+        float rightCost = calculateDirectionCost(rightMap, 1.0f, context.getTargetHeading(), grid);
         
         // Find the direction with minimum cost
         float minCost = Math.min(leftCost, Math.min(centerCost, rightCost));
@@ -149,8 +169,11 @@ public class ObstacleAvoidanceStrategy implements NavigationStrategy {
     
     /**
      * Calculate cost for a specific direction
+     *
+     * @param grid Occupancy grid adding the cost of remembered obstacles, or null
      */
-    private float calculateDirectionCost(boolean[] navigabilityMap, float direction, float targetHeading) {
+    private float calculateDirectionCost(boolean[] navigabilityMap, float direction, float targetHeading,
+                                         OccupancyGrid grid) {
         if (navigabilityMap == null) {
             return Float.MAX_VALUE;
         }
@@ -163,6 +186,10 @@ public class ObstacleAvoidanceStrategy implements NavigationStrategy {
             }
         }
         float traversabilityCost = (float) obstacleCount / navigabilityMap.length * traversabilityCostWeight;
+        if (grid != null) {
+            float clearance = grid.getClearanceAhead(direction * SIDE_BEARING_RADIANS, GRID_LOOKAHEAD_METERS);
+            traversabilityCost += (1.0f - clearance / GRID_LOOKAHEAD_METERS) * traversabilityCostWeight;
+        }
         
         // Calculate heading deviation cost (higher cost for deviating from target)
         float headingDeviation = Math.abs(direction - targetHeading);
@@ -226,9 +253,10 @@ public class ObstacleAvoidanceStrategy implements NavigationStrategy {
             return null;
         }
         
-        float leftCost = calculateDirectionCost(leftMap, -1.0f, context.getTargetHeading());
-        float centerCost = calculateDirectionCost(centerMap, 0.0f, context.getTargetHeading());
-        float rightCost = calculateDirectionCost(rightMap, 1.0f, context.getTargetHeading());
+        OccupancyGrid grid = context.getOccupancyGrid();
+        float leftCost = calculateDirectionCost(leftMap, -1.0f, context.getTargetHeading(), grid);
+        float centerCost = calculateDirectionCost(centerMap, 0.0f, context.getTargetHeading(), grid);
+        float rightCost = calculateDirectionCost(rightMap, 1.0f, context.getTargetHeading(), grid);
         
         return new float[]{leftCost, centerCost, rightCost};
     }
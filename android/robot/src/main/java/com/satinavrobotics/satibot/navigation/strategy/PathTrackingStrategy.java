@@ -0,0 +1,162 @@
+package com.satinavrobotics.satibot.navigation.strategy;
+
+import com.satinavrobotics.satibot.navigation.ControlCommand;
+import com.satinavrobotics.satibot.navigation.NavigationContext;
+import com.satinavrobotics.satibot.navigation.NavigationPose;
+import com.satinavrobotics.satibot.navigation.Waypoint;
+import com.satinavrobotics.satibot.navigation.controller.PurePursuitController;
+
+import timber.log.Timber;
+
+/**
+ * Navigation strategy that tracks the path from the previous waypoint through the target and the
+ * following waypoints with a {@link PurePursuitController}, instead of turning in place towards
+ * each waypoint. An intermediate waypoint counts as reached as soon as the robot is on the
+ * segment after it, so the robot drives through it; it only stops at the last waypoint.
+ *
+ * When the controller moves on to the next waypoint, the path is extended from the waypoint just
+ * passed and the current speed is kept. After taking over from another strategy the path starts
+ * from rest.
+ */
+public class PathTrackingStrategy implements NavigationStrategy {
+    private static final String TAG = PathTrackingStrategy.class.getSimpleName();
+
+    private final PurePursuitController tracker = new PurePursuitController();
+
+    // Path buffers: start, target and up to all the following waypoints
+    private float[] pathX = new float[4];
+    private float[] pathZ = new float[4];
+
+    // Target the tracker's path was built for, and whether it has to be rebuilt after a reset
+    private Waypoint trackedTarget;
+    private boolean pathStale = true;
+
+    @Override
+    public ControlCommand calculateControl(NavigationContext context) {
+        Waypoint waypoint = context.getTargetWaypoint();
+        NavigationPose currentPose = context.getCurrentPose();
+
+        if (waypoint == null || !context.hasTargetPosition() || currentPose == null) {
+            Timber.w("Missing waypoint or pose data");
+            return ControlCommand.stop();
+        }
+
+        float distanceToWaypoint = context.getDistanceToTarget();
+        if (distanceToWaypoint < context.getPositionThresholdMeters()) {
+            Timber.d("Waypoint reached (distance: %.2f m)", distanceToWaypoint);
+            return ControlCommand.stop(); // Strategy will be marked as complete
+        }
+
+        if (pathStale || waypoint != trackedTarget) {
+            loadPath(context, currentPose);
+        }
+        tracker.setLimits(context.getMaxLinearSpeed(), context.getMaxAngularSpeed());
+        if (!tracker.update(currentPose, context.getDeltaTimeSeconds())) {
+            return ControlCommand.stop();
+        }
+
+        context.setCurrentState(tracker.isTurningInPlace()
+                ? NavigationContext.NavigationState.TURNING : NavigationContext.NavigationState.MOVING);
+        Timber.d("Path tracking: distance = %.2f m, %s", distanceToWaypoint, tracker);
+        return ControlCommand.move(tracker.getLinear(), tracker.getAngular());
+    }
+
+    /**
+     * Build the path start, target, following waypoints. The start is the waypoint just passed if
+     * there is one, otherwise the robot's position.
+     */
+    private void loadPath(NavigationContext context, NavigationPose currentPose) {
+        Waypoint target = context.getTargetWaypoint();
+        int followingCount = context.getFollowingCount();
+        boolean continuing = trackedTarget != null
+                && context.getPreviousWaypoint() == trackedTarget;
+        if (!continuing) {
+            tracker.reset();
+        }
+
+        int capacity = 2 + followingCount;
+        if (pathX.length < capacity) {
+            pathX = new float[capacity];
+            pathZ = new float[capacity];
+        }
+        int count = 0;
+        if (context.hasPreviousPosition()) {
+            pathX[count] = context.getPreviousX();
+            pathZ[count++] = context.getPreviousZ();
+        } else {
+            pathX[count] = currentPose.x();
+            pathZ[count++] = currentPose.z();
+        }
+        pathX[count] = context.getTargetX();
+        pathZ[count++] = context.getTargetZ();
+        boolean complete = true;
+        for (int i = 0; i < followingCount; i++) {
+            float x = context.getFollowingX(i);
+            float z = context.getFollowingZ(i);
+            if (Float.isNaN(x) || Float.isNaN(z)) {
+                complete = false;
+                break;
+            }
+            pathX[count] = x;
+            pathZ[count++] = z;
+        }
+        // Stop at the end unless the mission goes on past the waypoints we know about
+        boolean lastWaypointIncluded = context.getCurrentWaypointIndex() + followingCount
+                >= context.getTotalWaypointCount();
+        tracker.setPath(pathX, pathZ, count, !complete || lastWaypointIncluded);
+
+        trackedTarget = target;
+        pathStale = false;
+        Timber.d("Tracking path through %d waypoints (%s)", count - 1,
+                continuing ? "continuing" : "from rest");
+    }
+
+    @Override
+    public boolean isComplete(NavigationContext context) {
+        Waypoint waypoint = context.getTargetWaypoint();
+        NavigationPose currentPose = context.getCurrentPose();
+
+        if (waypoint == null || !context.hasTargetPosition() || currentPose == null) {
+            return false;
+        }
+        if (context.getDistanceToTarget() < context.getPositionThresholdMeters()) {
+            return true;
+        }
+        // On the segment after the target, i.e. past it
+        return !pathStale && waypoint == trackedTarget && tracker.getSegmentIndex() >= 1;
+    }
+
+    @Override
+    public Completion getCompletion() {
+        return Completion.WAYPOINT_REACHED;
+    }
+
+    @Override
+    public void reset() {
+        // Keep the tracker until the path is rebuilt, to tell moving on from starting over
+        pathStale = true;
+        Timber.d("PathTrackingStrategy reset");
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "Path Tracking Waypoint Following";
+    }
+
+    @Override
+    public boolean canHandle(NavigationContext context) {
+        return context.getTargetWaypoint() != null &&
+               (context.getCurrentState() == NavigationContext.NavigationState.TURNING ||
+                context.getCurrentState() == NavigationContext.NavigationState.MOVING);
+    }
+
+    @Override
+    public int getPriority() {
+        // Above WaypointFollowingStrategy, below the obstacle-aware strategies
+        return 90;
+    }
+
+    public PurePursuitController getTracker() {
+        return tracker;
+    }
+}
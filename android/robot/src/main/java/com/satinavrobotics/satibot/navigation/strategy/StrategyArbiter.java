@@ -0,0 +1,356 @@
+package com.satinavrobotics.satibot.navigation.strategy;
+
+import com.satinavrobotics.satibot.navigation.ControlCommand;
+import com.satinavrobotics.satibot.navigation.NavigationContext;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+import timber.log.Timber;
+
+/**
+ * Decides which navigation strategy drives on each control tick.
+ *
+ * Strategies are sorted by priority once, when they are added; ties go to the one added first.
+ * Each tick, the highest priority strategy that can handle the context is preferred and the scan
+ * stops there. A strategy that is preferred over the active one only takes over after it has been
+ * preferred for a number of consecutive ticks and the active one has been active for a minimum
+ * time, so two strategies whose canHandle() flickers do not thrash. If the active strategy can no
+ * longer handle the context it is replaced at once. Only a strategy that becomes active is reset.
+ *
+ * With a blend weight set on the active strategy, its command is averaged with the commands of
+ * the other strategies that have a blend weight and can handle the context, weighted by their
+ * weights. Blended strategies compute a command every tick and may update the context like the
+ * active one, so only blend strategies that do not stop the robot for safety.
+ *
+ * The last {@link #TRACE_CAPACITY} ticks are kept in a trace of which strategy won and why,
+ * reported with the switch counters by {@link #toJson()}. Recording does not allocate.
+ * Not thread-safe.
+ */
+public class StrategyArbiter {
+    private static final String TAG = StrategyArbiter.class.getSimpleName();
+
+    public static final int TRACE_CAPACITY = 256;
+
+    /**
+     * Why the active strategy was chosen on a tick
+     */
+    public enum Reason {
+        NONE,       // No strategy can handle the context
+        STARTED,    // No strategy was active before
+        KEPT,       // The active strategy is still the preferred one
+        HELD,       // A higher priority strategy is preferred, the active one is kept for now
+        PREFERRED,  // A higher priority strategy has been preferred for long enough and took over
+        FALLBACK    // The active strategy could no longer handle the context and was replaced
+    }
+
+    private static final class Entry {
+        final NavigationStrategy strategy;
+        final int priority;
+        final int order;
+        float blendWeight;
+
+        Entry(NavigationStrategy strategy, int order) {
+            this.strategy = strategy;
+            this.priority = strategy.getPriority();
+            this.order = order;
+        }
+    }
+
+    // Registered strategies, highest priority first
+    private Entry[] entries = new Entry[0];
+    private int registrations = 0;
+
+    // Hysteresis
+    private int switchTicks = 3;
+    private long minDwellNanos = 250_000_000L;
+
+    // Arbitration state
+    private Entry active;
+    private long activeSinceNanos;
+    private Entry challenger;
+    private int challengerTicks;
+
+    // Counters
+    private long ticks = 0;
+    private long switches = 0;
+    private long heldTicks = 0;
+    private long blendedTicks = 0;
+    private long completions = 0;
+
+    // Trace ring buffer, one row per tick
+    private final long[] traceNanos = new long[TRACE_CAPACITY];
+    private final NavigationStrategy[] traceActive = new NavigationStrategy[TRACE_CAPACITY];
+    private final NavigationStrategy[] traceChallenger = new NavigationStrategy[TRACE_CAPACITY];
+    private final Reason[] traceReason = new Reason[TRACE_CAPACITY];
+    private final float[] traceLinear = new float[TRACE_CAPACITY];
+    private final float[] traceAngular = new float[TRACE_CAPACITY];
+    private final int[] traceBlended = new int[TRACE_CAPACITY];
+    private final NavigationStrategy.Completion[] traceCompletion =
+            new NavigationStrategy.Completion[TRACE_CAPACITY];
+    private int traceHead = -1;
+    private int traceSize = 0;
+
+    /**
+     * Register a strategy. Its priority is read once, here.
+     */
+    public void add(NavigationStrategy strategy) {
+        Entry[] grown = Arrays.copyOf(entries, entries.length + 1);
+        grown[entries.length] = new Entry(strategy, registrations++);
+        Arrays.sort(grown, (a, b) -> a.priority != b.priority
+                ? Integer.compare(b.priority, a.priority) : Integer.compare(a.order, b.order));
+        entries = grown;
+    }
+
+    public void remove(NavigationStrategy strategy) {
+        Entry entry = find(strategy);
+        if (entry == null) {
+            return;
+        }
+        Entry[] shrunk = new Entry[entries.length - 1];
+        int n = 0;
+        for (Entry e : entries) {
+            if (e != entry) {
+                shrunk[n++] = e;
+            }
+        }
+        entries = shrunk;
+        if (active == entry) {
+            active = null;
+        }
+        if (challenger == entry) {
+            challenger = null;
+        }
+    }
+
+    /**
+     * @param weight Weight of the strategy's command when blending, 0 to never blend it
+     */
+    public void setBlendWeight(NavigationStrategy strategy, float weight) {
+        Entry entry = find(strategy);
+        if (entry != null) {
+            entry.blendWeight = Math.max(0, weight);
+        }
+    }
+
+    /**
+     * @param ticks Consecutive ticks a higher priority strategy has to be preferred to take over
+     * @param minDwellNanos Time the active strategy stays active at least, unless it can no longer
+     *                      handle the context
+     */
+    public void setHysteresis(int ticks, long minDwellNanos) {
+        this.switchTicks = Math.max(1, ticks);
+        this.minDwellNanos = Math.max(0, minDwellNanos);
+    }
+
+    /**
+     * Choose the strategy for this tick and start a trace row for it.
+     *
+     * @param nowNanos System.nanoTime() of the tick
+     * @return the active strategy, or null if none can handle the context
+     */
+    public NavigationStrategy select(NavigationContext context, long nowNanos) {
+        ticks++;
+        Entry preferred = null;
+        boolean activeCapable = false;
+        for (Entry entry : entries) {
+            if (entry.strategy.canHandle(context)) {
+                preferred = entry;
+                activeCapable = entry == active;
+                break;
+            }
+        }
+        // The scan stops before reaching an active strategy ranked below the preferred one
+        if (active != null && preferred != null && preferred != active && rank(active) > rank(preferred)) {
+            activeCapable = active.strategy.canHandle(context);
+        }
+
+        Reason reason;
+        if (preferred == null) {
+            reason = Reason.NONE;
+            activate(null, nowNanos);
+        } else if (active == null) {
+            reason = Reason.STARTED;
+            activate(preferred, nowNanos);
+        } else if (preferred == active) {
+            reason = Reason.KEPT;
+            challenger = null;
+        } else if (!activeCapable) {
+            reason = Reason.FALLBACK;
+            activate(preferred, nowNanos);
+        } else {
+            if (challenger != preferred) {
+                challenger = preferred;
+                challengerTicks = 0;
+            }
+            challengerTicks++;
+            if (challengerTicks >= switchTicks && nowNanos - activeSinceNanos >= minDwellNanos) {
+                reason = Reason.PREFERRED;
+                activate(preferred, nowNanos);
+            } else {
+                reason = Reason.HELD;
+                heldTicks++;
+            }
+        }
+
+        traceHead = (traceHead + 1) % TRACE_CAPACITY;
+        traceSize = Math.min(traceSize + 1, TRACE_CAPACITY);
+        traceNanos[traceHead] = nowNanos;
+        traceActive[traceHead] = active != null ? active.strategy : null;
+        traceChallenger[traceHead] = reason == Reason.HELD ? preferred.strategy : null;
+        traceReason[traceHead] = reason;
+        traceLinear[traceHead] = 0;
+        traceAngular[traceHead] = 0;
+        traceBlended[traceHead] = 0;
+        traceCompletion[traceHead] = null;
+        return active != null ? active.strategy : null;
+    }
+
+    /**
+     * Command of the active strategy, blended with the other strategies with a blend weight if
+     * the active one has one too. Call after {@link #select}.
+     */
+    public ControlCommand command(NavigationContext context) {
+        if (active == null) {
+            return ControlCommand.stop();
+        }
+        ControlCommand command = active.strategy.calculateControl(context);
+        int blended = 1;
+        if (active.blendWeight > 0) {
+            float totalWeight = active.blendWeight;
+            float linear = active.blendWeight * command.getLinearVelocity();
+            float angular = active.blendWeight * command.getAngularVelocity();
+            for (Entry entry : entries) {
+                if (entry == active || entry.blendWeight <= 0 || !entry.strategy.canHandle(context)) {
+                    continue;
+                }
+                ControlCommand other = entry.strategy.calculateControl(context);
+                totalWeight += entry.blendWeight;
+                linear += entry.blendWeight * other.getLinearVelocity();
+                angular += entry.blendWeight * other.getAngularVelocity();
+                blended++;
+            }
+            if (blended > 1) {
+                command = new ControlCommand(linear / totalWeight, angular / totalWeight);
+                blendedTicks++;
+            }
+        }
+        if (traceSize > 0) {
+            traceLinear[traceHead] = command.getLinearVelocity();
+            traceAngular[traceHead] = command.getAngularVelocity();
+            traceBlended[traceHead] = blended;
+        }
+        return command;
+    }
+
+    /**
+     * Record that the active strategy completed on this tick.
+     */
+    public void recordCompletion(NavigationStrategy.Completion completion) {
+        completions++;
+        if (traceSize > 0) {
+            traceCompletion[traceHead] = completion;
+        }
+    }
+
+    /**
+     * Reset every strategy, e.g. for a new waypoint. The active strategy stays active.
+     */
+    public void resetAll() {
+        for (Entry entry : entries) {
+            entry.strategy.reset();
+        }
+    }
+
+    /**
+     * Reset and deactivate the active strategy, e.g. when navigation stops.
+     */
+    public void stop() {
+        if (active != null) {
+            active.strategy.reset();
+        }
+        active = null;
+        challenger = null;
+        challengerTicks = 0;
+    }
+
+    public NavigationStrategy getActive() {
+        return active != null ? active.strategy : null;
+    }
+
+    private void activate(Entry entry, long nowNanos) {
+        challenger = null;
+        challengerTicks = 0;
+        if (entry == active) {
+            return;
+        }
+        Timber.d("Switching from %s to %s", active != null ? active.strategy.getStrategyName() : "none",
+                entry != null ? entry.strategy.getStrategyName() : "none");
+        active = entry;
+        activeSinceNanos = nowNanos;
+        if (entry != null) {
+            switches++;
+            entry.strategy.reset();
+        }
+    }
+
+    private Entry find(NavigationStrategy strategy) {
+        for (Entry entry : entries) {
+            if (entry.strategy == strategy) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private int rank(Entry entry) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == entry) {
+                return i;
+            }
+        }
+        return entries.length;
+    }
+
+    /**
+     * Counters and the trace, oldest tick first, with each tick's age in ms relative to the last
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("active", active != null ? active.strategy.getStrategyName() : "none");
+            json.put("ticks", ticks);
+            json.put("switches", switches);
+            json.put("heldTicks", heldTicks);
+            json.put("blendedTicks", blendedTicks);
+            json.put("completions", completions);
+            JSONArray trace = new JSONArray();
+            for (int i = traceSize - 1; i >= 0; i--) {
+                int row = (traceHead - i + TRACE_CAPACITY) % TRACE_CAPACITY;
+                JSONObject tick = new JSONObject();
+                tick.put("ageMs", (traceNanos[traceHead] - traceNanos[row]) / 1_000_000L);
+                tick.put("strategy", traceActive[row] != null ? traceActive[row].getStrategyName() : "none");
+                tick.put("reason", traceReason[row].name());
+                if (traceChallenger[row] != null) {
+                    tick.put("preferred", traceChallenger[row].getStrategyName());
+                }
+                tick.put("linear", traceLinear[row]);
+                tick.put("angular", traceAngular[row]);
+                if (traceBlended[row] > 1) {
+                    tick.put("blended", traceBlended[row]);
+                }
+                if (traceCompletion[row] != null) {
+                    tick.put("completion", traceCompletion[row].name());
+                }
+                trace.put(tick);
+            }
+            json.put("trace", trace);
+        } catch (JSONException e) {
+            Timber.e(e, "Error building arbitration trace");
+        }
+        return json;
+    }
+}
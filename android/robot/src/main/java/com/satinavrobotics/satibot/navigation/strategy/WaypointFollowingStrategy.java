@@ -1,15 +1,11 @@
 package com.satinavrobotics.satibot.navigation.strategy;
 
-import com.google.ar.core.Pose;
 import com.satinavrobotics.satibot.navigation.ControlCommand;
 import com.satinavrobotics.satibot.navigation.NavigationContext;
-import com.satinavrobotics.satibot.navigation.NavigationUtils;
+import com.satinavrobotics.satibot.navigation.NavigationPose;
 import com.satinavrobotics.satibot.navigation.controller.RuleBasedWaypointController;
 import com.satinavrobotics.satibot.navigation.controller.WaypointController;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import timber.log.Timber;
 
 /**
@@ -42,87 +38,48 @@ public class WaypointFollowingStrategy implements NavigationStrategy {
     
     @Override
     public ControlCommand calculateControl(NavigationContext context) {
-        JSONObject waypoint = context.getTargetWaypoint();
-        Pose currentPose = context.getCurrentPose();
+        NavigationPose currentPose = context.getCurrentPose();
         
-        if (waypoint == null || currentPose == null) {
+        if (!context.hasTargetPosition() || currentPose == null) {
             Timber.w("Missing waypoint or pose data");
             return ControlCommand.stop();
         }
         
-        try {
-            // Calculate distance and angle to waypoint
-            float waypointX = (float) waypoint.getDouble("x");
-            float waypointZ = (float) waypoint.getDouble("z");
-            
-            float[] translation = new float[3];
-            currentPose.getTranslation(translation, 0);
-            float currentX = translation[0];
-            float currentZ = translation[2];
-            
-            float deltaX = waypointX - currentX;
-            float deltaZ = waypointZ - currentZ;
-            float distanceToWaypoint = (float) Math.sqrt(deltaX * deltaX + deltaZ * deltaZ);
-            
-            // Calculate angle to waypoint
-            float targetAngle = (float) Math.atan2(deltaX, deltaZ);
-            float[] quaternion = new float[4];
-            currentPose.getRotationQuaternion(quaternion, 0);
-            float currentYaw = (float) Math.atan2(2.0f * (quaternion[3] * quaternion[1] + quaternion[0] * quaternion[2]),
-                                                 1.0f - 2.0f * (quaternion[1] * quaternion[1] + quaternion[2] * quaternion[2]));
-            
-            float angleDifference = NavigationUtils.normalizeAngle(targetAngle - currentYaw);
-            
-            // Check if we've reached the waypoint
-            if (distanceToWaypoint < context.getPositionThresholdMeters()) {
-                Timber.d("Waypoint reached (distance: %.2f m)", distanceToWaypoint);
-                return ControlCommand.stop(); // Strategy will be marked as complete
-            }
-            
-            // Process based on current state
-            switch (context.getCurrentState()) {
-                case TURNING:
-                    return processTurning(angleDifference, context);
-                case MOVING:
-                    return processMoving(distanceToWaypoint, angleDifference, context);
-                default:
-                    return ControlCommand.stop();
-            }
-            
-        } catch (JSONException e) {
-            Timber.e(e, "Error processing waypoint coordinates");
-            return ControlCommand.stop();
+        // Calculate distance and angle to waypoint
+        float distanceToWaypoint = context.getDistanceToTarget();
+        float angleDifference = context.getHeadingToTarget();
+        
+        // Check if we've reached the waypoint
+        if (distanceToWaypoint < context.getPositionThresholdMeters()) {
+            Timber.d("Waypoint reached (distance: %.2f m)", distanceToWaypoint);
+            return ControlCommand.stop(); // Strategy will be marked as complete
+        }
+        
+        // Process based on current state
+        switch (context.getCurrentState()) {
+            case TURNING:
+                return processTurning(angleDifference, context);
+            case MOVING:
+                return processMoving(distanceToWaypoint, angleDifference, context);
+            default:
+                return ControlCommand.stop();
         }
     }
     
     @Override
     public boolean isComplete(NavigationContext context) {
-        JSONObject waypoint = context.getTargetWaypoint();
-        Pose currentPose = context.getCurrentPose();
+        NavigationPose currentPose = context.getCurrentPose();
         
-        if (waypoint == null || currentPose == null) {
+        if (!context.hasTargetPosition() || currentPose == null) {
             return false;
         }
         
-        try {
-            float waypointX = (float) waypoint.getDouble("x");
-            float waypointZ = (float) waypoint.getDouble("z");
-            
-            float[] translation = new float[3];
-            currentPose.getTranslation(translation, 0);
-            float currentX = translation[0];
-            float currentZ = translation[2];
-            
-            float deltaX = waypointX - currentX;
-            float deltaZ = waypointZ - currentZ;
-            float distanceToWaypoint = (float) Math.sqrt(deltaX * deltaX + deltaZ * deltaZ);
-            
-            return distanceToWaypoint < context.getPositionThresholdMeters();
-            
-        } catch (JSONException e) {
-            Timber.e(e, "Error checking waypoint completion");
-            return false;
-        }
+        return context.getDistanceToTarget() < context.getPositionThresholdMeters();
+    }
+    
+    @Override
+    public Completion getCompletion() {
+        return Completion.WAYPOINT_REACHED;
     }
     
     @Override
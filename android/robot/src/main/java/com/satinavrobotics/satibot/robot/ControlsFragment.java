@@ -20,16 +20,18 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import com.satinavrobotics.satibot.R;
 
 import com.satinavrobotics.satibot.env.AudioPlayer;
+import com.satinavrobotics.satibot.env.ControllerCommand;
 import com.satinavrobotics.satibot.env.ControllerToBotEventBus;
+import com.satinavrobotics.satibot.env.LatencyTracer;
 
 import com.satinavrobotics.satibot.env.SharedPreferencesManager;
 import com.satinavrobotics.satibot.env.StatusManager;
@@ -40,10 +42,10 @@ import com.satinavrobotics.satibot.utils.ConnectionUtils;
 import com.satinavrobotics.satibot.utils.Constants;
 import com.satinavrobotics.satibot.utils.Enums;
 import com.satinavrobotics.satibot.utils.FileUtils;
-import com.satinavrobotics.satibot.utils.FormatUtils;
 
 import com.satinavrobotics.satibot.utils.PermissionUtils;
 import com.satinavrobotics.satibot.vehicle.Control;
+import com.satinavrobotics.satibot.vehicle.TelemetryDecoder;
 import com.satinavrobotics.satibot.vehicle.Vehicle;
 
 import timber.log.Timber;
@@ -52,6 +54,7 @@ public abstract class ControlsFragment extends Fragment  {
 
   protected MainViewModel mViewModel;
   protected Vehicle vehicle;
+  private TelemetryDecoder telemetryDecoder;
   protected Animation startAnimation;
   protected SharedPreferencesManager preferencesManager;
 
@@ -179,6 +182,7 @@ public abstract class ControlsFragment extends Fragment  {
     mViewModel = new ViewModelProvider(requireActivity()).get(MainViewModel.class);
 
     vehicle = mViewModel.getVehicle().getValue();
+    telemetryDecoder = new TelemetryDecoder(vehicle);
     startAnimation = AnimationUtils.loadAnimation(requireContext(), R.anim.blink);
 
     mViewModel
@@ -186,41 +190,7 @@ public abstract class ControlsFragment extends Fragment  {
         .observe(
             getViewLifecycleOwner(),
             data -> {
-              char header = data.charAt(0);
-              String body = data.substring(1);
-
-              switch (header) {
-                case 'r':
-                  vehicle.setReady(true);
-                  break;
-                case 'f':
-                  vehicle.processVehicleConfig(body);
-                  break;
-                case 'v':
-                  if (FormatUtils.isNumeric(body)) {
-                    vehicle.setBatteryPercentage(Float.parseFloat(body));
-                  }
-                  break;
-                case 's':
-                  if (FormatUtils.isNumeric(body)) {
-                    //vehicle.setSonarReading(Float.parseFloat(body));
-
-                  }
-                  break;
-                case 'w':
-                  String[] itemList = body.split(",");
-                  if (itemList.length == 2
-                      && FormatUtils.isNumeric(itemList[0])
-                      && FormatUtils.isNumeric(itemList[1])) {
-                    vehicle.setLeftWheelRpm(Float.parseFloat(itemList[0]));
-                    vehicle.setRightWheelRpm(Float.parseFloat(itemList[1]));
-                  }
-                  break;
-                case 'b':
-                  // do nothing
-                  break;
-              }
-
+              telemetryDecoder.decode(data);
               processUSBData(data);
             });
 
@@ -270,30 +240,37 @@ public abstract class ControlsFragment extends Fragment  {
   }
 
   private void handlePhoneControllerEvents() {
+    String name = this.getClass().getSimpleName();
+    Consumer<Throwable> onError =
+        error -> Timber.d("Error occurred in ControllerToBotEventBus: %s", error);
+
     ControllerToBotEventBus.subscribe(
-        this.getClass().getSimpleName(),
-        event -> {
-          Timber.d("Event received: %s", event.toString());
-          String commandType = "";
-          if (event.has("command")) {
-            commandType = event.getString("command");
-          } else if (event.has("driveCmd")) {
-            commandType = Constants.CMD_DRIVE;
-          }
+        name,
+        ControllerCommand.DriveCommand.class,
+        command -> {
+          LatencyTracer.mark(LatencyTracer.Hop.DISPATCHED);
+          vehicle.setControlVelocity(command.linear(), command.angular());
+          processControlCommand(command.name());
+        },
+        onError);
 
-          switch (commandType) {
-            case Constants.CMD_DRIVE:
-              Timber.d("Drive command received");
-              Timber.d("Drive command received: " + event.toString());
-              JSONObject driveValue = event.getJSONObject("driveCmd");
-
-              // Check if we have linear and angular velocity (new format)
-              if (driveValue.has("l") && driveValue.has("a")) {
-                vehicle.setControlVelocity(
-                    Float.parseFloat(driveValue.getString("l")),
-                    Float.parseFloat(driveValue.getString("a")));
-              }
+    ControllerToBotEventBus.subscribe(
+        name,
+        ControllerCommand.WaypointCommand.class,
+        command -> {
+          Timber.d("Waypoints received: %d", command.waypoints().length());
+          waypointsManager.setWaypoints(command.waypoints());
+          processControlCommand(command.name());
+        },
+        onError);
 
+    ControllerToBotEventBus.subscribe(
+        name,
+        ControllerCommand.NamedCommand.class,
+        command -> {
+          LatencyTracer.mark(LatencyTracer.Hop.DISPATCHED);
+          Timber.d("Command received: %s", command.name());
+          switch (command.name()) {
             case Constants.CMD_INDICATOR_LEFT:
               toggleIndicatorEvent(Enums.VehicleIndicator.LEFT.getValue());
               break;
@@ -316,21 +293,11 @@ public abstract class ControlsFragment extends Fragment  {
             case Constants.CMD_DISCONNECTED:
               vehicle.setControlVelocity(0, 0);
               break;
-
-            case Constants.CMD_WAYPOINTS:
-              JSONArray waypoints = event.getJSONArray("waypoints");
-              waypointsManager.setWaypoints(waypoints);
-              break;
-
           }
 
-          processControlCommand(commandType);
-        },
-        error -> {
-          Timber.d("Error occurred in ControllerToBotEventBus: %s", error);
+          processControlCommand(command.name());
         },
-        event -> event.has("command") || event.has("driveCmd") || event.has("server") // filter out everything else
-        );
+        onError);
   }
 
 
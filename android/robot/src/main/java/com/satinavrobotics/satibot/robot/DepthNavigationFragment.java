@@ -27,9 +27,13 @@ import com.satinavrobotics.satibot.depth.RobotParametersManager;
 import com.satinavrobotics.satibot.env.SharedPreferencesManager;
 import com.satinavrobotics.satibot.env.StatusManager;
 import com.satinavrobotics.satibot.livekit.LiveKitServer;
+import com.satinavrobotics.satibot.navigation.NavigationContext;
 import com.satinavrobotics.satibot.navigation.WaypointsManager;
+import com.satinavrobotics.satibot.navigation.OccupancyGrid;
 import com.satinavrobotics.satibot.navigation.UnifiedNavigationController;
+import com.satinavrobotics.satibot.navigation.Waypoint;
 import com.satinavrobotics.satibot.navigation.strategy.CombinedNavigationStrategy;
+import com.satinavrobotics.satibot.navigation.strategy.DynamicWindowStrategy;
 import com.satinavrobotics.satibot.main.MainViewModel;
 import com.satinavrobotics.satibot.navigation.NavigationUtils;
 import com.satinavrobotics.satibot.arcore.ArCoreListener;
@@ -59,6 +63,10 @@ import timber.log.Timber;
 public class DepthNavigationFragment extends BaseDepthFragment implements ArCoreListener {
     private static final String TAG = DepthNavigationFragment.class.getSimpleName();
 
+    // Occupancy grid of 200 x 200 cells of 10 cm, a 20 x 20 m window around the robot
+    private static final float OCCUPANCY_RESOLUTION_METERS = 0.1f;
+    private static final int OCCUPANCY_GRID_CELLS = 200;
+
     // Navigation-specific UI elements
     private TextView costValuesText;
     private TextView navigationErrorText;
@@ -75,6 +83,8 @@ public class DepthNavigationFragment extends BaseDepthFragment implements ArCore
     // Unified navigation controller
     private UnifiedNavigationController unifiedNavigationController;
     private CombinedNavigationStrategy combinedNavigationStrategy;
+    private DynamicWindowStrategy dynamicWindowStrategy;
+    private OccupancyGrid occupancyGrid;
 
     // LiveKit functionality
     private LiveKitServer liveKitServer;
@@ -419,99 +429,97 @@ public class DepthNavigationFragment extends BaseDepthFragment implements ArCore
 
         // Get the current waypoint from the UnifiedNavigationController
         if (unifiedNavigationController != null && unifiedNavigationController.getContext().getTargetWaypoint() != null) {
-            try {
-                JSONObject currentWaypoint = unifiedNavigationController.getContext().getTargetWaypoint();
-                double waypointX = currentWaypoint.getDouble("x");
-                double waypointZ = currentWaypoint.getDouble("z");
-
-                // Get current position
-                float[] currentTranslation = new float[3];
-                currentPose.getTranslation(currentTranslation, 0);
-
-                // Calculate position error
-                float deltaX = (float) waypointX - currentTranslation[0];
-                float deltaZ = (float) waypointZ - currentTranslation[2];
-                float distanceError = (float) Math.sqrt(deltaX * deltaX + deltaZ * deltaZ);
-
-                // Calculate heading error using unified NavigationUtils
-                float angleToWaypoint = NavigationUtils.calculateAngleToWaypoint(deltaX, deltaZ);
-
-                float[] currentRotation = new float[4];
-                currentPose.getRotationQuaternion(currentRotation, 0);
-                float currentYaw = getYawFromQuaternion(currentRotation);
-                float headingError = NavigationUtils.calculateHeadingError(currentYaw, angleToWaypoint);
-                float headingErrorDegrees = (float) Math.toDegrees(Math.abs(headingError));
-
-                // Debug logging to understand the heading calculation (reduced frequency)
-                if (System.currentTimeMillis() % 1000 < 50) { // Log every ~1 second
-                    Timber.d("Heading Debug - Target: (%.2f, %.2f), Current: (%.2f, %.2f), " +
-                            "DeltaX: %.2f, DeltaZ: %.2f, AngleToWaypoint: %.1f°, CurrentYaw: %.1f°, HeadingError: %.1f°",
-                            waypointX, waypointZ, currentTranslation[0], currentTranslation[2],
-                            deltaX, deltaZ, Math.toDegrees(angleToWaypoint), Math.toDegrees(currentYaw),
-                            Math.toDegrees(headingError));
-                }
-
-                // Get turn direction indicator using NavigationUtils
-                String turnArrow = NavigationUtils.getTurnDirectionIndicator(headingError, 5.0f, 1.0f);
-
-                // Get current navigation state for display
-                String navState = "";
-                if (unifiedNavigationController != null) {
-                    com.satinavrobotics.satibot.navigation.NavigationContext.NavigationState state =
-                        unifiedNavigationController.getContext().getCurrentState();
-                    switch (state) {
-                        case TURNING:
-                            navState = " [TURN]";
-                            break;
-                        case MOVING:
-                            navState = " [MOVE]";
-                            break;
-                        case AVOIDING:
-                            navState = " [AVOID]";
-                            break;
-                        case IDLE:
-                            navState = " [IDLE]";
-                            break;
-                        case COMPLETED:
-                            navState = " [DONE]";
-                            break;
-                    }
-                }
-                // Update StatusManager with next goal information
-                try {
-                    JSONObject nextGoalInfo = new JSONObject();
-                    nextGoalInfo.put("relativeX", deltaX);
-                    nextGoalInfo.put("relativeZ", deltaZ);
-                    nextGoalInfo.put("distance", distanceError);
-                    nextGoalInfo.put("headingError", headingError);
-                    nextGoalInfo.put("headingErrorDegrees", headingErrorDegrees);
-                    nextGoalInfo.put("targetX", waypointX);
-                    nextGoalInfo.put("targetZ", waypointZ);
-
-                    StatusManager.getInstance().updateNextGoalInfo(nextGoalInfo);
-                } catch (JSONException e) {
-                    Timber.e(e, "Error creating next goal info for status");
-                }
-
-                // Update the UI on the main thread
-                String finalTurnArrow = turnArrow;
-                String finalNavState = navState;
+            NavigationContext navigationContext = unifiedNavigationController.getContext();
+            if (!navigationContext.hasTargetPosition()) {
                 requireActivity().runOnUiThread(() -> {
                     if (navigationErrorText != null) {
-                        navigationErrorText.setText(String.format(Locale.US,
-                            "Target: (%.2f, %.2f) Dist: %.2fm Heading: %.1f°%s%s",
-                            waypointX, waypointZ, distanceError, headingErrorDegrees, finalTurnArrow, finalNavState));
+                        navigationErrorText.setText("Target: Error reading waypoint");
                     }
                 });
+                return;
+            }
+            double waypointX = navigationContext.getTargetX();
+            double waypointZ = navigationContext.getTargetZ();
+
+            // Get current position
+            float[] currentTranslation = new float[3];
+            currentPose.getTranslation(currentTranslation, 0);
+
+            // Calculate position error
+            float deltaX = (float) waypointX - currentTranslation[0];
+            float deltaZ = (float) waypointZ - currentTranslation[2];
+            float distanceError = (float) Math.sqrt(deltaX * deltaX + deltaZ * deltaZ);
+
+            // Calculate heading error using unified NavigationUtils
+            float angleToWaypoint = NavigationUtils.calculateAngleToWaypoint(deltaX, deltaZ);
+
+            float[] currentRotation = new float[4];
+            currentPose.getRotationQuaternion(currentRotation, 0);
+            float currentYaw = getYawFromQuaternion(currentRotation);
+            float headingError = NavigationUtils.calculateHeadingError(currentYaw, angleToWaypoint);
+            float headingErrorDegrees = (float) Math.toDegrees(Math.abs(headingError));
+
+            // Debug logging to understand the heading calculation (reduced frequency)
+            if (System.currentTimeMillis() % 1000 < 50) { // Log every ~1 second
+                Timber.d("Heading Debug - Target: (%.2f, %.2f), Current: (%.2f, %.2f), " +
+                        "DeltaX: %.2f, DeltaZ: %.2f, AngleToWaypoint: %.1f°, CurrentYaw: %.1f°, HeadingError: %.1f°",
+                        waypointX, waypointZ, currentTranslation[0], currentTranslation[2],
+                        deltaX, deltaZ, Math.toDegrees(angleToWaypoint), Math.toDegrees(currentYaw),
+                        Math.toDegrees(headingError));
+            }
+
+            // Get turn direction indicator using NavigationUtils
+            String turnArrow = NavigationUtils.getTurnDirectionIndicator(headingError, 5.0f, 1.0f);
 
+            // Get current navigation state for display
+            String navState = "";
+            if (unifiedNavigationController != null) {
+                com.satinavrobotics.satibot.navigation.NavigationContext.NavigationState state =
+                    unifiedNavigationController.getContext().getCurrentState();
+                switch (state) {
+                    case TURNING:
+                        navState = " [TURN]";
+                        break;
+                    case MOVING:
+                        navState = " [MOVE]";
+                        break;
+                    case AVOIDING:
+                        navState = " [AVOID]";
+                        break;
+                    case IDLE:
+                        navState = " [IDLE]";
+                        break;
+                    case COMPLETED:
+                        navState = " [DONE]";
+                        break;
+                }
+            }
+            // Update StatusManager with next goal information
+            try {
+                JSONObject nextGoalInfo = new JSONObject();
+                nextGoalInfo.put("relativeX", deltaX);
+                nextGoalInfo.put("relativeZ", deltaZ);
+                nextGoalInfo.put("distance", distanceError);
+                nextGoalInfo.put("headingError", headingError);
+                nextGoalInfo.put("headingErrorDegrees", headingErrorDegrees);
+                nextGoalInfo.put("targetX", waypointX);
+                nextGoalInfo.put("targetZ", waypointZ);
+
+                StatusManager.getInstance().updateNextGoalInfo(nextGoalInfo);
             } catch (JSONException e) {
-                Timber.e(e, "Error calculating navigation errors");
-                requireActivity().runOnUiThread(() -> {
-                    if (navigationErrorText != null) {
-                        navigationErrorText.setText("Target: Error reading waypoint");
-                    }
-                });
+                Timber.e(e, "Error creating next goal info for status");
             }
+
+            // Update the UI on the main thread
+            String finalTurnArrow = turnArrow;
+            String finalNavState = navState;
+            requireActivity().runOnUiThread(() -> {
+                if (navigationErrorText != null) {
+                    navigationErrorText.setText(String.format(Locale.US,
+                        "Target: (%.2f, %.2f) Dist: %.2fm Heading: %.1f°%s%s",
+                        waypointX, waypointZ, distanceError, headingErrorDegrees, finalTurnArrow, finalNavState));
+                }
+            });
         } else {
             // No current waypoint - clear next goal info from StatusManager
             //StatusManager.getInstance().updateNextGoalInfo(null);
@@ -661,37 +669,51 @@ public class DepthNavigationFragment extends BaseDepthFragment implements ArCore
 
                 // Create UnifiedNavigationController
                 unifiedNavigationController = new UnifiedNavigationController(vehicle, waypointsManager);
+                unifiedNavigationController.setControlRateHz(preferencesManager.getControlRateHz());
 
-                // Create combined navigation strategy (handles both waypoint following and obstacle avoidance)
+                // Create combined navigation strategy (tracks the path through the waypoints with pure pursuit
+                // and falls back to obstacle avoidance when the path is blocked)
                 combinedNavigationStrategy = new CombinedNavigationStrategy();
 
                 // Add the combined strategy to the unified controller
                 unifiedNavigationController.addStrategy(combinedNavigationStrategy);
 
+                // Remember obstacles that leave the camera's view on an occupancy grid fed by the depth processor
+                occupancyGrid = new OccupancyGrid(OCCUPANCY_RESOLUTION_METERS, OCCUPANCY_GRID_CELLS);
+                unifiedNavigationController.getContext().setOccupancyGrid(occupancyGrid);
+                if (depthProcessor != null) {
+                    depthProcessor.setOccupancyGrid(occupancyGrid);
+                }
+
+                // Plan smooth obstacle-aware motion over the grid, preferred over the combined strategy
+                dynamicWindowStrategy = new DynamicWindowStrategy();
+                unifiedNavigationController.addStrategy(dynamicWindowStrategy);
+
+                // Publish navigation state and navigability rows with the robot telemetry
+                if (liveKitServer != null) {
+                    liveKitServer.getTelemetryPublisher().setNavigationContext(unifiedNavigationController.getContext());
+                }
+
                 // Set up navigation listener for waypoint navigation events
                 unifiedNavigationController.setNavigationListener(new UnifiedNavigationController.NavigationListener() {
                     @Override
-                    public void onNavigationStateChanged(com.satinavrobotics.satibot.navigation.NavigationContext.NavigationState state, JSONObject waypoint) {
+                    public void onNavigationStateChanged(com.satinavrobotics.satibot.navigation.NavigationContext.NavigationState state, Waypoint waypoint) {
                         requireActivity().runOnUiThread(() -> {
                             switch (state) {
                                 case TURNING:
                                     if (waypoint != null) {
-                                        try {
-                                            double x = waypoint.getDouble("x");
-                                            double z = waypoint.getDouble("z");
-                                            navigationStatusText.setText(String.format(Locale.US, "Turning to waypoint: %.2f, %.2f", x, z));
-                                        } catch (JSONException e) {
+                                        if (waypoint.hasLocalPosition()) {
+                                            navigationStatusText.setText(String.format(Locale.US, "Turning to waypoint: %.2f, %.2f", waypoint.x(), waypoint.z()));
+                                        } else {
                                             navigationStatusText.setText("Turning to waypoint");
                                         }
                                     }
                                     break;
                                 case MOVING:
                                     if (waypoint != null) {
-                                        try {
-                                            double x = waypoint.getDouble("x");
-                                            double z = waypoint.getDouble("z");
-                                            navigationStatusText.setText(String.format(Locale.US, "Moving to waypoint: %.2f, %.2f", x, z));
-                                        } catch (JSONException e) {
+                                        if (waypoint.hasLocalPosition()) {
+                                            navigationStatusText.setText(String.format(Locale.US, "Moving to waypoint: %.2f, %.2f", waypoint.x(), waypoint.z()));
+                                        } else {
                                             navigationStatusText.setText("Moving to waypoint");
                                         }
                                     }
@@ -808,10 +830,20 @@ public class DepthNavigationFragment extends BaseDepthFragment implements ArCore
         // Clear next goal info from StatusManager when fragment is destroyed
         StatusManager.getInstance().updateNextGoalInfo(null);
 
+        if (liveKitServer != null) {
+            liveKitServer.getTelemetryPublisher().setNavigationContext(null);
+        }
+
+        if (depthProcessor != null) {
+            depthProcessor.setOccupancyGrid(null);
+        }
+
         // Clean up navigation-specific references
         navMapOverlay = null;
         unifiedNavigationController = null;
         combinedNavigationStrategy = null;
+        dynamicWindowStrategy = null;
+        occupancyGrid = null;
     }
 
     /**
@@ -953,11 +985,8 @@ public class DepthNavigationFragment extends BaseDepthFragment implements ArCore
                     Pose localPose = arCoreHandler.computeLocalPose(currentPose, originPose);
 
                     if (localPose != null) {
-                        // Create JSON with local pose data
-                        JSONObject localPoseJson = arCoreHandler.createLocalPoseJson(localPose);
-
                         // Update status manager with local pose
-                        StatusManager.getInstance().updateARCorePose(localPoseJson);
+                        StatusManager.getInstance().updateARCorePose(arCoreHandler.createLocalPoseStatus(localPose));
 
                         // Update the UnifiedNavigationController with the current pose
                         if (unifiedNavigationController != null) {
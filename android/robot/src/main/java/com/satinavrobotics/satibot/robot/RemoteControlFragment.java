@@ -38,7 +38,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.jetbrains.annotations.NotNull;
-import org.json.JSONObject;
 import com.satinavrobotics.satibot.R;
 import com.satinavrobotics.satibot.arcore.ArCoreHandler;
 import com.satinavrobotics.satibot.databinding.FragmentFreeRoamBinding;
@@ -46,6 +45,7 @@ import com.satinavrobotics.satibot.databinding.FragmentFreeRoamBinding;
 import com.satinavrobotics.satibot.env.ImageUtils;
 import com.satinavrobotics.satibot.env.StatusManager;
 import com.satinavrobotics.satibot.googleServices.GoogleServices;
+import com.satinavrobotics.satibot.livekit.AdaptiveStreamController;
 import com.satinavrobotics.satibot.livekit.LiveKitServer;
 import com.satinavrobotics.satibot.livekit.stream.ArCameraProvider;
 import com.satinavrobotics.satibot.livekit.stream.ArCameraSession;
@@ -95,6 +95,12 @@ public class RemoteControlFragment extends ControlsFragment implements ArCoreLis
 
   // LiveKit functionality
   private LiveKitServer liveKitServer;
+  private final AdaptiveStreamController.Listener streamLevelListener =
+      level -> {
+        if (arCore != null) {
+          arCore.setStreamLevel(level.width(), level.height(), level.frameInterval());
+        }
+      };
   private SurfaceViewRenderer videoRenderer;
   private ActivityResultLauncher<String[]> requestPermissionLauncher;
 
@@ -142,6 +148,12 @@ public class RemoteControlFragment extends ControlsFragment implements ArCoreLis
     liveKitServer = LiveKitServer.getInstance(requireContext());
     requestPermissionLauncher = liveKitServer.createPermissionLauncher(this);
 
+    // Follow the link quality with the AR stream's resolution and frame rate
+    AdaptiveStreamController.StreamLevel streamLevel =
+        liveKitServer.getStreamController().getCurrentLevel();
+    arCore.setStreamLevel(streamLevel.width(), streamLevel.height(), streamLevel.frameInterval());
+    liveKitServer.getStreamController().addListener(streamLevelListener);
+
     // Setup video renderer immediately - don't wait for post
     videoRenderer = liveKitServer.setupVideoRenderer(this);
     Timber.d("Video renderer set up: %s", videoRenderer != null ? "success" : "failed");
@@ -192,6 +204,10 @@ public class RemoteControlFragment extends ControlsFragment implements ArCoreLis
   public void onDestroyView() {
     super.onDestroyView();
 
+    if (liveKitServer != null) {
+      liveKitServer.getStreamController().removeListener(streamLevelListener);
+    }
+
     // Clean up LiveKit video renderer
     if (liveKitServer != null && videoRenderer != null) {
       liveKitServer.cleanupVideoRenderer(this, videoRenderer);
@@ -312,11 +328,8 @@ public class RemoteControlFragment extends ControlsFragment implements ArCoreLis
         Pose localPose = arCore.computeLocalPose(currentPose, originPose);
 
         if (localPose != null) {
-          // Create JSON with local pose data
-          JSONObject localPoseJson = arCore.createLocalPoseJson(localPose);
-
           // Update status manager with local pose
-          StatusManager.getInstance().updateARCorePose(localPoseJson);
+          StatusManager.getInstance().updateARCorePose(arCore.createLocalPoseStatus(localPose));
         }
       }
     }
@@ -325,6 +338,8 @@ public class RemoteControlFragment extends ControlsFragment implements ArCoreLis
     if (!arCameraSession.isReady()) return;
     if (logFolder == null) return;
     if (!loggingEnabled) return;
+    // The frame's planes are pooled; keep them until the background conversion is done
+    frame.retain();
     executorService.submit(() -> {
       try {
         Bitmap bitmap = convertRGBFrameToScaledBitmap(frame, 160.f / 480.f);
@@ -334,6 +349,8 @@ public class RemoteControlFragment extends ControlsFragment implements ArCoreLis
         processFrame(bitmap, width, height);
       } catch (Exception e) {
         Timber.e(e, "Error processing frame");
+      } finally {
+        frame.release();
       }
     });
   }
@@ -341,6 +358,9 @@ public class RemoteControlFragment extends ControlsFragment implements ArCoreLis
   @Override
   public void onRenderedFrame(VideoFrame.I420Buffer frame, long timestamp) {
     if (!arCameraSession.isReady()) return;
+    // The camera session releases the VideoFrame once delivered; ArCoreHandler keeps its own
+    // reference until this returns, so hand the session a reference of its own
+    frame.retain();
     VideoFrame videoFrame = new VideoFrame(frame, 0, timestamp);
     arCameraSession.onFrameCapturedInCurrentSession(videoFrame);
   }
@@ -235,9 +235,8 @@ public class RobotInfoFragment extends ControlsFragment {
         break;
       case 'k': // Fused angular velocity
         if (FormatUtils.isNumeric(body)) {
-          float value = Float.parseFloat(body);
-          vehicle.setFusedAngularVelocity(value);
-          updateFusedAngularVelocity(value);
+          // Vehicle state is updated by ControlsFragment, only refresh the display here
+          updateFusedAngularVelocity(Float.parseFloat(body));
         }
         break;
       case 'p': // PWM values
@@ -255,8 +254,6 @@ public class RobotInfoFragment extends ControlsFragment {
         if (wheelCountValues.length == 2 && FormatUtils.isNumeric(wheelCountValues[0]) && FormatUtils.isNumeric(wheelCountValues[1])) {
           float leftCount = Float.parseFloat(wheelCountValues[0]);
           float rightCount = Float.parseFloat(wheelCountValues[1]);
-          vehicle.setLeftWheelCount(leftCount);
-          vehicle.setRightWheelCount(rightCount);
           updateWheelCountValues(leftCount, rightCount);
         }
         break;
@@ -24,8 +24,12 @@ import java.util.UUID;
 
 import com.satinavrobotics.satibot.main.ScanDeviceAdapter;
 import com.satinavrobotics.satibot.utils.Constants;
+import com.satinavrobotics.satibot.vehicle.transport.LineFramer;
+import com.satinavrobotics.satibot.vehicle.transport.LinkRecorder;
+import com.satinavrobotics.satibot.vehicle.transport.TransportMetrics;
+import com.satinavrobotics.satibot.vehicle.transport.VehicleTransport;
 
-public class BluetoothManager {
+public class BluetoothManager implements VehicleTransport {
   private BleManager manager;
   private CharacteristicInfo notifyCharacteristic;
   private CharacteristicInfo writeCharacteristic;
@@ -41,6 +45,16 @@ public class BluetoothManager {
   private final LocalBroadcastManager localBroadcastManager;
   private String serviceUUID = "61653dc3-4021-4d1e-ba83-8b4eec61d613";
   UUID[] uuidArray = new UUID[] {UUID.fromString(serviceUUID)};
+  private volatile LinkRecorder linkRecorder;
+  private volatile DataListener dataListener;
+  private final TransportMetrics metrics = new TransportMetrics();
+  private final LineFramer framer =
+      new LineFramer(
+          line -> {
+            metrics.onLineReceived();
+            readValue = line;
+            onSerialDataReceived(line);
+          });
 
   public BluetoothManager(Context context) {
     this.context = context;
@@ -207,16 +221,51 @@ public class BluetoothManager {
 
   public void write(String msg) {
     if (isBleConnected()) {
+      byte[] bytes = msg.getBytes(UTF_8);
+      LinkRecorder recorder = linkRecorder;
+      if (recorder != null) recorder.recordTx(bytes);
       BleManager.getInstance()
-          .write(
-              bleDevice,
-              writeServiceInfo.uuid,
-              writeCharacteristic.uuid,
-              msg.getBytes(UTF_8),
-              writeCallback);
+          .write(bleDevice, writeServiceInfo.uuid, writeCharacteristic.uuid, bytes, writeCallback);
     }
   }
 
+  /** BleManager queues GATT writes internally, so this returns without waiting for the write. */
+  @Override
+  public boolean send(String message) {
+    if (!isBleConnected() || writeCharacteristic == null) {
+      metrics.onDropped();
+      return false;
+    }
+    long start = System.nanoTime();
+    write(message);
+    metrics.onSent(message.length(), System.nanoTime() - start);
+    return true;
+  }
+
+  @Override
+  public boolean isConnected() {
+    return isBleConnected();
+  }
+
+  @Override
+  public void setDataListener(DataListener listener) {
+    dataListener = listener;
+  }
+
+  @Override
+  public String getName() {
+    return "Bluetooth";
+  }
+
+  @Override
+  public TransportMetrics getMetrics() {
+    return metrics;
+  }
+
+  public void setLinkRecorder(LinkRecorder recorder) {
+    linkRecorder = recorder;
+  }
+
   public BleMtuCallback mtuCallback =
       new BleMtuCallback() {
         @Override
@@ -248,8 +297,11 @@ public class BluetoothManager {
       new BleNotifyCallback() {
         @Override
         public void onCharacteristicChanged(byte[] data, BleDevice device) {
-          readValue = new String(data);
-          onSerialDataReceived(readValue);
+          LinkRecorder recorder = linkRecorder;
+          if (recorder != null) recorder.recordRx(data);
+          metrics.onBytesReceived(data.length);
+          // The firmware sends one message per notification, without the newline
+          framer.appendMessage(data);
         }
 
         @Override
@@ -272,6 +324,8 @@ public class BluetoothManager {
   private void onSerialDataReceived(String data) {
     // Add whatever you want here
     // Logger.i("Serial data received from BLE: " + data);
+    DataListener listener = dataListener;
+    if (listener != null) listener.onLineReceived(data);
     localBroadcastManager.sendBroadcast(
         new Intent(Constants.DEVICE_ACTION_DATA_RECEIVED)
             .putExtra("from", "usb")
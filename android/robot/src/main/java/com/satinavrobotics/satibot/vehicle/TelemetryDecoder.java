@@ -0,0 +1,102 @@
+package com.satinavrobotics.satibot.vehicle;
+
+/**
+ * Decodes the telemetry lines sent by the firmware (see
+ * firmware/satibot/COMMUNICATION_PROTOCOL.md) and hands the values to a {@link Listener}. The app
+ * decodes the live link with it, and replays of a recorded link use the same decoding on a plain
+ * JVM.
+ *
+ * <p>Has no Android dependencies.
+ */
+public class TelemetryDecoder {
+
+  /** Receives the decoded telemetry, on the thread that calls {@link #decode(String)}. */
+  public interface Listener {
+    /** 'r': the firmware has booted */
+    void onReady();
+
+    /** 'f': robot type and features, e.g. "DIY_ESP32:ls:" */
+    void onVehicleConfig(String config);
+
+    /** 'v' */
+    void onBatteryPercentage(float percentage);
+
+    /** 'w' */
+    void onWheelRpm(float left, float right);
+
+    /** 'k': Kalman filter fused angular velocity in rad/s */
+    void onFusedAngularVelocity(float angularVelocity);
+
+    /** 'c': wheel encoder pulse counts */
+    void onWheelCounts(float left, float right);
+  }
+
+  private final Listener listener;
+
+  public TelemetryDecoder(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Decode one line without the trailing newline. Lines with an unknown header or a malformed body
+   * are ignored.
+   *
+   * @return true if the line was passed on to the listener
+   */
+  public boolean decode(String line) {
+    if (line == null || line.isEmpty()) return false;
+    char header = line.charAt(0);
+    String body = line.substring(1);
+
+    switch (header) {
+      case 'r':
+        listener.onReady();
+        return true;
+      case 'f':
+        listener.onVehicleConfig(body);
+        return true;
+      case 'v':
+        if (isNumeric(body)) {
+          listener.onBatteryPercentage(Float.parseFloat(body));
+          return true;
+        }
+        return false;
+      case 'w':
+        {
+          String[] values = body.split(",");
+          if (values.length == 2 && isNumeric(values[0]) && isNumeric(values[1])) {
+            listener.onWheelRpm(Float.parseFloat(values[0]), Float.parseFloat(values[1]));
+            return true;
+          }
+          return false;
+        }
+      case 'k':
+        if (isNumeric(body)) {
+          listener.onFusedAngularVelocity(Float.parseFloat(body));
+          return true;
+        }
+        return false;
+      case 'c':
+        {
+          String[] counts = body.split(",");
+          if (counts.length == 2 && isNumeric(counts[0]) && isNumeric(counts[1])) {
+            listener.onWheelCounts(Float.parseFloat(counts[0]), Float.parseFloat(counts[1]));
+            return true;
+          }
+          return false;
+        }
+      default:
+        // Sonar, bumper and the controller debug values are not used by the app
+        return false;
+    }
+  }
+
+  private static boolean isNumeric(String value) {
+    try {
+      Double.parseDouble(value);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+}
@@ -20,12 +20,16 @@ import com.felhr.usbserial.UsbSerialDevice;
 import com.felhr.usbserial.UsbSerialInterface;
 import java.io.UnsupportedEncodingException;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.satinavrobotics.satibot.utils.Constants;
+import com.satinavrobotics.satibot.vehicle.transport.LinkRecorder;
+import com.satinavrobotics.satibot.vehicle.transport.TransportMetrics;
+import com.satinavrobotics.satibot.vehicle.transport.VehicleTransport;
 
 import timber.log.Timber;
 
-public class UsbConnection {
+public class UsbConnection implements VehicleTransport {
   private static final int USB_VENDOR_ID = 6790; // 0x2341; // 9025
   private static final int USB_PRODUCT_ID = 29987; // 0x0001;
 
@@ -40,12 +44,15 @@ public class UsbConnection {
   private String buffer = "";
   private final Context context;
   private final int baudRate;
-  private boolean busy;
+  private final AtomicBoolean busy = new AtomicBoolean(false);
+  private final TransportMetrics metrics = new TransportMetrics();
   private int vendorId;
   private int productId;
   private String productName;
   private String deviceName;
   private String manufacturerName;
+  private volatile LinkRecorder linkRecorder;
+  private volatile DataListener dataListener;
 
   public UsbConnection(Context context, int baudRate) {
     this.context = context;
@@ -64,6 +71,9 @@ public class UsbConnection {
 
   private final UsbSerialInterface.UsbReadCallback callback =
       data -> {
+        LinkRecorder recorder = linkRecorder;
+        if (recorder != null) recorder.recordRx(data);
+        metrics.onBytesReceived(data.length);
         try {
           String dataUtf8 = new String(data, "UTF-8");
           buffer += dataUtf8;
@@ -71,6 +81,7 @@ public class UsbConnection {
           while ((index = buffer.indexOf('\n')) != -1) {
             final String dataStr = buffer.substring(0, index).trim();
             buffer = buffer.length() == index ? "" : buffer.substring(index + 1);
+            metrics.onLineReceived();
 
             AsyncTask.execute(() -> onSerialDataReceived(dataStr));
           }
@@ -175,6 +186,8 @@ public class UsbConnection {
   private void onSerialDataReceived(String data) {
     // Add whatever you want here
     Timber.i("Serial data received from USB: " + data);
+    DataListener listener = dataListener;
+    if (listener != null) listener.onLineReceived(data);
     localBroadcastManager.sendBroadcast(
         new Intent(Constants.DEVICE_ACTION_DATA_RECEIVED)
             .putExtra("from", "usb")
@@ -204,16 +217,30 @@ public class UsbConnection {
     }
   }
 
-  public void send(String msg) {
-    if (isOpen() && !isBusy()) {
-      busy = true;
-      Timber.d("USB sending: %s", msg.trim());
-      serialDevice.write(msg.getBytes(UTF_8));
-      busy = false;
-      Timber.d("USB sent successfully: %s", msg.trim());
+  /**
+   * UsbSerialDevice.write() only copies into the driver's write buffer, so this does not block on
+   * the serial line. Concurrent callers do not wait for each other; the message is dropped instead.
+   */
+  @Override
+  public boolean send(String msg) {
+    if (isOpen() && busy.compareAndSet(false, true)) {
+      try {
+        long start = System.nanoTime();
+        Timber.d("USB sending: %s", msg.trim());
+        byte[] bytes = msg.getBytes(UTF_8);
+        LinkRecorder recorder = linkRecorder;
+        if (recorder != null) recorder.recordTx(bytes);
+        serialDevice.write(bytes);
+        metrics.onSent(bytes.length, System.nanoTime() - start);
+      } finally {
+        busy.set(false);
+      }
+      return true;
     } else {
+      metrics.onDropped();
       Timber.w("USB busy or not open, could not send: %s (open=%s, busy=%s)",
                msg.trim(), isOpen(), isBusy());
+      return false;
     }
   }
 
@@ -221,8 +248,32 @@ public class UsbConnection {
     return connection != null;
   }
 
+  @Override
+  public boolean isConnected() {
+    return isOpen();
+  }
+
+  @Override
+  public void setDataListener(DataListener listener) {
+    dataListener = listener;
+  }
+
+  @Override
+  public String getName() {
+    return "USB";
+  }
+
+  @Override
+  public TransportMetrics getMetrics() {
+    return metrics;
+  }
+
+  public void setLinkRecorder(LinkRecorder recorder) {
+    linkRecorder = recorder;
+  }
+
   public boolean isBusy() {
-    return busy;
+    return busy.get();
   }
 
   public int getBaudRate() {
@@ -7,26 +7,34 @@ import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import androidx.annotation.NonNull;
 import androidx.preference.PreferenceManager;
 import com.ficat.easyble.BleDevice;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import com.satinavrobotics.satibot.controller.GameController;
+import com.satinavrobotics.satibot.env.LatencyTracer;
 import com.satinavrobotics.satibot.env.SensorReading;
 import com.satinavrobotics.satibot.env.SharedPreferencesManager;
 import com.satinavrobotics.satibot.main.CommonRecyclerViewAdapter;
 import com.satinavrobotics.satibot.main.ScanDeviceAdapter;
+import com.satinavrobotics.satibot.navigation.estimation.PoseEstimator;
 import com.satinavrobotics.satibot.utils.Constants;
+import com.satinavrobotics.satibot.vehicle.transport.LinkRecorder;
+import com.satinavrobotics.satibot.vehicle.transport.TcpTransport;
+import com.satinavrobotics.satibot.vehicle.transport.VehicleTransport;
 
 import timber.log.Timber;
 
-public class Vehicle {
+public class Vehicle implements TelemetryDecoder.Listener {
 
   private int indicator = 0;
   private int speedMultiplier = 192; // 128,192,255 - for linear velocity
   private int angularMultiplier = 192; // 128,192,255 - for angular velocity
-  private Control control = new Control(0, 0);
+  // Written by the UI and the navigation control loop, sent under the vehicle's lock
+  private volatile Control control = new Control(0, 0);
 
   private final SensorReading batteryPercentage = new SensorReading();
   private final SensorReading leftWheelRpm = new SensorReading();
@@ -43,8 +51,14 @@ public class Vehicle {
   private final SensorReading currentHeading = new SensorReading();
   private final SensorReading targetHeading = new SensorReading();
 
+  // Dead-reckoning pose estimator fed from wheel odometry telemetry
+  private final PoseEstimator poseEstimator = new PoseEstimator();
+
   private UsbConnection usbConnection;
   protected boolean usbConnected;
+  private LinkRecorder linkRecorder;
+  // Link used for all outgoing messages, chosen when connecting
+  private volatile VehicleTransport transport;
   private final Context context;
   private final int baudRate;
 
@@ -280,6 +294,7 @@ public class Vehicle {
 
   public void setFusedAngularVelocity(float fusedAngularVelocity) {
     this.fusedAngularVelocity.setReading(fusedAngularVelocity);
+    poseEstimator.onAngularVelocity(System.nanoTime(), fusedAngularVelocity);
   }
 
   public float getLeftPwm() {
@@ -314,6 +329,59 @@ public class Vehicle {
     this.rightWheelCount.setReading(rightWheelCount);
   }
 
+  /**
+   * Update both wheel counts from a single 'c' telemetry message and advance the pose estimator.
+   *
+   * @param leftWheelCount Left wheel pulse count
+   * @param rightWheelCount Right wheel pulse count
+   */
+  public void setWheelCounts(float leftWheelCount, float rightWheelCount) {
+    this.leftWheelCount.setReading(leftWheelCount);
+    this.rightWheelCount.setReading(rightWheelCount);
+    Control current = control;
+    poseEstimator.onWheelCounts(
+        System.nanoTime(),
+        (int) leftWheelCount,
+        (int) rightWheelCount,
+        PoseEstimator.leftWheelDirection(current.linear(), current.angular()),
+        PoseEstimator.rightWheelDirection(current.linear(), current.angular()));
+  }
+
+  @Override
+  public void onReady() {
+    setReady(true);
+  }
+
+  @Override
+  public void onVehicleConfig(String config) {
+    processVehicleConfig(config);
+  }
+
+  @Override
+  public void onBatteryPercentage(float percentage) {
+    setBatteryPercentage(percentage);
+  }
+
+  @Override
+  public void onWheelRpm(float left, float right) {
+    setLeftWheelRpm(left);
+    setRightWheelRpm(right);
+  }
+
+  @Override
+  public void onFusedAngularVelocity(float angularVelocity) {
+    setFusedAngularVelocity(angularVelocity);
+  }
+
+  @Override
+  public void onWheelCounts(float left, float right) {
+    setWheelCounts(left, right);
+  }
+
+  public PoseEstimator getPoseEstimator() {
+    return poseEstimator;
+  }
+
   public float getHeadingAdjustment() {
     return headingAdjustment.getReading();
   }
@@ -342,12 +410,12 @@ public class Vehicle {
     return control;
   }
 
-  public void setControl(Control control) {
+  public synchronized void setControl(Control control) {
     this.control = control;
     sendControl();
   }
 
-  public void setControlVelocity(float linear, float angular) {
+  public synchronized void setControlVelocity(float linear, float angular) {
     this.control = new Control(linear, angular);
     sendControl();
   }
@@ -397,6 +465,8 @@ public class Vehicle {
 
   public void connectUsb() {
     if (usbConnection == null) usbConnection = new UsbConnection(context, baudRate);
+    usbConnection.setLinkRecorder(linkRecorder);
+    if ("USB".equals(connectionType)) transport = usbConnection;
     usbConnected = usbConnection.startUsbConnection();
     if (usbConnected) {
       if (heartbeatTimer == null) {
@@ -413,6 +483,7 @@ public class Vehicle {
       stopBot();
       stopHeartbeat();
       usbConnection.stopUsbConnection();
+      if (transport == usbConnection) transport = null;
       usbConnection = null;
       usbConnected = false;
 
@@ -426,25 +497,78 @@ public class Vehicle {
     return usbConnected;
   }
 
+  /**
+   * Record the raw traffic of the USB and Bluetooth links into a file that can be played back with
+   * {@link com.satinavrobotics.satibot.vehicle.transport.ReplayTransport}.
+   */
+  public synchronized void startLinkRecording(File file) {
+    stopLinkRecording();
+    try {
+      linkRecorder = new LinkRecorder(file);
+    } catch (IOException e) {
+      Timber.e(e, "Could not start link recording to %s", file);
+      return;
+    }
+    if (usbConnection != null) usbConnection.setLinkRecorder(linkRecorder);
+    if (bluetoothManager != null) bluetoothManager.setLinkRecorder(linkRecorder);
+    Timber.d("Started link recording to %s", file);
+  }
+
+  public synchronized void stopLinkRecording() {
+    if (linkRecorder == null) return;
+    if (usbConnection != null) usbConnection.setLinkRecorder(null);
+    if (bluetoothManager != null) bluetoothManager.setLinkRecorder(null);
+    linkRecorder.close();
+    linkRecorder = null;
+  }
+
+  /**
+   * Connect to a simulated firmware over TCP and use it as the vehicle link. Blocks while the
+   * socket is opened, so call it off the main thread.
+   */
+  public boolean connectTcp(String host, int port) {
+    TcpTransport tcpTransport = new TcpTransport(host, port);
+    if (!tcpTransport.connect(3000)) {
+      Timber.w("Could not connect to %s:%d", host, port);
+      return false;
+    }
+    setTransport(tcpTransport);
+    return true;
+  }
+
+  /**
+   * Use the given transport for all outgoing messages. Received lines are broadcast like data
+   * from the USB and Bluetooth links, so the regular telemetry decoding applies.
+   */
+  public void setTransport(VehicleTransport newTransport) {
+    VehicleTransport previous = transport;
+    if (previous != null && previous != usbConnection && previous != bluetoothManager) {
+      previous.close();
+    }
+    transport = newTransport;
+    if (newTransport == null) return;
+    newTransport.setDataListener(
+        line ->
+            LocalBroadcastManager.getInstance(context)
+                .sendBroadcast(
+                    new Intent(Constants.DEVICE_ACTION_DATA_RECEIVED)
+                        .putExtra("from", newTransport.getName())
+                        .putExtra("data", line)));
+    if (heartbeatTimer == null) startHeartbeat();
+  }
+
+  public VehicleTransport getTransport() {
+    return transport;
+  }
+
   private void sendStringToDevice(String message) {
-    String connectionType = getConnectionType();
-
-    // Debug: Log connection attempts
-    Timber.d("Vehicle.sendStringToDevice(): message='%s', connectionType='%s'",
-             message.trim(), connectionType);
-
-    if (connectionType.equals("USB") && usbConnection != null) {
-      Timber.d("Sending via USB: %s", message.trim());
-      usbConnection.send(message);
-    } else if (connectionType.equals("Bluetooth")
-        && bluetoothManager != null
-        && bluetoothManager.isBleConnected()) {
-      Timber.d("Sending via Bluetooth: %s", message.trim());
-      sendStringToBle(message);
-    } else {
-      Timber.w("Cannot send message - no valid connection. USB: %s, BT: %s",
-               (usbConnection != null),
-               (bluetoothManager != null && bluetoothManager.isBleConnected()));
+    VehicleTransport t = transport;
+    if (t == null) {
+      Timber.w("Cannot send message - no transport selected: %s", message.trim());
+      return;
+    }
+    if (t.send(message)) {
+      LatencyTracer.mark(LatencyTracer.Hop.WRITTEN);
     }
   }
 
@@ -462,17 +586,18 @@ public class Vehicle {
     sendStringToDevice(String.format(Locale.US, "l%d,%d\n", front, back));
   }
 
-  public void sendControl() {
+  public synchronized void sendControl() {
+    LatencyTracer.mark(LatencyTracer.Hop.CONTROL_SET);
     // Send linear and angular velocity instead of left/right wheel speeds
     int linear = (int) (getLinearVelocity());
     int angular = (int) (getAngularVelocity());
     String command = String.format(Locale.US, "c%d,%d\n", linear, angular);
+    LatencyTracer.mark(LatencyTracer.Hop.FORMATTED);
+    sendStringToDevice(command);
 
-    // Debug: Log the command being sent
-    Timber.d("Vehicle.sendControl(): sending command '%s' (linear=%.2f, angular=%.2f)",
+    // Logged after the write so it stays out of the FORMATTED to WRITTEN span
+    Timber.d("Vehicle.sendControl(): sent command '%s' (linear=%.2f, angular=%.2f)",
              command.trim(), getLinearVelocity(), getAngularVelocity());
-
-    sendStringToDevice(command);
   }
 
   protected void sendHeartbeat(int timeout_ms) {
@@ -564,10 +689,8 @@ public class Vehicle {
 
   public void initBle() {
     bluetoothManager = new BluetoothManager(context);
-  }
-
-  private void sendStringToBle(String message) {
-    bluetoothManager.write(message);
+    bluetoothManager.setLinkRecorder(linkRecorder);
+    if ("Bluetooth".equals(connectionType)) transport = bluetoothManager;
   }
 
   public boolean bleConnected() {
@@ -0,0 +1,46 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Splits a raw byte stream into newline-terminated lines. Lines are trimmed and empty lines are
+ * dropped, matching the framing done in {@link com.satinavrobotics.satibot.vehicle.UsbConnection}.
+ */
+public class LineFramer {
+  private final StringBuilder buffer = new StringBuilder();
+  private final VehicleTransport.DataListener listener;
+
+  public LineFramer(VehicleTransport.DataListener listener) {
+    this.listener = listener;
+  }
+
+  public void append(byte[] data) {
+    append(data, 0, data.length);
+  }
+
+  public void append(byte[] data, int offset, int length) {
+    buffer.append(new String(data, offset, length, UTF_8));
+    int index;
+    while ((index = buffer.indexOf("\n")) != -1) {
+      String line = buffer.substring(0, index).trim();
+      buffer.delete(0, index + 1);
+      if (!line.isEmpty()) listener.onLineReceived(line);
+    }
+  }
+
+  /**
+   * Append a chunk that also ends the current line, for links that deliver one message per packet
+   * without a terminator, like the firmware's Bluetooth notifications. Newlines inside the chunk
+   * still split it into lines.
+   */
+  public void appendMessage(byte[] data) {
+    append(data);
+    String line = buffer.toString().trim();
+    buffer.setLength(0);
+    if (!line.isEmpty()) listener.onLineReceived(line);
+  }
+
+  public void reset() {
+    buffer.setLength(0);
+  }
+}
@@ -0,0 +1,79 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import timber.log.Timber;
+
+/**
+ * Records the raw bytes exchanged with the robot, in both directions, into a compact binary file
+ * that can later be played back with {@link ReplayTransport}.
+ *
+ * <p>File layout: the magic "SBLR", a version byte and the wall-clock start time in milliseconds,
+ * followed by one record per chunk: direction byte, timestamp delta in nanoseconds (varint),
+ * payload length (varint) and the payload bytes exactly as read from or written to the link.
+ */
+public class LinkRecorder {
+  public static final byte[] MAGIC = {'S', 'B', 'L', 'R'};
+  public static final int VERSION = 1;
+  public static final int DIRECTION_RX = 0;
+  public static final int DIRECTION_TX = 1;
+
+  private final DataOutputStream out;
+  private long lastNanos;
+  private boolean closed = false;
+
+  public LinkRecorder(File file) throws IOException {
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+    out.write(MAGIC);
+    out.writeByte(VERSION);
+    out.writeLong(System.currentTimeMillis());
+    lastNanos = System.nanoTime();
+  }
+
+  /** Bytes received from the robot */
+  public void recordRx(byte[] data) {
+    record(DIRECTION_RX, data);
+  }
+
+  /** Bytes sent to the robot */
+  public void recordTx(byte[] data) {
+    record(DIRECTION_TX, data);
+  }
+
+  private synchronized void record(int direction, byte[] data) {
+    if (closed || data == null) return;
+    long now = System.nanoTime();
+    try {
+      out.writeByte(direction);
+      writeVarLong(Math.max(0, now - lastNanos));
+      writeVarLong(data.length);
+      out.write(data);
+      lastNanos = now;
+    } catch (IOException e) {
+      Timber.e(e, "Failed to record link data, stopping recorder");
+      close();
+    }
+  }
+
+  private void writeVarLong(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  public synchronized void close() {
+    if (closed) return;
+    closed = true;
+    try {
+      out.close();
+    } catch (IOException e) {
+      Timber.e(e, "Failed to close link recording");
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/** Sequential reader for files written by {@link LinkRecorder}. */
+public class LinkRecordingReader implements Closeable {
+
+  /** One recorded chunk; the timestamp is relative to the start of the recording. */
+  public record Chunk(int direction, long timestampNanos, byte[] data) {
+    public boolean isRx() {
+      return direction == LinkRecorder.DIRECTION_RX;
+    }
+  }
+
+  private final DataInputStream in;
+  private final long startTimeMillis;
+  private long timestampNanos = 0;
+
+  public LinkRecordingReader(File file) throws IOException {
+    in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+    byte[] magic = new byte[LinkRecorder.MAGIC.length];
+    in.readFully(magic);
+    if (!Arrays.equals(magic, LinkRecorder.MAGIC)) {
+      in.close();
+      throw new IOException("Not a link recording: " + file);
+    }
+    int version = in.readUnsignedByte();
+    if (version != LinkRecorder.VERSION) {
+      in.close();
+      throw new IOException("Unsupported link recording version " + version);
+    }
+    startTimeMillis = in.readLong();
+  }
+
+  /** Wall-clock time at which the recording was started */
+  public long getStartTimeMillis() {
+    return startTimeMillis;
+  }
+
+  /** Returns the next chunk, or null at the end of the recording. */
+  public Chunk next() throws IOException {
+    int direction = in.read();
+    if (direction < 0) return null;
+    try {
+      timestampNanos += readVarLong();
+      long length = readVarLong();
+      if (length > Integer.MAX_VALUE) throw new IOException("Corrupt chunk length " + length);
+      byte[] data = new byte[(int) length];
+      in.readFully(data);
+      return new Chunk(direction, timestampNanos, data);
+    } catch (EOFException e) {
+      // Truncated last record, e.g. the app was killed while recording
+      return null;
+    }
+  }
+
+  private long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
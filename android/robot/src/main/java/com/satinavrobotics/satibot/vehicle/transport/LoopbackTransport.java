@@ -0,0 +1,114 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * In-memory transport. Every instance is one end of a pair: bytes sent on one end are framed and
+ * delivered to the listener of the other end on that end's own delivery thread. Use one end as
+ * the vehicle link and attach a fake firmware to {@link #getPeer()} to load-test the control path
+ * without any I/O.
+ */
+public class LoopbackTransport implements VehicleTransport {
+  private static final int QUEUE_CAPACITY = 1024;
+  private static final byte[] CLOSE = new byte[0];
+
+  private final String name;
+  private final TransportMetrics metrics = new TransportMetrics();
+  private final BlockingQueue<byte[]> inbox = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final LineFramer framer;
+  private final Thread deliveryThread;
+  private LoopbackTransport peer;
+  private volatile DataListener listener;
+  private volatile boolean connected = true;
+
+  /** Create a connected pair and return the vehicle-side end. */
+  public static LoopbackTransport create() {
+    LoopbackTransport vehicleSide = new LoopbackTransport("Loopback");
+    LoopbackTransport firmwareSide = new LoopbackTransport("Loopback-peer");
+    vehicleSide.peer = firmwareSide;
+    firmwareSide.peer = vehicleSide;
+    vehicleSide.deliveryThread.start();
+    firmwareSide.deliveryThread.start();
+    return vehicleSide;
+  }
+
+  private LoopbackTransport(String name) {
+    this.name = name;
+    framer =
+        new LineFramer(
+            line -> {
+              metrics.onLineReceived();
+              DataListener l = listener;
+              if (l != null) l.onLineReceived(line);
+            });
+    deliveryThread = new Thread(this::deliverLoop, name);
+    deliveryThread.setDaemon(true);
+  }
+
+  private void deliverLoop() {
+    try {
+      while (true) {
+        byte[] data = inbox.take();
+        if (data == CLOSE) return;
+        metrics.onBytesReceived(data.length);
+        framer.append(data);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** The other end of the pair */
+  public LoopbackTransport getPeer() {
+    return peer;
+  }
+
+  @Override
+  public boolean send(String message) {
+    long start = System.nanoTime();
+    byte[] data = message.getBytes(UTF_8);
+    if (!isConnected() || !peer.inbox.offer(data)) {
+      metrics.onDropped();
+      return false;
+    }
+    metrics.onSent(data.length, System.nanoTime() - start);
+    return true;
+  }
+
+  @Override
+  public boolean isConnected() {
+    return connected && peer.connected;
+  }
+
+  @Override
+  public void setDataListener(DataListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public TransportMetrics getMetrics() {
+    return metrics;
+  }
+
+  /** Closes both ends of the pair */
+  @Override
+  public void close() {
+    closeEnd();
+    peer.closeEnd();
+  }
+
+  private void closeEnd() {
+    if (!connected) return;
+    connected = false;
+    inbox.clear();
+    inbox.offer(CLOSE);
+  }
+}
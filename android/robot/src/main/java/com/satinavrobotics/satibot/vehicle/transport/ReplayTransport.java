@@ -0,0 +1,167 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Transport that plays back a {@link LinkRecorder} file instead of talking to the robot. Received
+ * chunks are framed and delivered to the listener either at the recorded pace (1x) or as fast as
+ * possible, so the telemetry decoding, control and navigation code can be exercised on a plain JVM
+ * without hardware. Messages sent to this transport are counted in the metrics but otherwise
+ * discarded; the recorded outgoing traffic is skipped during playback.
+ *
+ * <p>Has no Android dependencies.
+ */
+public class ReplayTransport implements VehicleTransport {
+
+  private final File recording;
+  private final boolean realtime;
+  private final LineFramer framer;
+  private volatile DataListener listener;
+  private volatile boolean running = false;
+  private Thread thread;
+
+  private final TransportMetrics metrics = new TransportMetrics();
+  // Written by the replaying thread only
+  private volatile long linesDelivered;
+  private volatile long bytesReplayed;
+  private volatile long recordedTxChunks;
+
+  /**
+   * @param recording file written by {@link LinkRecorder}
+   * @param realtime true to keep the recorded timing, false to replay as fast as possible
+   */
+  public ReplayTransport(File recording, boolean realtime) {
+    this.recording = recording;
+    this.realtime = realtime;
+    this.framer =
+        new LineFramer(
+            line -> {
+              linesDelivered++;
+              metrics.onLineReceived();
+              DataListener l = listener;
+              if (l != null) l.onLineReceived(line);
+            });
+  }
+
+  @Override
+  public boolean send(String message) {
+    metrics.onSent(message.length(), 0);
+    return true;
+  }
+
+  @Override
+  public boolean isConnected() {
+    return running;
+  }
+
+  @Override
+  public void setDataListener(DataListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public String getName() {
+    return "Replay";
+  }
+
+  @Override
+  public TransportMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void close() {
+    stop();
+  }
+
+  /** Replay the whole recording on the calling thread. Returns the number of lines delivered. */
+  public long replay() throws IOException {
+    running = true;
+    return play();
+  }
+
+  /** Replay until the end of the recording or until {@link #stop()} clears the running flag. */
+  private long play() throws IOException {
+    linesDelivered = 0;
+    bytesReplayed = 0;
+    recordedTxChunks = 0;
+    framer.reset();
+    try (LinkRecordingReader reader = new LinkRecordingReader(recording)) {
+      long startNanos = System.nanoTime();
+      LinkRecordingReader.Chunk chunk;
+      while (running && (chunk = reader.next()) != null) {
+        if (!chunk.isRx()) {
+          recordedTxChunks++;
+          continue;
+        }
+        if (realtime) {
+          long wait = startNanos + chunk.timestampNanos() - System.nanoTime();
+          if (wait > 0) LockSupport.parkNanos(wait);
+        }
+        bytesReplayed += chunk.data().length;
+        metrics.onBytesReceived(chunk.data().length);
+        framer.append(chunk.data());
+      }
+    } finally {
+      running = false;
+    }
+    return linesDelivered;
+  }
+
+  /** Replay the recording on a background thread. */
+  public synchronized void start() {
+    if (thread != null && thread.isAlive()) return;
+    running = true;
+    thread =
+        new Thread(
+            () -> {
+              try {
+                play();
+              } catch (IOException e) {
+                e.printStackTrace();
+              }
+            },
+            "ReplayTransport");
+    thread.start();
+  }
+
+  /** Stop the replay and wait for the background thread, if any, to finish. */
+  public void stop() {
+    Thread t;
+    synchronized (this) {
+      running = false;
+      t = thread;
+      thread = null;
+    }
+    if (t == null || t == Thread.currentThread()) return;
+    t.interrupt();
+    try {
+      t.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Wait for a replay started with {@link #start()} to finish. */
+  public void awaitCompletion() throws InterruptedException {
+    Thread t;
+    synchronized (this) {
+      t = thread;
+    }
+    if (t != null) t.join();
+  }
+
+  public long getLinesDelivered() {
+    return linesDelivered;
+  }
+
+  public long getBytesReplayed() {
+    return bytesReplayed;
+  }
+
+  public long getRecordedTxChunks() {
+    return recordedTxChunks;
+  }
+}
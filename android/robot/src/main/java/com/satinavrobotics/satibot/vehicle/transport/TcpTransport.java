@@ -0,0 +1,174 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Transport over a TCP socket speaking the same line protocol as the serial link. Intended for
+ * driving the app against a simulated firmware on a desktop or Linux host.
+ *
+ * <p>Writes go through a bounded queue drained by a writer thread, so {@link #send(String)} never
+ * blocks; when the queue is full the message is dropped. Has no Android dependencies.
+ */
+public class TcpTransport implements VehicleTransport {
+  private static final int QUEUE_CAPACITY = 256;
+  private static final int READ_BUFFER_SIZE = 4096;
+
+  private final String host;
+  private final int port;
+  private final TransportMetrics metrics = new TransportMetrics();
+  private final BlockingQueue<byte[]> writeQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final LineFramer framer;
+  private volatile DataListener listener;
+  private volatile Socket socket;
+  private Thread readerThread;
+  private Thread writerThread;
+
+  public TcpTransport(String host, int port) {
+    this.host = host;
+    this.port = port;
+    framer = createFramer();
+  }
+
+  /** Wrap an already connected socket, e.g. one accepted by a simulator server. */
+  public TcpTransport(Socket socket) {
+    this.host = socket.getInetAddress().getHostAddress();
+    this.port = socket.getPort();
+    framer = createFramer();
+    try {
+      socket.setTcpNoDelay(true);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    this.socket = socket;
+    startThreads();
+  }
+
+  private LineFramer createFramer() {
+    return new LineFramer(
+        line -> {
+          metrics.onLineReceived();
+          DataListener l = listener;
+          if (l != null) l.onLineReceived(line);
+        });
+  }
+
+  /** Open the socket and start the reader and writer threads. Blocks up to timeoutMs. */
+  public synchronized boolean connect(int timeoutMs) {
+    if (isConnected()) return true;
+    try {
+      Socket s = new Socket();
+      s.setTcpNoDelay(true);
+      s.connect(new InetSocketAddress(host, port), timeoutMs);
+      socket = s;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+    startThreads();
+    return true;
+  }
+
+  private void startThreads() {
+    writeQueue.clear();
+    framer.reset();
+    // The threads keep their own reference, close() clears the field
+    Socket s = socket;
+    readerThread = new Thread(() -> readLoop(s), "TcpTransport-reader");
+    writerThread = new Thread(() -> writeLoop(s), "TcpTransport-writer");
+    readerThread.start();
+    writerThread.start();
+  }
+
+  private void readLoop(Socket s) {
+    byte[] buffer = new byte[READ_BUFFER_SIZE];
+    try {
+      InputStream in = s.getInputStream();
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        metrics.onBytesReceived(n);
+        framer.append(buffer, 0, n);
+      }
+    } catch (IOException e) {
+      if (isConnected()) e.printStackTrace();
+    } finally {
+      close();
+    }
+  }
+
+  private void writeLoop(Socket s) {
+    try {
+      OutputStream out = s.getOutputStream();
+      while (isConnected()) {
+        byte[] data = writeQueue.take();
+        out.write(data);
+        // Drain whatever else is queued before flushing
+        byte[] next;
+        while ((next = writeQueue.poll()) != null) out.write(next);
+        out.flush();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      if (isConnected()) e.printStackTrace();
+    } finally {
+      close();
+    }
+  }
+
+  @Override
+  public boolean send(String message) {
+    long start = System.nanoTime();
+    byte[] data = message.getBytes(UTF_8);
+    if (!isConnected() || !writeQueue.offer(data)) {
+      metrics.onDropped();
+      return false;
+    }
+    metrics.onSent(data.length, System.nanoTime() - start);
+    return true;
+  }
+
+  @Override
+  public boolean isConnected() {
+    Socket s = socket;
+    return s != null && s.isConnected() && !s.isClosed();
+  }
+
+  @Override
+  public void setDataListener(DataListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public String getName() {
+    return "TCP";
+  }
+
+  @Override
+  public TransportMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public synchronized void close() {
+    Socket s = socket;
+    socket = null;
+    if (s != null) {
+      try {
+        s.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    if (writerThread != null && writerThread != Thread.currentThread()) writerThread.interrupt();
+    readerThread = null;
+    writerThread = null;
+  }
+}
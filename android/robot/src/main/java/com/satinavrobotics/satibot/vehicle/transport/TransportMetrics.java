@@ -0,0 +1,89 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Lock-free counters describing the traffic on one {@link VehicleTransport}. */
+public class TransportMetrics {
+  private final AtomicLong messagesSent = new AtomicLong();
+  private final AtomicLong bytesSent = new AtomicLong();
+  private final AtomicLong messagesDropped = new AtomicLong();
+  private final AtomicLong linesReceived = new AtomicLong();
+  private final AtomicLong bytesReceived = new AtomicLong();
+  private final AtomicLong sendNanosTotal = new AtomicLong();
+  private final AtomicLong sendNanosMax = new AtomicLong();
+
+  /** A message was accepted; sendNanos is the time the caller spent inside send() */
+  public void onSent(int bytes, long sendNanos) {
+    messagesSent.incrementAndGet();
+    bytesSent.addAndGet(bytes);
+    sendNanosTotal.addAndGet(sendNanos);
+    sendNanosMax.accumulateAndGet(sendNanos, Math::max);
+  }
+
+  public void onDropped() {
+    messagesDropped.incrementAndGet();
+  }
+
+  public void onBytesReceived(int bytes) {
+    bytesReceived.addAndGet(bytes);
+  }
+
+  public void onLineReceived() {
+    linesReceived.incrementAndGet();
+  }
+
+  public long getMessagesSent() {
+    return messagesSent.get();
+  }
+
+  public long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  public long getMessagesDropped() {
+    return messagesDropped.get();
+  }
+
+  public long getLinesReceived() {
+    return linesReceived.get();
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived.get();
+  }
+
+  /** Mean time spent inside send() in microseconds */
+  public double getMeanSendMicros() {
+    long sent = messagesSent.get();
+    return sent == 0 ? 0 : sendNanosTotal.get() / 1000.0 / sent;
+  }
+
+  public double getMaxSendMicros() {
+    return sendNanosMax.get() / 1000.0;
+  }
+
+  public void reset() {
+    messagesSent.set(0);
+    bytesSent.set(0);
+    messagesDropped.set(0);
+    linesReceived.set(0);
+    bytesReceived.set(0);
+    sendNanosTotal.set(0);
+    sendNanosMax.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "sent=%d (%d B) dropped=%d received=%d lines (%d B) send=%.1f/%.1f us (mean/max)",
+        getMessagesSent(),
+        getBytesSent(),
+        getMessagesDropped(),
+        getLinesReceived(),
+        getBytesReceived(),
+        getMeanSendMicros(),
+        getMaxSendMicros());
+  }
+}
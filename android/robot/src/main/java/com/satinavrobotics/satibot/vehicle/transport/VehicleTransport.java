@@ -0,0 +1,31 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+/**
+ * A byte link to the robot firmware. Outgoing messages are newline-terminated protocol strings
+ * (see firmware/satibot/COMMUNICATION_PROTOCOL.md); incoming data is delivered as framed lines.
+ *
+ * <p>{@link #send(String)} must not block the caller on I/O. Implementations either hand the
+ * bytes to an asynchronous writer or drop the message and return false.
+ */
+public interface VehicleTransport {
+
+  /** Receives telemetry lines from the robot, without the trailing newline. */
+  interface DataListener {
+    void onLineReceived(String line);
+  }
+
+  /** Returns true if the message was accepted for sending, false if it was dropped. */
+  boolean send(String message);
+
+  boolean isConnected();
+
+  void setDataListener(DataListener listener);
+
+  /** Short human-readable name for logs, e.g. "USB" or "TCP" */
+  String getName();
+
+  TransportMetrics getMetrics();
+
+  /** Release the link. Transports whose lifecycle is managed elsewhere may ignore this. */
+  default void close() {}
+}
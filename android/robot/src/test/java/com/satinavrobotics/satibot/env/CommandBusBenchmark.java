@@ -0,0 +1,88 @@
+package com.satinavrobotics.satibot.env;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Measures the controller command path from RPC payload to subscriber: events per second and
+ * bytes allocated per event, for {@link ControllerToBotEventBus} and for the previous approach of
+ * building a JSONObject per payload and reading the drive values back as strings.
+ *
+ * <p>Run {@link #main(String[])} on a desktop JVM with org.json on the classpath; allocation is
+ * read from com.sun.management.ThreadMXBean and reported as -1 where unsupported. Has no Android
+ * dependencies.
+ */
+public final class CommandBusBenchmark {
+
+  private static final String[] PAYLOADS = {
+    "{\"driveCmd\":{\"l\":0.42,\"a\":-0.13}}",
+    "{\"driveCmd\":{\"l\":\"0.5\",\"a\":\"0.25\"},\"timestamp\":1718000000000}",
+    "{\"command\":\"DRIVE_CMD\",\"driveCmd\":{\"l\":-1,\"a\":0}}",
+  };
+
+  private static volatile float sink;
+
+  private CommandBusBenchmark() {}
+
+  public static void main(String[] args) throws JSONException {
+    int events = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+    LatencyTracer.setEnabled(false);
+    ControllerToBotEventBus.subscribe(
+        "benchmark",
+        ControllerCommand.DriveCommand.class,
+        command -> sink = command.linear() + command.angular(),
+        Throwable::printStackTrace);
+
+    // Warm up both paths before measuring
+    runBus(events / 4);
+    runJsonObject(events / 4);
+
+    report("bus", events, () -> runBus(events));
+    report("JSONObject", events, () -> {
+      try {
+        runJsonObject(events);
+      } catch (JSONException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    ControllerToBotEventBus.unsubscribe("benchmark");
+  }
+
+  private static void runBus(int events) {
+    for (int i = 0; i < events; i++) {
+      ControllerToBotEventBus.emitEvent(PAYLOADS[i % PAYLOADS.length]);
+    }
+  }
+
+  private static void runJsonObject(int events) throws JSONException {
+    for (int i = 0; i < events; i++) {
+      JSONObject event = new JSONObject(PAYLOADS[i % PAYLOADS.length]);
+      JSONObject driveValue = event.getJSONObject("driveCmd");
+      sink = Float.parseFloat(driveValue.getString("l")) + Float.parseFloat(driveValue.getString("a"));
+    }
+  }
+
+  private static void report(String label, int events, Runnable run) {
+    long startBytes = allocatedBytes();
+    long startNanos = System.nanoTime();
+    run.run();
+    long elapsedNanos = System.nanoTime() - startNanos;
+    long bytes = allocatedBytes() - startBytes;
+    System.out.println(
+        String.format(
+            Locale.US,
+            "%-10s %,12.0f events/s %8.1f bytes/event",
+            label,
+            events * 1e9 / elapsedNanos,
+            startBytes < 0 ? -1.0 : (double) bytes / events));
+  }
+
+  private static long allocatedBytes() {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+      return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+}
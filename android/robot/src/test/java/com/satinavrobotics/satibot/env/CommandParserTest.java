@@ -0,0 +1,77 @@
+package com.satinavrobotics.satibot.env;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.utils.Constants;
+import org.junit.Test;
+
+public class CommandParserTest {
+
+  @Test
+  public void parsesBareDriveValues() {
+    ControllerCommand command = CommandParser.parse("{\"driveCmd\":{\"l\":0.42,\"a\":-0.13}}");
+
+    assertEquals(new ControllerCommand.DriveCommand(0.42f, -0.13f), command);
+  }
+
+  @Test
+  public void parsesQuotedDriveValuesAndSkipsOtherKeys() {
+    ControllerCommand command =
+        CommandParser.parse(
+            "{\"driveCmd\":{\"l\":\"0.5\",\"a\":\"0.25\"},\"timestamp\":1718000000000,"
+                + "\"meta\":{\"nested\":[1,\"}\",{}]}}");
+
+    assertEquals(new ControllerCommand.DriveCommand(0.5f, 0.25f), command);
+  }
+
+  @Test
+  public void explicitDriveCommandName() {
+    ControllerCommand command =
+        CommandParser.parse(
+            "{ \"command\" : \"DRIVE_CMD\", \"driveCmd\" : { \"l\" : -1, \"a\" : 0 } }");
+
+    assertEquals(new ControllerCommand.DriveCommand(-1f, 0f), command);
+  }
+
+  @Test
+  public void namedCommandReturnsConstant() {
+    ControllerCommand command = CommandParser.parse("{\"command\":\"INDICATOR_LEFT\"}");
+
+    assertTrue(command instanceof ControllerCommand.NamedCommand);
+    assertEquals(Constants.CMD_INDICATOR_LEFT, command.name());
+  }
+
+  @Test
+  public void driveWithoutBothValuesIsNamedCommand() {
+    ControllerCommand command = CommandParser.parse("{\"driveCmd\":{\"l\":0.1}}");
+
+    assertEquals(new ControllerCommand.NamedCommand(Constants.CMD_DRIVE), command);
+  }
+
+  @Test
+  public void serverMessageHasEmptyName() {
+    assertEquals(
+        new ControllerCommand.NamedCommand(""), CommandParser.parse("{\"server\":\"hello\"}"));
+  }
+
+  @Test
+  public void defaultCommandAppliesWithoutCommandKey() {
+    assertEquals(
+        new ControllerCommand.NamedCommand(Constants.CMD_CONNECTED),
+        CommandParser.parse("{\"id\":7}", Constants.CMD_CONNECTED));
+  }
+
+  @Test
+  public void nonCommandPayloadIsNull() {
+    assertNull(CommandParser.parse("{\"status\":{\"ok\":true}}"));
+    assertNull(CommandParser.parse("{}"));
+    assertNull(CommandParser.parse(null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void malformedPayloadThrows() {
+    CommandParser.parse("{\"driveCmd\":{\"l\":0.1,\"a\"");
+  }
+}
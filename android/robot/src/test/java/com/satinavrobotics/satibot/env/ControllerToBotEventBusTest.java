@@ -0,0 +1,95 @@
+package com.satinavrobotics.satibot.env;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ControllerToBotEventBusTest {
+
+  private final List<ControllerCommand> drives = new ArrayList<>();
+  private final List<ControllerCommand> all = new ArrayList<>();
+  private final List<Throwable> errors = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    LatencyTracer.setEnabled(false);
+  }
+
+  @After
+  public void tearDown() {
+    ControllerToBotEventBus.unsubscribe("drive");
+    ControllerToBotEventBus.unsubscribe("all");
+    LatencyTracer.setEnabled(true);
+  }
+
+  @Test
+  public void routesCommandsByType() {
+    ControllerToBotEventBus.subscribe(
+        "drive", ControllerCommand.DriveCommand.class, drives::add, errors::add);
+    ControllerToBotEventBus.subscribe("all", ControllerCommand.class, all::add, errors::add);
+
+    ControllerToBotEventBus.emitEvent("{\"driveCmd\":{\"l\":0.42,\"a\":-0.13}}");
+    ControllerToBotEventBus.emitEvent("{\"command\":\"INDICATOR_STOP\"}");
+    ControllerToBotEventBus.emitEvent("{\"status\":1}");
+
+    assertEquals(List.of(new ControllerCommand.DriveCommand(0.42f, -0.13f)), drives);
+    assertEquals(2, all.size());
+    assertEquals(0, errors.size());
+  }
+
+  @Test
+  public void invalidPayloadIsDropped() {
+    ControllerToBotEventBus.subscribe("all", ControllerCommand.class, all::add, errors::add);
+
+    ControllerToBotEventBus.emitEvent("{\"driveCmd\":");
+
+    assertEquals(0, all.size());
+    assertEquals(0, errors.size());
+  }
+
+  @Test
+  public void failingSubscriberStaysSubscribed() {
+    ControllerToBotEventBus.subscribe(
+        "drive",
+        ControllerCommand.DriveCommand.class,
+        command -> {
+          drives.add(command);
+          throw new IllegalStateException("subscriber failed");
+        },
+        errors::add);
+
+    ControllerToBotEventBus.emit(new ControllerCommand.DriveCommand(1, 0));
+    ControllerToBotEventBus.emit(new ControllerCommand.DriveCommand(0, 1));
+
+    assertEquals(2, drives.size());
+    assertEquals(2, errors.size());
+  }
+
+  @Test
+  public void subscribingTwiceDeliversOnce() {
+    ControllerToBotEventBus.subscribe(
+        "drive", ControllerCommand.DriveCommand.class, drives::add, errors::add);
+    ControllerToBotEventBus.subscribe(
+        "drive", ControllerCommand.DriveCommand.class, drives::add, errors::add);
+
+    ControllerToBotEventBus.emit(new ControllerCommand.DriveCommand(1, 0));
+
+    assertEquals(1, drives.size());
+  }
+
+  @Test
+  public void unsubscribeStopsDelivery() {
+    ControllerToBotEventBus.subscribe(
+        "drive", ControllerCommand.DriveCommand.class, drives::add, errors::add);
+    ControllerToBotEventBus.subscribe("drive", ControllerCommand.class, drives::add, errors::add);
+
+    ControllerToBotEventBus.unsubscribe("drive");
+    ControllerToBotEventBus.emit(new ControllerCommand.DriveCommand(1, 0));
+
+    assertEquals(0, drives.size());
+  }
+}
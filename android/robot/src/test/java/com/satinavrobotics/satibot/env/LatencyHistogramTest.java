@@ -0,0 +1,93 @@
+package com.satinavrobotics.satibot.env;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  // 16 linear sub-buckets per power of two, reported at the bucket midpoint
+  private static final double RELATIVE_ERROR = 1.0 / 32;
+
+  private final LatencyHistogram histogram = new LatencyHistogram();
+
+  @Test
+  public void emptyHistogramReportsZero() {
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(50));
+    assertEquals(0, histogram.getMaxNanos());
+    assertEquals(0, histogram.getMeanNanos(), 0);
+  }
+
+  @Test
+  public void smallValuesAreExact() {
+    for (int value = 0; value < 32; value++) histogram.record(value);
+
+    assertEquals(0, histogram.getPercentile(0));
+    assertEquals(15, histogram.getPercentile(50));
+    assertEquals(30, histogram.getPercentile(96));
+    assertEquals(31, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void largeValuesStayWithinTheBucketError() {
+    for (long value = 32; value < 1L << 40; value = value * 5 / 4 + 1) {
+      histogram.reset();
+      histogram.record(value);
+      // A larger maximum keeps the percentile from being capped at the recorded value
+      histogram.record(value * 4);
+
+      long reported = histogram.getPercentile(50);
+      assertEquals("value " + value, value, reported, value * RELATIVE_ERROR);
+    }
+  }
+
+  @Test
+  public void percentilesOfUniformValues() {
+    for (long micros = 1; micros <= 10_000; micros++) histogram.record(micros * 1000);
+
+    assertEquals(5_000_000, histogram.getPercentile(50), 5_000_000 * RELATIVE_ERROR);
+    assertEquals(9_900_000, histogram.getPercentile(99), 9_900_000 * RELATIVE_ERROR);
+    assertEquals(10_000_000, histogram.getPercentile(100));
+    assertEquals(10_000_000, histogram.getMaxNanos());
+    assertEquals(5_000_500, histogram.getMeanNanos(), 1e-6);
+  }
+
+  @Test
+  public void negativeValuesCountAsZero() {
+    histogram.record(-5);
+
+    assertEquals(1, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void resetClearsEverything() {
+    histogram.record(1_000_000);
+    histogram.reset();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(99));
+    assertEquals(0, histogram.getMaxNanos());
+  }
+
+  @Test
+  public void concurrentRecordsAreAllCounted() throws InterruptedException {
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                for (int i = 0; i < 100_000; i++) histogram.record(i);
+              });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) thread.join();
+
+    assertEquals(400_000, histogram.getCount());
+    assertEquals(99_999, histogram.getMaxNanos());
+  }
+}
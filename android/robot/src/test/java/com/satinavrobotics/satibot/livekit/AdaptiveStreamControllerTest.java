@@ -0,0 +1,161 @@
+package com.satinavrobotics.satibot.livekit;
+
+import static org.junit.Assert.assertEquals;
+
+import com.satinavrobotics.satibot.livekit.AdaptiveStreamController.StreamLevel;
+
+import io.livekit.android.room.participant.ConnectionQuality;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Walks {@link AdaptiveStreamController} through degrade, hold and upgrade transitions with one
+ * evaluation per second.
+ */
+public class AdaptiveStreamControllerTest {
+    private static final StreamLevel[] LEVELS = AdaptiveStreamController.LEVELS;
+
+    private final AdaptiveStreamController controller = new AdaptiveStreamController();
+    private final List<StreamLevel> changes = new ArrayList<>();
+    private long nowMs = 1_000_000;
+
+    @Before
+    public void setUp() {
+        controller.addListener(changes::add);
+    }
+
+    @Test
+    public void poorQualityDegradesOneLevelPerInterval() {
+        controller.onConnectionQuality(ConnectionQuality.POOR);
+        controller.onOutboundStats(100, -1, "none");
+
+        evaluate(1);
+        assertEquals(LEVELS[1], controller.getCurrentLevel());
+
+        // Held for the minimum interval between changes
+        evaluate(1);
+        assertEquals(LEVELS[1], controller.getCurrentLevel());
+
+        evaluate(1);
+        assertEquals(LEVELS[2], controller.getCurrentLevel());
+        assertEquals(List.of(LEVELS[1], LEVELS[2]), changes);
+    }
+
+    @Test
+    public void upgradesAfterAStreakOfGoodEvaluations() {
+        controller.onConnectionQuality(ConnectionQuality.POOR);
+        evaluate(1);
+        assertEquals(LEVELS[1], controller.getCurrentLevel());
+
+        goodLink();
+        evaluate(4);
+        assertEquals(LEVELS[1], controller.getCurrentLevel());
+
+        evaluate(1);
+        assertEquals(LEVELS[0], controller.getCurrentLevel());
+    }
+
+    @Test
+    public void badEvaluationRestartsTheUpgradeStreak() {
+        controller.onConnectionQuality(ConnectionQuality.POOR);
+        evaluate(1);
+
+        goodLink();
+        evaluate(4);
+        controller.onOutboundStats(200, 5000, "none");
+        evaluate(1);
+        goodLink();
+        evaluate(4);
+        assertEquals(LEVELS[1], controller.getCurrentLevel());
+
+        evaluate(1);
+        assertEquals(LEVELS[0], controller.getCurrentLevel());
+    }
+
+    @Test
+    public void shortBandwidthLimitationHolds() {
+        goodLink();
+        controller.onOutboundStats(50, 5000, "bandwidth");
+        evaluate(2);
+        controller.onOutboundStats(50, 5000, "none");
+        evaluate(1);
+        controller.onOutboundStats(50, 5000, "bandwidth");
+        evaluate(2);
+
+        assertEquals(LEVELS[0], controller.getCurrentLevel());
+        assertEquals(0, changes.size());
+    }
+
+    @Test
+    public void persistentBandwidthLimitationDegrades() {
+        goodLink();
+        controller.onOutboundStats(50, 5000, "bandwidth");
+        evaluate(2);
+        assertEquals(LEVELS[0], controller.getCurrentLevel());
+
+        evaluate(1);
+        assertEquals(LEVELS[1], controller.getCurrentLevel());
+    }
+
+    @Test
+    public void bandwidthLimitationWithRisingRttDegrades() {
+        goodLink();
+        controller.onOutboundStats(200, 5000, "bandwidth");
+        evaluate(1);
+
+        assertEquals(LEVELS[1], controller.getCurrentLevel());
+    }
+
+    @Test
+    public void bandwidthLimitationDoesNotBlockUpgrades() {
+        controller.onConnectionQuality(ConnectionQuality.POOR);
+        evaluate(1);
+
+        controller.onConnectionQuality(ConnectionQuality.GOOD);
+        for (int i = 0; i < 5; i++) {
+            controller.onOutboundStats(50, 5000, i % 2 == 0 ? "bandwidth" : "none");
+            evaluate(1);
+        }
+
+        assertEquals(LEVELS[0], controller.getCurrentLevel());
+    }
+
+    @Test
+    public void lowAvailableBitrateDegradesAndHoldsTheLevel() {
+        goodLink();
+        // Below 80% of the best level's target, above 120% of the next level's
+        controller.onOutboundStats(50, 1100, "none");
+        evaluate(1);
+        assertEquals(LEVELS[1], controller.getCurrentLevel());
+
+        // Not enough for the best level again
+        evaluate(10);
+        assertEquals(LEVELS[1], controller.getCurrentLevel());
+    }
+
+    @Test
+    public void resetReturnsToTheBestLevel() {
+        controller.onConnectionQuality(ConnectionQuality.LOST);
+        evaluate(3);
+        controller.reset();
+
+        assertEquals(LEVELS[0], controller.getCurrentLevel());
+        assertEquals(LEVELS[0], changes.get(changes.size() - 1));
+    }
+
+    private void goodLink() {
+        controller.onConnectionQuality(ConnectionQuality.GOOD);
+        controller.onOutboundStats(50, 5000, "none");
+    }
+
+    private void evaluate(int seconds) {
+        for (int i = 0; i < seconds; i++) {
+            nowMs += 1000;
+            controller.evaluate(nowMs);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.satinavrobotics.satibot.livekit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.function.Consumer;
+
+/**
+ * Encodes telemetry with {@link TelemetryEncoder} and {@link TelemetryPublisher}'s keyframe
+ * schedule and decodes it with {@link TelemetryPacketDecoder}.
+ */
+public class TelemetryEncoderTest {
+    private static final boolean[] ROWS = {true, false, true, true, false, false, true, false, true,
+            true};
+
+    private final TelemetryEncoder encoder = new TelemetryEncoder();
+    private final TelemetryPacketDecoder decoder = new TelemetryPacketDecoder();
+
+    @Test
+    public void fullFrameRoundTrip() {
+        encoder.begin(123_456, true);
+        putAll(encoder, 42);
+
+        assertTrue(decoder.decode(encoder.finish()));
+
+        assertTrue(decoder.isKeyframe());
+        assertEquals(123_456, decoder.getTimestampMs());
+        assertEquals(0, decoder.getSequence());
+        assertEquals(1.234f, decoder.getX(), 1e-6f);
+        assertEquals(-5.678f, decoder.getZ(), 1e-6f);
+        assertEquals(-0.7854f, decoder.getYaw(), 1e-6f);
+        assertTrue(decoder.isVisuallyTracked());
+        assertEquals(0.5f, decoder.getLinear(), 1e-6f);
+        assertEquals(-0.25f, decoder.getAngular(), 1e-6f);
+        assertEquals(30.5f, decoder.getLeftRpm(), 1e-6f);
+        assertEquals(-12.3f, decoder.getRightRpm(), 1e-5f);
+        assertEquals(0.125f, decoder.getFusedAngularVelocity(), 1e-6f);
+        assertEquals(42, decoder.getBatteryPercent());
+        assertEquals(2, decoder.getStateOrdinal());
+        assertEquals(3, decoder.getWaypointIndex());
+        assertEquals(7, decoder.getWaypointCount());
+        assertArrayEquals(ROWS, decoder.getNavigability());
+    }
+
+    @Test
+    public void deltaFrameCarriesOnlyChangedFields() {
+        encoder.begin(0, true);
+        putAll(encoder, 42);
+        byte[] keyframe = encoder.finish();
+
+        encoder.begin(100, false);
+        putAll(encoder, 41);
+        byte[] delta = encoder.finish();
+
+        assertTrue(delta.length < keyframe.length);
+        assertTrue(decoder.decode(keyframe));
+        assertTrue(decoder.decode(delta));
+        assertFalse(decoder.isKeyframe());
+        assertEquals(41, decoder.getBatteryPercent());
+        // Fields left out of the delta keep their value
+        assertTrue(decoder.has(TelemetryEncoder.FIELD_POSE));
+        assertEquals(1.234f, decoder.getX(), 1e-6f);
+        assertArrayEquals(ROWS, decoder.getNavigability());
+    }
+
+    @Test
+    public void deltaWithoutChangesIsNotSent() {
+        encoder.begin(0, true);
+        putAll(encoder, 42);
+        encoder.finish();
+
+        encoder.begin(100, false);
+        putAll(encoder, 42);
+        assertNull(encoder.finish());
+    }
+
+    @Test
+    public void keyframeWithoutAFieldMakesItUnavailable() {
+        encoder.begin(0, true);
+        putAll(encoder, 42);
+        assertTrue(decoder.decode(encoder.finish()));
+
+        encoder.begin(1000, true);
+        encoder.putBattery(42);
+        assertTrue(decoder.decode(encoder.finish()));
+
+        assertTrue(decoder.has(TelemetryEncoder.FIELD_BATTERY));
+        assertFalse(decoder.has(TelemetryEncoder.FIELD_POSE));
+        assertNull(decoder.getNavigability());
+    }
+
+    @Test
+    public void outOfOrderPacketIsIgnored() {
+        encoder.begin(0, true);
+        encoder.putBattery(50);
+        byte[] first = encoder.finish();
+        encoder.begin(100, false);
+        encoder.putBattery(49);
+        byte[] second = encoder.finish();
+
+        assertTrue(decoder.decode(second));
+        assertFalse(decoder.decode(first));
+        assertEquals(49, decoder.getBatteryPercent());
+    }
+
+    @Test
+    public void publisherSendsKeyframesAtTheInterval() {
+        TelemetryPublisher publisher = new TelemetryPublisher(null);
+        int[] battery = {100};
+        Consumer<TelemetryEncoder> fields = e -> {
+            putAll(e, battery[0]);
+            battery[0]--;
+        };
+        long periodMs = 100;
+        long intervalMs = TelemetryPublisher.KEYFRAME_INTERVAL_MS;
+
+        for (long nowMs = 0; nowMs < 3 * intervalMs; nowMs += periodMs) {
+            byte[] packet = publisher.encodeFrame(nowMs, fields);
+            assertNotNull(packet);
+            assertTrue(decoder.decode(packet));
+            assertEquals("at " + nowMs + " ms", nowMs % intervalMs == 0, decoder.isKeyframe());
+            assertEquals(battery[0] + 1, decoder.getBatteryPercent());
+        }
+
+        // A new navigation forces a keyframe right away
+        publisher.setNavigationContext(null);
+        assertTrue(decoder.decode(publisher.encodeFrame(3050, fields)));
+        assertTrue(decoder.isKeyframe());
+    }
+
+    private static void putAll(TelemetryEncoder encoder, int battery) {
+        encoder.putPose(1.234f, -5.678f, -0.7854f, true);
+        encoder.putVelocity(0.5f, -0.25f, 30.5f, -12.3f, 0.125f);
+        encoder.putBattery(battery);
+        encoder.putNavigation(2, 3, 7);
+        encoder.putNavigability(ROWS);
+    }
+}
@@ -0,0 +1,166 @@
+package com.satinavrobotics.satibot.livekit;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the packets of {@link TelemetryEncoder} the way a controller does: delta frames update
+ * the fields they carry, keyframes replace the whole state, so a field missing from a keyframe is
+ * unavailable. Packets older than the last one applied are ignored.
+ */
+class TelemetryPacketDecoder {
+    private int available;
+    private int lastSequence = -1;
+    private boolean keyframe;
+    private long timestampMs;
+
+    private float x;
+    private float z;
+    private float yaw;
+    private boolean visuallyTracked;
+    private float linear;
+    private float angular;
+    private float leftRpm;
+    private float rightRpm;
+    private float fusedAngularVelocity;
+    private int batteryPercent;
+    private int stateOrdinal;
+    private int waypointIndex;
+    private int waypointCount;
+    private boolean[] navigability;
+
+    /**
+     * @return false if the packet was malformed, of another version or out of order
+     */
+    boolean decode(byte[] packet) {
+        ByteBuffer buffer = ByteBuffer.wrap(packet);
+        try {
+            if ((buffer.get() & 0xFF) != TelemetryEncoder.VERSION) {
+                return false;
+            }
+            boolean isKeyframe = (buffer.get() & TelemetryEncoder.FLAG_KEYFRAME) != 0;
+            int sequence = buffer.getShort() & 0xFFFF;
+            // Serial number arithmetic, the sequence wraps at 16 bits
+            if (lastSequence >= 0 && (short) (sequence - lastSequence) <= 0) {
+                return false;
+            }
+            long timestamp = buffer.getInt() & 0xFFFFFFFFL;
+            int mask = buffer.get() & 0xFF;
+
+            if (isKeyframe) {
+                available = 0;
+                navigability = null;
+            }
+            if ((mask & TelemetryEncoder.FIELD_POSE) != 0) {
+                x = buffer.getInt() / 1000f;
+                z = buffer.getInt() / 1000f;
+                yaw = buffer.getShort() / 10000f;
+                visuallyTracked = (buffer.get() & 1) != 0;
+            }
+            if ((mask & TelemetryEncoder.FIELD_VELOCITY) != 0) {
+                linear = buffer.getShort() / 1000f;
+                angular = buffer.getShort() / 1000f;
+                leftRpm = buffer.getShort() / 10f;
+                rightRpm = buffer.getShort() / 10f;
+                fusedAngularVelocity = buffer.getShort() / 1000f;
+            }
+            if ((mask & TelemetryEncoder.FIELD_BATTERY) != 0) {
+                batteryPercent = buffer.get() & 0xFF;
+            }
+            if ((mask & TelemetryEncoder.FIELD_NAVIGATION) != 0) {
+                stateOrdinal = buffer.get() & 0xFF;
+                waypointIndex = buffer.getShort() & 0xFFFF;
+                waypointCount = buffer.getShort() & 0xFFFF;
+            }
+            if ((mask & TelemetryEncoder.FIELD_NAVIGABILITY) != 0) {
+                int count = buffer.get() & 0xFF;
+                navigability = new boolean[count];
+                for (int offset = 0; offset < count; offset += 8) {
+                    int bits = buffer.get();
+                    for (int bit = 0; bit < 8 && offset + bit < count; bit++) {
+                        navigability[offset + bit] = (bits & (1 << bit)) != 0;
+                    }
+                }
+            }
+            available |= mask;
+            keyframe = isKeyframe;
+            timestampMs = timestamp;
+            lastSequence = sequence;
+            return true;
+        } catch (BufferUnderflowException e) {
+            return false;
+        }
+    }
+
+    boolean has(int field) {
+        return (available & field) != 0;
+    }
+
+    boolean isKeyframe() {
+        return keyframe;
+    }
+
+    long getTimestampMs() {
+        return timestampMs;
+    }
+
+    int getSequence() {
+        return lastSequence;
+    }
+
+    float getX() {
+        return x;
+    }
+
+    float getZ() {
+        return z;
+    }
+
+    float getYaw() {
+        return yaw;
+    }
+
+    boolean isVisuallyTracked() {
+        return visuallyTracked;
+    }
+
+    float getLinear() {
+        return linear;
+    }
+
+    float getAngular() {
+        return angular;
+    }
+
+    float getLeftRpm() {
+        return leftRpm;
+    }
+
+    float getRightRpm() {
+        return rightRpm;
+    }
+
+    float getFusedAngularVelocity() {
+        return fusedAngularVelocity;
+    }
+
+    int getBatteryPercent() {
+        return batteryPercent;
+    }
+
+    int getStateOrdinal() {
+        return stateOrdinal;
+    }
+
+    int getWaypointIndex() {
+        return waypointIndex;
+    }
+
+    int getWaypointCount() {
+        return waypointCount;
+    }
+
+    boolean[] getNavigability() {
+        return navigability;
+    }
+}
@@ -0,0 +1,137 @@
+package com.satinavrobotics.satibot.mapManagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures {@link SpatialHashIndex} against the linear scan WaypointGraph.findClosestWaypoint
+ * used to do, on waypoints spread over a two-floor building with about 1.5 m spacing. For 10k and
+ * 100k waypoints reports build time, nearest, 8-nearest and 2 m radius queries, and edits
+ * interleaved with queries. Build times include JIT warm-up.
+ *
+ * <p>Run {@link #main(String[])} on a desktop JVM. Has no Android dependencies.
+ */
+public final class SpatialHashIndexBenchmark {
+    private static final float SPACING = 1.5f;
+    private static final float FLOOR_HEIGHT = 3.0f;
+
+    private static volatile Object sink;
+
+    private SpatialHashIndexBenchmark() {}
+
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        for (int size : new int[] {10_000, 100_000}) {
+            run(size, queries);
+        }
+    }
+
+    private static void run(int size, int queries) {
+        Random random = new Random(size);
+        int side = (int) Math.ceil(Math.sqrt(size / 2.0));
+        float extent = side * SPACING;
+        float[][] points = new float[size][];
+        for (int i = 0; i < size; i++) {
+            points[i] = new float[] {random.nextFloat() * extent, (i % 2) * FLOOR_HEIGHT,
+                    random.nextFloat() * extent};
+        }
+        float[][] probes = new float[1024][];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = new float[] {random.nextFloat() * extent, random.nextInt(2) * FLOOR_HEIGHT + 0.3f,
+                    random.nextFloat() * extent};
+        }
+
+        long startNanos = System.nanoTime();
+        SpatialHashIndex<String> index = new SpatialHashIndex<>(SPACING);
+        for (int i = 0; i < size; i++) {
+            index.put("w" + i, points[i][0], points[i][1], points[i][2], "w" + i);
+        }
+        double buildMs = (System.nanoTime() - startNanos) / 1e6;
+
+        List<String> ids = new ArrayList<>(size);
+        float[] positions = new float[size * 3];
+        for (int i = 0; i < size; i++) {
+            ids.add("w" + i);
+            System.arraycopy(points[i], 0, positions, 3 * i, 3);
+        }
+        startNanos = System.nanoTime();
+        new SpatialHashIndex<String>(SPACING).putAll(ids, positions, ids);
+        double bulkMs = (System.nanoTime() - startNanos) / 1e6;
+        System.out.println(String.format(Locale.US,
+                "%,d waypoints, built in %.1f ms by single inserts, %.1f ms by putAll",
+                size, buildMs, bulkMs));
+
+        // Warm up
+        for (int i = 0; i < queries; i++) {
+            float[] p = probes[i & 1023];
+            sink = index.findNearest(p[0], p[1], p[2], Float.MAX_VALUE);
+        }
+
+        startNanos = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            float[] p = probes[i & 1023];
+            sink = index.findNearest(p[0], p[1], p[2], Float.MAX_VALUE);
+        }
+        report("nearest", System.nanoTime() - startNanos, queries);
+
+        int linearQueries = Math.max(1, queries / 100);
+        startNanos = System.nanoTime();
+        for (int i = 0; i < linearQueries; i++) {
+            float[] p = probes[i & 1023];
+            sink = linearNearest(points, p[0], p[1], p[2]);
+        }
+        report("linear", System.nanoTime() - startNanos, linearQueries);
+
+        List<String> out = new ArrayList<>();
+        startNanos = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            float[] p = probes[i & 1023];
+            out.clear();
+            index.findNearest(p[0], p[1], p[2], 8, Float.MAX_VALUE, out);
+        }
+        report("8-nearest", System.nanoTime() - startNanos, queries);
+
+        startNanos = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            float[] p = probes[i & 1023];
+            out.clear();
+            index.findWithinRadius(p[0], p[1], p[2], 2.0f, out);
+        }
+        report("radius 2m", System.nanoTime() - startNanos, queries);
+
+        // Move one waypoint per 10 queries, as while editing a map
+        startNanos = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            float[] p = probes[i & 1023];
+            if (i % 10 == 0) {
+                int moved = random.nextInt(size);
+                index.put("w" + moved, p[0], p[1], p[2], "w" + moved);
+            }
+            sink = index.findNearest(p[0], p[1], p[2], Float.MAX_VALUE);
+        }
+        report("mixed", System.nanoTime() - startNanos, queries);
+    }
+
+    private static int linearNearest(float[][] points, float x, float y, float z) {
+        int closest = -1;
+        float minDistance = Float.MAX_VALUE;
+        for (int i = 0; i < points.length; i++) {
+            float dx = points[i][0] - x;
+            float dy = points[i][1] - y;
+            float dz = points[i][2] - z;
+            float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (distance < minDistance) {
+                minDistance = distance;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    private static void report(String label, long elapsedNanos, int queries) {
+        System.out.println(String.format(Locale.US, "  %-10s %8.2f us/query", label,
+                elapsedNanos / 1e3 / queries));
+    }
+}
@@ -0,0 +1,158 @@
+package com.satinavrobotics.satibot.mapManagement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link SpatialHashIndex} queries against a linear scan over the same points, on waypoints
+ * spread over two floors of a building with about 1.5 m spacing, while points are inserted, moved
+ * and removed across the snapshot rebuilds.
+ */
+public class SpatialHashIndexTest {
+    private static final float SPACING = 1.5f;
+    private static final float FLOOR_HEIGHT = 3.0f;
+    private static final float EXTENT = 30f;
+
+    private final Map<String, float[]> points = new HashMap<>();
+
+    @Test
+    public void queriesMatchLinearScanWhileEditing() {
+        Random random = new Random(1);
+        SpatialHashIndex<String> index = new SpatialHashIndex<>(SPACING);
+        for (int i = 0; i < 800; i++) {
+            put(index, "w" + i, randomPoint(random));
+        }
+        for (int round = 0; round < 2000; round++) {
+            int edit = random.nextInt(10);
+            String id = "w" + random.nextInt(1000);
+            if (edit < 3) {
+                put(index, id, randomPoint(random));
+            } else if (edit < 4) {
+                assertEquals(points.remove(id) != null, index.remove(id));
+            }
+            float[] probe = randomPoint(random);
+            assertQueries(index, probe[0], probe[1] + 0.3f, probe[2]);
+        }
+        assertEquals(points.size(), index.size());
+    }
+
+    @Test
+    public void putAllMatchesSingleInserts() {
+        Random random = new Random(2);
+        List<String> ids = new ArrayList<>();
+        float[] positions = new float[3 * 500];
+        for (int i = 0; i < 500; i++) {
+            float[] point = randomPoint(random);
+            ids.add("w" + i);
+            points.put("w" + i, point);
+            System.arraycopy(point, 0, positions, 3 * i, 3);
+        }
+        SpatialHashIndex<String> index = new SpatialHashIndex<>(SPACING);
+        index.putAll(ids, positions, ids);
+
+        assertEquals(500, index.size());
+        for (int i = 0; i < 200; i++) {
+            float[] probe = randomPoint(random);
+            assertQueries(index, probe[0], probe[1], probe[2]);
+        }
+    }
+
+    @Test
+    public void maxDistanceIsStrict() {
+        SpatialHashIndex<String> index = new SpatialHashIndex<>(1.0f);
+        index.put("a", 2, 0, 0, "a");
+
+        assertNull(index.findNearest(0, 0, 0, 2.0f));
+        assertEquals("a", index.findNearest(0, 0, 0, 2.01f));
+        List<String> out = new ArrayList<>();
+        assertEquals(1, index.findWithinRadius(0, 0, 0, 2.0f, out));
+        assertEquals(0, index.findNearest(0, 0, 0, 0, Float.MAX_VALUE, out));
+    }
+
+    @Test
+    public void movingAPointReplacesIt() {
+        SpatialHashIndex<String> index = new SpatialHashIndex<>(1.0f);
+        index.put("a", 0, 0, 0, "old");
+        index.put("a", 50, 0, 0, "new");
+
+        assertEquals(1, index.size());
+        assertEquals("new", index.findNearest(0, 0, 0, Float.MAX_VALUE));
+        assertNull(index.findNearest(0, 0, 0, 10));
+    }
+
+    @Test
+    public void clearAndRemoveUnknown() {
+        SpatialHashIndex<String> index = new SpatialHashIndex<>(1.0f);
+        index.put("a", 0, 0, 0, "a");
+
+        assertFalse(index.remove("b"));
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.findNearest(0, 0, 0, Float.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cellSizeMustBePositive() {
+        new SpatialHashIndex<String>(0);
+    }
+
+    private void put(SpatialHashIndex<String> index, String id, float[] point) {
+        points.put(id, point);
+        index.put(id, point[0], point[1], point[2], id);
+    }
+
+    private static float[] randomPoint(Random random) {
+        return new float[] {random.nextFloat() * EXTENT, random.nextInt(2) * FLOOR_HEIGHT,
+                random.nextFloat() * EXTENT};
+    }
+
+    private void assertQueries(SpatialHashIndex<String> index, float x, float y, float z) {
+        List<Float> sorted = new ArrayList<>();
+        for (float[] point : points.values()) {
+            sorted.add(distance(point, x, y, z));
+        }
+        Collections.sort(sorted);
+
+        String nearest = index.findNearest(x, y, z, Float.MAX_VALUE);
+        if (sorted.isEmpty()) {
+            assertNull(nearest);
+            return;
+        }
+        assertEquals(sorted.get(0), distance(points.get(nearest), x, y, z), 0);
+
+        List<String> out = new ArrayList<>();
+        int k = Math.min(8, sorted.size());
+        assertEquals(k, index.findNearest(x, y, z, 8, Float.MAX_VALUE, out));
+        for (int i = 0; i < k; i++) {
+            assertEquals(sorted.get(i), distance(points.get(out.get(i)), x, y, z), 0);
+        }
+
+        out.clear();
+        int within = 0;
+        for (float distance : sorted) {
+            within += distance <= 2.0f ? 1 : 0;
+        }
+        assertEquals(within, index.findWithinRadius(x, y, z, 2.0f, out));
+        for (String id : out) {
+            assertTrue(distance(points.get(id), x, y, z) <= 2.0f);
+        }
+    }
+
+    private static float distance(float[] point, float x, float y, float z) {
+        float dx = point[0] - x;
+        float dy = point[1] - y;
+        float dz = point[2] - z;
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
@@ -0,0 +1,116 @@
+package com.satinavrobotics.satibot.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link ControlLoop} on its thread with wall clock time, so the bounds leave room for a
+ * loaded machine.
+ */
+public class ControlLoopTest {
+
+    @Test
+    public void ticksAtTheConfiguredRate() throws InterruptedException {
+        AtomicInteger ticks = new AtomicInteger();
+        AtomicLong period = new AtomicLong();
+        ControlLoop loop = new ControlLoop("test", (nowNanos, periodNanos) -> {
+            ticks.incrementAndGet();
+            period.set(periodNanos);
+        });
+        loop.setRateHz(200);
+
+        loop.start();
+        Thread.sleep(500);
+        loop.stop();
+
+        assertEquals(5_000_000L, period.get());
+        assertTrue("ticks " + ticks.get(), ticks.get() >= 60 && ticks.get() <= 102);
+    }
+
+    @Test
+    public void overrunSkipsMissedDeadlines() throws InterruptedException {
+        AtomicInteger ticks = new AtomicInteger();
+        ControlLoop loop = new ControlLoop("test", (nowNanos, periodNanos) -> {
+            ticks.incrementAndGet();
+            sleep(25);
+        });
+        loop.setRateHz(100);
+
+        loop.start();
+        Thread.sleep(300);
+        loop.stop();
+
+        // Each 25 ms tick misses the next deadline and the one after, none is run back to back
+        assertTrue("ticks " + ticks.get(), ticks.get() <= 13);
+        assertTrue(loop.getOverrunCount() >= 1);
+        assertTrue(loop.getSkippedTickCount() >= 2 * loop.getOverrunCount() - 2);
+        assertTrue(loop.getMaxTickNanos() >= 25_000_000L);
+    }
+
+    @Test
+    public void statsAreReportedAndReset() throws InterruptedException {
+        CountDownLatch ticked = new CountDownLatch(10);
+        ControlLoop loop = new ControlLoop("test", (nowNanos, periodNanos) -> ticked.countDown());
+        loop.setRateHz(100);
+
+        loop.start();
+        assertTrue(ticked.await(2, TimeUnit.SECONDS));
+        loop.stop();
+
+        assertEquals(100, loop.getRateHz());
+        assertTrue(loop.getTickCount() >= 10);
+        assertTrue(loop.getMaxTickNanos() > 0);
+
+        loop.resetStats();
+        assertEquals(0, loop.getTickCount());
+        assertEquals(0, loop.getOverrunCount());
+        assertEquals(0, loop.getSkippedTickCount());
+        assertEquals(0, loop.getMaxTickNanos());
+    }
+
+    @Test
+    public void stopWithinATickEndsTheLoop() throws InterruptedException {
+        AtomicInteger ticks = new AtomicInteger();
+        CountDownLatch ticked = new CountDownLatch(1);
+        ControlLoop[] loop = new ControlLoop[1];
+        loop[0] = new ControlLoop("test", (nowNanos, periodNanos) -> {
+            ticks.incrementAndGet();
+            loop[0].stop();
+            ticked.countDown();
+        });
+        loop[0].setRateHz(200);
+
+        loop[0].start();
+        assertTrue(ticked.await(2, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        assertFalse(loop[0].isRunning());
+        assertEquals(1, ticks.get());
+    }
+
+    @Test
+    public void rateIsClamped() {
+        ControlLoop loop = new ControlLoop("test", (nowNanos, periodNanos) -> {});
+
+        loop.setRateHz(0);
+        assertEquals(1, loop.getRateHz());
+        loop.setRateHz(10_000);
+        assertEquals(ControlLoop.MAX_RATE_HZ, loop.getRateHz());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.satinavrobotics.satibot.navigation;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Measures {@link OccupancyGrid} updates at 10 cm over a 20 x 20 m window: a synthetic 160 x 120
+ * depth frame of a floor and a wall 3 m ahead, taken by a camera 0.3 m above the floor that drives
+ * a circle so the window keeps recentering. Reports update time, allocation per update and the
+ * cost of the clearance queries strategies make.
+ *
+ * <p>Run {@link #main(String[])} on a desktop JVM; allocation is read from
+ * com.sun.management.ThreadMXBean and reported as -1 where unsupported. Has no Android dependencies.
+ */
+public final class OccupancyGridBenchmark {
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+    private static final float FOCAL_LENGTH = 140f;
+    private static final float CAMERA_HEIGHT = 0.3f;
+    private static final float WALL_DISTANCE = 3.0f;
+
+    private static volatile float sink;
+
+    private OccupancyGridBenchmark() {}
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int stride = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        OccupancyGrid grid = new OccupancyGrid(0.1f, 200);
+        grid.setSensorParameters(CAMERA_HEIGHT, 0.08f, 1.0f, 4.0f);
+        short[][] depth = syntheticDepth();
+        float[] pose = new float[16];
+
+        // Warm up
+        run(grid, depth, pose, stride, frames / 4);
+
+        long startBytes = allocatedBytes();
+        long startNanos = System.nanoTime();
+        run(grid, depth, pose, stride, frames);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long bytes = allocatedBytes() - startBytes;
+        System.out.println(String.format(Locale.US,
+                "update  %8.1f us/frame %,10.0f frames/s %8.1f bytes/frame (stride %d)",
+                elapsedNanos / 1e3 / frames, frames * 1e9 / elapsedNanos,
+                startBytes < 0 ? -1.0 : (double) bytes / frames, stride));
+
+        int queries = frames * 20;
+        startNanos = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            sink += grid.getClearanceAhead((i % 21 - 10) * 0.05f, 1.5f);
+        }
+        elapsedNanos = System.nanoTime() - startNanos;
+        System.out.println(String.format(Locale.US, "clearance %6.2f us/query",
+                elapsedNanos / 1e3 / queries));
+
+        startNanos = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            sink += grid.getObstacleDistance(pose[12], pose[14], 1.0f);
+        }
+        elapsedNanos = System.nanoTime() - startNanos;
+        System.out.println(String.format(Locale.US, "obstacle distance %6.2f us/query (1 m radius)",
+                elapsedNanos / 1e3 / frames));
+
+        System.out.println(String.format(Locale.US, "clearance ahead %.2f m (wall at %.1f m)",
+                grid.getClearanceAhead(0, 5.0f), WALL_DISTANCE));
+    }
+
+    /**
+     * Drive a circle of 2 m radius, 2 cm per frame, always seeing the same wall ahead.
+     */
+    private static void run(OccupancyGrid grid, short[][] depth, float[] pose, int stride, int frames) {
+        float cx = (WIDTH - 1) / 2f;
+        float cy = (HEIGHT - 1) / 2f;
+        for (int i = 0; i < frames; i++) {
+            double angle = i * 0.01;
+            // Camera looking along the tangent of the circle, y up
+            float forwardX = (float) -Math.sin(angle);
+            float forwardZ = (float) -Math.cos(angle);
+            pose[0] = -forwardZ;
+            pose[2] = forwardX;
+            pose[5] = 1;
+            pose[8] = -forwardX;
+            pose[10] = -forwardZ;
+            pose[12] = (float) (2 * Math.cos(angle));
+            pose[13] = CAMERA_HEIGHT;
+            pose[14] = (float) (-2 * Math.sin(angle));
+            pose[15] = 1;
+            grid.integrateDepth(depth, WIDTH, HEIGHT, stride, FOCAL_LENGTH, FOCAL_LENGTH, cx, cy, pose);
+        }
+    }
+
+    private static short[][] syntheticDepth() {
+        short[][] depth = new short[HEIGHT][WIDTH];
+        float cy = (HEIGHT - 1) / 2f;
+        for (int v = 0; v < HEIGHT; v++) {
+            float down = (v - cy) / FOCAL_LENGTH;
+            float floorDepth = down > 0 ? CAMERA_HEIGHT / down : Float.MAX_VALUE;
+            float d = Math.min(floorDepth, WALL_DISTANCE);
+            for (int u = 0; u < WIDTH; u++) {
+                depth[v][u] = (short) Math.min(65535, Math.round(d * 1000));
+            }
+        }
+        return depth;
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
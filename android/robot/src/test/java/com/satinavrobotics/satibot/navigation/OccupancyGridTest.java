@@ -0,0 +1,155 @@
+package com.satinavrobotics.satibot.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Integrates a synthetic 160 x 120 depth frame of a floor and a wall 3 m ahead, taken by a camera
+ * 0.3 m above the floor, into a 10 cm grid over a 20 x 20 m window.
+ */
+public class OccupancyGridTest {
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+    private static final float FOCAL_LENGTH = 140f;
+    private static final float CAMERA_HEIGHT = 0.3f;
+    private static final float WALL_DISTANCE = 3.0f;
+
+    private OccupancyGrid grid;
+
+    @Before
+    public void setUp() {
+        grid = new OccupancyGrid(0.1f, 200);
+        grid.setSensorParameters(CAMERA_HEIGHT, 0.08f, 1.0f, 4.0f);
+    }
+
+    @Test
+    public void wallAheadIsOccupiedAndFloorIsFree() {
+        integrate(syntheticDepth(WALL_DISTANCE), 0, 0, 3);
+
+        assertEquals(WALL_DISTANCE, grid.getClearanceAhead(0, 5.0f), 0.15f);
+        assertTrue(grid.getObstacleDistance(0, -WALL_DISTANCE, 0.5f) < 0.1f);
+        assertTrue(grid.isFree(0, -1.0f));
+        assertTrue(grid.isFree(0.3f, -2.0f));
+        // Behind the camera nothing was observed
+        assertEquals(0, grid.getLogOdds(0, 1.0f), 0);
+    }
+
+    @Test
+    public void singleHitIsNotEnoughToBeOccupied() {
+        integrate(syntheticDepth(WALL_DISTANCE), 0, 0, 1);
+
+        assertEquals(0.5f, grid.getObstacleDistance(0, -WALL_DISTANCE, 0.5f), 0);
+    }
+
+    @Test
+    public void depthBeyondRangeOnlyClearsUpToRange() {
+        integrate(syntheticDepth(6.0f), 0, 0, 3);
+
+        assertEquals(5.0f, grid.getClearanceAhead(0, 5.0f), 0);
+        assertFalse(grid.isFree(0, -4.5f));
+    }
+
+    @Test
+    public void clearanceAheadBearingIsPositiveToTheRight() {
+        // Facing +z, so +x is to the right, as for a NavigationPose with yaw 0
+        grid.updateSensorPose(0.05f, 0.05f, 0, 1);
+        grid.markOccupied(1.05f, 0.05f);
+
+        assertEquals(1.0f, grid.getClearanceAhead((float) (Math.PI / 2), 3.0f), 0.1f);
+        assertEquals(3.0f, grid.getClearanceAhead((float) (-Math.PI / 2), 3.0f), 0);
+    }
+
+    @Test
+    public void obstaclesKeepTheirWorldPositionWhenRecentering() {
+        grid.updateSensorPose(0, 0, 0, -1);
+        grid.markOccupied(2.05f, 2.05f);
+
+        grid.updateSensorPose(3.0f, -4.0f, 0, -1);
+        assertTrue(grid.isOccupied(2.05f, 2.05f));
+        assertEquals(1.0f, grid.getObstacleDistance(2.05f, 3.05f, 2.0f), 1e-4f);
+
+        // Moving by more than the window clears it
+        grid.updateSensorPose(30.0f, 0, 0, -1);
+        grid.updateSensorPose(0, 0, 0, -1);
+        assertFalse(grid.isOccupied(2.05f, 2.05f));
+    }
+
+    @Test
+    public void cellsScrollingInAreCleared() {
+        grid.updateSensorPose(0, 0, 0, -1);
+        grid.markOccupied(-9.95f, 0.05f);
+
+        // The cell's ring slot is reused by the column 20 m further along x
+        grid.updateSensorPose(0.5f, 0, 0, -1);
+        assertFalse(grid.isOccupied(10.05f, 0.05f));
+        assertEquals(0, grid.getLogOdds(-9.95f, 0.05f), 0);
+    }
+
+    @Test
+    public void markOccupiedOutsideWindowIsIgnored() {
+        grid.updateSensorPose(0, 0, 0, -1);
+        grid.markOccupied(15.0f, 0);
+
+        assertFalse(grid.isOccupied(15.0f, 0));
+        assertEquals(2.0f, grid.getObstacleDistance(0, 0, 2.0f), 0);
+    }
+
+    @Test
+    public void copyWindowMatchesQueries() {
+        grid.updateSensorPose(0.02f, 0.02f, 1, 0);
+        grid.markOccupied(0.35f, -0.25f);
+        int cells = 11;
+        boolean[] occupied = new boolean[cells * cells];
+        float[] frame = new float[8];
+
+        grid.copyWindow(cells, occupied, frame);
+
+        assertEquals(-0.5f, frame[0], 1e-5f);
+        assertEquals(-0.5f, frame[1], 1e-5f);
+        assertEquals(1.0f, frame[4], 0);
+        assertEquals(0, frame[5], 0);
+        assertEquals(0, frame[6], 0);
+        assertEquals(-1.0f, frame[7], 0);
+        int count = 0;
+        for (boolean cell : occupied) {
+            count += cell ? 1 : 0;
+        }
+        assertEquals(1, count);
+        assertTrue(occupied[8 * cells + 2]);
+    }
+
+    private void integrate(short[][] depth, float x, float z, int frames) {
+        // Camera at the given position looking along -z, y up
+        float[] pose = new float[16];
+        pose[0] = 1;
+        pose[5] = 1;
+        pose[10] = 1;
+        pose[12] = x;
+        pose[13] = CAMERA_HEIGHT;
+        pose[14] = z;
+        pose[15] = 1;
+        float cx = (WIDTH - 1) / 2f;
+        float cy = (HEIGHT - 1) / 2f;
+        for (int i = 0; i < frames; i++) {
+            grid.integrateDepth(depth, WIDTH, HEIGHT, 2, FOCAL_LENGTH, FOCAL_LENGTH, cx, cy, pose);
+        }
+    }
+
+    private static short[][] syntheticDepth(float wallDistance) {
+        short[][] depth = new short[HEIGHT][WIDTH];
+        float cy = (HEIGHT - 1) / 2f;
+        for (int v = 0; v < HEIGHT; v++) {
+            float down = (v - cy) / FOCAL_LENGTH;
+            float floorDepth = down > 0 ? CAMERA_HEIGHT / down : Float.MAX_VALUE;
+            float d = Math.min(floorDepth, wallDistance);
+            for (int u = 0; u < WIDTH; u++) {
+                depth[v][u] = (short) Math.min(65535, Math.round(d * 1000));
+            }
+        }
+        return depth;
+    }
+}
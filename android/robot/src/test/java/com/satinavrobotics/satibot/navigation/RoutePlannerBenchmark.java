@@ -0,0 +1,112 @@
+package com.satinavrobotics.satibot.navigation;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures {@link RoutePlanner} on a building-sized waypoint graph: a grid of waypoints 1 m apart
+ * with 8-connected corridors and a fraction of the connections removed as walls. Reports the
+ * time of an uncached A* query, of a full shortest-path tree, and of queries answered from the
+ * caches, for random start and goal pairs.
+ *
+ * <p>Run {@link #main(String[])} on a desktop JVM. Has no Android dependencies.
+ */
+public final class RoutePlannerBenchmark {
+    private static volatile int sink;
+
+    private RoutePlannerBenchmark() {}
+
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        RoutePlanner planner = buildGrid(side, 0.2, new Random(42));
+        System.out.println(String.format(Locale.US, "%d waypoints", planner.getNodeCount()));
+
+        Random random = new Random(7);
+        String[] starts = new String[queries];
+        String[] goals = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            starts[i] = id(random.nextInt(side), random.nextInt(side));
+            goals[i] = id(random.nextInt(side), random.nextInt(side));
+        }
+
+        // Warm up, then edit the graph so the measured queries miss the caches
+        runQueries(planner, starts, goals);
+        planner.putNode(id(0, 0), 0, 0, 0);
+        planner.findNearestNode(0, 0, 0); // Compile outside the measurement
+        long startNanos = System.nanoTime();
+        runQueries(planner, starts, goals);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long[] stats = planner.getStats();
+        System.out.println(String.format(Locale.US, "A*        %8.1f us/query",
+                elapsedNanos / 1e3 / queries));
+
+        int trees = Math.max(1, queries / 50);
+        startNanos = System.nanoTime();
+        for (int i = 0; i < trees; i++) {
+            planner.precomputeRoutesTo(goals[i]);
+        }
+        elapsedNanos = System.nanoTime() - startNanos;
+        System.out.println(String.format(Locale.US, "tree      %8.1f us/build",
+                elapsedNanos / 1e3 / trees));
+
+        String goal = goals[trees - 1];
+        startNanos = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            List<String> route = planner.findRoute(starts[i], goal);
+            sink += route != null ? route.size() : 0;
+        }
+        elapsedNanos = System.nanoTime() - startNanos;
+        System.out.println(String.format(Locale.US, "via tree  %8.1f us/query",
+                elapsedNanos / 1e3 / queries));
+
+        startNanos = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            List<String> route = planner.findRoute(starts[i % 32], goal);
+            sink += route != null ? route.size() : 0;
+        }
+        elapsedNanos = System.nanoTime() - startNanos;
+        System.out.println(String.format(Locale.US, "cached    %8.1f us/query",
+                elapsedNanos / 1e3 / queries));
+
+        long[] after = planner.getStats();
+        System.out.println(String.format(Locale.US, "expanded  %8.0f nodes/A* query",
+                (double) stats[2] / Math.max(1, stats[0])));
+        System.out.println(String.format(Locale.US, "searches %d, cache hits %d",
+                after[0], after[1]));
+    }
+
+    private static void runQueries(RoutePlanner planner, String[] starts, String[] goals) {
+        for (int i = 0; i < starts.length; i++) {
+            List<String> route = planner.findRoute(starts[i], goals[i]);
+            sink += route != null ? route.size() : 0;
+        }
+    }
+
+    private static RoutePlanner buildGrid(int side, double wallFraction, Random random) {
+        RoutePlanner planner = new RoutePlanner();
+        for (int x = 0; x < side; x++) {
+            for (int z = 0; z < side; z++) {
+                planner.putNode(id(x, z), x, 0, z);
+            }
+        }
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        for (int x = 0; x < side; x++) {
+            for (int z = 0; z < side; z++) {
+                for (int[] direction : directions) {
+                    int nx = x + direction[0];
+                    int nz = z + direction[1];
+                    if (nx < side && nz >= 0 && nz < side && random.nextDouble() >= wallFraction) {
+                        planner.connect(id(x, z), id(nx, nz));
+                    }
+                }
+            }
+        }
+        return planner;
+    }
+
+    private static String id(int x, int z) {
+        return x + ":" + z;
+    }
+}
@@ -0,0 +1,221 @@
+package com.satinavrobotics.satibot.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RoutePlannerTest {
+    private static final int SIDE = 12;
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    @Test
+    public void takesTheShorterDetour() {
+        RoutePlanner planner = new RoutePlanner();
+        planner.putNode("a", 0, 0, 0);
+        planner.putNode("b", 1, 0, 0);
+        planner.putNode("c", 2, 0, 0);
+        planner.putNode("up", 1, 0, 3);
+        planner.putNode("down", 1, 0, -1);
+        planner.connect("a", "up");
+        planner.connect("up", "c");
+        planner.connect("a", "down");
+        planner.connect("down", "c");
+
+        List<String> route = planner.findRoute("a", "c");
+        assertEquals(Arrays.asList("a", "down", "c"), route);
+        assertEquals(2 * Math.sqrt(2), planner.getRouteLength(route), 1e-5);
+
+        planner.connect("a", "b");
+        planner.connect("b", "c");
+        assertEquals(Arrays.asList("a", "b", "c"), planner.findRoute("a", "c"));
+    }
+
+    @Test
+    public void unknownOrUnreachableNodesHaveNoRoute() {
+        RoutePlanner planner = new RoutePlanner();
+        planner.putNode("a", 0, 0, 0);
+        planner.putNode("b", 1, 0, 0);
+
+        assertNull(planner.findRoute("a", "b"));
+        assertNull(planner.findRoute("a", "missing"));
+        assertEquals(Collections.singletonList("a"), planner.findRoute("a", "a"));
+        assertFalse(planner.precomputeRoutesTo("missing"));
+        assertFalse(planner.connect("a", "missing"));
+    }
+
+    @Test
+    public void routesMatchReferenceOnRandomGraphs() {
+        for (long seed = 1; seed <= 5; seed++) {
+            float[][] edges = randomGrid(new Random(seed));
+            RoutePlanner planner = toPlanner(edges);
+            float[][] reference = allPairs(edges);
+            Random random = new Random(seed + 100);
+            for (int q = 0; q < 200; q++) {
+                int start = random.nextInt(SIDE * SIDE);
+                int goal = random.nextInt(SIDE * SIDE);
+                assertRoute(planner, edges, reference[start][goal], start, goal);
+            }
+        }
+    }
+
+    @Test
+    public void precomputedTreesAnswerBothDirections() {
+        float[][] edges = randomGrid(new Random(3));
+        RoutePlanner planner = toPlanner(edges);
+        float[][] reference = allPairs(edges);
+        int root = SIDE * SIDE / 2 + 3;
+        assertTrue(planner.precomputeRoutesTo(id(root)));
+        long searches = planner.getStats()[0];
+
+        for (int node = 0; node < SIDE * SIDE; node++) {
+            assertRoute(planner, edges, reference[node][root], node, root);
+            assertRoute(planner, edges, reference[root][node], root, node);
+        }
+        assertEquals(searches, planner.getStats()[0]);
+    }
+
+    @Test
+    public void editsInvalidateCachedRoutes() {
+        RoutePlanner planner = new RoutePlanner();
+        planner.putNode("a", 0, 0, 0);
+        planner.putNode("b", 1, 0, 0);
+        planner.putNode("c", 2, 0, 0);
+        planner.putNode("d", 1, 0, 2);
+        planner.connect("a", "b");
+        planner.connect("b", "c");
+        planner.connect("a", "d");
+        planner.connect("d", "c");
+        planner.precomputeRoutesTo("c");
+
+        assertEquals(Arrays.asList("a", "b", "c"), planner.findRoute("a", "c"));
+        assertEquals(Arrays.asList("a", "b", "c"), planner.findRoute("a", "c"));
+        long version = planner.getVersion();
+
+        assertTrue(planner.disconnect("b", "c"));
+        assertNotEquals(version, planner.getVersion());
+        assertEquals(Arrays.asList("a", "d", "c"), planner.findRoute("a", "c"));
+
+        assertTrue(planner.removeNode("d"));
+        assertNull(planner.findRoute("a", "c"));
+
+        // Moving a node keeps its connections
+        planner.putNode("b", 1, 0, 1);
+        assertTrue(planner.connect("b", "c"));
+        assertEquals(2 * Math.sqrt(2), planner.getRouteLength(planner.findRoute("a", "c")), 1e-5);
+    }
+
+    @Test
+    public void repeatedQueriesAreCacheHits() {
+        RoutePlanner planner = toPlanner(randomGrid(new Random(9)));
+
+        planner.findRoute(id(0), id(SIDE * SIDE - 1));
+        long[] before = planner.getStats();
+        planner.findRoute(id(0), id(SIDE * SIDE - 1));
+        long[] after = planner.getStats();
+
+        assertEquals(before[0], after[0]);
+        assertEquals(before[1] + 1, after[1]);
+    }
+
+    @Test
+    public void routeFromPositionStartsAtNearestNode() {
+        float[][] edges = randomGrid(new Random(4));
+        RoutePlanner planner = toPlanner(edges);
+        int nearest = 5 * SIDE + 7;
+
+        assertEquals(id(nearest), planner.findNearestNode(5.2f, 0.3f, 6.9f));
+        assertEquals(planner.findRoute(id(nearest), id(0)),
+                planner.findRouteFrom(5.2f, 0.3f, 6.9f, id(0)));
+        assertNull(new RoutePlanner().findNearestNode(0, 0, 0));
+    }
+
+    private static void assertRoute(RoutePlanner planner, float[][] edges, float expected,
+                                    int start, int goal) {
+        String label = start + " -> " + goal;
+        List<String> route = planner.findRoute(id(start), id(goal));
+        if (Float.isInfinite(expected)) {
+            assertNull(label, route);
+            return;
+        }
+        assertEquals(label, id(start), route.get(0));
+        assertEquals(label, id(goal), route.get(route.size() - 1));
+        for (int i = 1; i < route.size(); i++) {
+            int a = Integer.parseInt(route.get(i - 1));
+            int b = Integer.parseInt(route.get(i));
+            assertFalse(label, Float.isInfinite(edges[a][b]));
+        }
+        assertEquals(label, expected, planner.getRouteLength(route), 1e-3f);
+    }
+
+    /**
+     * Edge lengths of waypoints 1 m apart on a SIDE x SIDE grid, 8-connected with a fifth of the
+     * connections removed as walls, infinite where not connected. Node x * SIDE + z is at (x, z).
+     */
+    private static float[][] randomGrid(Random random) {
+        int n = SIDE * SIDE;
+        float[][] edges = new float[n][n];
+        for (float[] row : edges) {
+            Arrays.fill(row, Float.POSITIVE_INFINITY);
+        }
+        for (int x = 0; x < SIDE; x++) {
+            for (int z = 0; z < SIDE; z++) {
+                for (int[] direction : DIRECTIONS) {
+                    int nx = x + direction[0];
+                    int nz = z + direction[1];
+                    if (nx < SIDE && nz >= 0 && nz < SIDE && random.nextDouble() >= 0.2) {
+                        float length = (float) Math.hypot(direction[0], direction[1]);
+                        edges[x * SIDE + z][nx * SIDE + nz] = length;
+                        edges[nx * SIDE + nz][x * SIDE + z] = length;
+                    }
+                }
+            }
+        }
+        return edges;
+    }
+
+    private static RoutePlanner toPlanner(float[][] edges) {
+        RoutePlanner planner = new RoutePlanner();
+        for (int node = 0; node < edges.length; node++) {
+            planner.putNode(id(node), node / SIDE, 0, node % SIDE);
+        }
+        for (int a = 0; a < edges.length; a++) {
+            for (int b = a + 1; b < edges.length; b++) {
+                if (!Float.isInfinite(edges[a][b])) {
+                    planner.connect(id(a), id(b));
+                }
+            }
+        }
+        return planner;
+    }
+
+    // Floyd-Warshall reference distances
+    private static float[][] allPairs(float[][] edges) {
+        int n = edges.length;
+        float[][] distance = new float[n][];
+        for (int a = 0; a < n; a++) {
+            distance[a] = edges[a].clone();
+            distance[a][a] = 0;
+        }
+        for (int k = 0; k < n; k++) {
+            for (int a = 0; a < n; a++) {
+                for (int b = 0; b < n; b++) {
+                    distance[a][b] = Math.min(distance[a][b], distance[a][k] + distance[k][b]);
+                }
+            }
+        }
+        return distance;
+    }
+
+    private static String id(int node) {
+        return Integer.toString(node);
+    }
+}
@@ -0,0 +1,112 @@
+package com.satinavrobotics.satibot.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.navigation.strategy.NavigationStrategy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Steps {@link UnifiedNavigationController} on a simulated clock with a strategy that always
+ * drives forward and checks what reaches the vehicle when the pose goes stale.
+ */
+public class UnifiedNavigationControllerTest {
+    private static final long TICK_NANOS = 20_000_000L;
+    private static final long STALE_NANOS = 600_000_000L;
+    private static final ControlCommand FORWARD = ControlCommand.forward(0.5f);
+
+    private final List<ControlCommand> sent = new ArrayList<>();
+    private UnifiedNavigationController controller;
+
+    @Before
+    public void setUp() {
+        WaypointsManager waypointsManager = new WaypointsManager();
+        waypointsManager.setWaypoints(List.of(Waypoint.local("goal", 0, 5)));
+        controller = new UnifiedNavigationController(
+                (linear, angular) -> sent.add(new ControlCommand(linear, angular)), null,
+                waypointsManager);
+        controller.addStrategy(new Forward());
+        controller.startNavigation(0);
+    }
+
+    @Test
+    public void noCommandBeforeTheFirstPose() {
+        controller.step(0);
+        controller.step(TICK_NANOS);
+
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void drivesEveryTickWhileThePoseIsFresh() {
+        controller.updateCurrentPose(new NavigationPose(0, 0, 0, 0), 0);
+        for (int i = 0; i < 5; i++) {
+            controller.step(i * TICK_NANOS);
+        }
+
+        assertEquals(List.of(FORWARD, FORWARD, FORWARD, FORWARD, FORWARD), sent);
+    }
+
+    @Test
+    public void stalePoseStopsOnceAndFreshPoseResumes() {
+        controller.updateCurrentPose(new NavigationPose(0, 0, 0, 0), 0);
+        controller.step(0);
+        for (int i = 0; i < 10; i++) {
+            controller.step(STALE_NANOS + i * TICK_NANOS);
+        }
+        assertEquals(List.of(FORWARD, ControlCommand.stop()), sent);
+
+        long resumed = STALE_NANOS + 10 * TICK_NANOS;
+        controller.updateCurrentPose(new NavigationPose(0, 0, 0.1f, 0), resumed);
+        controller.step(resumed);
+        controller.step(resumed + STALE_NANOS);
+        controller.step(resumed + STALE_NANOS + TICK_NANOS);
+
+        assertEquals(List.of(FORWARD, ControlCommand.stop(), FORWARD, ControlCommand.stop()), sent);
+    }
+
+    @Test
+    public void stopNavigationAlwaysStops() {
+        controller.updateCurrentPose(new NavigationPose(0, 0, 0, 0), 0);
+        controller.step(STALE_NANOS);
+        controller.stopNavigation();
+
+        assertEquals(List.of(ControlCommand.stop(), ControlCommand.stop()), sent);
+    }
+
+    private static final class Forward implements NavigationStrategy {
+        @Override
+        public ControlCommand calculateControl(NavigationContext context) {
+            return FORWARD;
+        }
+
+        @Override
+        public boolean isComplete(NavigationContext context) {
+            return false;
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public String getStrategyName() {
+            return "Forward";
+        }
+
+        @Override
+        public boolean canHandle(NavigationContext context) {
+            return true;
+        }
+
+        @Override
+        public int getPriority() {
+            return 0;
+        }
+    }
+}
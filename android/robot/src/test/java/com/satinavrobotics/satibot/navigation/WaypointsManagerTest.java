@@ -0,0 +1,118 @@
+package com.satinavrobotics.satibot.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.env.StatusManager;
+import com.satinavrobotics.satibot.env.StatusSnapshot;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+/**
+ * Projects GPS waypoints with {@link WaypointsManager} from GPS fixes published to
+ * {@link StatusManager}, the way LocationService does. Positions come back relative to the robot:
+ * +z ahead of it, +x to its right.
+ *
+ * Runs with Robolectric because StatusManager builds its status with org.json.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WaypointsManagerTest {
+    private static final double ANCHOR_LATITUDE = 47.4979;
+    private static final double ANCHOR_LONGITUDE = 19.0402;
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+    private static final float TOLERANCE = 0.01f;
+
+    private final WaypointsManager manager = new WaypointsManager();
+    private final float[] position = new float[2];
+
+    @After
+    public void tearDown() {
+        StatusManager.getInstance().updateLocation(null);
+    }
+
+    @Test
+    public void waypointAheadAndRightOfARobotFacingNorth() {
+        fix(0, 0, 0);
+        manager.setWaypoints(List.of(geo("a", 5, 10)));
+
+        assertTrue(manager.peekNextLocalPosition(position));
+        assertPosition(5, 10);
+    }
+
+    @Test
+    public void followsTheRobotAsTheFixMoves() {
+        fix(0, 0, 0);
+        manager.setWaypoints(List.of(geo("a", 5, 10)));
+
+        // 4 m north, facing east: the waypoint is 5 m ahead and 6 m to the left
+        fix(0, 4, 90);
+        assertTrue(manager.peekNextLocalPosition(position));
+        assertPosition(-6, 5);
+
+        // 3 m east of the anchor, facing south: 10 m behind and 2 m to the left
+        fix(3, 0, 180);
+        assertTrue(manager.peekNextLocalPosition(position));
+        assertPosition(-2, -10);
+
+        // Facing west from the anchor: the waypoint is 10 m to the right and 5 m behind
+        fix(0, 0, 270);
+        assertTrue(manager.peekNextLocalPosition(position));
+        assertPosition(10, -5);
+    }
+
+    @Test
+    public void gpsWaypointsNeedAFix() {
+        manager.setWaypoints(List.of(geo("a", 0, 0), geo("b", -20, 30)));
+        assertFalse(manager.peekNextLocalPosition(position));
+
+        fix(0, 0, 0);
+        assertTrue(manager.peekNextLocalPosition(position));
+        assertPosition(0, 0);
+        assertTrue(manager.peekLocalPosition(1, position));
+        assertPosition(-20, 30);
+        assertFalse(manager.peekLocalPosition(2, position));
+    }
+
+    @Test
+    public void localWaypointsAreNotProjected() {
+        fix(100, 100, 45);
+        manager.setWaypoints(List.of(Waypoint.local("a", 1.5f, -2)));
+
+        assertTrue(manager.peekNextLocalPosition(position));
+        assertPosition(1.5f, -2);
+    }
+
+    private void assertPosition(float x, float z) {
+        assertEquals("x", x, position[0], TOLERANCE);
+        assertEquals("z", z, position[1], TOLERANCE);
+    }
+
+    /**
+     * Publish a GPS fix east and north of the anchor
+     *
+     * @param bearing Heading in degrees, clockwise from north
+     */
+    private static void fix(double east, double north, float bearing) {
+        StatusManager.getInstance().updateLocation(new StatusSnapshot.GeoLocation(
+                latitude(north), longitude(east), 0, bearing, 0));
+    }
+
+    private static Waypoint geo(String id, double east, double north) {
+        return new Waypoint(id, Float.NaN, Float.NaN, latitude(north), longitude(east));
+    }
+
+    private static double latitude(double north) {
+        return ANCHOR_LATITUDE + Math.toDegrees(north / EARTH_RADIUS_METERS);
+    }
+
+    private static double longitude(double east) {
+        return ANCHOR_LONGITUDE + Math.toDegrees(
+                east / (EARTH_RADIUS_METERS * Math.cos(Math.toRadians(ANCHOR_LATITUDE))));
+    }
+}
@@ -0,0 +1,81 @@
+package com.satinavrobotics.satibot.navigation.controller;
+
+import com.satinavrobotics.satibot.navigation.NavigationPose;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Measures {@link PurePursuitController} update time and allocation per update along a long
+ * zigzag, next to the 20 ms control period. The paths it is checked against are in
+ * PurePursuitControllerTest.
+ *
+ * <p>Run {@link #main(String[])} on a desktop JVM; allocation is read from
+ * com.sun.management.ThreadMXBean and reported as -1 where unsupported. Has no Android
+ * dependencies.
+ */
+public final class PurePursuitControllerBenchmark {
+    private static final float PERIOD_SECONDS = 0.02f;
+    private static final float BUDGET_MICROS = 20000f;
+
+    private static volatile float sink;
+
+    private PurePursuitControllerBenchmark() {}
+
+    public static void main(String[] args) {
+        int updates = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        timing(updates);
+    }
+
+    /**
+     * Track a long zigzag repeatedly, restarting at the end.
+     */
+    private static void timing(int updates) {
+        int count = 50;
+        float[] pathX = new float[count];
+        float[] pathZ = new float[count];
+        for (int i = 0; i < count; i++) {
+            pathX[i] = i % 2 == 0 ? 0 : 1;
+            pathZ[i] = 2 * i;
+        }
+        PurePursuitController tracker = new PurePursuitController();
+        tracker.setPath(pathX, pathZ, count, true);
+        NavigationPose[] poses = new NavigationPose[1024];
+        for (int i = 0; i < poses.length; i++) {
+            float z = 2f * (count - 1) * i / poses.length;
+            poses[i] = new NavigationPose((z / 2) % 2 < 1 ? (z / 2) % 1 : 1 - (z / 2) % 1, 0, z, 0.4f);
+        }
+
+        // Warm up
+        for (int i = 0; i < updates; i++) {
+            if (i % poses.length == 0) {
+                tracker.setPath(pathX, pathZ, count, true);
+            }
+            tracker.update(poses[i % poses.length], PERIOD_SECONDS);
+        }
+
+        long startBytes = allocatedBytes();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            if (i % poses.length == 0) {
+                tracker.setPath(pathX, pathZ, count, true);
+            }
+            tracker.update(poses[i % poses.length], PERIOD_SECONDS);
+            sink += tracker.getAngular();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long bytes = allocatedBytes() - startBytes;
+        double micros = elapsedNanos / 1e3 / updates;
+        System.out.println(String.format(Locale.US,
+                "update %8.3f us (%.3f%% of %.0f ms period) %8.1f bytes/update",
+                micros, 100 * micros / BUDGET_MICROS, BUDGET_MICROS / 1000,
+                startBytes < 0 ? -1.0 : (double) bytes / updates));
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,183 @@
+package com.satinavrobotics.satibot.navigation.controller;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.navigation.NavigationPose;
+import com.satinavrobotics.satibot.navigation.NavigationUtils;
+import com.satinavrobotics.satibot.navigation.sim.KinematicRobot;
+import com.satinavrobotics.satibot.navigation.sim.NavigationSimulator;
+
+import org.junit.Test;
+
+/**
+ * Drives a {@link KinematicRobot} with {@link PurePursuitController} along waypoint paths and
+ * checks that it reaches the last waypoint, stays close to the path, and keeps moving through the
+ * intermediate waypoints. Each path has to be faster than an ideal stop-turn-go robot at the
+ * same limits: turning in place at full rate and driving each segment at full speed, without
+ * accelerating.
+ *
+ * The robot starts at the first point with yaw 0, facing +z with +x to its right. A positive
+ * angular command increases the yaw.
+ */
+public class PurePursuitControllerTest {
+    private static final float PERIOD_SECONDS = 0.02f;
+    private static final float TIMEOUT_SECONDS = 120f;
+    private static final float GOAL_TOLERANCE = 0.2f;
+    private static final float MAX_CROSS_TRACK = 0.5f;
+    // Vehicle the robot is simulated as, and tracked for
+    private static final float METERS_PER_SECOND_PER_UNIT =
+            NavigationSimulator.METERS_PER_SECOND_PER_UNIT;
+    private static final float RADIANS_PER_SECOND_PER_UNIT =
+            NavigationSimulator.RADIANS_PER_SECOND_PER_UNIT;
+    private static final float MAX_LINEAR = 0.25f;
+    private static final float MAX_ANGULAR = 0.75f;
+
+    @Test
+    public void straight() {
+        Run run = drive(0, 0, 0, 5);
+        run.assertFasterThanStopTurnGo();
+    }
+
+    @Test
+    public void square() {
+        Run run = drive(0, 0, 0, 3, 3, 3, 3, 0, 0, 0);
+        run.assertFasterThanStopTurnGo();
+        assertFalse("stopped on the way", run.stopped);
+    }
+
+    @Test
+    public void zigzag() {
+        Run run = drive(0, 0, 1, 2, -1, 4, 1, 6, -1, 8);
+        run.assertFasterThanStopTurnGo();
+        assertFalse("stopped on the way", run.stopped);
+    }
+
+    @Test
+    public void hairpin() {
+        Run run = drive(0, 0, 0, 3, 0.6f, 3, 0.6f, 0);
+        run.assertFasterThanStopTurnGo();
+        assertFalse("stopped on the way", run.stopped);
+    }
+
+    @Test
+    public void pathStartingBehindTheRobot() {
+        // The robot has to turn around first, so it may stop before driving off
+        drive(0, 0, 0, -3, 3, -3).assertFasterThanStopTurnGo();
+    }
+
+    @Test
+    public void denseCircle() {
+        Run run = drive(circle(2, 32));
+        run.assertFasterThanStopTurnGo();
+        assertFalse("stopped on the way", run.stopped);
+    }
+
+    @Test
+    public void turnsRightTowardsPathOnTheRight() {
+        PurePursuitController tracker = tracker(0, 0, 2, 2);
+        tracker.update(new NavigationPose(0, 0, 0, 0), PERIOD_SECONDS);
+
+        assertTrue("angular " + tracker.getAngular(), tracker.getAngular() > 0);
+    }
+
+    @Test
+    public void withoutPathStops() {
+        PurePursuitController tracker = new PurePursuitController();
+
+        assertFalse(tracker.update(new NavigationPose(0, 0, 0, 0), PERIOD_SECONDS));
+        assertTrue(tracker.getLinear() == 0 && tracker.getAngular() == 0);
+    }
+
+    private static final class Run {
+        float seconds;
+        float referenceSeconds;
+        float maxCrossTrack;
+        boolean reached;
+        boolean stopped;
+
+        void assertFasterThanStopTurnGo() {
+            assertTrue("timed out", reached);
+            assertTrue("cross-track " + maxCrossTrack, maxCrossTrack < MAX_CROSS_TRACK);
+            assertTrue(seconds + " s, stop-turn-go " + referenceSeconds + " s",
+                    seconds < referenceSeconds);
+        }
+    }
+
+    /**
+     * @param points x, z pairs, the first is the start
+     */
+    private static Run drive(float... points) {
+        int count = points.length / 2;
+        PurePursuitController tracker = tracker(points);
+        float goalX = points[2 * count - 2];
+        float goalZ = points[2 * count - 1];
+
+        Run run = new Run();
+        run.referenceSeconds = stopTurnGoSeconds(points);
+        KinematicRobot robot = new KinematicRobot(points[0], points[1], 0);
+        boolean moved = false;
+        while (run.seconds < TIMEOUT_SECONDS) {
+            if (robot.distanceTo(goalX, goalZ) < GOAL_TOLERANCE
+                    && tracker.getSegmentIndex() == count - 2) {
+                run.reached = true;
+                break;
+            }
+            tracker.update(robot.getPose(), PERIOD_SECONDS);
+            moved |= tracker.getLinear() > 0;
+            run.stopped |= moved && tracker.getLinear() == 0;
+            run.maxCrossTrack = Math.max(run.maxCrossTrack, Math.abs(tracker.getCrossTrackError()));
+
+            robot.drive(tracker.getLinear(), tracker.getAngular(), PERIOD_SECONDS);
+            run.seconds += PERIOD_SECONDS;
+        }
+        return run;
+    }
+
+    private static PurePursuitController tracker(float... points) {
+        int count = points.length / 2;
+        float[] pathX = new float[count];
+        float[] pathZ = new float[count];
+        for (int i = 0; i < count; i++) {
+            pathX[i] = points[2 * i];
+            pathZ[i] = points[2 * i + 1];
+        }
+        PurePursuitController tracker = new PurePursuitController();
+        tracker.setVehicleScale(METERS_PER_SECOND_PER_UNIT, RADIANS_PER_SECOND_PER_UNIT);
+        tracker.setLimits(MAX_LINEAR, MAX_ANGULAR);
+        tracker.setPath(pathX, pathZ, count, true);
+        return tracker;
+    }
+
+    /**
+     * @return time to turn in place towards each point and drive to it at full speed
+     */
+    private static float stopTurnGoSeconds(float[] points) {
+        float seconds = 0;
+        float yaw = 0;
+        for (int i = 2; i + 1 < points.length; i += 2) {
+            float deltaX = points[i] - points[i - 2];
+            float deltaZ = points[i + 1] - points[i - 1];
+            float heading = (float) Math.atan2(deltaX, deltaZ);
+            seconds += Math.abs(NavigationUtils.normalizeAngle(heading - yaw))
+                    / (MAX_ANGULAR * RADIANS_PER_SECOND_PER_UNIT);
+            seconds += (float) Math.hypot(deltaX, deltaZ)
+                    / (MAX_LINEAR * METERS_PER_SECOND_PER_UNIT);
+            yaw = heading;
+        }
+        return seconds;
+    }
+
+    /**
+     * @return x, z pairs starting at the origin and going once around a circle to the right
+     */
+    private static float[] circle(float radius, int points) {
+        float[] pairs = new float[2 * (points + 1)];
+        for (int i = 0; i <= points; i++) {
+            double angle = 2 * Math.PI * i / points;
+            pairs[2 * i] = radius - radius * (float) Math.cos(angle);
+            pairs[2 * i + 1] = radius * (float) Math.sin(angle);
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,192 @@
+package com.satinavrobotics.satibot.navigation.estimation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.vehicle.TelemetryDecoder;
+import com.satinavrobotics.satibot.vehicle.transport.LineFramer;
+import com.satinavrobotics.satibot.vehicle.transport.LinkRecordingReader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Replays wheel encoder and gyro telemetry through {@link PoseEstimator} without ARCore
+ * corrections. The synthetic tests set the wheel geometry to 1 cm per pulse.
+ *
+ * simulated_drive.sblr is a link recording of the phone side talking to FirmwareSimulator over a
+ * loopback transport in real time, with the sensor telemetry at 50 Hz: drive forward for 2.5 s,
+ * stop for 1 s, reverse for 1.5 s and stop. It holds the telemetry lines exactly as received,
+ * with their receive times, and the control commands sent.
+ */
+public class PoseEstimatorTest {
+    private static final long STEP_NANOS = 10_000_000L;
+    private static final float TOLERANCE = 1e-3f;
+
+    private static final String RECORDING = "simulated_drive.sblr";
+    // Simulator ground truth, in meters forward of the start
+    private static final float RECORDED_FURTHEST = 1.0229f;
+    private static final float RECORDED_FINAL = 0.5000f;
+
+    private PoseEstimator estimator;
+    private long timestampNanos;
+    private int leftCount;
+    private int rightCount;
+
+    @Before
+    public void setUp() {
+        estimator = new PoseEstimator();
+        estimator.setWheelGeometry((float) (0.3 / Math.PI), 30);
+        // Establish the first counts, they carry no distance
+        estimator.onWheelCounts(timestampNanos, 0, 0, 1.0f, 1.0f);
+    }
+
+    @Test
+    public void straightForwardMovesAlongMinusZ() {
+        replay(100, 1, 1, 1.0f, 1.0f, 0.0f);
+
+        PoseEstimate estimate = estimator.getEstimate();
+        assertEquals(0.0f, estimate.x(), TOLERANCE);
+        assertEquals(-1.0f, estimate.z(), TOLERANCE);
+        assertEquals(0.0f, estimate.yaw(), TOLERANCE);
+    }
+
+    @Test
+    public void reverseMovesAlongPlusZ() {
+        replay(100, 1, 1, -1.0f, -1.0f, 0.0f);
+
+        assertEquals(1.0f, estimator.getEstimate().z(), TOLERANCE);
+    }
+
+    @Test
+    public void turningInPlaceDoesNotTranslate() {
+        // Left wheel backward, right wheel forward while the gyro reports the rotation
+        replay(100, 1, 1, -1.0f, 1.0f, 1.0f);
+
+        PoseEstimate estimate = estimator.getEstimate();
+        assertEquals(0.0f, estimate.x(), TOLERANCE);
+        assertEquals(0.0f, estimate.z(), TOLERANCE);
+        assertEquals(1.0f, estimate.yaw(), 0.02f);
+    }
+
+    @Test
+    public void unknownDirectionKeepsLastDirection() {
+        replay(50, 1, 1, -1.0f, -1.0f, 0.0f);
+        replay(50, 1, 1, 0.0f, 0.0f, 0.0f);
+
+        assertEquals(1.0f, estimator.getEstimate().z(), TOLERANCE);
+    }
+
+    @Test
+    public void countResetIsTreatedAsNewWindow() {
+        replay(10, 5, 5, 1.0f, 1.0f, 0.0f);
+        // The firmware window resets, the new count is the distance since the reset
+        timestampNanos += STEP_NANOS;
+        leftCount = 3;
+        rightCount = 3;
+        estimator.onWheelCounts(timestampNanos, leftCount, rightCount, 1.0f, 1.0f);
+
+        assertEquals(-0.53f, estimator.getEstimate().z(), TOLERANCE);
+    }
+
+    @Test
+    public void forwardArcCurvesTowardYaw() {
+        replay(200, 1, 1, 1.0f, 1.0f, 0.5f);
+
+        PoseEstimate estimate = estimator.getEstimate();
+        assertEquals(1.0f, estimate.yaw(), 0.02f);
+        // Moving along (-sin yaw, -cos yaw) with a growing yaw bends towards -x
+        assertTrue(estimate.x() < -0.2f);
+        assertTrue(estimate.z() < -1.5f);
+    }
+
+    @Test
+    public void recordedDriveEndsNearGroundTruth() throws Exception {
+        estimator = new PoseEstimator();
+        float[] furthest = new float[1];
+        // Forward is -z in the ARCore frame
+        estimator.addListener(estimate -> furthest[0] = Math.max(furthest[0], -estimate.z()));
+        replayRecording(RECORDING);
+
+        PoseEstimate estimate = estimator.getEstimate();
+        assertNotNull(estimate);
+        assertEquals(RECORDED_FURTHEST, furthest[0], 0.1f);
+        assertEquals(-RECORDED_FINAL, estimate.z(), 0.1f);
+        assertEquals(0.0f, estimate.x(), 0.05f);
+        assertEquals(0.0f, estimate.yaw(), 0.1f);
+    }
+
+    /**
+     * Feed a link recording through the app's telemetry decoding into the estimator, signing the
+     * wheel counts with the last control command sent, as Vehicle does
+     */
+    private void replayRecording(String name) throws Exception {
+        URL resource = getClass().getResource(name);
+        assertNotNull(name, resource);
+        float[] command = new float[2];
+        long[] receivedNanos = new long[1];
+        LineFramer framer = new LineFramer(new TelemetryDecoder(new TelemetryDecoder.Listener() {
+            @Override
+            public void onReady() {
+            }
+
+            @Override
+            public void onVehicleConfig(String config) {
+            }
+
+            @Override
+            public void onBatteryPercentage(float percentage) {
+            }
+
+            @Override
+            public void onWheelRpm(float left, float right) {
+            }
+
+            @Override
+            public void onFusedAngularVelocity(float angularVelocity) {
+                estimator.onAngularVelocity(receivedNanos[0], angularVelocity);
+            }
+
+            @Override
+            public void onWheelCounts(float left, float right) {
+                estimator.onWheelCounts(receivedNanos[0], (int) left, (int) right,
+                        PoseEstimator.leftWheelDirection(command[0], command[1]),
+                        PoseEstimator.rightWheelDirection(command[0], command[1]));
+            }
+        })::decode);
+
+        try (LinkRecordingReader reader = new LinkRecordingReader(new File(resource.toURI()))) {
+            LinkRecordingReader.Chunk chunk;
+            while ((chunk = reader.next()) != null) {
+                if (chunk.isRx()) {
+                    receivedNanos[0] = chunk.timestampNanos();
+                    framer.append(chunk.data());
+                    continue;
+                }
+                String sent = new String(chunk.data(), StandardCharsets.US_ASCII).trim();
+                if (sent.startsWith("c")) {
+                    String[] values = sent.substring(1).split(",");
+                    command[0] = Float.parseFloat(values[0]);
+                    command[1] = Float.parseFloat(values[1]);
+                }
+            }
+        }
+    }
+
+    private void replay(int steps, int leftPulses, int rightPulses,
+                        float leftDirection, float rightDirection, float angularVelocity) {
+        for (int i = 0; i < steps; i++) {
+            timestampNanos += STEP_NANOS;
+            leftCount += leftPulses;
+            rightCount += rightPulses;
+            estimator.onAngularVelocity(timestampNanos, angularVelocity);
+            estimator.onWheelCounts(timestampNanos, leftCount, rightCount,
+                    leftDirection, rightDirection);
+        }
+    }
+}
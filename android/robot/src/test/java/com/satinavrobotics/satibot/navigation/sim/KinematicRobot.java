@@ -0,0 +1,84 @@
+package com.satinavrobotics.satibot.navigation.sim;
+
+import com.satinavrobotics.satibot.navigation.ControlCommand;
+import com.satinavrobotics.satibot.navigation.NavigationPose;
+import com.satinavrobotics.satibot.navigation.NavigationUtils;
+
+/**
+ * Ideal robot for closed-loop controller and strategy tests: the normalized command is scaled to
+ * m/s and rad/s like in {@link NavigationSimulator} and takes effect at once, without wheel
+ * limits, lag or pose noise, so a test sees the controller's own behaviour. Positive angular
+ * velocity turns right, towards increasing yaw; yaw 0 faces +z with +x to the right.
+ *
+ * Has no Android dependencies.
+ */
+public class KinematicRobot {
+    private float x;
+    private float z;
+    private float yaw;
+    private float travelled;
+
+    public KinematicRobot() {
+        this(0, 0, 0);
+    }
+
+    public KinematicRobot(float x, float z, float yaw) {
+        this.x = x;
+        this.z = z;
+        this.yaw = yaw;
+    }
+
+    public void drive(ControlCommand command, float seconds) {
+        drive(command.getLinearVelocity(), command.getAngularVelocity(), seconds);
+    }
+
+    /**
+     * Turn, then move along the new heading.
+     *
+     * @param linear Normalized linear command
+     * @param angular Normalized angular command
+     */
+    public void drive(float linear, float angular, float seconds) {
+        float speed = linear * NavigationSimulator.METERS_PER_SECOND_PER_UNIT;
+        yaw = NavigationUtils.normalizeAngle(
+                yaw + angular * NavigationSimulator.RADIANS_PER_SECOND_PER_UNIT * seconds);
+        x += speed * (float) Math.sin(yaw) * seconds;
+        z += speed * (float) Math.cos(yaw) * seconds;
+        travelled += Math.abs(speed) * seconds;
+    }
+
+    public NavigationPose getPose() {
+        return new NavigationPose(x, 0, z, yaw);
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getZ() {
+        return z;
+    }
+
+    public float getYaw() {
+        return yaw;
+    }
+
+    public float getForwardX() {
+        return (float) Math.sin(yaw);
+    }
+
+    public float getForwardZ() {
+        return (float) Math.cos(yaw);
+    }
+
+    public float distanceTo(float targetX, float targetZ) {
+        return (float) Math.hypot(targetX - x, targetZ - z);
+    }
+
+    /**
+     * @return distance driven in meters, forwards or backwards
+     */
+    public float getTravelled() {
+        return travelled;
+    }
+}
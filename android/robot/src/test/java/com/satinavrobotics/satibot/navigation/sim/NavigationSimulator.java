@@ -0,0 +1,453 @@
+package com.satinavrobotics.satibot.navigation.sim;
+
+import com.satinavrobotics.satibot.env.LatencyHistogram;
+import com.satinavrobotics.satibot.navigation.NavigationContext;
+import com.satinavrobotics.satibot.navigation.NavigationPose;
+import com.satinavrobotics.satibot.navigation.NavigationUtils;
+import com.satinavrobotics.satibot.navigation.OccupancyGrid;
+import com.satinavrobotics.satibot.navigation.UnifiedNavigationController;
+import com.satinavrobotics.satibot.navigation.Waypoint;
+import com.satinavrobotics.satibot.navigation.WaypointsManager;
+import com.satinavrobotics.satibot.navigation.strategy.NavigationStrategy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Closed-loop simulation of the navigation stack: a {@link UnifiedNavigationController} with the
+ * given strategies drives a differential-drive robot through a {@link SimulatedWorld}, on a
+ * simulated clock and as fast as the CPU allows.
+ *
+ * The robot is kinematic: the normalized command is scaled to m/s and rad/s like the vehicle
+ * does, split into wheel speeds that are clamped and follow with a first-order lag, and the
+ * pose is integrated in 5 ms steps. Running into an obstacle counts a collision and stops the
+ * robot there. Positive angular velocity turns right, towards increasing yaw; yaw 0 faces +z.
+ *
+ * The controller sees what it would on the phone, late and noisy:
+ * <ul>
+ *   <li>poses at 30 Hz with Gaussian position and yaw noise, after a latency;</li>
+ *   <li>depth frames at 10 Hz from a level camera: a synthetic depth image is rendered by ray
+ *   casting each column, reduced to the 12 center, left and right navigability rows the way
+ *   DepthProcessor does, and optionally integrated into an {@link OccupancyGrid}, after a
+ *   latency;</li>
+ *   <li>control ticks at the controller's control loop rate, run with
+ *   {@link UnifiedNavigationController#step(long)}.</li>
+ * </ul>
+ *
+ * A simulator is confined to one thread; run separate simulators for parallel scenarios. The
+ * world and the tick histogram may be shared.
+ *
+ * Has no Android dependencies.
+ */
+public class NavigationSimulator {
+    // Matches the vehicle's default scale of normalized commands
+    public static final float METERS_PER_SECOND_PER_UNIT = 1.0f;
+    public static final float RADIANS_PER_SECOND_PER_UNIT = 2.0f;
+
+    private static final long SUBSTEP_NANOS = 5_000_000L;
+    private static final int NUM_ROWS = 12;
+    // Navigability as in DepthProcessor: rows over the bottom 70% of the image, a row is navigable
+    // with at most 3% obstacle pixels, the center window is the robot's width at 0.5 m
+    private static final float TOP_PERCENTAGE = 0.7f;
+    private static final int NAVIGABILITY_THRESHOLD_PERCENT = 3;
+    private static final float ROBOT_BOUNDS_DISTANCE_METERS = 0.5f;
+    // Depth camera
+    private static final int DEPTH_WIDTH = 80;
+    private static final int DEPTH_HEIGHT = 60;
+    private static final float FOCAL_LENGTH = 70f; // About 60 degrees horizontal field of view
+    private static final float MAX_DEPTH_METERS = 8f;
+    private static final int DEPTH_STRIDE = 2;
+
+    /**
+     * Outcome of one run.
+     *
+     * @param reached Whether navigation completed all waypoints before the timeout
+     * @param seconds Simulated time until completion or the timeout
+     * @param pathLength Distance driven in meters
+     * @param collisions Number of times the robot ran into an obstacle
+     * @param minClearance Smallest distance between the robot's outline and an obstacle, negative
+     *                     when it ran into one
+     * @param ticks Control ticks run
+     * @param maxTickNanos Longest control tick, wall clock
+     * @param totalTickNanos Time spent in control ticks, wall clock
+     */
+    public record Result(boolean reached, int waypointsReached, int waypointCount, float seconds,
+                         float pathLength, int collisions, float minClearance, long ticks,
+                         long maxTickNanos, long totalTickNanos) {
+
+        public double meanTickNanos() {
+            return ticks > 0 ? (double) totalTickNanos / ticks : 0;
+        }
+    }
+
+    private record PoseFrame(long deliverNanos, NavigationPose pose) {}
+
+    private record DepthFrame(long deliverNanos, boolean[] rows, boolean[] left, boolean[] right,
+                              short[][] depth, float[] cameraToWorld) {}
+
+    private final SimulatedWorld world;
+    private final Random random;
+    private final List<NavigationStrategy> strategies = new ArrayList<>();
+
+    // Robot, as in FirmwareSimulator
+    private float wheelBase = 0.43f;
+    private float maxWheelSpeed = 1.0f;
+    private float motorTimeConstant = 0.15f;
+    private float robotRadius = 0.25f;
+    private float robotWidth = 0.4f;
+    private float cameraHeight = 0.3f;
+
+    // Sensors
+    private long posePeriodNanos = 1_000_000_000L / 30;
+    private long depthPeriodNanos = 1_000_000_000L / 10;
+    private long poseLatencyNanos = 50_000_000L;
+    private long depthLatencyNanos = 100_000_000L;
+    private float positionNoise = 0.02f;
+    private float yawNoise = 0.01f;
+    private float navigabilityRange = 1.5f;
+    private boolean occupancyGridEnabled = false;
+
+    private float timeoutSeconds = 120f;
+    private LatencyHistogram tickHistogram;
+
+    // Robot state
+    private float x;
+    private float z;
+    private float yaw;
+    private float leftWheel;
+    private float rightWheel;
+    private float commandLinear;
+    private float commandAngular;
+    private boolean completed;
+
+    // Synthetic depth, per column: distance to the obstacle along the column's ray
+    private final float[] columnDepth = new float[DEPTH_WIDTH];
+    private final boolean[][] obstaclePixel = new boolean[DEPTH_HEIGHT][DEPTH_WIDTH];
+
+    /**
+     * @param seed Seed of the sensor noise, runs with the same seed and inputs are identical
+     */
+    public NavigationSimulator(SimulatedWorld world, long seed) {
+        this.world = world;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Add a strategy to the controllers of the following runs.
+     */
+    public NavigationSimulator addStrategy(NavigationStrategy strategy) {
+        strategies.add(strategy);
+        return this;
+    }
+
+    /**
+     * @param wheelBase Distance between the wheels in meters
+     * @param maxWheelSpeed Wheel speed at full power in m/s
+     * @param motorTimeConstant Time constant of the wheel response in seconds
+     * @param robotRadius Radius of the robot's outline in meters, for collisions
+     */
+    public void setRobot(float wheelBase, float maxWheelSpeed, float motorTimeConstant,
+                         float robotRadius) {
+        this.wheelBase = wheelBase;
+        this.maxWheelSpeed = maxWheelSpeed;
+        this.motorTimeConstant = motorTimeConstant;
+        this.robotRadius = robotRadius;
+    }
+
+    /**
+     * @param positionNoise Standard deviation of the pose position in meters
+     * @param yawNoise Standard deviation of the pose yaw in radians
+     */
+    public void setPoseNoise(float positionNoise, float yawNoise) {
+        this.positionNoise = positionNoise;
+        this.yawNoise = yawNoise;
+    }
+
+    public void setLatency(long poseLatencyNanos, long depthLatencyNanos) {
+        this.poseLatencyNanos = poseLatencyNanos;
+        this.depthLatencyNanos = depthLatencyNanos;
+    }
+
+    public void setSensorRates(int poseHz, int depthHz) {
+        this.posePeriodNanos = 1_000_000_000L / Math.max(1, poseHz);
+        this.depthPeriodNanos = 1_000_000_000L / Math.max(1, depthHz);
+    }
+
+    /**
+     * @param occupancyGridEnabled Whether depth frames are also integrated into an occupancy grid
+     *                             given to the strategies
+     */
+    public void setOccupancyGridEnabled(boolean occupancyGridEnabled) {
+        this.occupancyGridEnabled = occupancyGridEnabled;
+    }
+
+    public void setTimeoutSeconds(float timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * @param tickHistogram Receives the wall clock duration of every control tick, or null
+     */
+    public void setTickHistogram(LatencyHistogram tickHistogram) {
+        this.tickHistogram = tickHistogram;
+    }
+
+    /**
+     * Navigate through the waypoints, in local coordinates, from a start pose at rest.
+     */
+    public Result run(float startX, float startZ, float startYaw, List<Waypoint> waypoints) {
+        x = startX;
+        z = startZ;
+        yaw = startYaw;
+        leftWheel = 0;
+        rightWheel = 0;
+        commandLinear = 0;
+        commandAngular = 0;
+        completed = false;
+
+        WaypointsManager waypointsManager = new WaypointsManager();
+        waypointsManager.setWaypoints(waypoints);
+        UnifiedNavigationController controller = new UnifiedNavigationController(
+                (linear, angular) -> {
+                    commandLinear = linear;
+                    commandAngular = angular;
+                }, null, waypointsManager);
+        for (NavigationStrategy strategy : strategies) {
+            controller.addStrategy(strategy);
+        }
+        OccupancyGrid grid = null;
+        if (occupancyGridEnabled) {
+            grid = new OccupancyGrid(0.1f, 100);
+            grid.setSensorParameters(cameraHeight, 0.08f, 1.0f, 4.0f);
+            controller.getContext().setOccupancyGrid(grid);
+        }
+        controller.setNavigationListener(new UnifiedNavigationController.NavigationListener() {
+            @Override
+            public void onNavigationStateChanged(NavigationContext.NavigationState state,
+                                                 Waypoint currentWaypoint) {
+            }
+
+            @Override
+            public void onNavigationCompleted() {
+                completed = true;
+            }
+
+            @Override
+            public void onNavigationError(String error) {
+            }
+        });
+
+        ArrayDeque<PoseFrame> poses = new ArrayDeque<>();
+        ArrayDeque<DepthFrame> depthFrames = new ArrayDeque<>();
+        long tickPeriodNanos = 1_000_000_000L / controller.getControlRateHz();
+        long timeoutNanos = (long) (timeoutSeconds * 1e9);
+        long nextTick = 0;
+        long nextPose = 0;
+        long nextDepth = 0;
+        long ticks = 0;
+        long maxTickNanos = 0;
+        long totalTickNanos = 0;
+        float pathLength = 0;
+        int collisions = 0;
+        boolean inContact = false;
+        float minClearance = world.getClearance(x, z, Float.MAX_VALUE) - robotRadius;
+
+        // Simulated time runs from here; the controller compares it against pose timestamps only
+        long baseNanos = System.nanoTime();
+        controller.startNavigation(baseNanos);
+        long t = 0;
+        while (!completed && t < timeoutNanos) {
+            if (t >= nextPose) {
+                poses.add(new PoseFrame(t + poseLatencyNanos, new NavigationPose(
+                        x + positionNoise * (float) random.nextGaussian(), 0,
+                        z + positionNoise * (float) random.nextGaussian(),
+                        NavigationUtils.normalizeAngle(yaw + yawNoise * (float) random.nextGaussian()))));
+                nextPose += posePeriodNanos;
+            }
+            if (t >= nextDepth) {
+                depthFrames.add(captureDepth(t + depthLatencyNanos, grid != null));
+                nextDepth += depthPeriodNanos;
+            }
+            while (!poses.isEmpty() && poses.peek().deliverNanos() <= t) {
+                controller.updateCurrentPose(poses.poll().pose(), baseNanos + t);
+            }
+            while (!depthFrames.isEmpty() && depthFrames.peek().deliverNanos() <= t) {
+                DepthFrame frame = depthFrames.poll();
+                controller.updateNavigabilityData(frame.rows(), frame.left(), frame.right());
+                if (grid != null) {
+                    grid.integrateDepth(frame.depth(), DEPTH_WIDTH, DEPTH_HEIGHT, DEPTH_STRIDE,
+                            FOCAL_LENGTH, FOCAL_LENGTH, (DEPTH_WIDTH - 1) / 2f, (DEPTH_HEIGHT - 1) / 2f,
+                            frame.cameraToWorld());
+                }
+            }
+            if (t >= nextTick) {
+                long start = System.nanoTime();
+                controller.step(baseNanos + t);
+                long elapsed = System.nanoTime() - start;
+                if (tickHistogram != null) {
+                    tickHistogram.record(elapsed);
+                }
+                maxTickNanos = Math.max(maxTickNanos, elapsed);
+                totalTickNanos += elapsed;
+                ticks++;
+                nextTick += tickPeriodNanos;
+                if (completed) {
+                    break;
+                }
+            }
+
+            float previousX = x;
+            float previousZ = z;
+            drive(SUBSTEP_NANOS / 1e9f);
+            float clearance = world.getClearance(x, z, Float.MAX_VALUE) - robotRadius;
+            minClearance = Math.min(minClearance, clearance);
+            if (clearance < 0) {
+                // Blocked: stay where the robot was, with the wheels stalled
+                x = previousX;
+                z = previousZ;
+                leftWheel = 0;
+                rightWheel = 0;
+                if (!inContact) {
+                    collisions++;
+                }
+                inContact = true;
+            } else {
+                inContact = false;
+            }
+            pathLength += (float) Math.hypot(x - previousX, z - previousZ);
+            t += SUBSTEP_NANOS;
+        }
+        if (!completed) {
+            controller.stopNavigation();
+        }
+
+        return new Result(completed, waypoints.size() - waypointsManager.getWaypointCount(),
+                waypoints.size(), t / 1e9f, pathLength, collisions, minClearance, ticks,
+                maxTickNanos, totalTickNanos);
+    }
+
+    /**
+     * Advance the robot by the command, with clamped, lagging wheel speeds.
+     */
+    private void drive(float dt) {
+        float linear = commandLinear * METERS_PER_SECOND_PER_UNIT;
+        float angular = commandAngular * RADIANS_PER_SECOND_PER_UNIT;
+        // Turning right, towards increasing yaw, takes the left wheel faster
+        float targetLeft = linear + angular * wheelBase / 2;
+        float targetRight = linear - angular * wheelBase / 2;
+        float fastest = Math.max(Math.abs(targetLeft), Math.abs(targetRight));
+        if (fastest > maxWheelSpeed) {
+            targetLeft *= maxWheelSpeed / fastest;
+            targetRight *= maxWheelSpeed / fastest;
+        }
+        float response = 1 - (float) Math.exp(-dt / motorTimeConstant);
+        leftWheel += (targetLeft - leftWheel) * response;
+        rightWheel += (targetRight - rightWheel) * response;
+
+        float speed = (leftWheel + rightWheel) / 2;
+        yaw = NavigationUtils.normalizeAngle(yaw + (leftWheel - rightWheel) / wheelBase * dt);
+        x += speed * (float) Math.sin(yaw) * dt;
+        z += speed * (float) Math.cos(yaw) * dt;
+    }
+
+    /**
+     * Render what the camera sees from the current pose and reduce it to navigability rows.
+     *
+     * @param withDepth Whether to keep the depth image and camera pose for the occupancy grid
+     */
+    private DepthFrame captureDepth(long deliverNanos, boolean withDepth) {
+        float forwardX = (float) Math.sin(yaw);
+        float forwardZ = (float) Math.cos(yaw);
+        float rightX = forwardZ;
+        float rightZ = -forwardX;
+        float cx = (DEPTH_WIDTH - 1) / 2f;
+        float cy = (DEPTH_HEIGHT - 1) / 2f;
+        for (int u = 0; u < DEPTH_WIDTH; u++) {
+            float lateral = (u - cx) / FOCAL_LENGTH;
+            float norm = (float) Math.sqrt(1 + lateral * lateral);
+            float range = world.raycast(x, z, (forwardX + lateral * rightX) / norm,
+                    (forwardZ + lateral * rightZ) / norm, MAX_DEPTH_METERS);
+            // Depth along the optical axis
+            columnDepth[u] = range < MAX_DEPTH_METERS ? range / norm : Float.MAX_VALUE;
+        }
+
+        short[][] depth = withDepth ? new short[DEPTH_HEIGHT][DEPTH_WIDTH] : null;
+        float obstacleHeight = world.getObstacleHeight();
+        for (int v = 0; v < DEPTH_HEIGHT; v++) {
+            float up = -(v - cy) / FOCAL_LENGTH;
+            float floorDepth = up < 0 ? cameraHeight / -up : Float.MAX_VALUE;
+            for (int u = 0; u < DEPTH_WIDTH; u++) {
+                float obstacleDepth = columnDepth[u];
+                boolean obstacle = obstacleDepth < floorDepth
+                        && cameraHeight + up * obstacleDepth <= obstacleHeight;
+                float d = obstacle ? obstacleDepth : floorDepth;
+                obstaclePixel[v][u] = obstacle && obstacleDepth < navigabilityRange;
+                if (depth != null) {
+                    depth[v][u] = d < MAX_DEPTH_METERS ? (short) Math.round(d * 1000) : 0;
+                }
+            }
+        }
+
+        // Windows beside the robot's bounds, at least a tenth of the image wide
+        float boundsRatio = robotWidth * FOCAL_LENGTH / ROBOT_BOUNDS_DISTANCE_METERS / DEPTH_WIDTH;
+        int boundsLeft = Math.max(0, Math.round((0.5f - boundsRatio / 2) * DEPTH_WIDTH));
+        int boundsRight = Math.min(DEPTH_WIDTH - 1, Math.round((0.5f + boundsRatio / 2) * DEPTH_WIDTH));
+        int minWindowWidth = Math.max(1, DEPTH_WIDTH / 10);
+        boolean[] rows = navigability(boundsLeft, boundsRight);
+        boolean[] left = navigability(0, Math.max(boundsLeft, minWindowWidth));
+        boolean[] right = navigability(Math.min(boundsRight, DEPTH_WIDTH - 1 - minWindowWidth),
+                DEPTH_WIDTH - 1);
+
+        float[] cameraToWorld = null;
+        if (withDepth) {
+            // Camera axes: x to the right of the heading, y up, looking along -z
+            cameraToWorld = new float[16];
+            cameraToWorld[0] = rightX;
+            cameraToWorld[2] = rightZ;
+            cameraToWorld[5] = 1;
+            cameraToWorld[8] = -forwardX;
+            cameraToWorld[10] = -forwardZ;
+            cameraToWorld[12] = x;
+            cameraToWorld[13] = cameraHeight;
+            cameraToWorld[14] = z;
+            cameraToWorld[15] = 1;
+        }
+        return new DepthFrame(deliverNanos, rows, left, right, depth, cameraToWorld);
+    }
+
+    /**
+     * @return navigability of the rows between the columns, top (far) row first
+     */
+    private boolean[] navigability(int startX, int endX) {
+        boolean[] rows = new boolean[NUM_ROWS];
+        int bottomY = DEPTH_HEIGHT - 1;
+        int topY = (int) (DEPTH_HEIGHT * (1 - TOP_PERCENTAGE));
+        int rowHeight = Math.max(1, (bottomY - topY) / NUM_ROWS);
+        float freeThreshold = (100 - NAVIGABILITY_THRESHOLD_PERCENT) / 100.0f;
+        for (int row = 0; row < NUM_ROWS; row++) {
+            int rowTopY = topY + row * rowHeight;
+            int rowBottomY = Math.min(rowTopY + rowHeight, bottomY);
+            int obstacles = 0;
+            int total = 0;
+            for (int u = startX; u <= endX; u++) {
+                for (int v = rowTopY; v <= rowBottomY; v++) {
+                    total++;
+                    if (obstaclePixel[v][u]) {
+                        obstacles++;
+                    }
+                }
+            }
+            rows[row] = total > 0 && 1.0f - (float) obstacles / total >= freeThreshold;
+        }
+        return rows;
+    }
+
+    /**
+     * @return the robot's true pose
+     */
+    public NavigationPose getPose() {
+        return new NavigationPose(x, 0, z, yaw);
+    }
+}
@@ -0,0 +1,188 @@
+package com.satinavrobotics.satibot.navigation.sim;
+
+import com.satinavrobotics.satibot.env.LatencyHistogram;
+import com.satinavrobotics.satibot.navigation.Waypoint;
+import com.satinavrobotics.satibot.navigation.strategy.CombinedNavigationStrategy;
+import com.satinavrobotics.satibot.navigation.strategy.DynamicWindowStrategy;
+import com.satinavrobotics.satibot.navigation.strategy.PathTrackingStrategy;
+import com.satinavrobotics.satibot.navigation.strategy.WaypointFollowingStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs randomized scenarios through {@link NavigationSimulator} in parallel for each set of
+ * strategies the app can be configured with, and reports per set how many reached the last
+ * waypoint, time to goal, path length, collisions and control tick compute time.
+ *
+ * A scenario is a walled 8 x 10 m arena with up to 6 round obstacles and 1 to 4 waypoints,
+ * generated from the seed plus the scenario number, so every set drives the same scenarios and
+ * a run is reproduced by passing its scenario seed with a count of 1.
+ *
+ * <p>Run {@link #main(String[])} on a desktop JVM with arguments [scenarios [seed [threads]]].
+ * NavigationSimulatorTest checks a few of the same scenarios. Has no Android dependencies.
+ */
+public final class NavigationSimulatorBenchmark {
+    private static final String[] SETS = {"waypoint", "path tracking", "combined", "dwa + combined"};
+    // The set DepthNavigationFragment configures
+    static final int APP_SET = 3;
+    private static final int LISTED_FAILURES = 3;
+    // Spreads consecutive seeds, the first draws of java.util.Random from them are correlated
+    private static final long SEED_SCRAMBLE = 0x9E3779B97F4A7C15L;
+
+    private NavigationSimulatorBenchmark() {}
+
+    record Scenario(long seed, SimulatedWorld world, List<Waypoint> waypoints) {}
+
+    public static void main(String[] args) throws InterruptedException {
+        int scenarios = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+
+        List<Scenario> generated = new ArrayList<>(scenarios);
+        for (int i = 0; i < scenarios; i++) {
+            generated.add(scenario(seed + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        double simulatedSeconds = 0;
+        long startNanos = System.nanoTime();
+        for (int set = 0; set < SETS.length; set++) {
+            LatencyHistogram ticks = new LatencyHistogram();
+            List<Future<NavigationSimulator.Result>> futures = new ArrayList<>(scenarios);
+            for (Scenario scenario : generated) {
+                int configuration = set;
+                futures.add(executor.submit(() -> simulate(configuration, scenario, ticks)));
+            }
+
+            int reached = 0;
+            int collided = 0;
+            int collisions = 0;
+            int errors = 0;
+            double goalSeconds = 0;
+            double pathLength = 0;
+            float minClearance = Float.MAX_VALUE;
+            StringBuilder failures = new StringBuilder();
+            int listed = 0;
+            for (int i = 0; i < scenarios; i++) {
+                NavigationSimulator.Result result;
+                try {
+                    result = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    if (errors++ == 0) {
+                        e.getCause().printStackTrace();
+                    }
+                    continue;
+                }
+                simulatedSeconds += result.seconds();
+                minClearance = Math.min(minClearance, result.minClearance());
+                collisions += result.collisions();
+                if (result.collisions() > 0) {
+                    collided++;
+                }
+                if (result.reached()) {
+                    reached++;
+                    goalSeconds += result.seconds();
+                    pathLength += result.pathLength();
+                }
+                if ((!result.reached() || result.collisions() > 0) && listed++ < LISTED_FAILURES) {
+                    failures.append(String.format(Locale.US, " %d (%d/%d waypoints, %d collisions)",
+                            generated.get(i).seed(), result.waypointsReached(), result.waypointCount(),
+                            result.collisions()));
+                }
+            }
+
+            System.out.println(String.format(Locale.US,
+                    "%-15s reached %5.1f%%, %6.1f s to goal, %5.2f m path, %4.1f%% collided "
+                            + "(%d collisions, clearance >= %.2f m), %d errors",
+                    SETS[set], 100.0 * reached / scenarios, reached > 0 ? goalSeconds / reached : 0,
+                    reached > 0 ? pathLength / reached : 0, 100.0 * collided / scenarios, collisions,
+                    minClearance, errors));
+            System.out.println(String.format(Locale.US,
+                    "%-15s tick %7.1f us mean, %7.1f us p50, %7.1f us p99, %8.1f us max over %,d ticks",
+                    "", ticks.getMeanNanos() / 1e3, ticks.getPercentile(50) / 1e3,
+                    ticks.getPercentile(99) / 1e3, ticks.getMaxNanos() / 1e3, ticks.getCount()));
+            if (listed > 0) {
+                System.out.println(String.format(Locale.US, "%-15s failed scenario seeds:%s%s", "",
+                        failures, listed > LISTED_FAILURES ? " ..." : ""));
+            }
+        }
+        executor.shutdown();
+        double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.println(String.format(Locale.US,
+                "%,d runs, %,.0f simulated s in %.1f s on %d threads (%,.0fx real time)",
+                scenarios * SETS.length, simulatedSeconds, wallSeconds, threads,
+                simulatedSeconds / wallSeconds));
+    }
+
+    /**
+     * @param ticks Receives the duration of every control tick, or null
+     */
+    static NavigationSimulator.Result simulate(int set, Scenario scenario, LatencyHistogram ticks) {
+        NavigationSimulator simulator = new NavigationSimulator(scenario.world(),
+                scenario.seed() * SEED_SCRAMBLE + 1);
+        simulator.setTickHistogram(ticks);
+        switch (set) {
+            case 0:
+                simulator.addStrategy(new WaypointFollowingStrategy());
+                break;
+            case 1:
+                simulator.addStrategy(new PathTrackingStrategy());
+                break;
+            case 2:
+                simulator.addStrategy(new CombinedNavigationStrategy());
+                break;
+            default:
+                // As configured in DepthNavigationFragment
+                simulator.addStrategy(new CombinedNavigationStrategy());
+                simulator.addStrategy(new DynamicWindowStrategy());
+                simulator.setOccupancyGridEnabled(true);
+                break;
+        }
+        return simulator.run(0, 0, 0, scenario.waypoints());
+    }
+
+    /**
+     * The robot starts at the origin facing +z, in an arena from x = -4 to 4 and z = -1 to 9.
+     * Obstacles keep a robot's width of space around the start and the waypoints.
+     */
+    static Scenario scenario(long seed) {
+        Random random = new Random(seed * SEED_SCRAMBLE);
+        List<Waypoint> waypoints = new ArrayList<>();
+        float lastX = 0;
+        float lastZ = 0;
+        int count = 1 + random.nextInt(4);
+        while (waypoints.size() < count) {
+            float x = -3 + 6 * random.nextFloat();
+            float z = 1 + 7 * random.nextFloat();
+            if (Math.hypot(x - lastX, z - lastZ) >= 1.5) {
+                waypoints.add(Waypoint.local("w" + waypoints.size(), x, z));
+                lastX = x;
+                lastZ = z;
+            }
+        }
+
+        SimulatedWorld world = new SimulatedWorld().addBox(-4, -1, 4, 9);
+        int obstacles = random.nextInt(7);
+        for (int attempt = 0; world.getObstacleCount() < 4 + obstacles && attempt < 100; attempt++) {
+            float x = -3.5f + 7 * random.nextFloat();
+            float z = 0.5f + 8 * random.nextFloat();
+            float radius = 0.15f + 0.25f * random.nextFloat();
+            boolean clear = Math.hypot(x, z) > radius + 0.6f;
+            for (Waypoint waypoint : waypoints) {
+                clear &= Math.hypot(x - waypoint.x(), z - waypoint.z()) > radius + 0.6f;
+            }
+            if (clear) {
+                world.addCircle(x, z, radius);
+            }
+        }
+        return new Scenario(seed, world, waypoints);
+    }
+}
@@ -0,0 +1,74 @@
+package com.satinavrobotics.satibot.navigation.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.navigation.Waypoint;
+
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Runs the strategies DepthNavigationFragment configures through {@link NavigationSimulator}, on
+ * the randomized scenarios of NavigationSimulatorBenchmark and on obstacles placed just off the
+ * straight line to the goal, where a strategy that confuses left and right drives into them.
+ *
+ * The robot starts at the origin facing +z, +x is to its right.
+ */
+public class NavigationSimulatorTest {
+    private static final int SCENARIOS = 10;
+
+    @Test
+    public void reachesRandomScenariosWithoutCollisions() {
+        for (long seed = 1; seed <= SCENARIOS; seed++) {
+            NavigationSimulator.Result result = run(NavigationSimulatorBenchmark.scenario(seed));
+            assertTrue("scenario " + seed + " reached " + result.waypointsReached() + "/"
+                    + result.waypointCount(), result.reached());
+            assertEquals("scenario " + seed + " collisions", 0, result.collisions());
+        }
+    }
+
+    @Test
+    public void goesAroundObstacleLeftOfTheWay() {
+        assertClearRun(-0.15f);
+    }
+
+    @Test
+    public void goesAroundObstacleRightOfTheWay() {
+        assertClearRun(0.15f);
+    }
+
+    @Test
+    public void sameSeedRunsAreIdentical() {
+        NavigationSimulatorBenchmark.Scenario scenario = NavigationSimulatorBenchmark.scenario(7);
+
+        assertEquals(outcome(run(scenario)), outcome(run(scenario)));
+    }
+
+    /**
+     * @param offset How far right of the way to the goal the obstacle's center is
+     */
+    private static void assertClearRun(float offset) {
+        SimulatedWorld world = new SimulatedWorld().addBox(-4, -1, 4, 9)
+                .addCircle(offset, 2.5f, 0.4f);
+        NavigationSimulator.Result result = run(new NavigationSimulatorBenchmark.Scenario(1, world,
+                List.of(Waypoint.local("goal", 0, 5))));
+
+        assertTrue("timed out", result.reached());
+        assertEquals(0, result.collisions());
+    }
+
+    private static NavigationSimulator.Result run(NavigationSimulatorBenchmark.Scenario scenario) {
+        return NavigationSimulatorBenchmark.simulate(NavigationSimulatorBenchmark.APP_SET, scenario,
+                null);
+    }
+
+    /**
+     * @return the result without the wall clock tick durations, which vary between runs
+     */
+    private static List<Object> outcome(NavigationSimulator.Result result) {
+        return List.of(result.reached(), result.waypointsReached(), result.seconds(),
+                result.pathLength(), result.collisions(), result.minClearance(), result.ticks());
+    }
+}
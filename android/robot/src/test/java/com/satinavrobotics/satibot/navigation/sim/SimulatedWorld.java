@@ -0,0 +1,137 @@
+package com.satinavrobotics.satibot.navigation.sim;
+
+import java.util.Arrays;
+
+/**
+ * Obstacles on the ground plane (x, z) for {@link NavigationSimulator}: circles, e.g. posts and
+ * people, and line segments, e.g. walls. Obstacles are vertical and {@link #getObstacleHeight()}
+ * tall. Queries do not allocate; the world is read-only once a simulation runs, so several
+ * simulations may share it.
+ *
+ * Has no Android dependencies.
+ */
+public class SimulatedWorld {
+    private float obstacleHeight = 0.5f;
+
+    // Circles: centre x, centre z, radius
+    private float[] circles = new float[0];
+    private int circleCount = 0;
+    // Segments: x0, z0, x1, z1
+    private float[] segments = new float[0];
+    private int segmentCount = 0;
+
+    public SimulatedWorld addCircle(float x, float z, float radius) {
+        if (circles.length < 3 * (circleCount + 1)) {
+            circles = Arrays.copyOf(circles, Math.max(12, 2 * circles.length));
+        }
+        circles[3 * circleCount] = x;
+        circles[3 * circleCount + 1] = z;
+        circles[3 * circleCount + 2] = radius;
+        circleCount++;
+        return this;
+    }
+
+    public SimulatedWorld addSegment(float x0, float z0, float x1, float z1) {
+        if (segments.length < 4 * (segmentCount + 1)) {
+            segments = Arrays.copyOf(segments, Math.max(16, 2 * segments.length));
+        }
+        segments[4 * segmentCount] = x0;
+        segments[4 * segmentCount + 1] = z0;
+        segments[4 * segmentCount + 2] = x1;
+        segments[4 * segmentCount + 3] = z1;
+        segmentCount++;
+        return this;
+    }
+
+    /**
+     * Add the four walls of an axis-aligned rectangle.
+     */
+    public SimulatedWorld addBox(float minX, float minZ, float maxX, float maxZ) {
+        return addSegment(minX, minZ, maxX, minZ)
+                .addSegment(maxX, minZ, maxX, maxZ)
+                .addSegment(maxX, maxZ, minX, maxZ)
+                .addSegment(minX, maxZ, minX, minZ);
+    }
+
+    public void setObstacleHeight(float obstacleHeight) {
+        this.obstacleHeight = obstacleHeight;
+    }
+
+    public float getObstacleHeight() {
+        return obstacleHeight;
+    }
+
+    public int getObstacleCount() {
+        return circleCount + segmentCount;
+    }
+
+    /**
+     * Distance from a position along a direction to the first obstacle surface.
+     *
+     * @param dirX x component of the direction, unit length
+     * @param dirZ z component of the direction, unit length
+     * @return the distance in meters, or maxDistance if nothing is hit up to there
+     */
+    public float raycast(float x, float z, float dirX, float dirZ, float maxDistance) {
+        float best = maxDistance;
+        for (int c = 0; c < circleCount; c++) {
+            float ox = x - circles[3 * c];
+            float oz = z - circles[3 * c + 1];
+            float radius = circles[3 * c + 2];
+            float b = ox * dirX + oz * dirZ;
+            float q = ox * ox + oz * oz - radius * radius;
+            if (q <= 0) {
+                return 0; // Inside
+            }
+            float discriminant = b * b - q;
+            if (b < 0 && discriminant >= 0) {
+                float t = -b - (float) Math.sqrt(discriminant);
+                best = Math.min(best, t);
+            }
+        }
+        for (int s = 0; s < segmentCount; s++) {
+            float ax = segments[4 * s];
+            float az = segments[4 * s + 1];
+            float ex = segments[4 * s + 2] - ax;
+            float ez = segments[4 * s + 3] - az;
+            float denominator = dirX * ez - dirZ * ex;
+            if (Math.abs(denominator) < 1e-9f) {
+                continue; // Parallel
+            }
+            float wx = ax - x;
+            float wz = az - z;
+            float t = (wx * ez - wz * ex) / denominator;
+            float u = (wx * dirZ - wz * dirX) / denominator;
+            if (t >= 0 && u >= 0 && u <= 1) {
+                best = Math.min(best, t);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return distance from a position to the closest obstacle surface, negative inside a circle,
+     *         or maxDistance if none is closer
+     */
+    public float getClearance(float x, float z, float maxDistance) {
+        float best = maxDistance;
+        for (int c = 0; c < circleCount; c++) {
+            float dx = x - circles[3 * c];
+            float dz = z - circles[3 * c + 1];
+            best = Math.min(best, (float) Math.sqrt(dx * dx + dz * dz) - circles[3 * c + 2]);
+        }
+        for (int s = 0; s < segmentCount; s++) {
+            float ax = segments[4 * s];
+            float az = segments[4 * s + 1];
+            float ex = segments[4 * s + 2] - ax;
+            float ez = segments[4 * s + 3] - az;
+            float lengthSquared = ex * ex + ez * ez;
+            float u = lengthSquared > 0
+                    ? Math.max(0, Math.min(1, ((x - ax) * ex + (z - az) * ez) / lengthSquared)) : 0;
+            float dx = x - (ax + u * ex);
+            float dz = z - (az + u * ez);
+            best = Math.min(best, (float) Math.sqrt(dx * dx + dz * dz));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,85 @@
+package com.satinavrobotics.satibot.navigation.strategy;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.navigation.ControlCommand;
+import com.satinavrobotics.satibot.navigation.NavigationContext;
+import com.satinavrobotics.satibot.navigation.Waypoint;
+import com.satinavrobotics.satibot.navigation.sim.KinematicRobot;
+import com.satinavrobotics.satibot.navigation.sim.NavigationSimulator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Drives a {@link KinematicRobot} with {@link CombinedNavigationStrategy} on a clear path through
+ * two waypoints, moving on to the next waypoint the way UnifiedNavigationController does.
+ *
+ * The robot starts at the origin with yaw 0, facing +z with +x to its right. A positive angular
+ * command increases the yaw.
+ */
+public class CombinedNavigationStrategyTest {
+    private static final float PERIOD_SECONDS = 0.05f;
+    private static final float TIMEOUT_SECONDS = 60f;
+
+    private final CombinedNavigationStrategy strategy = new CombinedNavigationStrategy();
+    private final NavigationContext context = new NavigationContext();
+    private final Waypoint first = Waypoint.local("first", 0.0f, 2.0f);
+    private final Waypoint last = Waypoint.local("last", 1.5f, 3.5f);
+    private final KinematicRobot robot = new KinematicRobot();
+
+    private float linear;
+    private boolean stopped;
+    private long nowNanos;
+
+    @Before
+    public void setUp() {
+        strategy.getPathStrategy().getTracker().setVehicleScale(
+                NavigationSimulator.METERS_PER_SECOND_PER_UNIT,
+                NavigationSimulator.RADIANS_PER_SECOND_PER_UNIT);
+        context.setTotalWaypointCount(2);
+        context.setCurrentWaypointIndex(1);
+        context.setTargetWaypoint(first);
+        context.setFollowingWaypoints(new Waypoint[] {last});
+        context.setCurrentState(NavigationContext.NavigationState.TURNING);
+        nowNanos = System.nanoTime();
+    }
+
+    @Test
+    public void drivesThroughIntermediateWaypointAndStopsAtTheLast() {
+        assertTrue(drive());
+        assertTrue("linear " + linear + " when passing the first waypoint", linear > 0);
+
+        // Move on as UnifiedNavigationController does
+        context.setPreviousWaypoint(first);
+        context.setTargetWaypoint(last);
+        context.setFollowingWaypoints(new Waypoint[0]);
+        context.setCurrentWaypointIndex(2);
+        context.setCurrentState(NavigationContext.NavigationState.TURNING);
+        strategy.reset();
+
+        assertTrue(drive());
+        assertFalse("stopped on the way", stopped);
+        assertTrue(robot.getPose().distanceTo(last) < context.getPositionThresholdMeters());
+    }
+
+    /**
+     * @return true if the strategy completed before the timeout
+     */
+    private boolean drive() {
+        for (float time = 0; time < TIMEOUT_SECONDS; time += PERIOD_SECONDS) {
+            context.setCurrentPose(robot.getPose());
+            if (strategy.isComplete(context)) {
+                return true;
+            }
+            nowNanos += (long) (PERIOD_SECONDS * 1e9);
+            context.updateTiming(nowNanos);
+            ControlCommand command = strategy.calculateControl(context);
+            stopped |= linear > 0 && command.getLinearVelocity() == 0;
+            linear = command.getLinearVelocity();
+            robot.drive(command, PERIOD_SECONDS);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,92 @@
+package com.satinavrobotics.satibot.navigation.strategy;
+
+import com.satinavrobotics.satibot.navigation.OccupancyGrid;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Measures {@link DynamicWindowPlanner} plan time and allocation per plan on a 10 cm occupancy
+ * grid, in front of a wall with a gap, next to the 5 ms control loop budget. The scenarios it is
+ * checked against are in DynamicWindowPlannerTest.
+ *
+ * <p>Run {@link #main(String[])} on a desktop JVM; allocation is read from
+ * com.sun.management.ThreadMXBean and reported as -1 where unsupported. Has no Android
+ * dependencies.
+ */
+public final class DynamicWindowPlannerBenchmark {
+    private static final float RESOLUTION = 0.1f;
+    private static final int GRID_CELLS = 200;
+    private static final float PERIOD_SECONDS = 0.05f;
+    private static final float BUDGET_MICROS = 5000f;
+
+    private static volatile float sink;
+
+    private DynamicWindowPlannerBenchmark() {}
+
+    public static void main(String[] args) {
+        int plans = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        // Robot at the origin facing +z, +x to its right; walls {ahead0, right0, ahead1, right1}
+        float[] obstacles = rasterize(new float[][] {
+                {1.0f, -5.0f, 1.0f, -0.2f}, {1.0f, 0.6f, 1.0f, 5.0f}, {-0.6f, -1.0f, 0.5f, -1.0f}});
+        OccupancyGrid grid = new OccupancyGrid(RESOLUTION, GRID_CELLS);
+        grid.updateSensorPose(0, 0, 0, 1);
+        for (int i = 0; i < obstacles.length; i += 2) {
+            grid.markOccupied(obstacles[i], obstacles[i + 1]);
+        }
+        DynamicWindowPlanner planner = new DynamicWindowPlanner();
+
+        // Warm up
+        for (int i = 0; i < plans; i++) {
+            planner.plan(4, 0.3f, grid, PERIOD_SECONDS);
+        }
+
+        long startBytes = allocatedBytes();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < plans; i++) {
+            planner.plan(4, 0.3f, grid, PERIOD_SECONDS);
+            sink += planner.getAngular();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long bytes = allocatedBytes() - startBytes;
+        double micros = elapsedNanos / 1e3 / plans;
+        System.out.println(String.format(Locale.US,
+                "plan %8.1f us (%.0f%% of %.0f ms budget) %8.1f bytes/plan, %d arcs, %d admissible",
+                micros, 100 * micros / BUDGET_MICROS, BUDGET_MICROS / 1000,
+                startBytes < 0 ? -1.0 : (double) bytes / plans,
+                planner.getEvaluatedCount(), planner.getAdmissibleCount()));
+    }
+
+    /**
+     * @return world x, z pairs every half cell along the segments
+     */
+    private static float[] rasterize(float[][] walls) {
+        int count = 0;
+        for (float[] wall : walls) {
+            count += samples(wall);
+        }
+        float[] points = new float[2 * count];
+        int n = 0;
+        for (float[] wall : walls) {
+            int samples = samples(wall);
+            for (int s = 0; s < samples; s++) {
+                float t = samples == 1 ? 0 : (float) s / (samples - 1);
+                points[n++] = wall[1] + (wall[3] - wall[1]) * t;
+                points[n++] = wall[0] + (wall[2] - wall[0]) * t;
+            }
+        }
+        return points;
+    }
+
+    private static int samples(float[] wall) {
+        float length = (float) Math.hypot(wall[2] - wall[0], wall[3] - wall[1]);
+        return 1 + (int) Math.ceil(length / (RESOLUTION / 2));
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
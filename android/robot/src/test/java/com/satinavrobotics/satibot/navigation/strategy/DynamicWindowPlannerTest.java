@@ -0,0 +1,195 @@
+package com.satinavrobotics.satibot.navigation.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.navigation.OccupancyGrid;
+import com.satinavrobotics.satibot.navigation.sim.KinematicRobot;
+import com.satinavrobotics.satibot.navigation.sim.NavigationSimulator;
+
+import org.junit.Test;
+
+/**
+ * Drives a {@link KinematicRobot} with {@link DynamicWindowPlanner} through scenarios on a 10 cm
+ * occupancy grid and checks that it reaches the goal without touching an obstacle, or stays put
+ * when there is no way out.
+ *
+ * Scenarios are given in the start frame, ahead and to the right of the robot. The robot starts
+ * at the origin with yaw 0, facing +z with +x to its right, and a positive angular command
+ * increases the yaw, as for NavigationPose.
+ */
+public class DynamicWindowPlannerTest {
+    private static final float RESOLUTION = 0.1f;
+    private static final int GRID_CELLS = 200;
+    private static final float PERIOD_SECONDS = 0.05f;
+    private static final float TIMEOUT_SECONDS = 90f;
+    private static final float GOAL_TOLERANCE = 0.2f;
+    // Closer than this to an obstacle point counts as a collision, the cells are RESOLUTION wide
+    private static final float BODY_RADIUS = 0.15f;
+
+    /**
+     * @param reached Whether the robot got within the tolerance of the goal
+     * @param travelled Distance driven in meters
+     * @param minDistance Closest the robot came to an obstacle point
+     */
+    private record Outcome(boolean reached, float travelled, float minDistance) {}
+
+    @Test
+    public void openField() {
+        assertReached(drive(4, 0));
+    }
+
+    @Test
+    public void goalBehind() {
+        assertReached(drive(-3, 0.5f));
+    }
+
+    @Test
+    public void goalToTheRight() {
+        assertReached(drive(0.5f, 3));
+    }
+
+    @Test
+    public void goalToTheLeft() {
+        assertReached(drive(0.5f, -3));
+    }
+
+    @Test
+    public void wallAhead() {
+        assertReached(drive(4, 0, new float[] {1.5f, -1.0f, 1.5f, 1.0f}));
+    }
+
+    @Test
+    public void wallOnTheGoalSide() {
+        assertReached(drive(3, 1, new float[] {1.5f, -0.3f, 1.5f, 1.2f}));
+        assertReached(drive(3, -1, new float[] {1.5f, 0.3f, 1.5f, -1.2f}));
+    }
+
+    @Test
+    public void gapInWall() {
+        assertReached(drive(4, 0,
+                new float[] {2.0f, -5.0f, 2.0f, -0.2f}, new float[] {2.0f, 0.6f, 2.0f, 5.0f}));
+    }
+
+    @Test
+    public void culDeSac() {
+        assertReached(drive(4, 0, new float[] {1.5f, -0.8f, 1.5f, 0.8f},
+                new float[] {0.4f, -0.8f, 1.5f, -0.8f}, new float[] {0.4f, 0.8f, 1.5f, 0.8f}));
+    }
+
+    @Test
+    public void corridor() {
+        assertReached(drive(5, 0,
+                new float[] {0.5f, -0.45f, 6.0f, -0.45f}, new float[] {0.5f, 0.45f, 6.0f, 0.45f}));
+    }
+
+    @Test
+    public void boxedInStaysPut() {
+        Outcome outcome = drive(4, 0,
+                new float[] {0.4f, -0.4f, 0.4f, 0.4f}, new float[] {-0.4f, -0.4f, -0.4f, 0.4f},
+                new float[] {-0.4f, -0.4f, 0.4f, -0.4f}, new float[] {-0.4f, 0.4f, 0.4f, 0.4f});
+
+        assertFalse(outcome.reached());
+        assertTrue("travelled " + outcome.travelled(), outcome.travelled() < 0.05f);
+    }
+
+    @Test
+    public void plansRepeatablyAndResets() {
+        OccupancyGrid grid = new OccupancyGrid(RESOLUTION, GRID_CELLS);
+        grid.updateSensorPose(0, 0, 0, 1);
+        DynamicWindowPlanner planner = new DynamicWindowPlanner();
+
+        assertTrue(planner.plan(4, 0.3f, grid, PERIOD_SECONDS));
+        int evaluated = planner.getEvaluatedCount();
+        assertTrue(planner.plan(4, 0.3f, grid, PERIOD_SECONDS));
+        assertEquals(evaluated, planner.getEvaluatedCount());
+        assertTrue(planner.getAdmissibleCount() > 0);
+        assertTrue(planner.getLinear() > 0);
+
+        planner.reset();
+        assertEquals(0, planner.getLinear(), 0);
+        assertEquals(0, planner.getAngular(), 0);
+    }
+
+    private static void assertReached(Outcome outcome) {
+        assertTrue("stopped after " + outcome.travelled() + " m", outcome.reached());
+        assertTrue("closest obstacle " + outcome.minDistance() + " m",
+                outcome.minDistance() >= BODY_RADIUS);
+    }
+
+    /**
+     * @param goalAhead Goal ahead of the start
+     * @param goalRight Goal to the right of the start
+     * @param walls Segments {ahead0, right0, ahead1, right1}
+     */
+    private static Outcome drive(float goalAhead, float goalRight, float[]... walls) {
+        float[] obstacles = rasterize(walls);
+        OccupancyGrid grid = new OccupancyGrid(RESOLUTION, GRID_CELLS);
+        DynamicWindowPlanner planner = new DynamicWindowPlanner();
+        planner.setVehicleScale(NavigationSimulator.METERS_PER_SECOND_PER_UNIT,
+                NavigationSimulator.RADIANS_PER_SECOND_PER_UNIT);
+        grid.updateSensorPose(0, 0, 0, 1);
+        for (int i = 0; i < obstacles.length; i += 2) {
+            grid.markOccupied(obstacles[i], obstacles[i + 1]);
+        }
+
+        // World x is to the right of the start, z ahead of it
+        float goalX = goalRight;
+        float goalZ = goalAhead;
+        KinematicRobot robot = new KinematicRobot();
+        float minDistance = Float.MAX_VALUE;
+        for (float time = 0; time < TIMEOUT_SECONDS; time += PERIOD_SECONDS) {
+            float forwardX = robot.getForwardX();
+            float forwardZ = robot.getForwardZ();
+            grid.updateSensorPose(robot.getX(), robot.getZ(), forwardX, forwardZ);
+            if (robot.distanceTo(goalX, goalZ) < GOAL_TOLERANCE) {
+                return new Outcome(true, robot.getTravelled(), minDistance);
+            }
+            float dx = goalX - robot.getX();
+            float dz = goalZ - robot.getZ();
+            // Right of the heading is (forwardZ, -forwardX)
+            planner.plan(dx * forwardX + dz * forwardZ, dx * forwardZ - dz * forwardX, grid,
+                    PERIOD_SECONDS);
+            robot.drive(planner.getLinear(), planner.getAngular(), PERIOD_SECONDS);
+            minDistance = Math.min(minDistance, closest(obstacles, robot.getX(), robot.getZ()));
+        }
+        return new Outcome(false, robot.getTravelled(), minDistance);
+    }
+
+    /**
+     * @return world x, z pairs every half cell along the segments
+     */
+    private static float[] rasterize(float[]... walls) {
+        int count = 0;
+        for (float[] wall : walls) {
+            count += samples(wall);
+        }
+        float[] points = new float[2 * count];
+        int n = 0;
+        for (float[] wall : walls) {
+            int samples = samples(wall);
+            for (int s = 0; s < samples; s++) {
+                float t = samples == 1 ? 0 : (float) s / (samples - 1);
+                points[n++] = wall[1] + (wall[3] - wall[1]) * t;
+                points[n++] = wall[0] + (wall[2] - wall[0]) * t;
+            }
+        }
+        return points;
+    }
+
+    private static int samples(float[] wall) {
+        float length = (float) Math.hypot(wall[2] - wall[0], wall[3] - wall[1]);
+        return 1 + (int) Math.ceil(length / (RESOLUTION / 2));
+    }
+
+    private static float closest(float[] obstacles, float x, float z) {
+        float best = Float.MAX_VALUE;
+        for (int i = 0; i < obstacles.length; i += 2) {
+            float dx = obstacles[i] - x;
+            float dz = obstacles[i + 1] - z;
+            best = Math.min(best, dx * dx + dz * dz);
+        }
+        return (float) Math.sqrt(best);
+    }
+}
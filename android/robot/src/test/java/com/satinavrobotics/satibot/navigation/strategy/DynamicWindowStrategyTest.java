@@ -0,0 +1,114 @@
+package com.satinavrobotics.satibot.navigation.strategy;
+
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.navigation.ControlCommand;
+import com.satinavrobotics.satibot.navigation.NavigationContext;
+import com.satinavrobotics.satibot.navigation.OccupancyGrid;
+import com.satinavrobotics.satibot.navigation.Waypoint;
+import com.satinavrobotics.satibot.navigation.sim.KinematicRobot;
+import com.satinavrobotics.satibot.navigation.sim.NavigationSimulator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Drives a {@link KinematicRobot} with {@link DynamicWindowStrategy} towards goals off to one
+ * side, so the goal bearing from NavigationPose, the occupancy grid's clearance and the turn the
+ * command makes must all agree on which side is right.
+ *
+ * The robot starts at the origin with yaw 0, facing +z with +x to its right. A positive angular
+ * command increases the yaw.
+ */
+public class DynamicWindowStrategyTest {
+    private static final float PERIOD_SECONDS = 0.05f;
+    private static final float TIMEOUT_SECONDS = 60f;
+    // Closer than this to an obstacle cell centre counts as a collision
+    private static final float BODY_RADIUS = 0.15f;
+
+    private final DynamicWindowStrategy strategy = new DynamicWindowStrategy();
+    private final NavigationContext context = new NavigationContext();
+    private final OccupancyGrid grid = new OccupancyGrid(0.1f, 200);
+    private final KinematicRobot robot = new KinematicRobot();
+
+    private long nowNanos;
+
+    @Before
+    public void setUp() {
+        strategy.getPlanner().setVehicleScale(NavigationSimulator.METERS_PER_SECOND_PER_UNIT,
+                NavigationSimulator.RADIANS_PER_SECOND_PER_UNIT);
+        context.setOccupancyGrid(grid);
+        context.setCurrentState(NavigationContext.NavigationState.MOVING);
+        grid.updateSensorPose(0, 0, 0, 1);
+        nowNanos = System.nanoTime();
+    }
+
+    @Test
+    public void turnsRightTowardsGoalOnTheRight() {
+        context.setTargetWaypoint(Waypoint.local("goal", 2.0f, 0.5f));
+
+        ControlCommand first = tick();
+        assertTrue("angular " + first.getAngularVelocity(), first.getAngularVelocity() > 0);
+        assertTrue(drive());
+    }
+
+    @Test
+    public void turnsLeftTowardsGoalOnTheLeft() {
+        context.setTargetWaypoint(Waypoint.local("goal", -2.0f, 0.5f));
+
+        ControlCommand first = tick();
+        assertTrue("angular " + first.getAngularVelocity(), first.getAngularVelocity() < 0);
+        assertTrue(drive());
+    }
+
+    @Test
+    public void goesAroundWallOnTheRight() {
+        // Goal ahead and to the right, behind a wall covering the right side of the way there
+        context.setTargetWaypoint(Waypoint.local("goal", 1.0f, 3.0f));
+        wall(-0.3f, 1.5f, 1.2f, 1.5f);
+
+        assertTrue(drive());
+    }
+
+    @Test
+    public void goesAroundWallOnTheLeft() {
+        context.setTargetWaypoint(Waypoint.local("goal", -1.0f, 3.0f));
+        wall(0.3f, 1.5f, -1.2f, 1.5f);
+
+        assertTrue(drive());
+    }
+
+    /**
+     * @return true if the target was reached before the timeout without a collision
+     */
+    private boolean drive() {
+        for (float time = 0; time < TIMEOUT_SECONDS; time += PERIOD_SECONDS) {
+            if (strategy.isComplete(context)) {
+                return true;
+            }
+            robot.drive(tick(), PERIOD_SECONDS);
+            if (grid.getObstacleDistance(robot.getX(), robot.getZ(), BODY_RADIUS) < BODY_RADIUS) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private ControlCommand tick() {
+        nowNanos += (long) (PERIOD_SECONDS * 1e9);
+        context.updateTiming(nowNanos);
+        context.setCurrentPose(robot.getPose());
+        grid.updateSensorPose(robot.getX(), robot.getZ(), robot.getForwardX(),
+                robot.getForwardZ());
+        return strategy.calculateControl(context);
+    }
+
+    private void wall(float x0, float z0, float x1, float z1) {
+        float length = (float) Math.hypot(x1 - x0, z1 - z0);
+        int samples = 1 + (int) Math.ceil(length / (grid.getResolution() / 2));
+        for (int s = 0; s < samples; s++) {
+            float t = (float) s / (samples - 1);
+            grid.markOccupied(x0 + (x1 - x0) * t, z0 + (z1 - z0) * t);
+        }
+    }
+}
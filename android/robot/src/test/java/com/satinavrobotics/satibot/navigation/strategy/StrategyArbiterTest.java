@@ -0,0 +1,254 @@
+package com.satinavrobotics.satibot.navigation.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.navigation.ControlCommand;
+import com.satinavrobotics.satibot.navigation.NavigationContext;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs {@link StrategyArbiter} on stub strategies whose canHandle() is switched by the test, at
+ * 50 Hz, and checks the reasons in its trace.
+ *
+ * Runs with Robolectric because the trace is only reported as JSON.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StrategyArbiterTest {
+    private static final long TICK_NANOS = 20_000_000L;
+
+    private final StrategyArbiter arbiter = new StrategyArbiter();
+    private final NavigationContext context = new NavigationContext();
+    private long nowNanos;
+
+    @Test
+    public void higherPriorityTakesOverAfterSwitchTicksAndDwell() throws JSONException {
+        Stub low = new Stub("low", 1, 0.1f, 0);
+        Stub high = new Stub("high", 2, 0.2f, 0);
+        arbiter.add(low);
+        arbiter.add(high);
+        arbiter.setHysteresis(3, 5 * TICK_NANOS);
+
+        high.capable = false;
+        assertSame(low, tick());
+        high.capable = true;
+        // Preferred for long enough after 3 ticks, but low stays active for 5 ticks
+        for (int i = 1; i < 5; i++) {
+            assertSame("tick " + i, low, tick());
+        }
+        assertSame(high, tick());
+        assertSame(high, tick());
+
+        assertEquals(List.of("STARTED", "HELD", "HELD", "HELD", "HELD", "PREFERRED", "KEPT"),
+                reasons());
+        assertEquals("high", trace().getJSONObject(1).getString("preferred"));
+        assertEquals(1, high.resets);
+        assertEquals(4, arbiter.toJson().getLong("heldTicks"));
+        assertEquals(2, arbiter.toJson().getLong("switches"));
+    }
+
+    @Test
+    public void flickeringStrategyDoesNotTakeOver() throws JSONException {
+        Stub low = new Stub("low", 1, 0.1f, 0);
+        Stub flicker = new Stub("flicker", 2, 0.2f, 0);
+        arbiter.add(low);
+        arbiter.add(flicker);
+        arbiter.setHysteresis(3, 0);
+
+        flicker.capable = false;
+        tick();
+        for (int i = 0; i < 21; i++) {
+            flicker.capable = i % 3 != 2; // Preferred for 2 ticks at a time
+            assertSame("tick " + i, low, tick());
+        }
+        flicker.capable = true;
+        tick();
+        tick();
+        assertSame(flicker, tick());
+
+        assertEquals(1, flicker.resets);
+        assertEquals(2, arbiter.toJson().getLong("switches"));
+        List<String> reasons = reasons();
+        assertEquals("PREFERRED", reasons.get(reasons.size() - 1));
+    }
+
+    @Test
+    public void fallbackIsImmediate() throws JSONException {
+        Stub low = new Stub("low", 1, 0.1f, 0);
+        Stub high = new Stub("high", 2, 0.2f, 0);
+        arbiter.add(low);
+        arbiter.add(high);
+        arbiter.setHysteresis(10, 1_000_000_000L);
+
+        assertSame(high, tick());
+        high.capable = false;
+        assertSame(low, tick());
+        low.capable = false;
+        assertNull(tick());
+        assertTrue(arbiter.command(context).isStop());
+
+        assertEquals(List.of("STARTED", "FALLBACK", "NONE"), reasons());
+        assertEquals(1, low.resets);
+    }
+
+    @Test
+    public void tiesGoToRegistrationOrder() {
+        Stub first = new Stub("first", 1, 0.1f, 0);
+        Stub second = new Stub("second", 1, 0.2f, 0);
+        Stub later = new Stub("later", 2, 0.3f, 0);
+        arbiter.add(first);
+        arbiter.add(second);
+        assertSame(first, tick());
+
+        StrategyArbiter reversed = new StrategyArbiter();
+        reversed.add(second);
+        reversed.add(first);
+        assertSame(second, reversed.select(context, nowNanos));
+
+        arbiter.remove(first);
+        arbiter.add(later);
+        arbiter.add(first);
+        later.capable = false;
+        assertSame(second, tick());
+    }
+
+    @Test
+    public void blendsByWeightWhileTheOthersCanHandleTheContext() throws JSONException {
+        Stub active = new Stub("active", 3, 1.0f, 0.5f);
+        Stub helper = new Stub("helper", 2, 0.2f, -0.5f);
+        Stub unweighted = new Stub("unweighted", 1, -1.0f, -1.0f);
+        arbiter.add(active);
+        arbiter.add(helper);
+        arbiter.add(unweighted);
+        arbiter.setBlendWeight(active, 3);
+        arbiter.setBlendWeight(helper, 1);
+
+        tick();
+        assertCommand(0.8f, 0.25f, arbiter.command(context));
+
+        helper.capable = false;
+        tick();
+        assertCommand(1.0f, 0.5f, arbiter.command(context));
+
+        helper.capable = true;
+        arbiter.setBlendWeight(active, 0);
+        tick();
+        assertCommand(1.0f, 0.5f, arbiter.command(context));
+
+        JSONArray trace = trace();
+        assertEquals(2, trace.getJSONObject(0).getInt("blended"));
+        assertFalse(trace.getJSONObject(1).has("blended"));
+        assertEquals(0.8, trace.getJSONObject(0).getDouble("linear"), 1e-6);
+        assertEquals(1, arbiter.toJson().getLong("blendedTicks"));
+    }
+
+    @Test
+    public void traceKeepsTheLastTicksOldestFirst() throws JSONException {
+        Stub counting = new Stub("counting", 1, 0, 0);
+        arbiter.add(counting);
+        int extra = 10;
+        // Number the ticks by their command, which is limited to [-1, 1]
+        float step = 0.001f;
+        for (int i = 0; i < StrategyArbiter.TRACE_CAPACITY + extra; i++) {
+            counting.linear = i * step;
+            tick();
+            arbiter.command(context);
+        }
+
+        JSONObject json = arbiter.toJson();
+        JSONArray trace = json.getJSONArray("trace");
+        assertEquals(StrategyArbiter.TRACE_CAPACITY + extra, json.getLong("ticks"));
+        assertEquals(StrategyArbiter.TRACE_CAPACITY, trace.length());
+        for (int row = 0; row < trace.length(); row++) {
+            JSONObject tick = trace.getJSONObject(row);
+            assertEquals("row " + row, (extra + row) * step, tick.getDouble("linear"), 1e-6);
+            assertEquals("row " + row, (trace.length() - 1 - row) * TICK_NANOS / 1_000_000L,
+                    tick.getLong("ageMs"));
+        }
+        assertEquals("KEPT", trace.getJSONObject(0).getString("reason"));
+    }
+
+    private NavigationStrategy tick() {
+        nowNanos += TICK_NANOS;
+        return arbiter.select(context, nowNanos);
+    }
+
+    private JSONArray trace() throws JSONException {
+        return arbiter.toJson().getJSONArray("trace");
+    }
+
+    private List<String> reasons() throws JSONException {
+        JSONArray trace = trace();
+        List<String> reasons = new ArrayList<>();
+        for (int i = 0; i < trace.length(); i++) {
+            reasons.add(trace.getJSONObject(i).getString("reason"));
+        }
+        return reasons;
+    }
+
+    private static void assertCommand(float linear, float angular, ControlCommand command) {
+        assertEquals("linear", linear, command.getLinearVelocity(), 1e-6f);
+        assertEquals("angular", angular, command.getAngularVelocity(), 1e-6f);
+    }
+
+    /**
+     * Drives with a fixed command while {@link #capable}
+     */
+    private static final class Stub implements NavigationStrategy {
+        private final String name;
+        private final int priority;
+        float linear;
+        float angular;
+        boolean capable = true;
+        int resets;
+
+        Stub(String name, int priority, float linear, float angular) {
+            this.name = name;
+            this.priority = priority;
+            this.linear = linear;
+            this.angular = angular;
+        }
+
+        @Override
+        public ControlCommand calculateControl(NavigationContext context) {
+            return new ControlCommand(linear, angular);
+        }
+
+        @Override
+        public boolean isComplete(NavigationContext context) {
+            return false;
+        }
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+
+        @Override
+        public String getStrategyName() {
+            return name;
+        }
+
+        @Override
+        public boolean canHandle(NavigationContext context) {
+            return capable;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+    }
+}
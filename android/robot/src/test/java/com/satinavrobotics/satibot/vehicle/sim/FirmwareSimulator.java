@@ -0,0 +1,364 @@
+package com.satinavrobotics.satibot.vehicle.sim;
+
+import com.satinavrobotics.satibot.vehicle.transport.VehicleTransport;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless stand-in for the firmware in firmware/satibot. It parses the phone-to-robot messages
+ * (c, f, h, m, s) from a {@link VehicleTransport}, runs a port of the VelocityController and
+ * KalmanFilter against a simulated differential-drive base, and sends telemetry in the format of
+ * COMMUNICATION_PROTOCOL.md at configurable rates (up to several kHz).
+ *
+ * <p>The simulator either runs in real time on its own thread ({@link #start()}) or is advanced
+ * explicitly with {@link #step(long)} for deterministic runs. Connect it to the app with a
+ * {@link com.satinavrobotics.satibot.vehicle.transport.LoopbackTransport} pair, or run {@link
+ * FirmwareSimulatorServer} on a desktop and point the app's TCP transport at it.
+ *
+ * <p>Has no Android dependencies.
+ */
+public class FirmwareSimulator {
+  // Geometry, matches firmware/satibot/src/Sensors.cpp
+  public static final float WHEEL_DIAMETER_METERS = 0.16f;
+  public static final int PULSES_PER_REVOLUTION = 30;
+  public static final float WHEEL_BASE_METERS = 0.43f;
+
+  private static final long ODOMETRY_WINDOW_MS = 250;
+  private static final long BATTERY_INTERVAL_MS = 1000;
+  private static final long MAX_SUBSTEP_NANOS = 1_000_000L;
+  private static final double METERS_PER_PULSE =
+      Math.PI * WHEEL_DIAMETER_METERS / PULSES_PER_REVOLUTION;
+
+  // Configuration
+  private long sensorPeriodNanos = 10_000_000L; // e/i/k/p/c, every 10 ms like the firmware
+  private long controlPeriodNanos = 10_000_000L; // h/ch/th/n/a, once per main loop
+  private float maxWheelSpeed = 1.0f; // m/s at full PWM
+  private float motorTimeConstant = 0.15f; // s, first-order wheel response
+  private float imuNoise = 0.01f; // rad/s standard deviation
+  private String robotType = "DIY_ESP32";
+  private boolean hasStatusLeds = false;
+
+  private final SimVelocityController velocityController = new SimVelocityController();
+  private final SimKalmanFilter kalmanFilter = new SimKalmanFilter();
+  private final Random random;
+  private final int[] pwm = new int[2];
+
+  private VehicleTransport transport;
+  private volatile boolean running = false;
+  private Thread thread;
+
+  // Simulated time
+  private long nowNanos;
+  private long nextSensorNanos;
+  private long nextControlNanos;
+  private long lastOdometryMs;
+  private long lastBatteryMs;
+
+  // Communication state
+  private long heartbeatIntervalMs = -1;
+  private long heartbeatTimeMs;
+  private boolean stopEnabled = false;
+
+  // Plant state
+  private double leftWheelSpeed;
+  private double rightWheelSpeed;
+  private double x;
+  private double y;
+  private double heading;
+  private double leftTravel;
+  private double rightTravel;
+  private int leftCount;
+  private int rightCount;
+
+  // Odometry output, recomputed every 250 ms from the unsigned counts like the firmware
+  private float odometryOmega;
+  private float odometryLinearVelocity;
+
+  private long telemetryMessages;
+
+  public FirmwareSimulator() {
+    this(0L);
+  }
+
+  /** @param seed seed for the sensor noise, for reproducible runs */
+  public FirmwareSimulator(long seed) {
+    random = new Random(seed);
+    velocityController.begin(0);
+    nextSensorNanos = sensorPeriodNanos;
+    nextControlNanos = controlPeriodNanos;
+  }
+
+  /** Connect to the phone side. Sends the ready signal like the firmware does on boot. */
+  public synchronized void attach(VehicleTransport transport) {
+    this.transport = transport;
+    transport.setDataListener(this::onMessage);
+    emit("r");
+  }
+
+  /** Start advancing the simulation in real time on a background thread. */
+  public synchronized void start() {
+    if (running) return;
+    running = true;
+    thread = new Thread(this::runRealtime, "FirmwareSimulator");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public synchronized void stop() {
+    running = false;
+    if (thread != null) {
+      thread.interrupt();
+      thread = null;
+    }
+  }
+
+  private void runRealtime() {
+    long tickNanos = Math.min(Math.min(sensorPeriodNanos, controlPeriodNanos), MAX_SUBSTEP_NANOS);
+    long last = System.nanoTime();
+    while (running) {
+      LockSupport.parkNanos(tickNanos);
+      long now = System.nanoTime();
+      step(now - last);
+      last = now;
+    }
+  }
+
+  /** Advance the simulation by dtNanos of simulated time. */
+  public synchronized void step(long dtNanos) {
+    long end = nowNanos + dtNanos;
+    while (nowNanos < end) {
+      long substep = Math.min(MAX_SUBSTEP_NANOS, end - nowNanos);
+      long untilTelemetry = Math.min(nextSensorNanos, nextControlNanos) - nowNanos;
+      if (untilTelemetry > 0) substep = Math.min(substep, untilTelemetry);
+      nowNanos += substep;
+      tick(substep / 1e9);
+    }
+  }
+
+  private void tick(double dt) {
+    long nowMs = nowNanos / 1_000_000L;
+
+    if (heartbeatIntervalMs >= 0 && nowMs - heartbeatTimeMs >= heartbeatIntervalMs) {
+      velocityController.setTargetLinearVelocity(0.0f);
+      velocityController.setTargetAngularVelocity(0.0f);
+    }
+
+    velocityController.update(nowMs, imuYawRate());
+
+    if (nowNanos >= nextControlNanos) {
+      nextControlNanos += controlPeriodNanos;
+      emit("h" + format(velocityController.getHeadingAdjustment()));
+      emit("ch" + format(velocityController.getHeading()));
+      emit("th" + format(velocityController.getTargetHeading()));
+      emit("n" + format(velocityController.getNormalizedLinearVelocity()));
+      emit("a" + format(velocityController.getTargetAngularVelocity()));
+    }
+
+    if (stopEnabled) {
+      pwm[0] = 0;
+      pwm[1] = 0;
+    } else {
+      velocityController.computeMotorPwm(pwm);
+    }
+    integratePlant(dt);
+
+    if (nowMs - lastOdometryMs >= ODOMETRY_WINDOW_MS) {
+      updateOdometry(nowMs);
+    }
+
+    if (nowNanos >= nextSensorNanos) {
+      nextSensorNanos += sensorPeriodNanos;
+      updateKalmanFilter();
+    }
+
+    if (nowMs - lastBatteryMs >= BATTERY_INTERVAL_MS) {
+      lastBatteryMs = nowMs;
+      emit("v100,3.23");
+    }
+  }
+
+  private void integratePlant(double dt) {
+    double alpha = dt / (motorTimeConstant + dt);
+    double speedPerPwm = maxWheelSpeed / (double) SimVelocityController.MAX_PWM;
+    leftWheelSpeed += alpha * (pwm[0] * speedPerPwm - leftWheelSpeed);
+    rightWheelSpeed += alpha * (pwm[1] * speedPerPwm - rightWheelSpeed);
+
+    double v = (leftWheelSpeed + rightWheelSpeed) / 2.0;
+    double omega = (rightWheelSpeed - leftWheelSpeed) / WHEEL_BASE_METERS;
+    x += v * Math.cos(heading) * dt;
+    y += v * Math.sin(heading) * dt;
+    heading += omega * dt;
+
+    // Encoders are unsigned: they count pulses regardless of direction
+    leftTravel += Math.abs(leftWheelSpeed) * dt;
+    rightTravel += Math.abs(rightWheelSpeed) * dt;
+    int leftPulses = (int) (leftTravel / METERS_PER_PULSE);
+    int rightPulses = (int) (rightTravel / METERS_PER_PULSE);
+    leftCount += leftPulses;
+    rightCount += rightPulses;
+    leftTravel -= leftPulses * METERS_PER_PULSE;
+    rightTravel -= rightPulses * METERS_PER_PULSE;
+  }
+
+  private void updateOdometry(long nowMs) {
+    float windowSeconds = ODOMETRY_WINDOW_MS / 1000.0f;
+    float leftVelocity = (float) (leftCount * METERS_PER_PULSE / windowSeconds);
+    float rightVelocity = (float) (rightCount * METERS_PER_PULSE / windowSeconds);
+    odometryLinearVelocity = (leftVelocity + rightVelocity) / 2.0f;
+    odometryOmega = (rightVelocity - leftVelocity) / WHEEL_BASE_METERS;
+    leftCount = 0;
+    rightCount = 0;
+    lastOdometryMs = nowMs;
+  }
+
+  /** IMU yaw rate as reported by the sensor, which is mounted with inverted sign */
+  private float imuYawRate() {
+    double omega = (rightWheelSpeed - leftWheelSpeed) / WHEEL_BASE_METERS;
+    return (float) (-omega + random.nextGaussian() * imuNoise);
+  }
+
+  private void updateKalmanFilter() {
+    float wWheel = odometryOmega;
+    float wImu = imuYawRate();
+    float aCmd = ((pwm[0] + pwm[1]) / 2.0f) / 255.0f;
+    float alphaCmd = (pwm[1] - pwm[0]) / 255.0f * 2.0f / WHEEL_BASE_METERS;
+
+    kalmanFilter.setDt(sensorPeriodNanos / 1e9f);
+    kalmanFilter.predictAngular(alphaCmd);
+    kalmanFilter.updateAngularFromWheel(wWheel);
+    kalmanFilter.updateLinearFromWheel(odometryLinearVelocity);
+    kalmanFilter.updateAngularFromImu(wImu);
+    kalmanFilter.updateLinearFromImu(0.0f);
+    kalmanFilter.predictLinear(aCmd);
+    kalmanFilter.setHighUncertainty(false);
+
+    emit("e" + format(wWheel));
+    emit("i" + format(wImu));
+    emit("k" + format(kalmanFilter.getAngularVelocity()));
+    emit("p" + pwm[0] + "," + pwm[1]);
+    emit("c" + leftCount + "," + rightCount);
+  }
+
+  private synchronized void onMessage(String line) {
+    if (line.isEmpty()) return;
+    char header = line.charAt(0);
+    String body = line.substring(1);
+    try {
+      switch (header) {
+        case 'c':
+          {
+            String[] parts = body.split("[,:]");
+            velocityController.setTargetLinearVelocity(Float.parseFloat(parts[0]));
+            velocityController.setTargetAngularVelocity(Float.parseFloat(parts[1]));
+            break;
+          }
+        case 'f':
+          emit("f" + robotType + ":" + (hasStatusLeds ? "ls:" : ""));
+          break;
+        case 'h':
+          heartbeatIntervalMs = Long.parseLong(body.trim());
+          heartbeatTimeMs = nowNanos / 1_000_000L;
+          break;
+        case 'm':
+          if (body.isEmpty()) {
+            SimVelocityController vc = velocityController;
+            emit(
+                String.format(
+                    Locale.US,
+                    "m%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f",
+                    vc.kp,
+                    vc.kd,
+                    vc.noControlScaleFactor,
+                    vc.normalControlScaleFactor,
+                    vc.rotationScaleFactor,
+                    vc.velocityBias,
+                    vc.rotationBias));
+          } else {
+            String[] p = body.split("[,:]");
+            velocityController.setControlParameters(
+                Float.parseFloat(p[0]),
+                Float.parseFloat(p[1]),
+                Float.parseFloat(p[2]),
+                Float.parseFloat(p[3]),
+                Float.parseFloat(p[4]),
+                Float.parseFloat(p[5]),
+                Float.parseFloat(p[6]));
+          }
+          break;
+        case 's':
+          velocityController.setTargetLinearVelocity(0.0f);
+          velocityController.setTargetAngularVelocity(0.0f);
+          stopEnabled = body.startsWith("1");
+          break;
+        default:
+          // The firmware silently ignores unknown headers (e.g. 'l', 'i', 'w')
+          break;
+      }
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      // atof() on the firmware turns garbage into zeros; dropping the message is close enough
+    }
+  }
+
+  private void emit(String message) {
+    VehicleTransport t = transport;
+    if (t == null) return;
+    telemetryMessages++;
+    t.send(message + "\n");
+  }
+
+  private static String format(float value) {
+    return String.format(Locale.US, "%.6f", value);
+  }
+
+  /** Rate of the e/i/k/p/c sensor telemetry */
+  public synchronized void setSensorRateHz(double hz) {
+    sensorPeriodNanos = (long) (1e9 / hz);
+    nextSensorNanos = nowNanos + sensorPeriodNanos;
+  }
+
+  /** Rate of the h/ch/th/n/a controller telemetry */
+  public synchronized void setControlRateHz(double hz) {
+    controlPeriodNanos = (long) (1e9 / hz);
+    nextControlNanos = nowNanos + controlPeriodNanos;
+  }
+
+  public synchronized void setMaxWheelSpeed(float metersPerSecond) {
+    maxWheelSpeed = metersPerSecond;
+  }
+
+  public synchronized void setMotorTimeConstant(float seconds) {
+    motorTimeConstant = seconds;
+  }
+
+  public synchronized void setImuNoise(float radiansPerSecond) {
+    imuNoise = radiansPerSecond;
+  }
+
+  public synchronized void setRobotType(String robotType, boolean hasStatusLeds) {
+    this.robotType = robotType;
+    this.hasStatusLeds = hasStatusLeds;
+  }
+
+  /** Ground-truth position in meters, x forward at start, y to the left */
+  public synchronized double getX() {
+    return x;
+  }
+
+  public synchronized double getY() {
+    return y;
+  }
+
+  /** Ground-truth heading in radians, counter-clockwise positive */
+  public synchronized double getHeading() {
+    return heading;
+  }
+
+  public synchronized long getSimulatedTimeNanos() {
+    return nowNanos;
+  }
+
+  public synchronized long getTelemetryMessages() {
+    return telemetryMessages;
+  }
+}
@@ -0,0 +1,104 @@
+package com.satinavrobotics.satibot.vehicle.sim;
+
+import com.satinavrobotics.satibot.env.LatencyHistogram;
+import com.satinavrobotics.satibot.vehicle.TelemetryDecoder;
+import com.satinavrobotics.satibot.vehicle.transport.LoopbackTransport;
+import com.satinavrobotics.satibot.vehicle.transport.TransportMetrics;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Loads the telemetry path with {@link FirmwareSimulator} sending at increasing sensor rates over
+ * a {@link LoopbackTransport}, decoded by {@link TelemetryDecoder} as in the app, and reports the
+ * received line rate, dropped lines and the command to reply round trip of an 'f' request sent
+ * every 10 ms.
+ *
+ * <p>Run {@link #main(String[])} on a desktop JVM with arguments [seconds per rate]. Has no
+ * Android dependencies.
+ */
+public final class FirmwareSimulatorBenchmark {
+  private static final double[] SENSOR_RATES_HZ = {100, 1000, 5000};
+  private static final long REQUEST_PERIOD_NANOS = 10_000_000L;
+
+  private FirmwareSimulatorBenchmark() {}
+
+  public static void main(String[] args) {
+    double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+    for (double rate : SENSOR_RATES_HZ) {
+      run(rate, seconds);
+    }
+  }
+
+  private static void run(double sensorRateHz, double seconds) {
+    LoopbackTransport link = LoopbackTransport.create();
+    LatencyHistogram roundTrips = new LatencyHistogram();
+    AtomicLong requestNanos = new AtomicLong();
+    AtomicLong decoded = new AtomicLong();
+    TelemetryDecoder decoder =
+        new TelemetryDecoder(
+            new TelemetryDecoder.Listener() {
+              @Override
+              public void onReady() {}
+
+              @Override
+              public void onVehicleConfig(String config) {
+                long start = requestNanos.getAndSet(0);
+                if (start != 0) roundTrips.record(System.nanoTime() - start);
+              }
+
+              @Override
+              public void onBatteryPercentage(float percentage) {}
+
+              @Override
+              public void onWheelRpm(float left, float right) {}
+
+              @Override
+              public void onFusedAngularVelocity(float angularVelocity) {}
+
+              @Override
+              public void onWheelCounts(float left, float right) {}
+            });
+    link.setDataListener(
+        line -> {
+          if (decoder.decode(line)) decoded.incrementAndGet();
+        });
+
+    FirmwareSimulator simulator = new FirmwareSimulator(1);
+    simulator.setSensorRateHz(sensorRateHz);
+    simulator.setControlRateHz(Math.min(sensorRateHz, 100));
+    simulator.attach(link.getPeer());
+    simulator.start();
+    link.send("c64,32\n");
+
+    long start = System.nanoTime();
+    long end = start + (long) (seconds * 1e9);
+    long next = start;
+    while (System.nanoTime() < end) {
+      next += REQUEST_PERIOD_NANOS;
+      LockSupport.parkNanos(next - System.nanoTime());
+      // Only one request in flight, so each reply matches the request that caused it
+      if (requestNanos.compareAndSet(0, System.nanoTime())) link.send("f\n");
+    }
+    double elapsed = (System.nanoTime() - start) / 1e9;
+    simulator.stop();
+
+    TransportMetrics received = link.getMetrics();
+    TransportMetrics sent = link.getPeer().getMetrics();
+    System.out.println(
+        String.format(
+            Locale.US,
+            "%6.0f Hz  %9.0f lines/s  %9.0f decoded/s  dropped %d/%d  "
+                + "round trip p50 %6.1f us p99 %7.1f us max %7.1f us (%d)",
+            sensorRateHz,
+            received.getLinesReceived() / elapsed,
+            decoded.get() / elapsed,
+            sent.getMessagesDropped(),
+            sent.getMessagesSent() + sent.getMessagesDropped(),
+            roundTrips.getPercentile(50) / 1e3,
+            roundTrips.getPercentile(99) / 1e3,
+            roundTrips.getMaxNanos() / 1e3,
+            roundTrips.getCount()));
+    link.close();
+  }
+}
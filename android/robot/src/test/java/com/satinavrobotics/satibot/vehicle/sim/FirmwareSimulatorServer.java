@@ -0,0 +1,49 @@
+package com.satinavrobotics.satibot.vehicle.sim;
+
+import com.satinavrobotics.satibot.vehicle.transport.TcpTransport;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.locks.LockSupport;
+import timber.log.Timber;
+
+/**
+ * Serves {@link FirmwareSimulator} over TCP for the app's TCP transport, one connection at a time,
+ * so the app can be driven without a robot. Run {@link #main(String[])} on a desktop JVM.
+ */
+public final class FirmwareSimulatorServer {
+
+  private FirmwareSimulatorServer() {}
+
+  /** Usage: FirmwareSimulatorServer [port] [sensorRateHz] */
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 19400;
+    double sensorRateHz = args.length > 1 ? Double.parseDouble(args[1]) : 100.0;
+    Timber.plant(
+        new Timber.Tree() {
+          @Override
+          protected void log(int priority, String tag, String message, Throwable t) {
+            System.err.println(message);
+            if (t != null) t.printStackTrace();
+          }
+        });
+
+    try (ServerSocket server = new ServerSocket(port)) {
+      Timber.i("Firmware simulator listening on port %d", port);
+      while (true) {
+        Socket socket = server.accept();
+        Timber.i("Client connected: %s", socket.getRemoteSocketAddress());
+        TcpTransport transport = new TcpTransport(socket);
+        FirmwareSimulator simulator = new FirmwareSimulator(System.nanoTime());
+        simulator.setSensorRateHz(sensorRateHz);
+        simulator.attach(transport);
+        simulator.start();
+        while (transport.isConnected()) {
+          LockSupport.parkNanos(100_000_000L);
+        }
+        simulator.stop();
+        Timber.i("Client disconnected: %s", transport.getMetrics());
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.satinavrobotics.satibot.vehicle.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.env.LatencyHistogram;
+import com.satinavrobotics.satibot.vehicle.TelemetryDecoder;
+import com.satinavrobotics.satibot.vehicle.transport.LoopbackTransport;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Connects the app's telemetry decoding to {@link FirmwareSimulator} over a {@link
+ * LoopbackTransport}, the way Vehicle talks to the robot, and checks the command and telemetry
+ * round trip.
+ */
+public class FirmwareSimulatorTest {
+  private static final long TIMEOUT_MILLIS = 2000;
+  // Generous bound for a loaded CI machine; the benchmark reports the actual latency
+  private static final long MAX_MEDIAN_ROUND_TRIP_MILLIS = 20;
+
+  private final LoopbackTransport link = LoopbackTransport.create();
+  private final FirmwareSimulator simulator = new FirmwareSimulator(1);
+  private final BlockingQueue<String> configs = new LinkedBlockingQueue<>();
+  private volatile boolean ready;
+  private volatile int leftCounts;
+  private volatile int rightCounts;
+
+  @Before
+  public void setUp() {
+    link.setDataListener(
+        new TelemetryDecoder(
+                new TelemetryDecoder.Listener() {
+                  @Override
+                  public void onReady() {
+                    ready = true;
+                  }
+
+                  @Override
+                  public void onVehicleConfig(String config) {
+                    configs.add(config);
+                  }
+
+                  @Override
+                  public void onBatteryPercentage(float percentage) {}
+
+                  @Override
+                  public void onWheelRpm(float left, float right) {}
+
+                  @Override
+                  public void onFusedAngularVelocity(float angularVelocity) {}
+
+                  @Override
+                  public void onWheelCounts(float left, float right) {
+                    leftCounts += (int) left;
+                    rightCounts += (int) right;
+                  }
+                })
+            ::decode);
+    simulator.attach(link.getPeer());
+  }
+
+  @After
+  public void tearDown() {
+    simulator.stop();
+    link.close();
+  }
+
+  @Test
+  public void answersFeatureRequest() throws InterruptedException {
+    assertTrue(link.send("f\n"));
+
+    assertEquals("DIY_ESP32:", configs.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    assertTrue(ready);
+  }
+
+  @Test
+  public void driveCommandMovesTheRobotAndReportsCounts() throws InterruptedException {
+    simulator.start();
+    assertTrue(link.send("c128,0\n"));
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+    while ((simulator.getX() < 0.1 || leftCounts == 0) && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue("x " + simulator.getX(), simulator.getX() >= 0.1);
+    assertTrue("left " + leftCounts + " right " + rightCounts, leftCounts > 0 && rightCounts > 0);
+    assertEquals(0, simulator.getHeading(), 0.05);
+  }
+
+  @Test
+  public void roundTripIsFast() throws InterruptedException {
+    simulator.start();
+    LatencyHistogram roundTrips = new LatencyHistogram();
+    for (int i = 0; i < 50; i++) {
+      long start = System.nanoTime();
+      assertTrue(link.send("f\n"));
+      assertEquals("DIY_ESP32:", configs.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+      roundTrips.record(System.nanoTime() - start);
+    }
+
+    long medianMillis = TimeUnit.NANOSECONDS.toMillis(roundTrips.getPercentile(50));
+    assertTrue("median " + medianMillis + " ms", medianMillis <= MAX_MEDIAN_ROUND_TRIP_MILLIS);
+  }
+}
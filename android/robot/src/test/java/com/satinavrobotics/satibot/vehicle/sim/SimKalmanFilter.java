@@ -0,0 +1,98 @@
+package com.satinavrobotics.satibot.vehicle.sim;
+
+/** Port of firmware/satibot/src/KalmanFilter.cpp (scalar angular and linear velocity filters). */
+class SimKalmanFilter {
+  private static final float Q_W_DEFAULT = 0.1f;
+  private static final float Q_V_DEFAULT = 0.1f;
+  private static final float R_WHEEL_W = 0.5f;
+  private static final float R_IMU_W = 1.0f;
+  private static final float R_WHEEL_V = 0.5f;
+  private static final float R_IMU_V = 1.0f;
+
+  private float dt = 0.01f;
+  private float wEst;
+  private float pW;
+  private float qW;
+  private float vEst;
+  private float pV;
+  private float qV;
+  private boolean highUncertaintyMode;
+
+  SimKalmanFilter() {
+    reset();
+  }
+
+  void setDt(float dt) {
+    this.dt = dt;
+  }
+
+  void reset() {
+    wEst = 0.0f;
+    pW = 1.0f;
+    qW = Q_W_DEFAULT;
+    vEst = 0.0f;
+    pV = 1.0f;
+    qV = Q_V_DEFAULT;
+    highUncertaintyMode = false;
+  }
+
+  void predictAngular(float alphaCmd) {
+    wEst = wEst + dt * alphaCmd;
+    pW = pW + qW;
+  }
+
+  void updateAngularFromWheel(float wWheel) {
+    updateAngular(wWheel, R_WHEEL_W);
+  }
+
+  void updateAngularFromImu(float wImu) {
+    updateAngular(wImu, R_IMU_W);
+  }
+
+  private void updateAngular(float z, float r) {
+    float k = pW / (pW + r);
+    wEst = wEst + k * (z - wEst);
+    pW = (1 - k) * pW;
+  }
+
+  void predictLinear(float aCmd) {
+    vEst = vEst + dt * aCmd;
+    pV = pV + qV;
+  }
+
+  void updateLinearFromWheel(float vWheel) {
+    updateLinear(vWheel, R_WHEEL_V);
+  }
+
+  void updateLinearFromImu(float vImu) {
+    updateLinear(vImu, R_IMU_V);
+  }
+
+  private void updateLinear(float z, float r) {
+    float k = pV / (pV + r);
+    vEst = vEst + k * (z - vEst);
+    pV = (1 - k) * pV;
+  }
+
+  void setHighUncertainty(boolean highUncertainty) {
+    if (highUncertainty == highUncertaintyMode) return;
+    highUncertaintyMode = highUncertainty;
+    if (highUncertainty) {
+      qW = Q_W_DEFAULT * 10.0f;
+      qV = Q_V_DEFAULT * 10.0f;
+      pW *= 2.0f;
+      pV *= 2.0f;
+    } else {
+      qW = Q_W_DEFAULT;
+      qV = Q_V_DEFAULT;
+    }
+  }
+
+  float getAngularVelocity() {
+    return wEst;
+  }
+
+  float getLinearVelocity() {
+    return vEst;
+  }
+}
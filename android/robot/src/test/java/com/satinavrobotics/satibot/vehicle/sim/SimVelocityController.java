@@ -0,0 +1,211 @@
+package com.satinavrobotics.satibot.vehicle.sim;
+
+/**
+ * Port of firmware/satibot/src/VelocityController.cpp: linear velocity ramping and the PD heading
+ * controller that turns the commanded angular velocity into left/right PWM values. Quirks of the
+ * firmware (e.g. the asymmetric error clamp) are kept on purpose so the simulator behaves like the
+ * robot.
+ */
+class SimVelocityController {
+  static final int MAX_PWM = 255;
+  private static final float LINEAR_ACCELERATION_RATE = 0.5f;
+  private static final float LINEAR_DECELERATION_RATE = 0.9f;
+  private static final long UPDATE_INTERVAL_MS = 100;
+
+  // Gains as set in satibot.ino setup()
+  float kp = 7.0f;
+  float kd = 0.8f;
+  float noControlScaleFactor = 2.0f;
+  float normalControlScaleFactor = 6.5f;
+  float rotationScaleFactor = 6.0f;
+  float velocityBias = 0.75f;
+  float rotationBias = 0.0f;
+
+  private float targetAngularVelocity;
+  private float targetLinearVelocity;
+  private float rampedLinearVelocity;
+  private float normalizedLinearVelocity;
+  private float lastError;
+  private float headingAdjustment;
+  private float heading;
+  private float targetHeading;
+  private boolean noControl;
+  private boolean noControlAdjusted;
+  private long lastUpdateMs;
+  private float measuredDt = UPDATE_INTERVAL_MS / 1000.0f;
+
+  void begin(long nowMs) {
+    reset();
+    lastUpdateMs = nowMs;
+  }
+
+  void setControlParameters(
+      float kp,
+      float kd,
+      float noControlScale,
+      float normalControlScale,
+      float rotationScale,
+      float velocityBias,
+      float rotationBias) {
+    this.kp = kp;
+    this.kd = kd;
+    this.noControlScaleFactor = noControlScale;
+    this.normalControlScaleFactor = normalControlScale;
+    this.rotationScaleFactor = rotationScale;
+    this.velocityBias = velocityBias;
+    this.rotationBias = rotationBias;
+  }
+
+  /** Linear velocity as sent by the phone, in the range -255..255 */
+  void setTargetLinearVelocity(float targetVelocity) {
+    targetLinearVelocity = targetVelocity / 255.0f;
+  }
+
+  /** Angular velocity as sent by the phone, in the range -255..255 */
+  void setTargetAngularVelocity(float targetVelocity) {
+    targetAngularVelocity = targetVelocity / 255.0f;
+    if (Math.abs(targetLinearVelocity) > 0.01f && Math.abs(targetAngularVelocity) > 0.001f) {
+      targetAngularVelocity *= 1.0f - Math.abs(targetLinearVelocity);
+      if (targetLinearVelocity < 0) targetAngularVelocity *= -1.0f;
+    }
+  }
+
+  /** @param imuYawRate filtered IMU yaw rate as reported by the sensor (inverted sign) */
+  void update(long nowMs, float imuYawRate) {
+    if (nowMs - lastUpdateMs < UPDATE_INTERVAL_MS) return;
+    measuredDt = (nowMs - lastUpdateMs) / 1000.0f;
+    if (measuredDt <= 0.0f) measuredDt = UPDATE_INTERVAL_MS / 1000.0f;
+
+    float omega = -imuYawRate;
+    heading += omega * measuredDt;
+    updateRampedLinearVelocity();
+
+    if (Math.abs(targetAngularVelocity) < 0.001f && Math.abs(targetLinearVelocity) < 0.001f) {
+      if (!noControl) {
+        heading = targetHeading;
+        lastError = 0.0f;
+      }
+      noControl = true;
+    } else {
+      noControl = false;
+      noControlAdjusted = false;
+    }
+
+    targetHeading += targetAngularVelocity * measuredDt;
+
+    if (noControl && !noControlAdjusted && Math.abs(targetHeading - heading) < 0.1f) {
+      noControlAdjusted = true;
+      targetHeading = heading;
+    }
+    if (noControlAdjusted) targetHeading = heading;
+
+    float error = targetHeading - heading;
+    if (error > 2.0f) {
+      if (error > 3.0f) {
+        reset();
+      } else {
+        error = 2.0f;
+      }
+    } else if (error < -2.0f) {
+      // Same comparison as the firmware: any error below -2 resets the controller
+      if (error < 3.0f) {
+        reset();
+      } else {
+        error = -2.0f;
+      }
+    }
+
+    float derivative = (error - lastError) / measuredDt;
+    headingAdjustment = kp * error + kd * derivative;
+    lastError = error;
+    lastUpdateMs = nowMs;
+  }
+
+  void reset() {
+    lastError = 0.0f;
+    headingAdjustment = 0.0f;
+    targetAngularVelocity = 0.0f;
+    targetLinearVelocity = 0.0f;
+    rampedLinearVelocity = 0.0f;
+    normalizedLinearVelocity = 0.0f;
+    heading = 0.0f;
+    targetHeading = heading;
+    noControl = false;
+    noControlAdjusted = false;
+    measuredDt = UPDATE_INTERVAL_MS / 1000.0f;
+  }
+
+  private void updateRampedLinearVelocity() {
+    if (rampedLinearVelocity == targetLinearVelocity) {
+      normalizedLinearVelocity = rampedLinearVelocity;
+      return;
+    }
+    float change = targetLinearVelocity - rampedLinearVelocity;
+    boolean isSpeedingUp = false;
+    if ((rampedLinearVelocity >= 0 && targetLinearVelocity >= 0)
+        || (rampedLinearVelocity <= 0 && targetLinearVelocity <= 0)) {
+      isSpeedingUp = Math.abs(targetLinearVelocity) > Math.abs(rampedLinearVelocity);
+    }
+    float rampRate = isSpeedingUp ? LINEAR_ACCELERATION_RATE : LINEAR_DECELERATION_RATE;
+    float increment = rampRate * measuredDt;
+    if (change > 0) {
+      rampedLinearVelocity = Math.min(rampedLinearVelocity + increment, targetLinearVelocity);
+    } else {
+      rampedLinearVelocity = Math.max(rampedLinearVelocity - increment, targetLinearVelocity);
+    }
+    normalizedLinearVelocity = rampedLinearVelocity;
+  }
+
+  /** Writes the left and right PWM values into pwm[0] and pwm[1]. */
+  void computeMotorPwm(int[] pwm) {
+    float scaledLinearVelocity = normalizedLinearVelocity * MAX_PWM;
+    int left;
+    int right;
+    if (noControlAdjusted) {
+      left = 0;
+      right = 0;
+    } else if (noControl || Math.abs(scaledLinearVelocity) > 0.01f) {
+      float scaleFactor = noControl ? noControlScaleFactor : normalControlScaleFactor;
+      float adjustment =
+          headingAdjustment * scaleFactor * (Math.abs(normalizedLinearVelocity) + velocityBias);
+      left = (int) (scaledLinearVelocity - adjustment);
+      right = (int) (scaledLinearVelocity + adjustment);
+      if (scaledLinearVelocity > 0) {
+        left = constrain(left, 0, MAX_PWM);
+        right = constrain(right, 0, MAX_PWM);
+      } else {
+        left = constrain(left, -MAX_PWM, 0);
+        right = constrain(right, -MAX_PWM, 0);
+      }
+    } else {
+      left = constrain((int) (-rotationScaleFactor * headingAdjustment + rotationBias), -255, 255);
+      right = constrain((int) (rotationScaleFactor * headingAdjustment + rotationBias), -255, 255);
+    }
+    pwm[0] = left;
+    pwm[1] = right;
+  }
+
+  private static int constrain(int value, int min, int max) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  float getNormalizedLinearVelocity() {
+    return normalizedLinearVelocity;
+  }
+
+  float getTargetAngularVelocity() {
+    return targetAngularVelocity;
+  }
+
+  float getHeadingAdjustment() {
+    return headingAdjustment;
+  }
+
+  float getHeading() {
+    return heading;
+  }
+
+  float getTargetHeading() {
+    return targetHeading;
+  }
+}
@@ -0,0 +1,46 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class LineFramerTest {
+
+  private final List<String> lines = new ArrayList<>();
+  private final LineFramer framer = new LineFramer(lines::add);
+
+  @Test
+  public void joinsLinesSplitAcrossChunks() {
+    framer.append(bytes("k0.1\nc1"));
+    framer.append(bytes("2,3"));
+    framer.append(bytes("4\r\n\n"));
+
+    assertEquals(List.of("k0.1", "c12,34"), lines);
+  }
+
+  @Test
+  public void messageChunkEndsTheLine() {
+    framer.appendMessage(bytes("e0.5"));
+    framer.appendMessage(bytes("i0.25\nk0.3"));
+    framer.appendMessage(bytes("c1,2\n"));
+    framer.appendMessage(bytes(""));
+
+    assertEquals(List.of("e0.5", "i0.25", "k0.3", "c1,2"), lines);
+  }
+
+  @Test
+  public void resetDropsPartialLine() {
+    framer.append(bytes("c1,"));
+    framer.reset();
+    framer.append(bytes("r\n"));
+
+    assertEquals(List.of("r"), lines);
+  }
+
+  private static byte[] bytes(String text) {
+    return text.getBytes(UTF_8);
+  }
+}
@@ -0,0 +1,79 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class LoopbackTransportTest {
+
+  private final LoopbackTransport vehicle = LoopbackTransport.create();
+  private final LoopbackTransport firmware = vehicle.getPeer();
+
+  @After
+  public void tearDown() {
+    vehicle.close();
+  }
+
+  @Test
+  public void deliversLinesToTheOtherEnd() throws InterruptedException {
+    List<String> received = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(3);
+    firmware.setDataListener(
+        line -> {
+          received.add(line);
+          done.countDown();
+        });
+
+    assertTrue(vehicle.send("c10,"));
+    assertTrue(vehicle.send("-5\nf\n"));
+    assertTrue(vehicle.send("h500\n"));
+
+    assertTrue(done.await(1, TimeUnit.SECONDS));
+    assertEquals(List.of("c10,-5", "f", "h500"), received);
+    assertEquals(3, vehicle.getMetrics().getMessagesSent());
+    assertEquals(14, vehicle.getMetrics().getBytesSent());
+    assertEquals(3, firmware.getMetrics().getLinesReceived());
+    assertEquals(14, firmware.getMetrics().getBytesReceived());
+  }
+
+  @Test
+  public void dropsWhenTheOtherEndFallsBehind() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    firmware.setDataListener(
+        line -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+
+    int accepted = 0;
+    for (int i = 0; i < 2000; i++) {
+      if (vehicle.send("c1,1\n")) accepted++;
+    }
+    release.countDown();
+
+    TransportMetrics metrics = vehicle.getMetrics();
+    assertTrue("accepted " + accepted, accepted < 2000);
+    assertEquals(accepted, metrics.getMessagesSent());
+    assertEquals(2000 - accepted, metrics.getMessagesDropped());
+  }
+
+  @Test
+  public void closeDisconnectsBothEnds() {
+    firmware.close();
+
+    assertFalse(vehicle.isConnected());
+    assertFalse(firmware.isConnected());
+    assertFalse(vehicle.send("s1\n"));
+    assertEquals(1, vehicle.getMetrics().getMessagesDropped());
+  }
+}
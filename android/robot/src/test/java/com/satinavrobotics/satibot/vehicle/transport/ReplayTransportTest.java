@@ -0,0 +1,181 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.satinavrobotics.satibot.vehicle.TelemetryDecoder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Records telemetry with {@link LinkRecorder}, reads it back with {@link LinkRecordingReader} and
+ * plays it through {@link ReplayTransport} into {@link TelemetryDecoder}, the way the app decodes
+ * the live link.
+ */
+public class ReplayTransportTest {
+
+  // Lines are split across chunks the way the serial and Bluetooth links deliver them
+  private static final String[] RX_CHUNKS = {
+    "r\nfDIY_ESP32:ls:\nv8", "5\nk0.", "25\nc12,-4\n", "w30,31\nc7,9\nx\n"
+  };
+  private static final String TX_CHUNK = "c100,100\n";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void readerReturnsRecordedChunks() throws IOException {
+    File file = record(0);
+
+    try (LinkRecordingReader reader = new LinkRecordingReader(file)) {
+      long previousNanos = -1;
+      for (int i = 0; i <= RX_CHUNKS.length; i++) {
+        LinkRecordingReader.Chunk chunk = reader.next();
+        boolean tx = i == 2;
+        String expected = tx ? TX_CHUNK : RX_CHUNKS[i < 2 ? i : i - 1];
+
+        assertEquals(!tx, chunk.isRx());
+        assertArrayEquals(expected.getBytes(StandardCharsets.US_ASCII), chunk.data());
+        assertTrue(chunk.timestampNanos() >= previousNanos);
+        previousNanos = chunk.timestampNanos();
+      }
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  public void replayDecodesRecordedTelemetry() throws IOException {
+    ReplayTransport replay = new ReplayTransport(record(0), false);
+    Telemetry telemetry = new Telemetry();
+    TelemetryDecoder decoder = new TelemetryDecoder(telemetry);
+    replay.setDataListener(decoder::decode);
+
+    assertEquals(8, replay.replay());
+
+    telemetry.assertDecoded();
+    assertEquals(1, replay.getRecordedTxChunks());
+    assertEquals(totalRxBytes(), replay.getBytesReplayed());
+    assertEquals(8, replay.getMetrics().getLinesReceived());
+    assertFalse(replay.isConnected());
+  }
+
+  @Test
+  public void backgroundReplayDeliversEveryLine() throws Exception {
+    ReplayTransport replay = new ReplayTransport(record(0), true);
+    Telemetry telemetry = new Telemetry();
+    replay.setDataListener(new TelemetryDecoder(telemetry)::decode);
+
+    replay.start();
+    replay.awaitCompletion();
+
+    telemetry.assertDecoded();
+    assertEquals(8, replay.getLinesDelivered());
+  }
+
+  @Test
+  public void stopEndsRealtimeReplayBeforeTheLastChunk() throws Exception {
+    ReplayTransport replay = new ReplayTransport(record(2000), true);
+    Telemetry telemetry = new Telemetry();
+    replay.setDataListener(new TelemetryDecoder(telemetry)::decode);
+
+    replay.start();
+    replay.stop();
+    long delivered = replay.getLinesDelivered();
+    replay.awaitCompletion();
+
+    assertFalse(replay.isConnected());
+    assertEquals(delivered, replay.getLinesDelivered());
+    assertTrue("delivered " + delivered, delivered < 8);
+  }
+
+  /**
+   * @param lastChunkDelayMillis how long after the others the last chunk is recorded
+   */
+  private File record(long lastChunkDelayMillis) throws IOException {
+    File file = folder.newFile("link.sblr");
+    LinkRecorder recorder = new LinkRecorder(file);
+    recorder.recordRx(bytes(RX_CHUNKS[0]));
+    recorder.recordRx(bytes(RX_CHUNKS[1]));
+    recorder.recordTx(bytes(TX_CHUNK));
+    recorder.recordRx(bytes(RX_CHUNKS[2]));
+    if (lastChunkDelayMillis > 0) {
+      try {
+        Thread.sleep(lastChunkDelayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    recorder.recordRx(bytes(RX_CHUNKS[3]));
+    recorder.close();
+    return file;
+  }
+
+  private static byte[] bytes(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static long totalRxBytes() {
+    long total = 0;
+    for (String chunk : RX_CHUNKS) total += chunk.length();
+    return total;
+  }
+
+  private static final class Telemetry implements TelemetryDecoder.Listener {
+    boolean ready;
+    String config;
+    float battery;
+    float fusedAngularVelocity;
+    float leftRpm;
+    float rightRpm;
+    final List<String> counts = new ArrayList<>();
+
+    @Override
+    public void onReady() {
+      ready = true;
+    }
+
+    @Override
+    public void onVehicleConfig(String config) {
+      this.config = config;
+    }
+
+    @Override
+    public void onBatteryPercentage(float percentage) {
+      battery = percentage;
+    }
+
+    @Override
+    public void onWheelRpm(float left, float right) {
+      leftRpm = left;
+      rightRpm = right;
+    }
+
+    @Override
+    public void onFusedAngularVelocity(float angularVelocity) {
+      fusedAngularVelocity = angularVelocity;
+    }
+
+    @Override
+    public void onWheelCounts(float left, float right) {
+      counts.add((int) left + "," + (int) right);
+    }
+
+    void assertDecoded() {
+      assertTrue(ready);
+      assertEquals("DIY_ESP32:ls:", config);
+      assertEquals(85f, battery, 0);
+      assertEquals(0.25f, fusedAngularVelocity, 0);
+      assertEquals(30f, leftRpm, 0);
+      assertEquals(31f, rightRpm, 0);
+      assertEquals(List.of("12,-4", "7,9"), counts);
+    }
+  }
+}
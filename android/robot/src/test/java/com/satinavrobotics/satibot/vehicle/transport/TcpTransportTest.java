@@ -0,0 +1,84 @@
+package com.satinavrobotics.satibot.vehicle.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Connects a client {@link TcpTransport} to one wrapping the accepted socket on localhost. */
+public class TcpTransportTest {
+
+  private ServerSocket server;
+  private TcpTransport client;
+  private TcpTransport robot;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new ServerSocket(0);
+    client = new TcpTransport("127.0.0.1", server.getLocalPort());
+    assertTrue(client.connect(1000));
+    robot = new TcpTransport(server.accept());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    client.close();
+    robot.close();
+    server.close();
+  }
+
+  @Test
+  public void exchangesLinesBothWays() throws InterruptedException {
+    List<String> atRobot = new CopyOnWriteArrayList<>();
+    List<String> atClient = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(4);
+    robot.setDataListener(
+        line -> {
+          atRobot.add(line);
+          done.countDown();
+        });
+    client.setDataListener(
+        line -> {
+          atClient.add(line);
+          done.countDown();
+        });
+
+    assertTrue(client.send("c10,-5\n"));
+    assertTrue(client.send("f\n"));
+    assertTrue(robot.send("fDIY_ESP32:\nk0."));
+    assertTrue(robot.send("25\n"));
+
+    assertTrue(done.await(2, TimeUnit.SECONDS));
+    assertEquals(List.of("c10,-5", "f"), atRobot);
+    assertEquals(List.of("fDIY_ESP32:", "k0.25"), atClient);
+
+    TransportMetrics metrics = client.getMetrics();
+    assertEquals(2, metrics.getMessagesSent());
+    assertEquals(9, metrics.getBytesSent());
+    assertEquals(2, metrics.getLinesReceived());
+    assertEquals(18, metrics.getBytesReceived());
+    assertEquals(2, robot.getMetrics().getLinesReceived());
+  }
+
+  @Test
+  public void remoteCloseDisconnects() throws InterruptedException {
+    robot.close();
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while (client.isConnected() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertFalse(client.isConnected());
+    assertFalse(client.send("s1\n"));
+    assertEquals(1, client.getMetrics().getMessagesDropped());
+  }
+}